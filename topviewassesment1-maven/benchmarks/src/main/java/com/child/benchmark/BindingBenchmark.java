@@ -0,0 +1,78 @@
+package com.child.benchmark;
+
+import com.child.pojo.UserPO;
+import com.child.util.fake.FakeDriver;
+import com.child.util.orm.bean.ForPreparedStatement;
+import com.child.util.orm.bean.MetaMapperStatement;
+import com.child.util.orm.handler.MapSqlHandler;
+import com.child.util.orm.handler.ObjectSqlHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ObjectSqlHandler}与{@link MapSqlHandler}创建语句并为占位符赋值的开销。<br/>
+ * <p/>
+ * 语句的模板已预先编译，连接为{@link FakeDriver}的连接，测得的是属性读取与赋值的开销。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+    private final ObjectSqlHandler objectSqlHandler = new ObjectSqlHandler();
+    private final MapSqlHandler mapSqlHandler = new MapSqlHandler();
+    private final Map<String, Object> parametersMap = new HashMap<>();
+    private Connection connection;
+    private MetaMapperStatement metaMapperStatement;
+    private UserPO userPO;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = new FakeDriver().connect(FakeDriver.PREFIX + "binding;rows=0", new Properties());
+        metaMapperStatement = new MetaMapperStatement("com.child.dao.UserDAO.updateById", "update",
+                "update t_user set oldCar = #{oldCar}, name = #{name}, email = #{email} where id = #{id};", null);
+        metaMapperStatement.getSqlTemplate();
+        userPO = new UserPO(1L, "user1", "user1@qq.com", "CN", "GTR");
+        parametersMap.put("id", 1L);
+        parametersMap.put("name", "user1");
+        parametersMap.put("email", "user1@qq.com");
+        parametersMap.put("oldCar", "GTR");
+    }
+
+    @Benchmark
+    public PreparedStatement objectBinding() throws SQLException {
+        try (PreparedStatement preparedStatement = objectSqlHandler.sqlHandler(
+                new ForPreparedStatement(connection, metaMapperStatement), userPO)) {
+            return preparedStatement;
+        }
+    }
+
+    @Benchmark
+    public PreparedStatement mapBinding() throws SQLException {
+        try (PreparedStatement preparedStatement = mapSqlHandler.sqlHandler(
+                new ForPreparedStatement(connection, metaMapperStatement), parametersMap)) {
+            return preparedStatement;
+        }
+    }
+}
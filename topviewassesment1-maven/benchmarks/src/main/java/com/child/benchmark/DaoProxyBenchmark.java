@@ -0,0 +1,51 @@
+package com.child.benchmark;
+
+import com.child.dao.UserDAO;
+import com.child.pojo.UserPO;
+import com.child.util.orm.util.DaoImplFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过{@link DaoImplFactory}代理调用{@link UserDAO}的完整开销，包括参数转换、开启会话、
+ * 创建语句与赋值以及结果集映射。连接由模拟驱动FakeDriver提供，不包含数据库本身的耗时。<br/>
+ * 使用自动提交模式，每次调用结束即关闭会话并归还连接，与{@code UserDaoBenchmark}保持一致。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoProxyBenchmark {
+    private UserDAO userDAO;
+
+    @Setup
+    public void setUp() {
+        userDAO = new DaoImplFactory("stub-dao", true).getDaoImplProxy(UserDAO.class);
+    }
+
+    @Benchmark
+    public UserPO selectById() throws SQLException {
+        return userDAO.selectById(1L);
+    }
+
+    @Benchmark
+    public int updateById() throws SQLException {
+        return userDAO.updateById(1L, "user1", "GTR");
+    }
+}
@@ -0,0 +1,71 @@
+package com.child.benchmark;
+
+import com.child.util.ChildDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChildDataSource}借出与归还连接的吞吐量，分别在1、4、16、64个线程下测试。<br/>
+ * <p/>
+ * 连接由模拟驱动FakeDriver创建，测得的是连接池自身的开销，包括线程绑定、活跃池登记以及获取连接时的计时线程。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoolBenchmark {
+    private ChildDataSource dataSource;
+
+    @Setup
+    public void setUp() {
+        dataSource = ChildDataSource.creatDataSource("stub-pool");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Connection borrowRelease1() throws SQLException {
+        return borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Connection borrowRelease4() throws SQLException {
+        return borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Connection borrowRelease16() throws SQLException {
+        return borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Connection borrowRelease64() throws SQLException {
+        return borrowAndRelease();
+    }
+
+    private Connection borrowAndRelease() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        return connection;
+    }
+}
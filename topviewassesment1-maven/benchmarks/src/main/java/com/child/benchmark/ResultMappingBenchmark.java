@@ -0,0 +1,51 @@
+package com.child.benchmark;
+
+import com.child.pojo.UserPO;
+import com.child.util.fake.FakeDatabase;
+import com.child.util.fake.FakeDriver;
+import com.child.util.orm.handler.ListResultHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ListResultHandler}将N行记录映射为{@link UserPO}的开销，结果集由{@link FakeDatabase}在内存中提供。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultMappingBenchmark {
+    @Param({"1", "100", "1000"})
+    public int rows;
+
+    private FakeDatabase database;
+
+    @Setup
+    public void setUp() {
+        database = FakeDriver.database("mapping-" + rows);
+        database.setResult(FakeDatabase.USER_COLUMNS, FakeDatabase.userRows(rows));
+    }
+
+    @Benchmark
+    public List<UserPO> mapRows() throws SQLException {
+        return new ListResultHandler<UserPO>(UserPO.class).handler(database.resultSet());
+    }
+}
@@ -0,0 +1,66 @@
+package com.child.benchmark;
+
+import com.child.util.orm.bean.SqlTemplate;
+import com.child.util.orm.handler.ObjectSqlHandler;
+import com.child.util.orm.handler.SqlHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 原生SQL的解析开销：{@link SqlHandler#parsePrototypeSql(String)}、{@link SqlHandler#fieldMap(String)}，
+ * 以及将两者合并为一次编译的{@link SqlTemplate#compile(String)}。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlCompileBenchmark {
+    /**
+     * SELECT为单个占位符的查询，UPDATE为多个占位符且含驼峰字段名的更新
+     */
+    @Param({"SELECT", "UPDATE"})
+    public String statement;
+
+    private String prototypeSql;
+
+    private final SqlHandler<Object> sqlHandler = new ObjectSqlHandler();
+
+    @Setup
+    public void setUp() {
+        prototypeSql = "SELECT".equals(statement)
+                ? "select * from t_user where id = #{id};"
+                : "update t_user set oldCar = #{oldCar}, name = #{name}, email = #{email} where id = #{id};";
+    }
+
+    @Benchmark
+    public String parsePrototypeSql() {
+        return sqlHandler.parsePrototypeSql(prototypeSql);
+    }
+
+    @Benchmark
+    public Map<Integer, String> fieldMap() {
+        return sqlHandler.fieldMap(prototypeSql);
+    }
+
+    @Benchmark
+    public SqlTemplate compileTemplate() {
+        return SqlTemplate.compile(prototypeSql);
+    }
+}
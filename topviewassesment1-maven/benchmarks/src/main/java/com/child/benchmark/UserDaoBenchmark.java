@@ -0,0 +1,179 @@
+package com.child.benchmark;
+
+import com.child.dao.UserDAO;
+import com.child.pojo.UserPO;
+import com.child.util.ChildDataSource;
+import com.child.util.orm.SimpleSqlSessionFactory;
+import com.child.util.orm.util.DaoImplFactory;
+import com.child.util.orm.util.SimpleSqlSessionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过{@link DaoImplFactory}代理调用{@link UserDAO}的端到端基准测试，数据库为以MySQL模式运行的内嵌H2。<br/>
+ * <p/>
+ * 与{@link DaoProxyBenchmark}不同，这里包含了SQL在数据库中执行的耗时，用于观察框架各层在真实负载下的回归。
+ * 测试前预置{@code SEED_ROWS}行记录，name为"user"加id并建有索引；
+ * {@code mixed()}依次执行insert、selectById、selectByName与updateById，其余方法分别只执行其中一种操作。<br/>
+ * DAO以自动提交的方式执行，每次调用都在独立的会话中完成并归还连接，避免各线程的事务互相等待行锁。<br/>
+ * <p/>
+ * 通过{@code main()}运行时，依次在{@code THREADS}中的每个并发数下测试吞吐量（ops/s）与
+ * 采样耗时（p50、p99、p99.9，微秒），并启用{@link GCProfiler}统计每次操作分配的字节数（gc.alloc.rate.norm），
+ * 结果以json格式写入{@code target/user-dao-<模式>-t<并发数>.json}。
+ * 数据库与测试运行在同一个进程中，分配的字节数也包含了H2自身的分配。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class UserDaoBenchmark {
+    /**
+     * 预置的记录数
+     */
+    static final int SEED_ROWS = 10000;
+
+    /**
+     * 通过main()运行时测试的并发数
+     */
+    static final int[] THREADS = {1, 8, 32};
+
+    private UserDAO userDAO;
+
+    private SimpleSqlSessionFactory factory;
+
+    /**
+     * 建表与预置数据使用临时的连接池，完成后即关闭，测试期间只有DAO使用的一个连接池。
+     * DAO使用的工厂类由{@code build()}重新创建，避免复用之前的测试已关闭的工厂类。<br/>
+     */
+    @Setup
+    public void setUp() throws SQLException {
+        try (ChildDataSource dataSource = ChildDataSource.creatDataSource("h2-dao");
+             Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists t_user");
+            statement.execute("create table t_user(id bigint auto_increment primary key, " +
+                    "name varchar(50), email varchar(50), address varchar(50), old_car varchar(50))");
+            statement.execute("create index idx_user_name on t_user(name)");
+            statement.execute("insert into t_user(name, email, address, old_car) " +
+                    "select concat('user', n), concat('user', n, '@qq.com'), 'CN', 'GTR' " +
+                    "from system_range(1, " + SEED_ROWS + ") r(n)");
+        }
+        factory = (SimpleSqlSessionFactory) SimpleSqlSessionUtil.build("h2-dao");
+        userDAO = new DaoImplFactory("h2-dao", true).getDaoImplProxy(UserDAO.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    /**
+     * 每个线程依次执行的操作序号
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        int next;
+    }
+
+    @Benchmark
+    public Object mixed(Worker worker) throws SQLException {
+        switch (worker.next++ & 3) {
+            case 0:
+                return insert();
+            case 1:
+                return selectById();
+            case 2:
+                return selectByName();
+            default:
+                return updateById();
+        }
+    }
+
+    @Benchmark
+    public int insert() throws SQLException {
+        return userDAO.insert(new UserPO(null, "bench", "bench@qq.com", "CN", "GTR"));
+    }
+
+    @Benchmark
+    public UserPO selectById() throws SQLException {
+        return userDAO.selectById(randomId());
+    }
+
+    @Benchmark
+    public List<UserPO> selectByName() throws SQLException {
+        return userDAO.selectByName("user" + randomId());
+    }
+
+    @Benchmark
+    public int updateById() throws SQLException {
+        long id = randomId();
+        // name保持不变，保证selectByName始终能查到一行
+        return userDAO.updateById(id, "user" + id, ThreadLocalRandom.current().nextBoolean() ? "GTR" : "BMW");
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, SEED_ROWS + 1);
+    }
+
+    /**
+     * 按固定的并发数依次运行，参数为要运行的方法名的正则表达式，默认运行所有方法。<br/>
+     *
+     * @param args 方法名的正则表达式，例如{@code mixed}
+     * @throws RunnerException 运行失败
+     */
+    public static void main(String[] args) throws RunnerException {
+        String methods = args.length > 0 ? args[0] : ".*";
+        File output = new File("target");
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new RuntimeException("无法创建结果目录:" + output.getAbsolutePath());
+        }
+        for (int threads : THREADS) {
+            run(methods, threads, Mode.Throughput, TimeUnit.SECONDS, new File(output, "user-dao-thrpt-t" + threads + ".json"));
+            run(methods, threads, Mode.SampleTime, TimeUnit.MICROSECONDS, new File(output, "user-dao-sample-t" + threads + ".json"));
+        }
+    }
+
+    private static void run(String methods, int threads, Mode mode, TimeUnit timeUnit, File result)
+            throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UserDaoBenchmark.class.getName() + '.' + methods + '$')
+                .threads(threads)
+                .mode(mode)
+                .timeUnit(timeUnit)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build();
+        new Runner(options).run();
+    }
+}
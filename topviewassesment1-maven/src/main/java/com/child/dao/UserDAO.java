@@ -23,6 +23,15 @@ public interface UserDAO {
      */
     int insert(UserPO userPO) throws SQLException;
 
+    /**
+     * 批量插入记录，所有用户合并为一条多行插入语句，行数较多时自动分块。
+     *
+     * @param users 指定用户集合
+     * @return 受影响行数
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    int insertBatch(List<UserPO> users) throws SQLException;
+
     /**
      * 根据用户id删除用户数据。
      *
@@ -69,4 +78,23 @@ public interface UserDAO {
      * @throws SQLException sqlexception异常，向上抛出
      */
     <E> List<E> selectByOldCar(@Param("oldCar") String oldCar) throws SQLException;
+
+    /**
+     * 根据多个用户id查询用户数据。
+     *
+     * @param ids 用户id集合，不能为空
+     * @return {@link List}<{@link E}> 返回包含指定返回值类型元素的集合
+     * @throws SQLException sqlexception异常，向上抛出
+     */
+    <E> List<E> selectByIds(@Param("ids") List<Long> ids) throws SQLException;
+
+    /**
+     * 根据可选条件查询用户数据，条件为null时忽略该条件。
+     *
+     * @param name   名字，可以为null
+     * @param oldCar 旧汽车，可以为null
+     * @return {@link List}<{@link E}> 返回包含指定返回值类型元素的集合
+     * @throws SQLException sqlexception异常，向上抛出
+     */
+    <E> List<E> selectByCondition(@Param("name") String name, @Param("oldCar") String oldCar) throws SQLException;
 }
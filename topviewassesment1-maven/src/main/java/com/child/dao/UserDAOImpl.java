@@ -30,6 +30,19 @@ public class UserDAOImpl implements UserDAO{
         return sqlSession.insert("com.child.dao.UserDAO.insert", handle);
     }
 
+    @Override
+    public int insertBatch(List<UserPO> users) throws SQLException {
+        // 通过工具类获取获取会话
+        SqlSession sqlSession = SimpleSqlSessionUtil.openSession();
+
+        // 创建一个参数处理器，并得到处理后的单参数，即用户集合
+        ParametersHandler insert = new ParametersHandler("insertBatch", USERDAO_CLASS, new Object[]{users});
+        Object handle = insert.handle();
+
+        // 将集合传入，展开为多行插入，返回受影响行数
+        return sqlSession.insert("com.child.dao.UserDAO.insertBatch", handle);
+    }
+
     @Override
     public int deleteById(Long id) throws SQLException {
         // 通过工具类获取获取会话
@@ -105,4 +118,34 @@ public class UserDAOImpl implements UserDAO{
         // 将单参数传入，执行sql操作，返回受影响行数
         return sqlSession.selectList("com.child.dao.UserDAO.selectByOldCar", handle);
     }
+
+    @Override
+    public <E> List<E> selectByIds(List<Long> ids) throws SQLException {
+        // 通过工具类获取获取会话
+        SqlSession sqlSession = SimpleSqlSessionUtil.openSession();
+
+        // 创建一个参数处理器，并得到处理后的单参数
+        ParametersHandler insert =
+                new ParametersHandler("selectByIds", USERDAO_CLASS,
+                        new Object[]{ids});
+        Object handle = insert.handle();
+
+        // 将单参数传入，执行sql操作，返回查询结果
+        return sqlSession.selectList("com.child.dao.UserDAO.selectByIds", handle);
+    }
+
+    @Override
+    public <E> List<E> selectByCondition(String name, String oldCar) throws SQLException {
+        // 通过工具类获取获取会话
+        SqlSession sqlSession = SimpleSqlSessionUtil.openSession();
+
+        // 创建一个参数处理器，并得到处理后的单参数
+        ParametersHandler insert =
+                new ParametersHandler("selectByCondition", USERDAO_CLASS,
+                        new Object[]{name, oldCar});
+        Object handle = insert.handle();
+
+        // 将单参数传入，执行sql操作，返回查询结果
+        return sqlSession.selectList("com.child.dao.UserDAO.selectByCondition", handle);
+    }
 }
@@ -0,0 +1,87 @@
+package com.child.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * 异步日志写出器，由{@link ChildLogger}使用。<br/>
+ * <p/>
+ * 调用线程只需将日志记录放入有界的环形缓冲区{@link ArrayBlockingQueue}中即可返回，
+ * 由一个后台守护线程负责取出并交给jdk日志写出。<br/>
+ * 缓冲区已满时直接丢弃该条日志并计数，而不是阻塞调用线程，保证日志不会拖慢业务。<br/>
+ * 虚拟机退出时会将缓冲区中剩余的日志写出。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+class AsyncLogAppender {
+    /**
+     * 缓冲区容量
+     */
+    private static final int CAPACITY = 8192;
+    /**
+     * 后台线程每次最多取出的日志数量
+     */
+    private static final int DRAIN_BATCH = 256;
+
+    private final Logger target;
+    private final BlockingQueue<LogRecord> buffer = new ArrayBlockingQueue<>(CAPACITY);
+    /**
+     * 因缓冲区已满而丢弃的日志数量
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    AsyncLogAppender(Logger target) {
+        this.target = target;
+        Thread worker = new Thread(this::drainLoop, "ChildLogger-appender");
+        worker.setDaemon(true);// 设置为守护线程，不阻止虚拟机退出
+        worker.start();
+        // 虚拟机退出前写出剩余日志
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "ChildLogger-flush"));
+    }
+
+    /**
+     * 将日志记录放入缓冲区，缓冲区已满时丢弃。
+     *
+     * @param record 日志记录
+     */
+    void append(LogRecord record) {
+        if (!buffer.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * @return long 因缓冲区已满而丢弃的日志数量
+     */
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    private void drainLoop() {
+        List<LogRecord> batch = new ArrayList<>(DRAIN_BATCH);
+        while (true) {
+            try {
+                // 阻塞等待第一条，再批量取出其余的
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.drainTo(batch, DRAIN_BATCH - 1);
+            batch.forEach(target::log);
+            batch.clear();
+        }
+    }
+
+    private void drain() {
+        List<LogRecord> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        rest.forEach(target::log);
+    }
+}
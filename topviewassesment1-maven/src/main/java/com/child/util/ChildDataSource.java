@@ -3,21 +3,37 @@ package com.child.util;
 import com.child.exception.MinIdledException;
 import com.child.exception.OverMaxActiveException;
 import com.child.exception.TimedOutException;
+import com.child.util.metrics.PoolMetrics;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
@@ -37,10 +53,18 @@ import java.util.logging.Logger;
  *     </li>
  *     <li>资源绑定器{@code THREAD_LOCAL}，保证了一个线程在未释放资源前，每次获取到的连接都是同一个。</li>
  *     <li>累加器{@code PRESENT_MAX_ACTIVE}，保证了多线程操作时对于活跃数量增减的原子性与可见性，即保证了线程安全。</li>
+ *     <li>监控指标{@code metrics}，记录连接池的使用情况，并注册到JMX中以便查看。</li>
+ *     <li>
+ *         {@code maxActive}与{@code minIdle}可以通过{@link PoolConfigMXBean}在运行时调整，
+ *         故使用volatile修饰而非final，调整与获取连接使用同一把锁{@code idlePool}。
+ *     </li>
  * </ol>
  * <strong>关于方法：</strong>
  * <ol>
- *     <li>用于获取连接池对象的方法{@code creatDataSource()}。</li>
+ *     <li>
+ *         用于获取连接池对象的方法{@code creatDataSource()}。初始化连接由{@code warmUpParallelism}个线程并行创建，
+ *         开启{@code asyncWarmUp}时不等待创建完成即返回，可以通过{@code getWarmUp()}得知何时就绪。
+ *     </li>
  *     <li>
  *         核心方法 {@code getConnection()}用于返回连接资源，其中会保证多线程同步，并将经过三个自定义异常检测，
  *         分别是{@link MinIdledException}, {@link OverMaxActiveException}, {@link TimedOutException}。
@@ -50,14 +74,28 @@ import java.util.logging.Logger;
  *         重要方法二 {@code getConnectionProxy()}用于获取连接的代理类，其中特别强调了在调用{@code close()}方法时，
  *         调用的是本类中的{@code release()}方法。
  *     </li>
+ *     <li>
+ *         泄漏检测方法{@code checkLeakedConnections()}，由后台守护线程定期调用，
+ *         用于找出被持有时间超过{@code leakDetectionThreshold}却仍未{@code close()}的连接。
+ *     </li>
+ *     <li>
+ *         连接校验：开启{@code testOnBorrow}时借出前以{@link Connection#isValid(int)}校验，
+ *         开启{@code testWhileIdle}时由后台守护线程定期调用{@code validateIdleConnections()}校验空闲连接。
+ *         借出前校验失效的连接被关闭，由获取连接的线程重新建立；空闲校验发现的失效连接被关闭，由后台守护线程补充。
+ *         校验与建立连接都在锁外进行，入池时再以{@code idlePool}为锁检查容量。
+ *     </li>
+ *     <li>
+ *         {@code close()}用于关闭连接池：注销JMX中的监控指标与运行时配置，停止后台守护线程，并关闭全部空闲连接。
+ *         不再使用的连接池应当关闭，否则其线程与JMX注册将一直保留到进程退出。
+ *     </li>
  * </ol>
  *
  * @author silent_child
  * @version 1.0
  **/
 
-public class ChildDataSource implements DataSource {
-    private static final Logger logger = ChildLogger.getLogger();// 日志
+public class ChildDataSource implements DataSource, PoolConfigMXBean, AutoCloseable {
+    private static final ChildLogger logger = ChildLogger.of(ChildDataSource.class);// 日志
     private final String DRIVER;
     private final String URL;
     private final String USER;
@@ -67,13 +105,13 @@ public class ChildDataSource implements DataSource {
      */
     private final int INITIAL_SIZE;
     /**
-     * 空闲池中最少连接资源数量，默认为5
+     * 空闲池中最少连接资源数量，默认为5，可在运行时调整
      */
-    private final int MIN_IDLE;
+    private volatile int minIdle;
     /**
-     * 活跃状态下的最大连接数，默认为20
+     * 活跃状态下的最大连接数，默认为20，可在运行时调整
      */
-    private final int MAX_ACTIVE;
+    private volatile int maxActive;
     /**
      * 最大连接时长，默认是5s
      */
@@ -100,6 +138,77 @@ public class ChildDataSource implements DataSource {
      * 累加器，用于记录当前活跃连接数量
      */
     private final LongAdder presentMaxActive = new LongAdder();
+    /**
+     * 在锁外创建、校验或正在归还的连接数量，这些连接既不在空闲池也不在活跃池中，但同样占用{@code maxActive}的容量
+     */
+    private final AtomicInteger reservedConnections = new AtomicInteger();
+    /**
+     * 连接池的监控指标，记录获取次数、超时次数以及获取、持有连接的耗时分布等。
+     */
+    private final PoolMetrics metrics = new PoolMetrics(presentMaxActive::sum, idlePool::size);
+    /**
+     * 用于为每个连接池生成进程内唯一的监控名称
+     */
+    private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+    /**
+     * 获取连接时计时的状态：等待中、获取已结束、已超时。获取连接的线程与计时线程各自通过CAS离开等待状态，只有一方成功
+     */
+    private static final int WAITING = 0;
+    private static final int DONE = 1;
+    private static final int TIMED_OUT = 2;
+
+    /**
+     * 连接泄漏检测阈值，单位毫秒。连接被持有超过该时长仍未归还时视为疑似泄漏。<br/>
+     * 默认为0，即不开启泄漏检测。
+     */
+    private long leakDetectionThreshold;
+    /**
+     * 是否在借出连接时记录借出位置的调用栈，默认为false。<br/>
+     * 记录调用栈需要创建异常对象，有一定开销，建议仅在排查泄漏时开启。
+     */
+    private boolean leakDetectionStack;
+    /**
+     * 是否强制回收疑似泄漏的连接，默认为false，即仅记录日志。<br/>
+     * 被回收的连接将关闭其物理连接，原持有者后续对该连接的操作将会失败。
+     */
+    private boolean removeAbandoned;
+    /**
+     * 是否在借出连接前校验其可用性，默认为false。
+     */
+    private boolean testOnBorrow;
+    /**
+     * 是否由后台守护线程定期校验空闲连接，默认为false。
+     */
+    private boolean testWhileIdle;
+    /**
+     * 校验的超时时间，单位秒，默认为1。即{@link Connection#isValid(int)}的参数。
+     */
+    private int validationTimeout;
+    /**
+     * 跳过校验的时间窗口，单位毫秒，默认为500。连接在该时长内被使用过时视为可用，不再校验，
+     * 避免高频借还时每次借出都多一次与数据库的往返。
+     */
+    private long validationSkipWindow;
+    /**
+     * 空闲连接的校验周期，单位毫秒，默认为30000。
+     */
+    private long validationInterval;
+    /**
+     * 后台守护线程，用于定期执行泄漏检测、空闲连接校验以及补充失效的连接。仅在开启上述功能时创建。
+     */
+    private ScheduledExecutorService housekeeper;
+    /**
+     * 初始化连接的创建结果，全部创建完成后正常结束，任意连接创建失败时异常结束。
+     */
+    private CompletableFuture<Void> warmUp;
+    /**
+     * 运行时配置注册到JMX中的名称，未注册时为null
+     */
+    private ObjectName configName;
+    /**
+     * 连接池是否已关闭
+     */
+    private volatile boolean closed;
 
 
     /**
@@ -121,8 +230,8 @@ public class ChildDataSource implements DataSource {
         this.USER = user;
         this.PASSWORD = password;
         this.INITIAL_SIZE = initialSize;
-        this.MIN_IDLE = minIdle;
-        this.MAX_ACTIVE = maxActive;
+        this.minIdle = minIdle;
+        this.maxActive = maxActive;
         this.MAX_WAIT = maxWait;
     }
 
@@ -141,15 +250,52 @@ public class ChildDataSource implements DataSource {
         String url = resourceBundle.getString(ConfigConstants.URL);
         String user = resourceBundle.getString(ConfigConstants.USER);
         String password = resourceBundle.getString(ConfigConstants.PASSWORD);
-        int initialSize = Integer.parseInt(resourceBundle.getString(ConfigConstants.INITIAL_SIZE));
-        int minIdle = Integer.parseInt(resourceBundle.getString(ConfigConstants.MIN_IDLE));
-        int maxActive = Integer.parseInt(resourceBundle.getString(ConfigConstants.MAX_ACTIVE));
-        int maxWait = Integer.parseInt(resourceBundle.getString(ConfigConstants.MAX_WAIT));
+        int initialSize = getInt(resourceBundle, ConfigConstants.INITIAL_SIZE);
+        int minIdle = getInt(resourceBundle, ConfigConstants.MIN_IDLE);
+        int maxActive = getInt(resourceBundle, ConfigConstants.MAX_ACTIVE);
+        int maxWait = getInt(resourceBundle, ConfigConstants.MAX_WAIT);
+        // 校验连接池的容量配置，配置有误时不创建任何连接
+        validateSize(minIdle, maxActive);
+        if (initialSize < 0 || initialSize > maxActive) {
+            throw new RuntimeException("连接池配置有误，initialSize需在0到maxActive之间:" + initialSize);
+        }
+        if (maxWait <= 0) {
+            throw new RuntimeException("连接池配置有误，maxWait需大于0:" + maxWait);
+        }
         // 通过构造器创建连接池对象
         ChildDataSource childDataSource =
                 new ChildDataSource(driver, url, user, password, initialSize, minIdle, maxActive, maxWait);
         // 根据最大活跃数量对活跃池进行初始化
         childDataSource.activePool = new ConcurrentHashMap<>((int)(maxActive / 0.75) + 1);
+        // 泄漏检测相关的可选配置
+        childDataSource.leakDetectionThreshold = Long.parseLong(
+                getOptional(resourceBundle, ConfigConstants.LEAK_DETECTION_THRESHOLD, "0"));
+        childDataSource.leakDetectionStack = Boolean.parseBoolean(
+                getOptional(resourceBundle, ConfigConstants.LEAK_DETECTION_STACK, "false"));
+        childDataSource.removeAbandoned = Boolean.parseBoolean(
+                getOptional(resourceBundle, ConfigConstants.REMOVE_ABANDONED, "false"));
+        // 连接校验相关的可选配置
+        childDataSource.testOnBorrow = Boolean.parseBoolean(
+                getOptional(resourceBundle, ConfigConstants.TEST_ON_BORROW, "false"));
+        childDataSource.testWhileIdle = Boolean.parseBoolean(
+                getOptional(resourceBundle, ConfigConstants.TEST_WHILE_IDLE, "false"));
+        childDataSource.validationTimeout = Integer.parseInt(
+                getOptional(resourceBundle, ConfigConstants.VALIDATION_TIMEOUT, "1"));
+        childDataSource.validationSkipWindow = Long.parseLong(
+                getOptional(resourceBundle, ConfigConstants.VALIDATION_SKIP_WINDOW, "500"));
+        childDataSource.validationInterval = Long.parseLong(
+                getOptional(resourceBundle, ConfigConstants.VALIDATION_INTERVAL, "30000"));
+        if (childDataSource.validationTimeout < 1 || childDataSource.validationInterval < 1) {
+            throw new RuntimeException("连接池配置有误，validationTimeout与validationInterval需大于0");
+        }
+        // 预热相关的可选配置
+        int warmUpParallelism = Integer.parseInt(
+                getOptional(resourceBundle, ConfigConstants.WARM_UP_PARALLELISM, "4"));
+        boolean asyncWarmUp = Boolean.parseBoolean(
+                getOptional(resourceBundle, ConfigConstants.ASYNC_WARM_UP, "false"));
+        if (warmUpParallelism < 1) {
+            throw new RuntimeException("连接池配置有误，warmUpParallelism需大于0:" + warmUpParallelism);
+        }
         try {
             // 注册数据库驱动
             Class.forName(childDataSource.DRIVER);
@@ -157,13 +303,365 @@ public class ChildDataSource implements DataSource {
             throw new RuntimeException(e);
         }
         // 获取初始化资源
-        for (int i = 0; i < childDataSource.INITIAL_SIZE; i++) {
-            childDataSource.idlePool.offer(childDataSource.getConnectionProxy());
+        childDataSource.warmUp = childDataSource.startWarmUp(warmUpParallelism);
+        if (!asyncWarmUp) {
+            try {
+                childDataSource.warmUp.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+            }
+        }
+        // 开启泄漏检测
+        if (childDataSource.leakDetectionThreshold > 0) {
+            childDataSource.startLeakDetection();
         }
+        // 开启空闲连接校验
+        if (childDataSource.testWhileIdle) {
+            long interval = childDataSource.validationInterval;
+            childDataSource.housekeeper().scheduleWithFixedDelay(childDataSource::validateIdleConnections,
+                    interval, interval, TimeUnit.MILLISECONDS);
+        }
+        // 将监控指标与运行时配置注册到JMX中
+        String poolName = resource + "-" + POOL_SEQUENCE.incrementAndGet();
+        childDataSource.metrics.register(poolName);
+        childDataSource.registerConfig(poolName);
         logger.info("数据库连接池初始化完毕");
         return childDataSource;
     }
 
+    /**
+     * 获取可选的配置信息，当配置文件中不存在该项时返回默认值。<br/>
+     *
+     * @param resourceBundle 资源包
+     * @param key            配置项
+     * @param defaultValue   默认值
+     * @return String 配置值
+     */
+    private static String getOptional(ResourceBundle resourceBundle, String key, String defaultValue) {
+        return resourceBundle.containsKey(key) ? resourceBundle.getString(key).trim() : defaultValue;
+    }
+
+    /**
+     * 创建{@code initialSize}个初始化连接并放入空闲池。<br/>
+     * <p/>
+     * 建立物理连接的耗时主要在网络往返上，故以{@code parallelism}个守护线程并行创建，
+     * 全部完成后关闭这些线程。并行数为1或只需创建一个连接时，直接在调用线程上依次创建。<br/>
+     * 创建过程中连接池已经可用，空闲连接不足时由{@code isMinIdled()}在获取连接的线程上补充。<br/>
+     * 并行创建时每个连接在创建前预留容量，空闲池已被补充至容量上限时不再创建；
+     * 在调用线程上创建的连接由{@code offerIdle()}放入空闲池，超出容量的连接直接关闭。
+     * 在调用线程上创建失败时，关闭已经创建的连接。<br/>
+     *
+     * @param parallelism 同时创建连接的线程数
+     * @return {@link CompletableFuture} 全部创建完成时正常结束，任意连接创建失败时异常结束
+     */
+    private CompletableFuture<Void> startWarmUp(int parallelism) {
+        int threads = Math.min(parallelism, INITIAL_SIZE);
+        if (threads <= 1) {
+            List<Connection> created = new ArrayList<>(INITIAL_SIZE);
+            try {
+                for (int i = 0; i < INITIAL_SIZE; i++) {
+                    created.add(getConnectionProxy());
+                }
+                created.forEach(this::offerIdle);
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                created.forEach(this::discard);
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ChildDataSource-warmup-" + sequence.incrementAndGet());
+            thread.setDaemon(true);// 设置为守护线程，不阻止虚拟机退出
+            return thread;
+        });
+        long start = System.nanoTime();
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[INITIAL_SIZE];
+        for (int i = 0; i < INITIAL_SIZE; i++) {
+            tasks[i] = CompletableFuture.runAsync(this::createIdle, executor);
+        }
+        return CompletableFuture.allOf(tasks).whenComplete((ignored, e) -> {
+            executor.shutdown();
+            if (e != null) {
+                logger.info("初始化连接创建失败:" + e.getMessage());
+            } else {
+                logger.debug(() -> "初始化连接创建完毕，共" + INITIAL_SIZE + "个，耗时"
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            }
+        });
+    }
+
+    /**
+     * 获取初始化连接的创建结果，可用于在服务对外提供访问前等待连接池就绪。<br/>
+     * 未开启{@code asyncWarmUp}时，返回的总是已完成的结果。<br/>
+     *
+     * @return {@link CompletableFuture} 全部创建完成时正常结束，任意连接创建失败时异常结束
+     */
+    public CompletableFuture<Void> getWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * 获取整数类型的必填配置信息。<br/>
+     *
+     * @param resourceBundle 资源包
+     * @param key            配置项
+     * @return int 配置值
+     */
+    private static int getInt(ResourceBundle resourceBundle, String key) {
+        String value = resourceBundle.getString(key).trim();
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("连接池配置有误，" + key + "不是整数:" + value);
+        }
+    }
+
+    /**
+     * 校验容量配置，需满足{@code 0 <= minIdle <= maxActive}且{@code maxActive >= 1}。
+     */
+    private static void validateSize(int minIdle, int maxActive) {
+        if (maxActive < 1) {
+            throw new RuntimeException("连接池配置有误，maxActive需大于0:" + maxActive);
+        }
+        if (minIdle < 0 || minIdle > maxActive) {
+            throw new RuntimeException("连接池配置有误，minIdle需在0到maxActive之间，minIdle:" + minIdle
+                    + "，maxActive:" + maxActive);
+        }
+    }
+
+    /**
+     * 将运行时配置注册到平台MBeanServer中，注册名为{@code com.child.util:type=ChildDataSourceConfig,name=<name>}。<br/>
+     * 注册失败不影响连接池的使用，仅记录日志。<br/>
+     *
+     * @param name 连接池名称，与监控指标的名称相同
+     */
+    private void registerConfig(String name) {
+        try {
+            ObjectName objectName =
+                    new ObjectName("com.child.util:type=ChildDataSourceConfig,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            configName = objectName;
+        } catch (JMException e) {
+            logger.info("注册连接池配置失败:" + e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭连接池。<br/>
+     * <p/>
+     * 注销JMX中的监控指标与运行时配置，停止后台守护线程，并关闭全部空闲连接。
+     * 仍被持有的连接在归还时关闭，不再入池；关闭后获取连接将抛出异常。重复调用不产生任何影响。<br/>
+     */
+    @Override
+    public void close() {
+        synchronized (idlePool) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            Connection connection;
+            while ((connection = idlePool.poll()) != null) {
+                discard(connection);
+            }
+        }
+        ScheduledExecutorService housekeeper;
+        synchronized (this) {
+            housekeeper = this.housekeeper;
+        }
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        metrics.unregister();
+        if (configName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(configName);
+            } catch (JMException e) {
+                logger.info("注销连接池配置失败:" + e.getMessage());
+            }
+            configName = null;
+        }
+        logger.info("数据库连接池已关闭");
+    }
+
+    /**
+     * 连接池是否已关闭。<br/>
+     *
+     * @return boolean true为已关闭
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    /**
+     * 在线调整最大活跃连接数。<br/>
+     * <p/>
+     * 调小时关闭超出容量的空闲连接，仍被持有的连接在归还时再按容量决定是否关闭；
+     * 调大时正在等待锁的线程将按新的上限判断。<br/>
+     *
+     * @param maxActive 活跃状态下的最大连接数
+     */
+    @Override
+    public void setMaxActive(int maxActive) {
+        synchronized (idlePool) {
+            validateSize(minIdle, maxActive);
+            int previous = this.maxActive;
+            this.maxActive = maxActive;
+            int drained = trimIdle();
+            logger.info("最大活跃连接数已调整:" + previous + " -> " + maxActive + "，关闭空闲连接" + drained + "个");
+        }
+    }
+
+    @Override
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    /**
+     * 在线调整最小空闲连接数，调大时立即补充空闲连接至{@code minIdle}个，但活跃与空闲连接之和不超过{@code maxActive}。<br/>
+     * 补充的连接由调用线程在锁外逐个创建，建立连接期间不持有空闲池的锁；创建失败时只记录日志，
+     * 此时配置已经生效，缺少的空闲连接之后由{@code isMinIdled()}补充。<br/>
+     *
+     * @param minIdle 空闲池中最少连接资源数量
+     */
+    @Override
+    public void setMinIdle(int minIdle) {
+        int previous;
+        int missing;
+        synchronized (idlePool) {
+            validateSize(minIdle, maxActive);
+            previous = this.minIdle;
+            this.minIdle = minIdle;
+            missing = Math.min(minIdle, idleCapacity()) - idlePool.size();
+        }
+        int added = 0;
+        try {
+            while (added < missing && createIdle()) {
+                added++;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("补充空闲连接失败:" + e.getMessage());
+        }
+        logger.info("最小空闲连接数已调整:" + previous + " -> " + minIdle + "，补充空闲连接" + added + "个");
+    }
+
+    @Override
+    public int getInitialSize() {
+        return INITIAL_SIZE;
+    }
+
+    @Override
+    public int getMaxWait() {
+        return MAX_WAIT;
+    }
+
+    /**
+     * 空闲池的容量上限，即还能被借出的连接数量。<br/>
+     * 活跃连接、空闲连接与锁外创建或校验中的连接之和不超过{@code maxActive}，
+     * 活跃连接较多时空闲连接可以少于{@code minIdle}。
+     */
+    private int idleCapacity() {
+        return Math.max(0, maxActive - (int) presentMaxActive.sum() - reservedConnections.get());
+    }
+
+    /**
+     * 关闭超出空闲池容量上限的空闲连接。<br/>
+     *
+     * @return int 关闭的连接数量
+     */
+    private int trimIdle() {
+        int drained = 0;
+        while (idlePool.size() > idleCapacity()) {
+            Connection connection = idlePool.poll();
+            if (connection == null) {
+                break;
+            }
+            discard(connection);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * 在锁外创建一个连接并放入空闲池，用于预热与后台补充。<br/>
+     * 创建前以空闲池为锁预留容量，空闲池已达容量上限或连接池已关闭时不创建；
+     * 创建期间其他线程补充空闲连接时不会占用预留的容量，故物理连接数始终不超过{@code maxActive}。<br/>
+     *
+     * @return boolean true为已创建并入池，false为没有剩余容量
+     * @throws RuntimeException 建立连接失败，此时释放预留的容量
+     */
+    private boolean createIdle() {
+        synchronized (idlePool) {
+            if (closed || idlePool.size() >= idleCapacity()) {
+                return false;
+            }
+            reservedConnections.incrementAndGet();
+        }
+        Connection connection;
+        try {
+            connection = getConnectionProxy();
+        } catch (RuntimeException e) {
+            reservedConnections.decrementAndGet();
+            throw e;
+        }
+        return offerReserved(connection);
+    }
+
+    /**
+     * 将预留了容量的连接放入空闲池，再释放预留的容量，期间该连接被重复计入，不会有其他线程占用它的容量。<br/>
+     * 获取连接的线程可能正持有空闲池的锁等待空闲连接，故此处不加锁，入池的同时连接池被关闭时由本线程关闭该连接。<br/>
+     *
+     * @param connection 在锁外创建、校验或正在归还的连接代理
+     * @return boolean true为已入池，false为已关闭
+     */
+    private boolean offerReserved(Connection connection) {
+        if (closed) {
+            discard(connection);
+            reservedConnections.decrementAndGet();
+            return false;
+        }
+        idlePool.offer(connection);
+        reservedConnections.decrementAndGet();
+        if (closed && idlePool.remove(connection)) {
+            discard(connection);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 将在锁外创建或校验的连接放入空闲池。<br/>
+     * 以空闲池为锁重新检查容量，连接池已关闭或空闲池已达容量上限时关闭该连接，保证连接总数不超过{@code maxActive}。<br/>
+     *
+     * @param connection 连接代理
+     * @return boolean true为已入池，false为已关闭
+     */
+    private boolean offerIdle(Connection connection) {
+        synchronized (idlePool) {
+            if (!closed && idlePool.size() < idleCapacity()) {
+                idlePool.offer(connection);
+                return true;
+            }
+        }
+        discard(connection);
+        return false;
+    }
+
+    /**
+     * 关闭连接代理持有的物理连接，该连接不再回到任何池中。
+     */
+    private void discard(Connection connection) {
+        ((PooledConnectionHandler) Proxy.getInvocationHandler(connection)).closePhysicalConnection();
+    }
+
     /**
      * 用于从空闲池中获取连接资源。<br/>
      * <p/>
@@ -179,56 +677,113 @@ public class ChildDataSource implements DataSource {
         // 获取当前线程
         Thread currentThread = Thread.currentThread();
         // lambda表达式中捕获的值不可变，故用原子类来包装
-        AtomicBoolean isTimeOut = new AtomicBoolean(false);
+        AtomicInteger timerState = new AtomicInteger(WAITING);
         // 获取当前线程的绑定资源
         Connection connection = threadLocal.get();
         // 若当前线程已绑定连接资源，则直接返回
         if (connection != null) {
-            return connection;
+            if (!isReleased(connection)) {
+                return connection;
+            }
+            // 绑定的连接已被泄漏检测强制回收，解除绑定后重新获取
+            threadLocal.remove();
         }
 
+        // 开始记录获取连接的耗时
+        long start = System.nanoTime();
+        metrics.beginBorrow();
+
         Thread timer = new Thread(() -> {
-            long start = System.currentTimeMillis();// 开始记录时间
-            while (!Thread.currentThread().isInterrupted()) {
-                if ((System.currentTimeMillis() - start) >= MAX_WAIT) {
-                    // 若线程处于活动中，该方法不会产生任何影响。若线程在获取资源时被阻塞，则会中断阻塞。
-                    currentThread.interrupt();
-                    isTimeOut.set(true);// 当线程未被阻塞时，该值才是用于判断超时的
-                }
+            try {
+                Thread.sleep(MAX_WAIT);// 等待最大连接时长
+            } catch (InterruptedException e) {
+                return;// 获取连接已结束，计时线程被提前中断，直接退出
+            }
+            // 获取已结束时不再中断，否则中断标志会残留到该线程之后的调用中
+            if (timerState.compareAndSet(WAITING, TIMED_OUT)) {
+                // 若线程处于活动中，该方法不会产生任何影响。若线程在获取资源时被阻塞，则会中断阻塞。
+                currentThread.interrupt();
             }
         });
         timer.setDaemon(true);// 设置为守护线程
         timer.start();
 
-        while (!currentThread.isInterrupted()) {
-            // 该处上锁是为了保证接下来的一系列事务的原子性，而不是为了保证数据修改的安全性
-            synchronized (idlePool) {
-                try {
-                    // 判断超时，超时则直接抛出异常
-                    if (isTimeOut.get()) throw new TimedOutException("连接超时");
-                    isOverMaxActive();// 判断是否超过最大活跃数
-                    isMinIdled();// 是否低于最小空闲数
-
-                    connection = idlePool.take();// 获取资源
-                    threadLocal.set(connection);// 线程绑定资源
+        try {
+            while (!currentThread.isInterrupted()) {
+                // 该处上锁是为了保证接下来的一系列事务的原子性，而不是为了保证数据修改的安全性
+                synchronized (idlePool) {
+                    try {
+                        // 判断超时，超时则直接抛出异常
+                        if (timerState.get() == TIMED_OUT) throw new TimedOutException("连接超时");
+                        if (closed) throw new RuntimeException("连接池已关闭");
+                        isOverMaxActive();// 判断是否超过最大活跃数
+                        isMinIdled();// 是否低于最小空闲数
 
-                    presentMaxActive.increment();// 活跃数量累加器自增
-                    activePool.put(connection, new ConnectionStatus());// 将该连接放入活跃连接池
+                        connection = idlePool.take();// 获取资源
+                        presentMaxActive.increment();// 活跃数量累加器自增，校验期间该连接已占用容量
+                    } catch (InterruptedException e) {// 一般来说，只要最小连接数量不为负数，就不会出现阻塞的情况
+                        metrics.recordTimeout();
+                        logger.info("获取资源被阻塞，导致超时");
+                        throw new TimedOutException("获取资源被阻塞，导致超时");
+                    }
+                    // 以下代码可以继续向上抛出，直到抛给controller层来调度view层展示信息
+                    catch (RuntimeException e) {
+                        if (e instanceof TimedOutException) {
+                            metrics.recordTimeout();
+                        } else if (e instanceof OverMaxActiveException) {
+                            metrics.recordOverMaxActive();
+                        }
+                        logger.info("连接失败:" + e.getMessage());// 记录日志
+                        throw e;
+                    }
+                }
+                // 校验与重新建立连接都需要网络往返，在锁外进行，不阻塞其他线程获取连接
+                connection = validateBorrowed(connection);
+                threadLocal.set(connection);// 线程绑定资源
+                activePool.put(connection, new ConnectionStatus());// 将该连接放入活跃连接池
 
-                    return connection;// 最后返回资源
+                metrics.recordBorrow(System.nanoTime() - start);// 记录获取连接的耗时
+                return connection;// 最后返回资源
+            }
+            if (timerState.get() == TIMED_OUT) {
+                // 计时线程在锁外中断了当前线程
+                metrics.recordTimeout();
+                logger.info("连接失败:连接超时");
+                throw new TimedOutException("连接超时");
+            }
+            // 调用前当前线程已被其他线程中断，保留中断标志
+            logger.info("连接失败:获取连接的线程已被中断");
+            throw new RuntimeException("获取连接的线程已被中断");
+        } finally {
+            if (timerState.compareAndSet(WAITING, DONE)) {
+                timer.interrupt();// 结束计时线程，此后它不会再中断当前线程
+            } else {
+                // 计时线程已经或即将中断当前线程，等待其结束后清除中断标志
+                clearTimeoutInterrupt(timer);
+            }
+            metrics.endBorrow();
+        }
+    }
 
-                } catch (InterruptedException e) {// 一般来说，只要最小连接数量不为负数，就不会出现阻塞的情况
-                    logger.info("获取资源被阻塞，导致超时");
-                    throw new TimedOutException("获取资源被阻塞，导致超时");
-                }
-                // 以下代码可以继续向上抛出，直到抛给controller层来调度view层展示信息
-                catch (RuntimeException e) {
-                    logger.info("连接失败:" + e.getMessage());// 记录日志
-                    throw e;
-                }
+    /**
+     * 清除计时线程在超时时对当前线程设置的中断标志。<br/>
+     * <p/>
+     * 计时线程先将状态置为超时再中断当前线程，故需等待其结束后再清除，
+     * 否则中断标志会残留到该线程之后的获取中，使其立即失败。<br/>
+     *
+     * @param timer 计时线程
+     */
+    private static void clearTimeoutInterrupt(Thread timer) {
+        while (true) {
+            Thread.interrupted();
+            try {
+                timer.join();
+                break;
+            } catch (InterruptedException e) {
+                // 计时线程恰好在join前中断了当前线程，清除后重新等待
             }
         }
-        return null;
+        Thread.interrupted();
     }
 
     @Override
@@ -241,49 +796,14 @@ public class ChildDataSource implements DataSource {
      * 用于获取连接的代理类。<br/>
      * <p/>
      * 代理方法中主要增加了：在调用代理对象的{@code close()}时，
-     * 调用的是本类{@code DataBasePool}的方法——{@code reclaim()}，特别地，需要将连接的事务重置，
-     * 即掉调用{@link Connection#setAutoCommit(boolean)}并设置为true。<br/>
+     * 调用的是本类{@code DataBasePool}的方法——{@code reclaim()}，特别地，需要将连接的状态重置，
+     * 但只重置借出期间被修改过的状态，详见{@link PooledConnectionHandler#invoke(Object, Method, Object[])}。<br/>
      * 在调用{@link Connection#isClosed()}方法时，将调用本类的{@code isReleased()}方法。<br/>
      * @return {@link Connection} 实际上返回的是一个连接的代理类
      */
     private Connection getConnectionProxy() {
         return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class},
-                new InvocationHandler() {
-                    /**
-                     * connection为代理类中的被代理对象。<br/>
-                     * 用final修饰保证该对象不会再指向其他连接资源，
-                     * 提高了池中的连接资源被反复获取与回收时的安全性。<br/>
-                     * 不使用static的原因是，每个代理对象中，应该持有独有的一份连接资源，而不应该是共享的。<br/>
-                     */
-                    private final Connection connection;
-                    private static final String CLOSE = "close";
-                    private static final String IS_CLOSED = "isClosed";
-
-                    {
-                        try {
-                            connection = DriverManager.getConnection(URL, USER, PASSWORD);// 用于获取资源
-                        } catch (SQLException e) {
-                            throw new RuntimeException("连接资源入池失败");
-                        }
-                    }
-
-                    @Override
-                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                        // 如果调用的是close方法，则调用自定义数据库连接池的release方法
-                        if (CLOSE.equals(method.getName()) ) {
-                            // 注意需要将连接的事务进行重置
-                            ((Connection) proxy).setAutoCommit(true);
-                            return release((Connection) proxy);
-                        }
-                        // 如果调用的是isClosed方法，则调用自定义数据库连接池的isReleased方法
-                        else if (IS_CLOSED.equals(method.getName())) {
-                            return isReleased((Connection) proxy);
-                        }
-                        // 如果是其他方法则无所谓了
-                        return method.invoke(connection, args);
-                    }
-                });
-
+                new PooledConnectionHandler());
     }
 
     /**
@@ -293,14 +813,42 @@ public class ChildDataSource implements DataSource {
      */
     private Void release(Connection connection) {
         threadLocal.remove();// 将当前线程解除资源绑定
-        activePool.remove(connection);// 将连接资源移出活跃连接池
-        try {
-            idlePool.put(connection);// 将连接资源放回池中
-        } catch (InterruptedException e) {
-            // 一般情况下不会出现该异常。因为一定会放回无界队列中
-            throw new RuntimeException("中断阻塞队列的阻塞作用");
+        // 将连接资源移出活跃连接池，若不在活跃池中，说明已被释放或已被强制回收，不可重复入池
+        ConnectionStatus status = activePool.remove(connection);
+        if (status == null) {
+            return null;
+        }
+        metrics.recordRelease(System.nanoTime() - status.borrowNanos);// 记录连接的持有时长
+        // 先预留容量再减少活跃数量，入池之前其他线程补充空闲连接时不会占用该连接的容量
+        reservedConnections.incrementAndGet();
+        presentMaxActive.decrement();// 活跃数量累加器自减
+        // 最大活跃数被调小后，超出容量的连接在归还时关闭，不再入池；连接池已关闭时同样不再入池
+        if (closed || idlePool.size() + presentMaxActive.sum() + reservedConnections.get() > maxActive) {
+            discard(connection);
+            reservedConnections.decrementAndGet();
+            return null;
+        }
+        offerReserved(connection);// 将连接资源放回池中
+        return null;
+    }
+
+    /**
+     * 用于回收物理连接已失效的资源，该资源不回到空闲池，而是关闭后由后台补充。<br/>
+     *
+     * @param connection 需要回收的连接资源
+     */
+    private Void evict(Connection connection) {
+        threadLocal.remove();// 将当前线程解除资源绑定
+        ConnectionStatus status = activePool.remove(connection);
+        if (status == null) {
+            return null;
         }
+        metrics.recordRelease(System.nanoTime() - status.borrowNanos);// 记录连接的持有时长
         presentMaxActive.decrement();// 活跃数量累加器自减
+        metrics.recordValidationFailure();
+        discard(connection);
+        replaceAsync();
+        logger.info("归还的连接已失效，已关闭该连接");
         return null;
     }
 
@@ -318,7 +866,7 @@ public class ChildDataSource implements DataSource {
     /**
      * 用于判断空闲连接数量是否低于{@code minIdle}。<br/>
      * <p/>
-     * 在空闲连接数量小于等于{@code minIdle}时添加个数。个数cnt为 minIdle / 2 + 1。<br/>
+     * 在空闲连接数量小于等于{@code minIdle}时添加个数。个数cnt为 minIdle / 2 + 1，但不超过空闲池的剩余容量。<br/>
      *
      * @throws MinIdledException    当空闲连接数量小于等于{@code minIdle}时，
      *                              抛出“已达最小空闲连接数量”异常。<br/>
@@ -328,15 +876,16 @@ public class ChildDataSource implements DataSource {
      *                              但对于本方法来说不会出现此异常
      */
     private void isMinIdled() throws InterruptedException {
-        if (idlePool.size() <= MIN_IDLE) {// 当达到最小空闲数量时，补充资源
-            int cnt = MIN_IDLE / 2 + 1;// 设置补充资源的数量
+        int minIdle = this.minIdle;// 读取一次，避免补充过程中被调整
+        if (idlePool.size() <= minIdle) {// 当达到最小空闲数量时，补充资源
+            int cnt = Math.min(minIdle / 2 + 1, idleCapacity() - idlePool.size());// 设置补充资源的数量
             for (int i = 0; i < cnt; i++) {
                 idlePool.put(getConnectionProxy());// 向池中添加资源
             }
             try {
                 throw new MinIdledException("已到达最小空闲连接数");
             } catch (MinIdledException e) {
-                logger.info(e.getMessage());
+                logger.debug(e::getMessage);
             }
         }
     }
@@ -349,12 +898,198 @@ public class ChildDataSource implements DataSource {
      *                                抛出“连接数量已达阈值”异常
      */
     private void isOverMaxActive() {
-        if (presentMaxActive.sum() >= MAX_ACTIVE) {// 当达到最大活跃数量时抛出异常
+        if (presentMaxActive.sum() >= maxActive) {// 当达到最大活跃数量时抛出异常
             throw new OverMaxActiveException("连接数量已达阈值");
         }
     }
 
 
+    /**
+     * 校验从空闲池中取出的连接，在锁外调用，调用前该连接已计入活跃数量。<br/>
+     * <p/>
+     * 开启{@code testOnBorrow}时，对{@code validationSkipWindow}内未被使用过的连接进行校验，
+     * 失效的连接被关闭，并在当前线程上创建一个新的连接代替，占用的容量不变。
+     * 创建失败时释放占用的容量并抛出异常。<br/>
+     *
+     * @param connection 从空闲池中取出的连接
+     * @return {@link Connection} 可用的连接
+     */
+    private Connection validateBorrowed(Connection connection) {
+        if (!testOnBorrow || isAlive(connection)) {
+            return connection;
+        }
+        discard(connection);
+        try {
+            return getConnectionProxy();
+        } catch (RuntimeException e) {
+            presentMaxActive.decrement();
+            logger.info("连接失败:" + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 校验连接是否可用，在{@code validationSkipWindow}内被使用过的连接直接视为可用。<br/>
+     *
+     * @param connection 连接代理
+     * @return boolean true为可用，false为失效
+     */
+    private boolean isAlive(Connection connection) {
+        PooledConnectionHandler handler = (PooledConnectionHandler) Proxy.getInvocationHandler(connection);
+        if (System.nanoTime() - handler.lastUsedNanos < TimeUnit.MILLISECONDS.toNanos(validationSkipWindow)) {
+            return true;
+        }
+        if (handler.isValid(validationTimeout)) {
+            handler.lastUsedNanos = System.nanoTime();
+            return true;
+        }
+        metrics.recordValidationFailure();
+        logger.info("连接已失效，已关闭该连接");
+        return false;
+    }
+
+    /**
+     * 由后台守护线程补充一个连接，空闲池已达容量上限时不补充。补充失败时仅记录日志，之后由{@code isMinIdled()}补充。
+     */
+    private void replaceAsync() {
+        if (closed) {
+            return;
+        }
+        try {
+            housekeeper().execute(() -> {
+                // 预留容量后在锁外建立连接
+                try {
+                    createIdle();
+                } catch (RuntimeException e) {
+                    logger.info("补充连接失败:" + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 连接池恰好在此时被关闭，无需补充
+        }
+    }
+
+    /**
+     * 校验空闲池中的连接，由后台守护线程按{@code validationInterval}定期调用。<br/>
+     * <p/>
+     * 每次只取出一个连接在锁外进行校验，可用的连接放回队尾，故校验期间其余空闲连接仍可被借出；
+     * 取出的连接在校验期间仍占用容量，借出线程补充空闲连接时不会超出{@code maxActive}。<br/>
+     *
+     * @return int 本次校验发现的失效连接数量
+     */
+    public int validateIdleConnections() {
+        int invalid = 0;
+        for (int i = idlePool.size(); i > 0; i--) {
+            Connection connection;
+            // 取出的连接在校验期间仍占用容量
+            synchronized (idlePool) {
+                connection = idlePool.poll();
+                if (connection == null) {
+                    break;
+                }
+                reservedConnections.incrementAndGet();
+            }
+            if (isAlive(connection)) {
+                offerReserved(connection);
+            } else {
+                discard(connection);
+                reservedConnections.decrementAndGet();
+                replaceAsync();
+                invalid++;
+            }
+        }
+        if (invalid > 0) {
+            logger.info("空闲连接校验完毕，失效连接" + invalid + "个");
+        }
+        return invalid;
+    }
+
+    /**
+     * 获取后台守护线程，第一次调用时创建。
+     */
+    private synchronized ScheduledExecutorService housekeeper() {
+        if (housekeeper == null) {
+            housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ChildDataSource-housekeeper");
+                thread.setDaemon(true);// 设置为守护线程，不阻止虚拟机退出
+                return thread;
+            });
+        }
+        return housekeeper;
+    }
+
+    /**
+     * 开启泄漏检测，由后台守护线程定期调用{@code checkLeakedConnections()}。<br/>
+     * <p/>
+     * 检测周期为阈值的一半，但不小于500毫秒，避免阈值过小时检测过于频繁。<br/>
+     */
+    private void startLeakDetection() {
+        long period = Math.max(leakDetectionThreshold / 2, 500);
+        housekeeper().scheduleAtFixedRate(this::checkLeakedConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 检查活跃池中被持有时间超过{@code leakDetectionThreshold}的连接。<br/>
+     * <p/>
+     * 对于每个疑似泄漏的连接，记录其借出线程、已持有时长以及借出位置的调用栈（若开启了{@code leakDetectionStack}）。
+     * 每次借出仅报告一次。<br/>
+     * 若开启了{@code removeAbandoned}，则会将该连接移出活跃池并关闭物理连接，活跃数量随之减少。<br/>
+     *
+     * @return int 本次检查发现的疑似泄漏连接数量
+     */
+    public int checkLeakedConnections() {
+        if (leakDetectionThreshold <= 0) {
+            return 0;
+        }
+        int leaked = 0;
+        for (Map.Entry<Connection, ConnectionStatus> entry : activePool.entrySet()) {
+            ConnectionStatus status = entry.getValue();
+            long surviveTime = status.getSurviveTime();
+            if (surviveTime < leakDetectionThreshold) {
+                continue;
+            }
+            leaked++;
+            if (!status.reported) {
+                status.reported = true;
+                logger.warn("疑似连接泄漏：连接已被线程[" + status.borrowThread + "]持有"
+                        + surviveTime + "ms仍未关闭", status.borrowSite);
+            }
+            if (removeAbandoned) {
+                abandon(entry.getKey());
+            }
+        }
+        return leaked;
+    }
+
+    /**
+     * 强制回收一个疑似泄漏的连接。<br/>
+     * <p/>
+     * 该连接不会回到空闲池，而是直接关闭其物理连接，空闲资源将由{@code isMinIdled()}在之后补充。<br/>
+     *
+     * @param connection 需要回收的连接资源
+     */
+    private void abandon(Connection connection) {
+        // 若持有者恰好在此时归还了连接，则无需回收
+        ConnectionStatus status = activePool.remove(connection);
+        if (status == null) {
+            return;
+        }
+        metrics.recordRelease(System.nanoTime() - status.borrowNanos);// 与正常归还一样记录持有时长
+        presentMaxActive.decrement();// 活跃数量累加器自减
+        discard(connection);
+        replaceAsync();// 由后台补充被回收的连接，不由之后获取连接的线程补充
+        logger.warn("已强制回收泄漏连接");
+    }
+
+    /**
+     * 获取连接池的监控指标。<br/>
+     *
+     * @return {@link PoolMetrics}
+     */
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public <T> T unwrap(Class<T> interfaceClass) {
         return null;
@@ -402,15 +1137,288 @@ public class ChildDataSource implements DataSource {
         private static final String MIN_IDLE = "minIdle";
         private static final String MAX_ACTIVE = "maxActive";
         private static final String MAX_WAIT = "maxWait";
+        private static final String LEAK_DETECTION_THRESHOLD = "leakDetectionThreshold";
+        private static final String LEAK_DETECTION_STACK = "leakDetectionStack";
+        private static final String REMOVE_ABANDONED = "removeAbandoned";
+        private static final String WARM_UP_PARALLELISM = "warmUpParallelism";
+        private static final String ASYNC_WARM_UP = "asyncWarmUp";
+        private static final String TEST_ON_BORROW = "testOnBorrow";
+        private static final String TEST_WHILE_IDLE = "testWhileIdle";
+        private static final String VALIDATION_TIMEOUT = "validationTimeout";
+        private static final String VALIDATION_SKIP_WINDOW = "validationSkipWindow";
+        private static final String VALIDATION_INTERVAL = "validationInterval";
     }
 
     /**
-     * 保存活跃连接资源的状态，如已存活时间，即被调用者持有的时间。
+     * 连接代理类的调用处理器，每个代理对象持有一份独有的物理连接。<br/>
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        /**
+         * connection为代理类中的被代理对象。<br/>
+         * 用final修饰保证该对象不会再指向其他连接资源，
+         * 提高了池中的连接资源被反复获取与回收时的安全性。<br/>
+         * 不使用static的原因是，每个代理对象中，应该持有独有的一份连接资源，而不应该是共享的。<br/>
+         */
+        private final Connection connection;
+        /**
+         * 最近一次被使用的纳秒时间，在创建、归还以及校验通过时更新，用于跳过近期使用过的连接的校验
+         */
+        private volatile long lastUsedNanos = System.nanoTime();
+        private static final String CLOSE = "close";
+        private static final String IS_CLOSED = "isClosed";
+        private static final String SET_AUTO_COMMIT = "setAutoCommit";
+        private static final String GET_AUTO_COMMIT = "getAutoCommit";
+        private static final String SET_TRANSACTION_ISOLATION = "setTransactionIsolation";
+        private static final String GET_TRANSACTION_ISOLATION = "getTransactionIsolation";
+        private static final String SET_READ_ONLY = "setReadOnly";
+        private static final String IS_READ_ONLY = "isReadOnly";
+        private static final String SET_CATALOG = "setCatalog";
+        private static final String GET_CATALOG = "getCatalog";
+        private static final String SET_NETWORK_TIMEOUT = "setNetworkTimeout";
+        /**
+         * 各项状态的脏位，对应状态与创建连接时的默认值不同时置位
+         */
+        private static final int DIRTY_AUTO_COMMIT = 1;
+        private static final int DIRTY_ISOLATION = 1 << 1;
+        private static final int DIRTY_READ_ONLY = 1 << 2;
+        private static final int DIRTY_CATALOG = 1 << 3;
+        private static final int DIRTY_NETWORK_TIMEOUT = 1 << 4;
+        /**
+         * 创建连接时的默认状态，归还时重置为这些值
+         */
+        private final boolean defaultAutoCommit;
+        private final int defaultIsolation;
+        private final boolean defaultReadOnly;
+        private final String defaultCatalog;
+        /**
+         * 默认的网络超时，驱动不支持读取时为-1，此时不跟踪该项
+         */
+        private final int defaultNetworkTimeout;
+        /**
+         * 连接当前的状态，仅由持有该连接的线程读写
+         */
+        private boolean autoCommit;
+        private int isolation;
+        private boolean readOnly;
+        private String catalog;
+        private int networkTimeout;
+        /**
+         * 脏位的集合，为0时归还连接无需任何重置
+         */
+        private int dirtyBits;
+
+        private PooledConnectionHandler() {
+            try {
+                connection = DriverManager.getConnection(URL, USER, PASSWORD);// 用于获取资源
+                defaultAutoCommit = connection.getAutoCommit();
+                defaultIsolation = connection.getTransactionIsolation();
+                defaultReadOnly = connection.isReadOnly();
+                defaultCatalog = connection.getCatalog();
+            } catch (SQLException e) {
+                throw new RuntimeException("连接资源入池失败");
+            }
+            defaultNetworkTimeout = readNetworkTimeout();
+            autoCommit = defaultAutoCommit;
+            isolation = defaultIsolation;
+            readOnly = defaultReadOnly;
+            catalog = defaultCatalog;
+            networkTimeout = defaultNetworkTimeout;
+        }
+
+        /**
+         * 读取默认的网络超时，旧版本驱动可能不支持该方法。
+         */
+        private int readNetworkTimeout() {
+            try {
+                return connection.getNetworkTimeout();
+            } catch (SQLException | AbstractMethodError e) {
+                return -1;
+            }
+        }
+
+        /**
+         * 代理连接的方法。<br/>
+         * <p/>
+         * 对于autoCommit、事务隔离级别、只读、catalog与网络超时这几项状态，代理中缓存了连接当前的值：
+         * 读取时直接返回缓存值，设置的值与当前值相同时不调用驱动，不同时才调用并更新脏位。
+         * 归还连接时只重置脏位对应的状态，在MySQL驱动中每次调用都可能是一次与数据库的往返。<br/>
+         * 需要注意的是，直接执行{@code SET autocommit = 0}等语句修改的状态不会被跟踪。<br/>
+         */
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                // 如果调用的是close方法，则调用自定义数据库连接池的release方法
+                case CLOSE:
+                    lastUsedNanos = System.nanoTime();
+                    try {
+                        // 注意需要将连接的状态进行重置
+                        resetState();
+                    } catch (SQLException e) {
+                        // 重置失败说明物理连接已失效，不再入池
+                        return evict((Connection) proxy);
+                    }
+                    return release((Connection) proxy);
+                // 如果调用的是isClosed方法，则调用自定义数据库连接池的isReleased方法
+                case IS_CLOSED:
+                    return isReleased((Connection) proxy);
+                case GET_AUTO_COMMIT:
+                    return autoCommit;
+                case SET_AUTO_COMMIT:
+                    boolean newAutoCommit = (Boolean) args[0];
+                    if (newAutoCommit != autoCommit) {
+                        connection.setAutoCommit(newAutoCommit);
+                        autoCommit = newAutoCommit;
+                        markDirty(DIRTY_AUTO_COMMIT, newAutoCommit != defaultAutoCommit);
+                    }
+                    return null;
+                case GET_TRANSACTION_ISOLATION:
+                    return isolation;
+                case SET_TRANSACTION_ISOLATION:
+                    int newIsolation = (Integer) args[0];
+                    if (newIsolation != isolation) {
+                        connection.setTransactionIsolation(newIsolation);
+                        isolation = newIsolation;
+                        markDirty(DIRTY_ISOLATION, newIsolation != defaultIsolation);
+                    }
+                    return null;
+                case IS_READ_ONLY:
+                    return readOnly;
+                case SET_READ_ONLY:
+                    boolean newReadOnly = (Boolean) args[0];
+                    if (newReadOnly != readOnly) {
+                        connection.setReadOnly(newReadOnly);
+                        readOnly = newReadOnly;
+                        markDirty(DIRTY_READ_ONLY, newReadOnly != defaultReadOnly);
+                    }
+                    return null;
+                case GET_CATALOG:
+                    return catalog;
+                case SET_CATALOG:
+                    String newCatalog = (String) args[0];
+                    if (!Objects.equals(newCatalog, catalog)) {
+                        connection.setCatalog(newCatalog);
+                        catalog = newCatalog;
+                        markDirty(DIRTY_CATALOG, !Objects.equals(newCatalog, defaultCatalog));
+                    }
+                    return null;
+                case SET_NETWORK_TIMEOUT:
+                    int newNetworkTimeout = (Integer) args[1];
+                    if (defaultNetworkTimeout < 0) {
+                        // 无法得知默认值，不跟踪也不重置
+                        connection.setNetworkTimeout((Executor) args[0], newNetworkTimeout);
+                    } else if (newNetworkTimeout != networkTimeout) {
+                        connection.setNetworkTimeout((Executor) args[0], newNetworkTimeout);
+                        networkTimeout = newNetworkTimeout;
+                        markDirty(DIRTY_NETWORK_TIMEOUT, newNetworkTimeout != defaultNetworkTimeout);
+                    }
+                    return null;
+                // 如果是其他方法则无所谓了
+                default:
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        // 抛出驱动的原始异常，而不是反射的包装异常
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        private void markDirty(int bit, boolean dirty) {
+            dirtyBits = dirty ? dirtyBits | bit : dirtyBits & ~bit;
+        }
+
+        /**
+         * 将脏位对应的状态重置为默认值，未修改过的状态不调用驱动。<br/>
+         * autoCommit最后重置，若此时仍有未提交的事务，按JDBC规范将被提交，与重置前的行为一致。<br/>
+         *
+         * @throws SQLException 物理连接已失效时抛出
+         */
+        private void resetState() throws SQLException {
+            if (dirtyBits == 0) {
+                return;
+            }
+            if ((dirtyBits & DIRTY_ISOLATION) != 0) {
+                connection.setTransactionIsolation(defaultIsolation);
+                isolation = defaultIsolation;
+            }
+            if ((dirtyBits & DIRTY_READ_ONLY) != 0) {
+                connection.setReadOnly(defaultReadOnly);
+                readOnly = defaultReadOnly;
+            }
+            if ((dirtyBits & DIRTY_CATALOG) != 0) {
+                connection.setCatalog(defaultCatalog);
+                catalog = defaultCatalog;
+            }
+            if ((dirtyBits & DIRTY_NETWORK_TIMEOUT) != 0) {
+                connection.setNetworkTimeout(Runnable::run, defaultNetworkTimeout);
+                networkTimeout = defaultNetworkTimeout;
+            }
+            if ((dirtyBits & DIRTY_AUTO_COMMIT) != 0) {
+                connection.setAutoCommit(defaultAutoCommit);
+                autoCommit = defaultAutoCommit;
+            }
+            dirtyBits = 0;
+        }
+
+        /**
+         * 校验物理连接是否可用，校验抛出异常时视为不可用。
+         *
+         * @param timeoutSeconds 超时时间，单位秒
+         */
+        private boolean isValid(int timeoutSeconds) {
+            try {
+                return connection.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * 关闭物理连接，用于连接被强制回收或失效时。关闭失败时仅记录日志。
+         */
+        private void closePhysicalConnection() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.info("关闭物理连接失败:" + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 保存活跃连接资源的状态，如已存活时间，即被调用者持有的时间。<br/>
+     * <p/>
+     * 在连接进入活跃池时创建，记录借出时间、借出线程，以及可选的借出位置调用栈，用于泄漏检测。
      */
     class ConnectionStatus {
-        private long surviveTime;
-        /*public ConnectionStatus openActiveConnection() {
-        }*/
+        /**
+         * 借出时间戳
+         */
+        private final long borrowTime = System.currentTimeMillis();
+        /**
+         * 借出时的纳秒时间，用于统计持有时长
+         */
+        private final long borrowNanos = System.nanoTime();
+        /**
+         * 借出连接的线程名
+         */
+        private final String borrowThread = Thread.currentThread().getName();
+        /**
+         * 借出位置的调用栈，未开启{@code leakDetectionStack}时为null
+         */
+        private final Throwable borrowSite = leakDetectionStack ? new Throwable("连接借出位置") : null;
+        /**
+         * 是否已报告过泄漏，保证每次借出只报告一次
+         */
+        private volatile boolean reported;
 
+        /**
+         * 获取已存活时间，即被调用者持有的时间。
+         *
+         * @return long 单位毫秒
+         */
+        long getSurviveTime() {
+            return System.currentTimeMillis() - borrowTime;
+        }
     }
 }
@@ -1,11 +1,33 @@
 package com.child.util;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 /**
  * 用于获取全局日志对象{@link Logger}<br/>
  * <p/>
  * 定义了一个jdk内置的全局的日志，用于打印整个系统中的信息<br/>
+ * <p/>
+ * 除此之外，本类也是框架内部使用的日志门面，通过{@code of()}获取各个组件的日志对象：
+ * <ol>
+ *     <li>
+ *         每个组件拥有独立的日志级别，默认为{@code INFO}，可以通过系统属性{@code child.log.level}修改默认级别，
+ *         通过{@code child.log.level.<类名或包名>}修改指定组件的级别，也可以在运行时调用{@code setLevel()}修改。
+ *         注意日志最终由jdk的全局日志输出，级别低于INFO时还需调整jdk日志及其处理器的级别。
+ *     </li>
+ *     <li>
+ *         日志内容以{@link Supplier}传入，只有在级别开启时才会构建字符串，
+ *         故级别关闭时热点路径上的日志几乎没有开销。
+ *     </li>
+ *     <li>
+ *         日志默认交由{@link AsyncLogAppender}异步写出，调用线程不会进入jdk日志处理器的同步代码块。
+ *         可以通过系统属性{@code child.log.async=false}改为同步写出。
+ *     </li>
+ * </ol>
  * @author silent_child
  * @version 1.0
  **/
@@ -15,4 +37,153 @@ public class ChildLogger {
     public static Logger getLogger() {
         return logger;
     }
+
+    private static final String LEVEL_PROPERTY = "child.log.level";
+    /**
+     * 默认日志级别
+     */
+    private static final Level DEFAULT_LEVEL = Level.parse(System.getProperty(LEVEL_PROPERTY, "INFO"));
+    /**
+     * 已配置的组件级别，K为类名或包名前缀，V为日志级别
+     */
+    private static final Map<String, Level> CONFIGURED_LEVELS = new ConcurrentHashMap<>();
+    /**
+     * 已创建的组件日志对象，K为组件名，即全限定类名
+     */
+    private static final Map<String, ChildLogger> LOGGERS = new ConcurrentHashMap<>();
+    /**
+     * 异步写出器，同步模式下为null
+     */
+    private static final AsyncLogAppender APPENDER =
+            Boolean.parseBoolean(System.getProperty("child.log.async", "true")) ? new AsyncLogAppender(logger) : null;
+
+    static {
+        // 读取系统属性中各个组件的日志级别
+        String prefix = LEVEL_PROPERTY + '.';
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                CONFIGURED_LEVELS.put(key.substring(prefix.length()), Level.parse(System.getProperty(key)));
+            }
+        }
+    }
+
+    /**
+     * 组件名
+     */
+    private final String component;
+    /**
+     * 当前级别的数值，volatile保证运行时修改级别后对所有线程可见
+     */
+    private volatile int levelValue;
+
+    private ChildLogger(String component) {
+        this.component = component;
+        this.levelValue = resolveLevel(component).intValue();
+    }
+
+    /**
+     * 获取指定组件的日志对象，同一组件始终返回同一个对象。<br/>
+     *
+     * @param clazz 组件的类对象
+     * @return {@link ChildLogger}
+     */
+    public static ChildLogger of(Class<?> clazz) {
+        return LOGGERS.computeIfAbsent(clazz.getName(), ChildLogger::new);
+    }
+
+    /**
+     * 在运行时修改组件的日志级别，对名称以{@code prefix}开头的所有组件生效。<br/>
+     *
+     * @param prefix 类名或包名前缀
+     * @param level  日志级别，为null时移除该前缀的配置，组件恢复为更短前缀或默认的级别
+     */
+    public static void setLevel(String prefix, Level level) {
+        if (level == null) {
+            CONFIGURED_LEVELS.remove(prefix);
+        } else {
+            CONFIGURED_LEVELS.put(prefix, level);
+        }
+        LOGGERS.values().forEach(childLogger -> {
+            if (childLogger.component.startsWith(prefix)) {
+                childLogger.levelValue = resolveLevel(childLogger.component).intValue();
+            }
+        });
+    }
+
+    /**
+     * 根据最长前缀匹配得到组件的日志级别，没有匹配时使用默认级别。
+     */
+    private static Level resolveLevel(String component) {
+        Level level = DEFAULT_LEVEL;
+        int matched = -1;
+        for (Map.Entry<String, Level> entry : CONFIGURED_LEVELS.entrySet()) {
+            String prefix = entry.getKey();
+            if (component.startsWith(prefix) && prefix.length() > matched) {
+                matched = prefix.length();
+                level = entry.getValue();
+            }
+        }
+        return level;
+    }
+
+    /**
+     * @param level 日志级别
+     * @return boolean 该级别是否开启
+     */
+    public boolean isLoggable(Level level) {
+        return level.intValue() >= levelValue && levelValue != Level.OFF.intValue();
+    }
+
+    /**
+     * 记录调试日志，对应{@link Level#FINE}，用于热点路径上每一步的执行情况。
+     *
+     * @param message 日志内容，仅在级别开启时才会调用
+     */
+    public void debug(Supplier<String> message) {
+        if (isLoggable(Level.FINE)) {
+            write(Level.FINE, message.get(), null);
+        }
+    }
+
+    public void info(Supplier<String> message) {
+        if (isLoggable(Level.INFO)) {
+            write(Level.INFO, message.get(), null);
+        }
+    }
+
+    public void info(String message) {
+        if (isLoggable(Level.INFO)) {
+            write(Level.INFO, message, null);
+        }
+    }
+
+    public void warn(String message) {
+        warn(message, null);
+    }
+
+    /**
+     * 记录警告日志，对应{@link Level#WARNING}。
+     *
+     * @param message   日志内容
+     * @param throwable 需要一并输出调用栈的异常，可以为null
+     */
+    public void warn(String message, Throwable throwable) {
+        if (isLoggable(Level.WARNING)) {
+            write(Level.WARNING, message, throwable);
+        }
+    }
+
+    private void write(Level level, String message, Throwable throwable) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName(logger.getName());
+        record.setSourceClassName(component);
+        // 异步写出时jdk无法推断调用方法，故统一不输出方法名
+        record.setSourceMethodName(null);
+        record.setThrown(throwable);
+        if (APPENDER != null) {
+            APPENDER.append(record);
+        } else {
+            logger.log(record);
+        }
+    }
 }
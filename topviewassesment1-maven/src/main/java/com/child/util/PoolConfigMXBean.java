@@ -0,0 +1,48 @@
+package com.child.util;
+
+/**
+ * 数据库连接池运行时配置的JMX接口，可以通过JConsole等工具查看并在线调整。<br/>
+ * <p/>
+ * 调整后立即生效，无需重启服务。其中：
+ * <ol>
+ *     <li>调大{@code maxActive}后，之后的获取按新的上限判断。</li>
+ *     <li>调小{@code maxActive}时，超出的空闲连接立即关闭；仍被持有的连接不会被打断，归还时若超出容量再关闭。</li>
+ *     <li>调大{@code minIdle}时立即补充空闲连接，调小时不做处理。</li>
+ * </ol>
+ * 设置的值需满足{@code 0 <= minIdle <= maxActive}且{@code maxActive >= 1}，否则抛出异常且配置不变。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public interface PoolConfigMXBean {
+    /**
+     * @return int 活跃状态下的最大连接数
+     */
+    int getMaxActive();
+
+    /**
+     * @param maxActive 活跃状态下的最大连接数
+     */
+    void setMaxActive(int maxActive);
+
+    /**
+     * @return int 空闲池中最少连接资源数量
+     */
+    int getMinIdle();
+
+    /**
+     * @param minIdle 空闲池中最少连接资源数量
+     */
+    void setMinIdle(int minIdle);
+
+    /**
+     * @return int 初始化连接数，仅在创建连接池时使用
+     */
+    int getInitialSize();
+
+    /**
+     * @return int 获取连接的最大耗时，单位毫秒
+     */
+    int getMaxWait();
+}
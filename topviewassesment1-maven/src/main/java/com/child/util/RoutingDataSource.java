@@ -0,0 +1,236 @@
+package com.child.util;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * 读写分离的数据源，由一个主库连接池与若干个从库连接池组成。<br/>
+ * <p/>
+ * <ol>
+ *     <li>{@code getConnection()}始终返回主库的连接，用于DML以及事务中的查询。</li>
+ *     <li>
+ *         {@code getReadConnection()}按负载均衡策略{@link LoadBalance}从从库中选择一个连接池，
+ *         返回其连接，用于事务外的查询。未配置从库时返回主库的连接。
+ *     </li>
+ *     <li>
+ *         何时使用从库由会话决定：会话在当前事务中执行过更新后，之后的查询均在主库上执行，
+ *         以保证能读到本事务的写入，详见{@link com.child.util.orm.RoutingTransaction}。
+ *     </li>
+ * </ol>
+ * 各个连接池相互独立，仍各自维护线程绑定、活跃数量与监控指标。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class RoutingDataSource implements DataSource, AutoCloseable {
+    private static final ChildLogger logger = ChildLogger.of(RoutingDataSource.class);
+    /**
+     * 主库连接池
+     */
+    private final DataSource primary;
+    /**
+     * 从库连接池，只读
+     */
+    private final List<DataSource> replicas;
+    /**
+     * 从库的负载均衡策略
+     */
+    private final LoadBalance loadBalance;
+    /**
+     * 轮询序号，最少活跃策略中也用于在活跃数相同的从库间轮流选择
+     */
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * @param primary     主库连接池
+     * @param replicas    从库连接池，可以为空
+     * @param loadBalance 从库的负载均衡策略
+     */
+    public RoutingDataSource(DataSource primary, List<? extends DataSource> replicas, LoadBalance loadBalance) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.loadBalance = loadBalance;
+        logger.info("读写分离数据源初始化完毕，从库数量:" + replicas.size() + "，负载均衡策略:" + loadBalance);
+    }
+
+    /**
+     * 获取主库的连接。<br/>
+     *
+     * @return {@link Connection}
+     * @throws SQLException 直接向上抛出
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    /**
+     * 获取从库的连接，用于事务外的只读查询。未配置从库时返回主库的连接。<br/>
+     *
+     * @return {@link Connection}
+     * @throws SQLException 直接向上抛出
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicas.isEmpty()) {
+            return primary.getConnection();
+        }
+        return replicas.get(nextReplica()).getConnection();
+    }
+
+    /**
+     * 按负载均衡策略选择从库。<br/>
+     * 最少活跃策略从轮询位置开始依次比较各个从库的活跃连接数，故活跃数相同时仍会轮流选择。
+     */
+    private int nextReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(sequence.getAndIncrement(), size);
+        if (loadBalance == LoadBalance.ROUND_ROBIN) {
+            return start;
+        }
+        int selected = start;
+        long minActive = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            long active = activeConnections(replicas.get(index));
+            if (active < minActive) {
+                minActive = active;
+                selected = index;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 读取连接池的活跃连接数，只有{@link ChildDataSource}提供该指标，其余数据源视为0。
+     */
+    private static long activeConnections(DataSource dataSource) {
+        return dataSource instanceof ChildDataSource
+                ? ((ChildDataSource) dataSource).getMetrics().getActiveConnections() : 0;
+    }
+
+    /**
+     * 关闭数据源。<br/>
+     * <p/>
+     * 依次关闭主库与各从库中实现了{@link AutoCloseable}的连接池，
+     * 某个连接池关闭失败时仍会关闭其余的连接池，最后抛出第一个异常。<br/>
+     */
+    @Override
+    public void close() {
+        List<DataSource> dataSources = new ArrayList<>(replicas.size() + 1);
+        dataSources.add(primary);
+        dataSources.addAll(replicas);
+        RuntimeException failure = null;
+        for (DataSource dataSource : dataSources) {
+            if (!(dataSource instanceof AutoCloseable)) {
+                continue;
+            }
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new RuntimeException("关闭读写分离数据源失败", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        logger.info("读写分离数据源已关闭");
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    public LoadBalance getLoadBalance() {
+        return loadBalance;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> interfaceClass) throws SQLException {
+        if (interfaceClass.isInstance(this)) {
+            return interfaceClass.cast(this);
+        }
+        return primary.unwrap(interfaceClass);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> interfaceClass) throws SQLException {
+        return interfaceClass.isInstance(this) || primary.isWrapperFor(interfaceClass);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    /**
+     * 从库的负载均衡策略
+     */
+    public enum LoadBalance {
+        /**
+         * 轮询，依次使用各个从库
+         */
+        ROUND_ROBIN,
+        /**
+         * 最少活跃，使用活跃连接数最少的从库
+         */
+        LEAST_ACTIVE;
+
+        /**
+         * 解析配置文件中的策略名，例如{@code roundRobin}、{@code leastActive}，忽略大小写与下划线。<br/>
+         *
+         * @param name 策略名
+         * @return {@link LoadBalance}
+         */
+        public static LoadBalance of(String name) {
+            String normalized = name.replace("_", "").trim();
+            for (LoadBalance loadBalance : values()) {
+                if (loadBalance.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                    return loadBalance;
+                }
+            }
+            throw new RuntimeException("未知的负载均衡策略:" + name);
+        }
+    }
+}
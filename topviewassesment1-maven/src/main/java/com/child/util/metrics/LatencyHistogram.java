@@ -0,0 +1,167 @@
+package com.child.util.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的延迟直方图，用于记录耗时分布，单位为纳秒。<br/>
+ * <p/>
+ * 采用类似HdrHistogram的对数-线性分桶：小于16的值各占一个桶，
+ * 其余值按最高位划分数量级，每个数量级再线性划分为16个子桶，故相对误差不超过1/16。<br/>
+ * 每个桶都是一个{@link LongAdder}，多线程同时记录时会分散到不同的单元上累加，不需要加锁。<br/>
+ * 读取的分位数是近似值，返回的是目标值所在桶的上界。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class LatencyHistogram {
+    /**
+     * 每个数量级的子桶数量位数，即每个数量级划分为 2^4 = 16 个子桶
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 可记录的最高位，超过该值的记录将计入最后一个桶。2^47纳秒约为39小时，足以覆盖所有耗时
+     */
+    private static final int MAX_MAGNITUDE = 47;
+    private static final int BUCKET_COUNT =
+            SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /**
+     * 各个桶中的记录数量
+     */
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    /**
+     * 记录总数
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * 所有记录值之和，用于计算平均值
+     */
+    private final LongAdder sum = new LongAdder();
+    /**
+     * 记录的最大值
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时。负数将被视为0。<br/>
+     *
+     * @param nanos 耗时，单位纳秒
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets[indexOf(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return long 记录总数
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return long 记录的最大值，单位纳秒
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return double 记录的平均值，单位纳秒。无记录时返回0
+     */
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    /**
+     * 获取指定分位数的近似值。<br/>
+     * <p/>
+     * 由于记录与读取并发进行，各个桶的数量可能来自不同时刻，故结果仅为近似值。<br/>
+     *
+     * @param percentile 分位数，取值范围为 0 ~ 100，例如99表示p99
+     * @return long 该分位数所在桶的上界，单位纳秒。无记录时返回0
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        // 目标记录的次序，至少为第1条
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                // 桶的上界不应超过实际记录到的最大值
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 清空所有记录。与记录操作并发时，清空期间的记录可能部分丢失。
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * 计算记录值所在的桶下标。<br/>
+     *
+     * @param value 非负的记录值
+     * @return int 桶下标
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);// 最高位
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        // 最高位之后的4位作为子桶下标
+        int subBucket = (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * 计算桶中可记录的最大值。<br/>
+     *
+     * @param index 桶下标
+     * @return long 桶的上界
+     */
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
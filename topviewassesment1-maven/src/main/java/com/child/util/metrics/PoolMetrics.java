@@ -0,0 +1,230 @@
+package com.child.util.metrics;
+
+import com.child.util.ChildLogger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 数据库连接池的监控指标。<br/>
+ * <p/>
+ * 每个连接池持有一个该实例，在获取与归还连接时进行记录。<br/>
+ * 计数器均采用{@link LongAdder}，耗时分布采用{@link LatencyHistogram}，记录时无需加锁，开销极小。<br/>
+ * 活跃数与空闲数这类瞬时值不在本类中维护，而是在读取时通过连接池提供的{@link LongSupplier}获取。<br/>
+ * 调用{@code register()}后，可以通过JMX读取全部指标。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class PoolMetrics implements PoolMetricsMXBean {
+    private static final ChildLogger logger = ChildLogger.of(PoolMetrics.class);
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 活跃连接数量
+     */
+    private final LongSupplier activeGauge;
+    /**
+     * 空闲连接数量
+     */
+    private final LongSupplier idleGauge;
+    /**
+     * 正在等待获取连接的线程数量
+     */
+    private final LongAdder pendingBorrowers = new LongAdder();
+    private final LongAdder totalBorrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder overMaxActiveCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    /**
+     * 从开始获取到成功拿到连接的耗时分布
+     */
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    /**
+     * 从借出到归还的持有时长分布
+     */
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+    /**
+     * 注册到JMX中的名称，未注册时为null
+     */
+    private volatile ObjectName objectName;
+
+    /**
+     * @param activeGauge 用于读取活跃连接数量
+     * @param idleGauge   用于读取空闲连接数量
+     */
+    public PoolMetrics(LongSupplier activeGauge, LongSupplier idleGauge) {
+        this.activeGauge = activeGauge;
+        this.idleGauge = idleGauge;
+    }
+
+    /**
+     * 将指标注册到平台MBeanServer中，注册名为{@code com.child.util:type=ChildDataSource,name=<name>}。<br/>
+     * <p/>
+     * 注册失败不影响连接池的使用，仅记录日志。<br/>
+     *
+     * @param name 连接池名称，同一进程中应唯一
+     */
+    public void register(String name) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName =
+                    new ObjectName("com.child.util:type=ChildDataSource,name=" + ObjectName.quote(name));
+            mBeanServer.registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            logger.info("注册连接池监控指标失败:" + e.getMessage());
+        }
+    }
+
+    /**
+     * 从平台MBeanServer中注销指标，未注册或已注销时不做任何操作。<br/>
+     * 注销失败仅记录日志。<br/>
+     */
+    public void unregister() {
+        ObjectName objectName = this.objectName;
+        if (objectName == null) {
+            return;
+        }
+        this.objectName = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.info("注销连接池监控指标失败:" + e.getMessage());
+        }
+    }
+
+    /**
+     * 开始等待获取连接时调用，与{@code endBorrow()}成对出现。
+     */
+    public void beginBorrow() {
+        pendingBorrowers.increment();
+    }
+
+    /**
+     * 结束等待获取连接时调用，无论成功与否。
+     */
+    public void endBorrow() {
+        pendingBorrowers.decrement();
+    }
+
+    /**
+     * 记录一次成功的获取。
+     *
+     * @param waitNanos 获取连接的耗时，单位纳秒
+     */
+    public void recordBorrow(long waitNanos) {
+        totalBorrows.increment();
+        borrowWait.record(waitNanos);
+    }
+
+    /**
+     * 记录一次连接的归还。
+     *
+     * @param holdNanos 连接被持有的时长，单位纳秒
+     */
+    public void recordRelease(long holdNanos) {
+        holdTime.record(holdNanos);
+    }
+
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    public void recordOverMaxActive() {
+        overMaxActiveCount.increment();
+    }
+
+    public void recordValidationFailure() {
+        validationFailures.increment();
+    }
+
+    public LatencyHistogram getBorrowWait() {
+        return borrowWait;
+    }
+
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    @Override
+    public long getActiveConnections() {
+        return activeGauge.getAsLong();
+    }
+
+    @Override
+    public long getIdleConnections() {
+        return idleGauge.getAsLong();
+    }
+
+    @Override
+    public long getPendingBorrowers() {
+        return pendingBorrowers.sum();
+    }
+
+    @Override
+    public long getTotalBorrows() {
+        return totalBorrows.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getOverMaxActiveCount() {
+        return overMaxActiveCount.sum();
+    }
+
+    @Override
+    public long getValidationFailures() {
+        return validationFailures.sum();
+    }
+
+    @Override
+    public double getBorrowWaitMeanMillis() {
+        return borrowWait.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getBorrowWaitP50Millis() {
+        return borrowWait.getPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getBorrowWaitP99Millis() {
+        return borrowWait.getPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getBorrowWaitMaxMillis() {
+        return borrowWait.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getHoldTimeMeanMillis() {
+        return holdTime.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getHoldTimeP50Millis() {
+        return holdTime.getPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getHoldTimeP99Millis() {
+        return holdTime.getPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getHoldTimeMaxMillis() {
+        return holdTime.getMax() / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,63 @@
+package com.child.util.metrics;
+
+/**
+ * 数据库连接池监控指标的JMX接口，可以通过JConsole等工具查看。<br/>
+ * <p/>
+ * 其中耗时类指标的单位均为毫秒。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public interface PoolMetricsMXBean {
+    /**
+     * @return long 当前活跃连接数量
+     */
+    long getActiveConnections();
+
+    /**
+     * @return long 当前空闲连接数量
+     */
+    long getIdleConnections();
+
+    /**
+     * @return long 当前正在等待获取连接的线程数量
+     */
+    long getPendingBorrowers();
+
+    /**
+     * @return long 成功获取连接的总次数
+     */
+    long getTotalBorrows();
+
+    /**
+     * @return long 获取连接超时的总次数
+     */
+    long getTimeouts();
+
+    /**
+     * @return long 因活跃连接数达到上限而获取失败的总次数
+     */
+    long getOverMaxActiveCount();
+
+    /**
+     * @return long 校验发现失效而被关闭的连接总数
+     */
+    long getValidationFailures();
+
+    double getBorrowWaitMeanMillis();
+
+    double getBorrowWaitP50Millis();
+
+    double getBorrowWaitP99Millis();
+
+    double getBorrowWaitMaxMillis();
+
+    double getHoldTimeMeanMillis();
+
+    double getHoldTimeP50Millis();
+
+    double getHoldTimeP99Millis();
+
+    double getHoldTimeMaxMillis();
+}
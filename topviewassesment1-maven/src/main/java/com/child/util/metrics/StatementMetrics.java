@@ -0,0 +1,187 @@
+package com.child.util.metrics;
+
+import com.child.util.ChildLogger;
+
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL语句的执行指标，按SQL的全限定id分别统计。<br/>
+ * <p/>
+ * 每次执行分为三个阶段分别计时：参数绑定（创建PreparedStatement并为占位符赋值）、执行、结果集映射。<br/>
+ * 总耗时超过{@code slowQueryThreshold}的语句将被记录到慢查询日志中，日志中包含绑定参数后的SQL。<br/>
+ * 每个{@code SqlSessionFactory}持有一个该实例，由其创建的所有会话共享。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class StatementMetrics {
+    private static final ChildLogger logger = ChildLogger.of(StatementMetrics.class);
+    /**
+     * 默认的慢查询阈值，单位毫秒
+     */
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD = 1000;
+
+    /**
+     * 慢查询阈值，单位纳秒。小于等于0时不记录慢查询
+     */
+    private final long slowQueryThresholdNanos;
+    /**
+     * K为SQL的全限定id，V为该语句的统计数据
+     */
+    private final Map<String, StatementStats> statementStatsMap = new ConcurrentHashMap<>();
+
+    public StatementMetrics() {
+        this(DEFAULT_SLOW_QUERY_THRESHOLD);
+    }
+
+    /**
+     * @param slowQueryThreshold 慢查询阈值，单位毫秒，小于等于0时不记录慢查询
+     */
+    public StatementMetrics(long slowQueryThreshold) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThreshold);
+    }
+
+    /**
+     * 记录一次DML语句的执行。<br/>
+     *
+     * @param sqlId        SQL的全限定id
+     * @param bindNanos    参数绑定耗时
+     * @param executeNanos 执行耗时
+     * @param rows         受影响行数
+     * @param statement    已执行的语句，仅在记录慢查询时用于输出绑定参数后的SQL
+     */
+    public void recordUpdate(String sqlId, long bindNanos, long executeNanos, long rows, Statement statement) {
+        StatementStats stats = statsOf(sqlId);
+        stats.executions.increment();
+        stats.rows.add(rows);
+        stats.bind.record(bindNanos);
+        stats.execute.record(executeNanos);
+        checkSlowQuery(sqlId, bindNanos + executeNanos, statement);
+    }
+
+    /**
+     * 记录一次查询语句的执行。<br/>
+     *
+     * @param sqlId        SQL的全限定id
+     * @param bindNanos    参数绑定耗时
+     * @param executeNanos 执行耗时
+     * @param mapNanos     结果集映射耗时
+     * @param rows         返回的记录数
+     * @param statement    已执行的语句，仅在记录慢查询时用于输出绑定参数后的SQL
+     */
+    public void recordQuery(String sqlId, long bindNanos, long executeNanos, long mapNanos,
+                            long rows, Statement statement) {
+        StatementStats stats = statsOf(sqlId);
+        stats.executions.increment();
+        stats.rows.add(rows);
+        stats.bind.record(bindNanos);
+        stats.execute.record(executeNanos);
+        stats.map.record(mapNanos);
+        checkSlowQuery(sqlId, bindNanos + executeNanos + mapNanos, statement);
+    }
+
+    /**
+     * @return {@link Map} 所有语句的统计数据，K为SQL的全限定id，只读
+     */
+    public Map<String, StatementStats> getStatementStats() {
+        return Collections.unmodifiableMap(statementStatsMap);
+    }
+
+    /**
+     * @param sqlId SQL的全限定id
+     * @return {@link StatementStats} 该语句的统计数据，未执行过时返回null
+     */
+    public StatementStats getStatementStats(String sqlId) {
+        return statementStatsMap.get(sqlId);
+    }
+
+    private StatementStats statsOf(String sqlId) {
+        // 先get再computeIfAbsent，避免已存在时也进入加锁的分支
+        StatementStats stats = statementStatsMap.get(sqlId);
+        return stats != null ? stats : statementStatsMap.computeIfAbsent(sqlId, id -> new StatementStats());
+    }
+
+    /**
+     * 若总耗时超过阈值，则记录慢查询日志。<br/>
+     * 只有在确认为慢查询时才会调用{@link Statement#toString()}获取绑定参数后的SQL。
+     */
+    private void checkSlowQuery(String sqlId, long totalNanos, Statement statement) {
+        if (slowQueryThresholdNanos > 0 && totalNanos >= slowQueryThresholdNanos) {
+            statsOf(sqlId).slowQueries.increment();
+            logger.warn("慢查询[" + sqlId + "]耗时" + TimeUnit.NANOSECONDS.toMillis(totalNanos)
+                    + "ms:" + statement);
+        }
+    }
+
+    /**
+     * 单条SQL语句的统计数据。
+     */
+    public static class StatementStats {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slowQueries = new LongAdder();
+        private final LatencyHistogram bind = new LatencyHistogram();
+        private final LatencyHistogram execute = new LatencyHistogram();
+        private final LatencyHistogram map = new LatencyHistogram();
+
+        /**
+         * @return long 执行次数
+         */
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        /**
+         * @return long 返回的记录总数，对于DML语句为受影响的总行数
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * @return long 慢查询次数
+         */
+        public long getSlowQueries() {
+            return slowQueries.sum();
+        }
+
+        /**
+         * @return {@link LatencyHistogram} 参数绑定阶段的耗时分布
+         */
+        public LatencyHistogram getBind() {
+            return bind;
+        }
+
+        /**
+         * @return {@link LatencyHistogram} 执行阶段的耗时分布
+         */
+        public LatencyHistogram getExecute() {
+            return execute;
+        }
+
+        /**
+         * @return {@link LatencyHistogram} 结果集映射阶段的耗时分布，DML语句不记录该阶段
+         */
+        public LatencyHistogram getMap() {
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return "StatementStats{" +
+                    "executions=" + getExecutions() +
+                    ", rows=" + getRows() +
+                    ", slowQueries=" + getSlowQueries() +
+                    ", bindMeanNanos=" + bind.getMean() +
+                    ", executeMeanNanos=" + execute.getMean() +
+                    ", mapMeanNanos=" + map.getMean() +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.child.util.orm;
+
+import com.child.util.orm.bean.StatementCache;
+
+/**
+ * 会话执行SQL语句的方式。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public enum ExecutorType {
+    /**
+     * 每次执行都创建新的{@link java.sql.PreparedStatement}，执行完毕后立即关闭
+     */
+    SIMPLE,
+    /**
+     * 会话内相同的SQL复用同一个{@link java.sql.PreparedStatement}，会话关闭时统一关闭，
+     * 适用于在一个会话中反复执行少数几条语句的场景，详见{@link StatementCache}
+     */
+    REUSE
+}
@@ -5,7 +5,6 @@ import com.child.util.ChildLogger;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.logging.Logger;
 
 /**
  * 事务管理器，用于管理事务相关操作。<br/>
@@ -32,6 +31,18 @@ public class JdbcTransaction implements Transaction {
      * 是否自动提交事务，默认为false，即手动提交。
      */
     private boolean autoCommit;
+    /**
+     * 事务隔离级别，默认为{@code DEFAULT}，即使用连接的默认隔离级别
+     */
+    private final TransactionIsolation isolation;
+    /**
+     * 是否为只读事务，只读时连接将设置为{@link Connection#setReadOnly(boolean)}
+     */
+    private final boolean readOnly;
+    /**
+     * 嵌套事务的保存点
+     */
+    private final SavepointStack savepoints = new SavepointStack();
 
     /**
      * 根据数据库连接池创建一个事务管理器。默认手动提交事务。<br/>
@@ -49,18 +60,36 @@ public class JdbcTransaction implements Transaction {
      * @param autoCommit 提交事务的方式，false为手动提交，true为自动提交。
      */
     public JdbcTransaction(DataSource dataSource, boolean autoCommit) {
+        this(dataSource, autoCommit, TransactionIsolation.DEFAULT, false);
+    }
+
+    /**
+     * 根据数据库连接池、提交事务的方式、隔离级别以及是否只读来创建一个事务管理器.<br/>
+     * <p/>
+     * 以上状态均在获取连接时设置，连接归还时由连接池重置被修改过的状态。<br/>
+     * @param dataSource Factory类中数据库连接池对象的引用
+     * @param autoCommit 提交事务的方式，false为手动提交，true为自动提交。
+     * @param isolation  事务隔离级别
+     * @param readOnly   是否为只读事务
+     */
+    public JdbcTransaction(DataSource dataSource, boolean autoCommit, TransactionIsolation isolation,
+                           boolean readOnly) {
         this.dataSource = dataSource;
         this.autoCommit = autoCommit;
+        this.isolation = isolation;
+        this.readOnly = readOnly;
     }
 
     /**
-     * 返回一个全新的连接资源。
+     * 返回连接资源，尚未持有连接时从连接池中获取一个全新的连接。
      * @return {@link Connection}
      */
     @Override
     public Connection getConnection() throws SQLException {
-        openConnection();// 开启连接
-        logger.info("获取连接成功");
+        if (connection == null) {
+            openConnection();// 开启连接
+            logger.debug(() -> "获取连接成功");
+        }
         return connection;
     }
 
@@ -74,21 +103,72 @@ public class JdbcTransaction implements Transaction {
         connection = dataSource.getConnection();
         // 设置连接资源的状态
         connection.setAutoCommit(autoCommit);
+        isolation.applyTo(connection);
+        if (readOnly) {
+            connection.setReadOnly(true);
+        }
+    }
+
+    /**
+     * 自动提交时归还连接，下次执行语句时重新获取。
+     */
+    @Override
+    public void releaseConnection() throws SQLException {
+        if (autoCommit && connection != null) {
+            connection.close();
+            connection = null;
+            logger.debug(() -> "归还连接成功");
+        }
     }
 
+    /**
+     * 归还连接，未获取连接时忽略。
+     */
     @Override
     public void close() throws SQLException {
-        connection.close();
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
     }
 
+    /**
+     * 提交事务，未获取连接时说明事务中没有执行过语句，直接忽略。
+     */
     @Override
     public void commit() throws SQLException {
-        connection.commit();
+        savepoints.clear();
+        if (connection != null) {
+            connection.commit();
+        }
     }
 
     @Override
     public void rollback() throws SQLException {
-        connection.rollback();
+        savepoints.clear();
+        if (connection != null) {
+            connection.rollback();
+        }
+    }
+
+    /**
+     * 开启一层嵌套事务，第一次调用时获取连接。<br/>
+     *
+     * @throws SQLException 直接向上抛出
+     */
+    @Override
+    public void beginNested() throws SQLException {
+        savepoints.begin(connection != null ? connection : getConnection());
+    }
+
+    @Override
+    public void releaseNested() throws SQLException {
+        savepoints.release(connection);
+    }
+
+    @Override
+    public void rollbackNested() throws SQLException {
+        savepoints.rollback(connection);
     }
 
 
@@ -100,6 +180,7 @@ public class JdbcTransaction implements Transaction {
      * 而该方法实际上无法作用到已开启的连接资源中。<br/>
      * @return boolean true时为自动提交
      */
+    @Override
     public boolean isAutoCommit() {
         return autoCommit;
     }
@@ -112,5 +193,5 @@ public class JdbcTransaction implements Transaction {
         this.autoCommit = autoCommit;
     }
 
-    private static final Logger logger = ChildLogger.getLogger();
+    private static final ChildLogger logger = ChildLogger.of(JdbcTransaction.class);
 }
@@ -0,0 +1,198 @@
+package com.child.util.orm;
+
+import com.child.util.ChildLogger;
+import com.child.util.RoutingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 读写分离的事务管理器，分别持有主库连接与从库连接。<br/>
+ * <p/>
+ * 主库连接用于DML以及事务中的查询，事务的提交与回滚只作用于主库连接；
+ * 从库连接始终为自动提交，仅用于事务外的查询。<br/>
+ * 手动提交时事务从第一条语句开始，之后的查询都属于该事务，故所有语句都在主库上执行，不使用从库。<br/>
+ * 两个连接均在第一次使用时才获取，会话只执行查询时不会占用主库的连接；
+ * 从库连接以及自动提交的主库连接在每条语句执行后归还，详见{@link #releaseConnection()}。<br/>
+ * 只读的事务管理器不使用主库：{@code getConnection()}同样返回从库连接，该连接按指定的提交方式与隔离级别设置，
+ * 并设置为只读，事务的提交与回滚作用于该连接。<br/>
+ * 与{@link JdbcTransaction}相同，每一个{@link SimpleSqlSession}都应该持有一个全新的事务管理器。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class RoutingTransaction implements Transaction {
+    /**
+     * 读写分离的数据源
+     */
+    private final RoutingDataSource dataSource;
+    /**
+     * 主库连接
+     */
+    private Connection connection;
+    /**
+     * 从库连接
+     */
+    private Connection readConnection;
+    /**
+     * 主库连接是否自动提交事务
+     */
+    private final boolean autoCommit;
+    /**
+     * 事务隔离级别
+     */
+    private final TransactionIsolation isolation;
+    /**
+     * 是否为只读事务
+     */
+    private final boolean readOnly;
+    /**
+     * 嵌套事务的保存点，作用于主库连接
+     */
+    private final SavepointStack savepoints = new SavepointStack();
+
+    /**
+     * @param dataSource 读写分离的数据源
+     * @param autoCommit 主库连接提交事务的方式，false为手动提交，true为自动提交
+     */
+    public RoutingTransaction(RoutingDataSource dataSource, boolean autoCommit) {
+        this(dataSource, autoCommit, TransactionIsolation.DEFAULT, false);
+    }
+
+    /**
+     * @param dataSource 读写分离的数据源
+     * @param autoCommit 提交事务的方式，false为手动提交，true为自动提交
+     * @param isolation  事务隔离级别
+     * @param readOnly   是否为只读事务，只读时所有语句都在从库上执行
+     */
+    public RoutingTransaction(RoutingDataSource dataSource, boolean autoCommit, TransactionIsolation isolation,
+                              boolean readOnly) {
+        this.dataSource = dataSource;
+        this.autoCommit = autoCommit;
+        this.isolation = isolation;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * 返回主库连接，第一次调用时获取。只读时返回从库连接。<br/>
+     *
+     * @return {@link Connection}
+     * @throws SQLException 直接向上抛出
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (connection == null) {
+            connection = readOnly ? dataSource.getReadConnection() : dataSource.getConnection();
+            connection.setAutoCommit(autoCommit);
+            isolation.applyTo(connection);
+            if (readOnly) {
+                connection.setReadOnly(true);
+            }
+            logger.debug(() -> readOnly ? "获取只读连接成功" : "获取主库连接成功");
+        }
+        return connection;
+    }
+
+    /**
+     * 返回从库连接，第一次调用时按负载均衡策略获取。<br/>
+     * 手动提交或处于嵌套事务中时返回null，查询在主库连接上执行。<br/>
+     *
+     * @return {@link Connection} 不处于事务中时为从库连接，否则为null
+     * @throws SQLException 直接向上抛出
+     */
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        if (readOnly) {
+            return getConnection();
+        }
+        if (!autoCommit || savepoints.depth() > 0) {
+            return null;
+        }
+        if (readConnection == null) {
+            readConnection = dataSource.getReadConnection();
+            readConnection.setAutoCommit(true);
+            logger.debug(() -> "获取从库连接成功");
+        }
+        return readConnection;
+    }
+
+    /**
+     * 归还从库连接，主库连接仅在自动提交时归还。只读时从库连接即为{@code connection}，按同样的规则处理。
+     */
+    @Override
+    public void releaseConnection() throws SQLException {
+        try {
+            if (readConnection != null) {
+                readConnection.close();
+                readConnection = null;
+            }
+        } finally {
+            if (autoCommit && connection != null) {
+                connection.close();
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * 归还主库连接与从库连接，未获取的连接将被忽略。
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (readConnection != null) {
+                readConnection.close();
+                readConnection = null;
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+                connection = null;
+            }
+        }
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        savepoints.clear();
+        if (connection != null) {
+            connection.commit();
+        }
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        savepoints.clear();
+        if (connection != null) {
+            connection.rollback();
+        }
+    }
+
+    @Override
+    public boolean isAutoCommit() {
+        return autoCommit;
+    }
+
+    /**
+     * 开启一层嵌套事务，尚未获取主库连接时先获取。<br/>
+     *
+     * @throws SQLException 直接向上抛出
+     */
+    @Override
+    public void beginNested() throws SQLException {
+        savepoints.begin(getConnection());
+    }
+
+    @Override
+    public void releaseNested() throws SQLException {
+        savepoints.release(connection);
+    }
+
+    @Override
+    public void rollbackNested() throws SQLException {
+        savepoints.rollback(connection);
+    }
+
+    private static final ChildLogger logger = ChildLogger.of(RoutingTransaction.class);
+}
@@ -0,0 +1,70 @@
+package com.child.util.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 嵌套事务的保存点栈，由事务管理器持有。<br/>
+ * <p/>
+ * 每开启一层嵌套事务便在连接上创建一个保存点并入栈，结束该层时出栈并释放或回滚到该保存点，
+ * 故各层必须按开启的相反顺序结束。外层事务提交或回滚后，所有保存点随之失效，栈被清空。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+class SavepointStack {
+    private final Deque<Savepoint> savepoints = new ArrayDeque<>();
+
+    /**
+     * 开启一层嵌套事务。<br/>
+     *
+     * @param connection 事务所在的连接，不能是自动提交的
+     * @throws SQLException 直接向上抛出
+     */
+    void begin(Connection connection) throws SQLException {
+        if (connection.getAutoCommit()) {
+            throw new RuntimeException("自动提交的连接不支持嵌套事务");
+        }
+        savepoints.push(connection.setSavepoint());
+    }
+
+    /**
+     * 结束最内层的嵌套事务，保留其中的修改，由外层事务决定是否提交。<br/>
+     *
+     * @param connection 事务所在的连接
+     * @throws SQLException 直接向上抛出
+     */
+    void release(Connection connection) throws SQLException {
+        connection.releaseSavepoint(pop());
+    }
+
+    /**
+     * 撤销最内层的嵌套事务中的修改，外层事务不受影响。<br/>
+     *
+     * @param connection 事务所在的连接
+     * @throws SQLException 直接向上抛出
+     */
+    void rollback(Connection connection) throws SQLException {
+        connection.rollback(pop());
+    }
+
+    private Savepoint pop() {
+        Savepoint savepoint = savepoints.poll();
+        if (savepoint == null) {
+            throw new RuntimeException("当前没有进行中的嵌套事务");
+        }
+        return savepoint;
+    }
+
+    void clear() {
+        savepoints.clear();
+    }
+
+    int depth() {
+        return savepoints.size();
+    }
+}
@@ -1,14 +1,16 @@
 package com.child.util.orm;
 
 import com.child.util.ChildLogger;
+import com.child.util.metrics.StatementMetrics;
 import com.child.util.orm.bean.ForPreparedStatement;
 import com.child.util.orm.bean.MetaMapperStatement;
+import com.child.util.orm.bean.MultiRowInsert;
+import com.child.util.orm.bean.StatementCache;
 import com.child.util.orm.handler.*;
 
 import java.sql.*;
 
 import java.util.*;
-import java.util.logging.Logger;
 
 /**
  * 该sql会话主要用于对数据库进行一系列的操作。集成了操作数据库必要的功能。<br/>
@@ -31,9 +33,19 @@ public class SimpleSqlSession implements SqlSession {
 
     /**
      * 从transaction实例中获取到的连接资源，对于每一个会话类，应该仅持有<strong>唯一</strong>的一份连接资源，
-     * 并通过该连接资源完成整个会话关于数据库的操作，而不应该频繁的通过transaction对连接资源进行获取或者关闭。
+     * 并通过该连接资源完成整个会话关于数据库的操作，而不应该频繁的通过transaction对连接资源进行获取或者关闭。<br/>
+     * 该连接在第一次执行语句时才获取，自动提交时每条语句执行后即归还，详见{@code releaseConnection()}。
      */
     private Connection connection;
+    /**
+     * 事务外的查询所使用的连接，仅在开启读写分离时与{@code connection}不同，详见{@link Transaction#getReadConnection()}
+     */
+    private Connection readConnection;
+    /**
+     * 当前事务中是否执行过更新，执行过更新后的查询将使用{@code connection}，以保证能读到本事务的写入。
+     * 自动提交时每条更新即是一个已提交的事务，不置位，之后的查询仍可使用只读连接
+     */
+    private boolean dirty;
     /**
      * 每一个sqlSession实例将拥有{@link SimpleSqlSessionFactory}类中所有SQL语句映射的访问权限。
      * K为sql语句全限定id，V为包含标签信息的对象
@@ -41,9 +53,25 @@ public class SimpleSqlSession implements SqlSession {
     private Map<String, MetaMapperStatement> statementMap;
     /**
      * 每次调用CRUD操作时，都会进行拦截判断传入的实参类型，从而选择不同的SQL处理器。<br/>
-     * 主要的两种处理器为{@link MapSqlHandler}和{@link ObjectSqlHandler}.<br/>
+     * 主要的两种处理器为{@link MapSqlHandler}和{@link ObjectSqlHandler}，含有动态SQL标签的语句使用{@link DynamicSqlHandler}.<br/>
      */
     private SqlHandler sqlHandler;
+    /**
+     * SQL语句的执行指标，由工厂类创建的所有会话共享。
+     */
+    private final StatementMetrics statementMetrics;
+    /**
+     * 数据库的{@code max_allowed_packet}，用于多行插入时控制每块的大小
+     */
+    private final long maxAllowedPacket;
+    /**
+     * 语句缓存，仅在{@link ExecutorType#REUSE}时创建
+     */
+    private final StatementCache statementCache;
+    /**
+     * 是否为只读会话，只读会话中执行更新将直接抛出异常
+     */
+    private final boolean readOnly;
 
     /**
      * 创建一个SqlSession对象，可以进行都数据库的操作。
@@ -53,19 +81,70 @@ public class SimpleSqlSession implements SqlSession {
      * @return {@link SimpleSqlSession}
      */
     public SimpleSqlSession(Transaction transaction, Map<String, MetaMapperStatement> statementMap) {
+        this(transaction, statementMap, new StatementMetrics());
+    }
+
+    /**
+     * 创建一个SqlSession对象，并指定用于记录SQL执行指标的对象。
+     *
+     * @param transaction      事务管理器
+     * @param statementMap     包含SQL映射语句的集合
+     * @param statementMetrics SQL语句的执行指标
+     */
+    public SimpleSqlSession(Transaction transaction, Map<String, MetaMapperStatement> statementMap,
+                            StatementMetrics statementMetrics) {
+        this(transaction, statementMap, statementMetrics, MultiRowInsert.DEFAULT_MAX_ALLOWED_PACKET);
+    }
+
+    /**
+     * 创建一个SqlSession对象，并指定多行插入时每条语句的大小上限。
+     *
+     * @param transaction      事务管理器
+     * @param statementMap     包含SQL映射语句的集合
+     * @param statementMetrics SQL语句的执行指标
+     * @param maxAllowedPacket 数据库的{@code max_allowed_packet}，单位字节
+     */
+    public SimpleSqlSession(Transaction transaction, Map<String, MetaMapperStatement> statementMap,
+                            StatementMetrics statementMetrics, long maxAllowedPacket) {
+        this(transaction, statementMap, statementMetrics, maxAllowedPacket, ExecutorType.SIMPLE, false);
+    }
+
+    /**
+     * 创建一个SqlSession对象，并指定执行SQL语句的方式以及是否只读。
+     *
+     * @param transaction      事务管理器，其中的连接状态应与{@code readOnly}一致
+     * @param statementMap     包含SQL映射语句的集合
+     * @param statementMetrics SQL语句的执行指标
+     * @param maxAllowedPacket 数据库的{@code max_allowed_packet}，单位字节
+     * @param executorType     执行SQL语句的方式
+     * @param readOnly         是否为只读会话
+     */
+    public SimpleSqlSession(Transaction transaction, Map<String, MetaMapperStatement> statementMap,
+                            StatementMetrics statementMetrics, long maxAllowedPacket,
+                            ExecutorType executorType, boolean readOnly) {
         this.transaction = transaction;
         this.statementMap = statementMap;
+        this.statementMetrics = statementMetrics;
+        this.maxAllowedPacket = maxAllowedPacket;
+        this.statementCache = executorType == ExecutorType.REUSE ? new StatementCache() : null;
+        this.readOnly = readOnly;
     }
 
 
     /**
      * 用于关闭会话。<br/>
      * <p/>
-     * 内部将会把连接释放。
+     * 内部将会把连接释放，复用的语句在释放连接之前关闭。
      */
     @Override
     public void close() throws SQLException {
-        transaction.close();
+        try {
+            if (statementCache != null) {
+                statementCache.close();
+            }
+        } finally {
+            transaction.close();
+        }
     }
 
     /**
@@ -74,6 +153,7 @@ public class SimpleSqlSession implements SqlSession {
     @Override
     public void commit() throws SQLException {
         transaction.commit();
+        dirty = false;
     }
 
     /**
@@ -82,6 +162,33 @@ public class SimpleSqlSession implements SqlSession {
     @Override
     public void rollback() throws SQLException {
         transaction.rollback();
+        dirty = false;
+    }
+
+    /**
+     * 开启一层嵌套事务，与外层事务共用当前会话的连接，不会从连接池中获取新的连接。<br/>
+     * 自动提交的会话在获取连接之前即抛出异常，不会占用连接。
+     */
+    @Override
+    public void beginNested() throws SQLException {
+        if (transaction.isAutoCommit()) {
+            throw new RuntimeException("自动提交的会话不支持嵌套事务");
+        }
+        openConnection();
+        transaction.beginNested();
+    }
+
+    @Override
+    public void releaseNested() throws SQLException {
+        transaction.releaseNested();
+    }
+
+    /**
+     * 撤销最内层嵌套事务中的修改。外层事务中可能仍有更新，故之后的查询仍在主库上执行。
+     */
+    @Override
+    public void rollbackNested() throws SQLException {
+        transaction.rollbackNested();
     }
 
     /**
@@ -122,6 +229,8 @@ public class SimpleSqlSession implements SqlSession {
      * 通过这些字段名来得知该对JDBC的占位符?赋上obj中的哪些字段值。<br/>
      * <p/>
      * 注意，因为在为占位符"?"赋值时，使用的均是{@code setString()}方法，故不能传入一个null作为值。<br/>
+     * 若执行的是静态的插入语句且传入的参数为集合，则将集合中的每个元素作为一行，展开为多行插入，
+     * 详见{@link MultiRowInsert}。<br/>
      *
      * @param sqlId      sql语句的一个映射，即sql语句的位置。
      * @param parameters 需要更新的对象
@@ -129,31 +238,131 @@ public class SimpleSqlSession implements SqlSession {
      */
     @Override
     public int update(String sqlId, Object parameters) throws SQLException {
+        if (readOnly) {
+            throw new RuntimeException("只读会话不能执行更新:" + sqlId);
+        }
         // 开启连接资源
         openConnection();
-        // 设置SQL处理器
-        setSqlHandler(parameters);
+        if (!transaction.isAutoCommit()) {
+            dirty = true;
+        }
+        try {
+            return executeUpdate(sqlId, parameters);
+        } finally {
+            releaseConnection();
+        }
+    }
 
+    /**
+     * 在已开启的连接上执行更新，详见{@code update()}。
+     */
+    private int executeUpdate(String sqlId, Object parameters) throws SQLException {
         // 根据全限定id，即statement获取对应的SQL映射对象
         MetaMapperStatement metaMapperStatement = statementMap.get(sqlId);
-        // 获取对应的原生SQL语句
-        String prototypeSql = metaMapperStatement.getPrototypeSql();
-
-        /*封装数据*/
-        ForPreparedStatement forPreparedStatement = new ForPreparedStatement(connection, prototypeSql);
+        // 以集合为参数执行静态插入语句时，展开为多行插入
+        if (parameters instanceof Collection && INSERT.equals(metaMapperStatement.getSqlType())
+                && !metaMapperStatement.isDynamic()) {
+            return insertRows(sqlId, metaMapperStatement, (Collection<?>) parameters);
+        }
+        // 设置SQL处理器
+        setSqlHandler(metaMapperStatement, parameters);
+        /*封装数据，使用映射对象中预编译的SQL模板*/
+        ForPreparedStatement forPreparedStatement = new ForPreparedStatement(connection, metaMapperStatement);
+        forPreparedStatement.setStatementCache(statementCache);
 
+        // 开始计时，分别记录参数绑定与执行的耗时
+        long start = System.nanoTime();
         /*获取可以立即执行的preparedStatement实例,
           try-with-resources自动关闭资源
          */
         try (PreparedStatement preparedStatement =
                      sqlHandler.sqlHandler(forPreparedStatement, parameters)) {
+            long bound = System.nanoTime();
             int rowCount = preparedStatement.executeUpdate();
-            logger.info("记录更新成功");
+            statementMetrics.recordUpdate(sqlId, bound - start, System.nanoTime() - bound,
+                    rowCount, preparedStatement);
+            // 将生成的主键写回参数中，主键随执行结果一同返回，无需再次查询
+            if (metaMapperStatement.isUseGeneratedKeys()) {
+                List<?> targets = parameters instanceof Collection
+                        ? new ArrayList<>((Collection<?>) parameters) : Collections.singletonList(parameters);
+                new GeneratedKeyHandler(metaMapperStatement.getKeyProperty()).assignKeys(preparedStatement, targets, 0);
+            }
+            logger.debug(() -> "记录更新成功");
             // 执行sql语句, 并返回受影响行数
             return rowCount;
         }
     }
 
+    /**
+     * 将集合中的元素展开为多行插入，并按{@link MultiRowInsert}的规则分块执行。<br/>
+     * <p/>
+     * 连续的相同行数的块复用同一个{@link PreparedStatement}，只重新赋值。<br/>
+     * 开启了{@code useGeneratedKeys}时，每块执行后将生成的主键依次写回到该块的各个元素中。<br/>
+     *
+     * @param sqlId               SQL语句的全限定id
+     * @param metaMapperStatement 插入语句的SQL映射对象
+     * @param elements            需要插入的元素
+     * @return int 受影响的总行数
+     * @throws SQLException 直接向上抛出
+     */
+    private int insertRows(String sqlId, MetaMapperStatement metaMapperStatement, Collection<?> elements)
+            throws SQLException {
+        MultiRowInsert multiRowInsert = metaMapperStatement.getMultiRowInsert();
+        if (multiRowInsert == null) {
+            throw new RuntimeException("该插入语句无法展开为多行插入:" + sqlId);
+        }
+
+        long start = System.nanoTime();
+        List<Object[]> rows = multiRowInsert.bindRows(elements);
+        // 用于写回生成的主键，未开启时为null
+        GeneratedKeyHandler generatedKeyHandler = metaMapperStatement.isUseGeneratedKeys()
+                ? new GeneratedKeyHandler(metaMapperStatement.getKeyProperty()) : null;
+        List<?> targets = elements instanceof List ? (List<?>) elements : new ArrayList<>(elements);
+        int total = 0;
+        PreparedStatement preparedStatement = null;
+        // 当前preparedStatement对应的行数
+        int preparedRows = 0;
+        try {
+            int from = 0;
+            while (from < rows.size()) {
+                int chunkSize = multiRowInsert.nextChunkSize(rows, from, maxAllowedPacket);
+                if (chunkSize != preparedRows) {
+                    if (preparedStatement != null) {
+                        preparedStatement.close();
+                    }
+                    preparedStatement = generatedKeyHandler == null
+                            ? connection.prepareStatement(multiRowInsert.sql(chunkSize))
+                            : connection.prepareStatement(multiRowInsert.sql(chunkSize),
+                            Statement.RETURN_GENERATED_KEYS);
+                    preparedRows = chunkSize;
+                }
+                int index = 1;
+                for (int i = from; i < from + chunkSize; i++) {
+                    for (Object value : rows.get(i)) {
+                        preparedStatement.setObject(index++, value);
+                    }
+                }
+                long bound = System.nanoTime();
+                int rowCount = preparedStatement.executeUpdate();
+                statementMetrics.recordUpdate(sqlId, bound - start, System.nanoTime() - bound,
+                        rowCount, preparedStatement);
+                if (generatedKeyHandler != null) {
+                    generatedKeyHandler.assignKeys(preparedStatement, targets, from);
+                }
+                total += rowCount;
+                from += chunkSize;
+                start = System.nanoTime();
+            }
+        } finally {
+            if (preparedStatement != null) {
+                preparedStatement.close();
+            }
+        }
+        int inserted = total;
+        logger.debug(() -> "多行插入成功，共" + inserted + "行");
+        return total;
+    }
+
     /**
      * 用于查询parameters对象记录，返回查询得到的对象。
      * <p/>
@@ -173,7 +382,7 @@ public class SimpleSqlSession implements SqlSession {
         // 接收结果集合
         List<Object> objects = selectList(sqlId, parameters);
         if (objects.size() == 0) {
-            logger.info("查询记录不存在");
+            logger.debug(() -> "查询记录不存在");
             // 如果为0直接返回null
             return null;
         }
@@ -182,7 +391,7 @@ public class SimpleSqlSession implements SqlSession {
             throw new RuntimeException("查询记录不唯一");
         }
         T t = (T) objects.get(0);
-        logger.info("查询唯一记录成功");
+        logger.debug(() -> "查询唯一记录成功");
         return t;
     }
 
@@ -199,6 +408,22 @@ public class SimpleSqlSession implements SqlSession {
      */
     @Override
     public <E> List<E> selectList(String sqlId, Object parameters) throws SQLException {
+        return selectList(sqlId, parameters, 0);
+    }
+
+    /**
+     * 用于查询parameters对象记录，最多返回{@code maxRows}条记录。<br/>
+     * <p/>
+     * 行数限制通过{@link Statement#setMaxRows(int)}下推给驱动，数据库不会返回多余的记录。<br/>
+     * @param sqlId      SQL语句的全限定id
+     * @param parameters 查询的对象
+     * @param maxRows    最多返回的记录数，小于等于0时不限制
+     * @param <E>        泛型，用于限制集合中元素类型
+     * @return {@link List} 存放了结果集记录数据的集合
+     * @throws SQLException 直接向上抛出
+     */
+    @Override
+    public <E> List<E> selectList(String sqlId, Object parameters, int maxRows) throws SQLException {
         // 获取SQL映射对象
         MetaMapperStatement metaMapperStatement = statementMap.get(sqlId);
         // 获取SQL返回值类型
@@ -207,7 +432,7 @@ public class SimpleSqlSession implements SqlSession {
         try {
             // 创建对应返回值类型的Class对象
             Class<?> aClass = Class.forName(resultType);
-            return selectList(sqlId, parameters, new ListResultHandler<>(aClass));
+            return selectList(sqlId, parameters, new ListResultHandler<>(aClass), maxRows);
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("创建class对象失败\n" + e.getMessage());
         }
@@ -217,7 +442,7 @@ public class SimpleSqlSession implements SqlSession {
     /**
      * 用于查询parameters对象记录，返回查询得到的所有对象.<br/>
      * <p/>
-     * 将自动开启连接。<br/>
+     * 将自动开启连接。开启读写分离时，事务外的查询在从库的连接上执行。<br/>
      * @param sqlId         SQL语句的全限定id
      * @param parameters    查询的对象
      * @param resultHandler 结果集处理器，其中利用通配符<?>声明是为了可以传入任意的结果集处理器
@@ -226,33 +451,68 @@ public class SimpleSqlSession implements SqlSession {
      * @throws SQLException 直接向上抛出
      */
     public <E> List<E> selectList(String sqlId, Object parameters, ResultHandler<?> resultHandler) throws SQLException {
-        // 开启连接
-        openConnection();
-        // 设置SQL处理器
-        setSqlHandler(parameters);
+        return selectList(sqlId, parameters, resultHandler, 0);
+    }
 
+    /**
+     * 用于查询parameters对象记录，最多返回{@code maxRows}条记录.<br/>
+     * <p/>
+     * 将自动开启连接。开启读写分离时，事务外的查询在从库的连接上执行。<br/>
+     * @param sqlId         SQL语句的全限定id
+     * @param parameters    查询的对象
+     * @param resultHandler 结果集处理器
+     * @param maxRows       最多返回的记录数，小于等于0时不限制
+     * @param <E>           泛型，用于限制集合中元素类型
+     * @return {@link List} 存放了结果集记录数据的集合
+     * @throws SQLException 直接向上抛出
+     */
+    public <E> List<E> selectList(String sqlId, Object parameters, ResultHandler<?> resultHandler, int maxRows)
+            throws SQLException {
+        // 开启连接，事务外的查询可能使用从库的连接
+        Connection queryConnection = openQueryConnection();
+        try {
+            return executeQuery(queryConnection, sqlId, parameters, resultHandler, maxRows);
+        } finally {
+            releaseConnection();
+        }
+    }
+
+    /**
+     * 在指定的连接上执行查询，详见{@code selectList()}。
+     */
+    private <E> List<E> executeQuery(Connection queryConnection, String sqlId, Object parameters,
+                                     ResultHandler<?> resultHandler, int maxRows) throws SQLException {
         // 获取SQL映射对象
         MetaMapperStatement metaMapperStatement = statementMap.get(sqlId);
-        // 获取原始SQL
-        String prototypeSql = metaMapperStatement.getPrototypeSql();
-
-        /*封装数据*/
-        ForPreparedStatement forPreparedStatement = new ForPreparedStatement(connection, prototypeSql);
+        // 设置SQL处理器
+        setSqlHandler(metaMapperStatement, parameters);
+        /*封装数据，使用映射对象中预编译的SQL模板*/
+        ForPreparedStatement forPreparedStatement = new ForPreparedStatement(queryConnection, metaMapperStatement);
+        forPreparedStatement.setStatementCache(statementCache);
 
+        // 开始计时，分别记录参数绑定、执行与结果集映射的耗时
+        long start = System.nanoTime();
         // 获取preparedStatement实例，并自动关闭
         try (PreparedStatement preparedStatement =
                      sqlHandler.sqlHandler(forPreparedStatement, parameters)) {
+            if (maxRows > 0) {
+                preparedStatement.setMaxRows(maxRows);
+            }
+            long bound = System.nanoTime();
             // 获取结果集
             ResultSet resultSet = preparedStatement.executeQuery();
+            long executed = System.nanoTime();
             List<E> res = (List<E>) resultHandler.handler(resultSet);
-            logger.info("查询指定记录成功");
+            statementMetrics.recordQuery(sqlId, bound - start, executed - bound, System.nanoTime() - executed,
+                    res.size(), preparedStatement);
+            logger.debug(() -> "查询指定记录成功");
             return res;
         }
 
     }
 
     /**
-     * 公开方法，需要调用本类的方法时，都应该先确保打开连接资源。<br/>
+     * 打开连接资源。执行语句时将自动调用，一般无需在外部提前调用，提前调用会延长连接的占用时间。<br/>
      *
      * @throws SQLException 直接向上抛出异常不做处理
      */
@@ -260,9 +520,46 @@ public class SimpleSqlSession implements SqlSession {
 
         if (connection == null) {
             connection = transaction.getConnection();
-            logger.info("开启连接成功");
+            logger.debug(() -> "开启连接成功");
+            return;
+        }
+        logger.debug(() -> "连接已存在");
+    }
+
+    /**
+     * 每条语句执行后调用，由事务管理器归还不处于事务中的连接，之后的语句将重新获取。<br/>
+     * 复用语句时缓存的语句依附于连接，故不归还，连接在会话关闭时才归还。
+     *
+     * @throws SQLException 直接向上抛出
+     */
+    private void releaseConnection() throws SQLException {
+        if (statementCache != null) {
+            return;
+        }
+        transaction.releaseConnection();
+        connection = null;
+        readConnection = null;
+    }
+
+    /**
+     * 获取执行查询的连接。<br/>
+     * 当前事务中未执行过更新且事务管理器提供了只读连接时，使用只读连接，否则使用{@code openConnection()}开启的连接。<br/>
+     * 事务管理器仅在自动提交或只读时提供只读连接，手动提交的事务中的查询始终使用{@code openConnection()}开启的连接。
+     *
+     * @return {@link Connection}
+     * @throws SQLException 直接向上抛出
+     */
+    private Connection openQueryConnection() throws SQLException {
+        if (!dirty) {
+            if (readConnection == null) {
+                readConnection = transaction.getReadConnection();
+            }
+            if (readConnection != null) {
+                return readConnection;
+            }
         }
-        logger.info("连接已存在");
+        openConnection();
+        return connection;
     }
 
     /**
@@ -272,15 +569,24 @@ public class SimpleSqlSession implements SqlSession {
      * <p/>
      * 该方法应当在每次进行CRUD操作前被调用。<br/>
      *
-     * @param arg 传入的单实参
+     * @param metaMapperStatement SQL映射对象
+     * @param arg                 传入的单实参
      */
-    private void setSqlHandler(Object arg) {
-        // 如果传入的参数类型为Map则设置Map类型的SQL处理器，否则使用Object类型
-        this.sqlHandler =
-                arg instanceof Map ? new MapSqlHandler() : new ObjectSqlHandler();
-        logger.info("SQL处理器设置成功");
+    private void setSqlHandler(MetaMapperStatement metaMapperStatement, Object arg) {
+        // 含有动态SQL标签时使用动态SQL处理器
+        // 否则如果传入的参数类型为Map则设置Map类型的SQL处理器，否则使用Object类型
+        if (metaMapperStatement.isDynamic()) {
+            this.sqlHandler = new DynamicSqlHandler();
+        } else {
+            this.sqlHandler = arg instanceof Map ? new MapSqlHandler() : new ObjectSqlHandler();
+        }
+        logger.debug(() -> "SQL处理器设置成功");
     }
 
-    private static final Logger logger = ChildLogger.getLogger();
+    private static final ChildLogger logger = ChildLogger.of(SimpleSqlSession.class);
+    /**
+     * 插入语句的CRUD类型
+     */
+    private static final String INSERT = "insert";
 
 }
@@ -1,11 +1,13 @@
 package com.child.util.orm;
 
 import com.child.util.ChildLogger;
+import com.child.util.RoutingDataSource;
+import com.child.util.metrics.StatementMetrics;
 import com.child.util.orm.bean.MetaMapperStatement;
+import com.child.util.orm.bean.MultiRowInsert;
 
 import javax.sql.DataSource;
 import java.util.Map;
-import java.util.logging.Logger;
 
 
 /**
@@ -17,7 +19,7 @@ import java.util.logging.Logger;
  * @version 1.0
  **/
 
-public class SimpleSqlSessionFactory implements SqlSessionFactory{
+public class SimpleSqlSessionFactory implements SqlSessionFactory, AutoCloseable {
     /**
      * 每一个SimpleSqlSessionFactory实例都将持有一个<strong>唯一</strong>的数据库连接池对象。<br/>
      * 对于每一个SimpleSqlSession实例都将获得该数据库连接池的访问权限。
@@ -29,6 +31,15 @@ public class SimpleSqlSessionFactory implements SqlSessionFactory{
      * 对于每一个SimpleSqlSession实例都将获得该SQL映射集合的可读权限。
      */
     private final Map<String, MetaMapperStatement> statementMap;
+    /**
+     * 每一个SimpleSqlSessionFactory实例都将持有一个<strong>唯一</strong>的SQL执行指标。<br/>
+     * 由该工厂开启的所有会话都将在其中记录每条SQL的执行情况。
+     */
+    private final StatementMetrics statementMetrics;
+    /**
+     * 数据库的{@code max_allowed_packet}，由该工厂开启的会话在多行插入时据此分块
+     */
+    private final long maxAllowedPacket;
 
     /**
      * 用于创建一个SimpleSqlSessionFactory实例，
@@ -37,8 +48,33 @@ public class SimpleSqlSessionFactory implements SqlSessionFactory{
      * @param statementMap 一个承载SQL映射语句的集合
      */
     public SimpleSqlSessionFactory(DataSource dataSource, Map<String, MetaMapperStatement> statementMap) {
+        this(dataSource, statementMap, new StatementMetrics());
+    }
+
+    /**
+     * 用于创建一个SimpleSqlSessionFactory实例，并指定SQL执行指标。
+     * @param dataSource 一个事务管理器
+     * @param statementMap 一个承载SQL映射语句的集合
+     * @param statementMetrics SQL执行指标，其中包含了慢查询阈值
+     */
+    public SimpleSqlSessionFactory(DataSource dataSource, Map<String, MetaMapperStatement> statementMap,
+                                   StatementMetrics statementMetrics) {
+        this(dataSource, statementMap, statementMetrics, MultiRowInsert.DEFAULT_MAX_ALLOWED_PACKET);
+    }
+
+    /**
+     * 用于创建一个SimpleSqlSessionFactory实例，并指定SQL执行指标与多行插入时每条语句的大小上限。
+     * @param dataSource 一个事务管理器
+     * @param statementMap 一个承载SQL映射语句的集合
+     * @param statementMetrics SQL执行指标，其中包含了慢查询阈值
+     * @param maxAllowedPacket 数据库的{@code max_allowed_packet}，单位字节
+     */
+    public SimpleSqlSessionFactory(DataSource dataSource, Map<String, MetaMapperStatement> statementMap,
+                                   StatementMetrics statementMetrics, long maxAllowedPacket) {
         this.dataSource = dataSource;
         this.statementMap = statementMap;
+        this.statementMetrics = statementMetrics;
+        this.maxAllowedPacket = maxAllowedPacket;
     }
 
     /**
@@ -59,17 +95,65 @@ public class SimpleSqlSessionFactory implements SqlSessionFactory{
      */
     @Override
     public SqlSession openSession(boolean autoCommit) {
+        return openSession(autoCommit, ExecutorType.SIMPLE, TransactionIsolation.DEFAULT, false);
+    }
 
-        // 创建一个全新的事务管理器
-        Transaction transaction = new JdbcTransaction(dataSource, autoCommit);
+    /**
+     * 返回一个SqlSession的实现类{@code SimpleSqlSession}，并指定全部的会话选项。<br/>
+     * <p/>
+     * 隔离级别与只读状态在获取连接时设置。使用读写分离的数据源时，只读会话的所有查询都在从库上执行。<br/>
+     * @param autoCommit   提交事务的方式，true为自动提交，false为手动提交。
+     * @param executorType 执行SQL语句的方式
+     * @param isolation    事务隔离级别
+     * @param readOnly     是否只读
+     * @return {@link SqlSession} 实际上是{@link SimpleSqlSession}，是接口的实现类。
+     */
+    @Override
+    public SqlSession openSession(boolean autoCommit, ExecutorType executorType, TransactionIsolation isolation,
+                                  boolean readOnly) {
+
+        // 创建一个全新的事务管理器，读写分离的数据源使用对应的事务管理器
+        Transaction transaction = dataSource instanceof RoutingDataSource
+                ? new RoutingTransaction((RoutingDataSource) dataSource, autoCommit, isolation, readOnly)
+                : new JdbcTransaction(dataSource, autoCommit, isolation, readOnly);
 
         // 创建会话类，直接将工厂类中的事务管理器和SQL映射集合传入即可。
-        SqlSession sqlSession = new SimpleSqlSession(transaction, statementMap);
+        SqlSession sqlSession = new SimpleSqlSession(transaction, statementMap, statementMetrics, maxAllowedPacket,
+                executorType, readOnly);
 
-        logger.info("开启会话成功");
+        logger.debug(() -> "开启会话成功");
         // 最后返回会话资源
         return sqlSession;
     }
 
-    private static final Logger logger = ChildLogger.getLogger();
+    /**
+     * 获取该工厂中所有会话共享的SQL执行指标。
+     * @return {@link StatementMetrics}
+     */
+    public StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
+    /**
+     * 关闭工厂。<br/>
+     * <p/>
+     * 数据源实现了{@link AutoCloseable}时将其关闭，读写分离的数据源会一并关闭主库与各从库的连接池。
+     * 关闭后开启的会话在获取连接时将抛出异常。<br/>
+     */
+    @Override
+    public void close() {
+        if (!(dataSource instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) dataSource).close();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("关闭会话工厂的连接池失败", e);
+        }
+        logger.info("会话工厂已关闭");
+    }
+
+    private static final ChildLogger logger = ChildLogger.of(SimpleSqlSessionFactory.class);
 }
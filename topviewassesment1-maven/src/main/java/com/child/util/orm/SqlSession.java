@@ -1,6 +1,7 @@
 package com.child.util.orm;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -36,6 +37,34 @@ public interface SqlSession extends AutoCloseable {
      */
     void rollback() throws SQLException;
 
+    /**
+     * 开启一层嵌套事务。嵌套事务与外层事务共用同一个连接，以保存点实现，需在手动提交事务的会话中使用。<br/>
+     * 每次开启都应以{@code releaseNested()}或{@code rollbackNested()}结束，且按开启的相反顺序结束。
+     *
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default void beginNested() throws SQLException {
+        throw new RuntimeException("当前会话不支持嵌套事务");
+    }
+
+    /**
+     * 结束最内层的嵌套事务，保留其中的修改，由外层事务决定是否提交。
+     *
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default void releaseNested() throws SQLException {
+        throw new RuntimeException("当前会话不支持嵌套事务");
+    }
+
+    /**
+     * 撤销最内层的嵌套事务中的修改，外层事务不受影响。
+     *
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default void rollbackNested() throws SQLException {
+        throw new RuntimeException("当前会话不支持嵌套事务");
+    }
+
     /**
      * 用于插入parameters对象记录，返回受影响行数。
      *
@@ -87,7 +116,22 @@ public interface SqlSession extends AutoCloseable {
     <E> List<E> selectList(String sqlId, Object parameters) throws SQLException;
 
     /**
-     * 打开连接。每次对数据库进行操作前，都应该打开连接资源。<br/>
+     * 用于查询parameters对象记录，最多返回{@code maxRows}条记录。<br/>
+     * 默认实现在查询后截取，实现类应尽量将行数限制下推到数据库，避免读取多余的记录。
+     *
+     * @param sqlId      sql id
+     * @param parameters 参数
+     * @param maxRows    最多返回的记录数，小于等于0时不限制
+     * @return {@link List}<{@link E}> 返回包含指定返回值类型的元素的集合
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default <E> List<E> selectList(String sqlId, Object parameters, int maxRows) throws SQLException {
+        List<E> list = selectList(sqlId, parameters);
+        return maxRows > 0 && list.size() > maxRows ? new ArrayList<>(list.subList(0, maxRows)) : list;
+    }
+
+    /**
+     * 打开连接。执行语句时会自动打开连接，只有需要在执行语句前占用连接时才需调用。<br/>
      *
      * @throws SQLException sqlexception异常
      */
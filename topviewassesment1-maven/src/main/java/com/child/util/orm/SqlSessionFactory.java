@@ -22,4 +22,26 @@ public interface SqlSessionFactory {
      */
     SqlSession openSession(boolean autoCommit);
 
+    /**
+     * 开启会话，手动提交事务，并指定执行SQL语句的方式、事务隔离级别以及是否只读
+     * @param executorType 执行SQL语句的方式
+     * @param isolation    事务隔离级别
+     * @param readOnly     是否只读，只读会话优先使用从库的连接，且不能执行更新
+     * @return {@link SqlSession}
+     */
+    default SqlSession openSession(ExecutorType executorType, TransactionIsolation isolation, boolean readOnly) {
+        return openSession(false, executorType, isolation, readOnly);
+    }
+
+    /**
+     * 开启会话，指定全部的会话选项
+     * @param autoCommit   提交事务的方式，true为自动提交，false为手动提交。
+     * @param executorType 执行SQL语句的方式
+     * @param isolation    事务隔离级别
+     * @param readOnly     是否只读
+     * @return {@link SqlSession}
+     */
+    SqlSession openSession(boolean autoCommit, ExecutorType executorType, TransactionIsolation isolation,
+                           boolean readOnly);
+
 }
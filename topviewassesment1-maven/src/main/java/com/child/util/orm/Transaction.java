@@ -24,6 +24,36 @@ public interface Transaction {
      */
     Connection getConnection() throws SQLException;
 
+    /**
+     * 获得用于事务外只读查询的连接。<br/>
+     * 开启读写分离时返回从库的连接，详见{@link RoutingTransaction}；
+     * 默认返回null，表示查询与更新使用{@code getConnection()}得到的同一个连接。
+     *
+     * @return {@link Connection} 从库的连接，未开启读写分离时为null
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default Connection getReadConnection() throws SQLException {
+        return null;
+    }
+
+    /**
+     * 归还当前不处于事务中的连接，在每条语句执行后调用。<br/>
+     * 自动提交的连接以及从库连接执行完语句后即可归还，下次执行语句时再重新获取；
+     * 手动提交的连接仍处于事务中，不归还。默认不做任何操作。
+     *
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default void releaseConnection() throws SQLException {
+    }
+
+    /**
+     * 判断事务提交的方式。<br/>
+     * 自动提交时不存在跨语句的事务，会话据此在获取连接之前拒绝开启嵌套事务。
+     *
+     * @return boolean true时为自动提交
+     */
+    boolean isAutoCommit();
+
     /**
      * 关闭
      * 用于关闭连接资源
@@ -47,4 +77,32 @@ public interface Transaction {
      */
     void rollback() throws SQLException;
 
+    /**
+     * 开启一层嵌套事务，即在当前连接上创建一个保存点。<br/>
+     * 嵌套事务与外层事务共用同一个连接，需在手动提交事务时使用。
+     *
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default void beginNested() throws SQLException {
+        throw new RuntimeException("当前事务管理器不支持嵌套事务");
+    }
+
+    /**
+     * 结束最内层的嵌套事务，保留其中的修改，由外层事务决定是否提交。
+     *
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default void releaseNested() throws SQLException {
+        throw new RuntimeException("当前事务管理器不支持嵌套事务");
+    }
+
+    /**
+     * 撤销最内层的嵌套事务中的修改，外层事务不受影响。
+     *
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    default void rollbackNested() throws SQLException {
+        throw new RuntimeException("当前事务管理器不支持嵌套事务");
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.child.util.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 事务隔离级别，与{@link Connection}中的常量一一对应。<br/>
+ * {@code DEFAULT}表示不设置，使用数据库或连接池的默认隔离级别，不会产生额外的调用。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public enum TransactionIsolation {
+    DEFAULT(-1),
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    /**
+     * JDBC中的隔离级别常量
+     */
+    private final int level;
+
+    TransactionIsolation(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 将隔离级别应用到连接上，{@code DEFAULT}时不做任何处理。<br/>
+     *
+     * @param connection 连接
+     * @throws SQLException 直接向上抛出
+     */
+    public void applyTo(Connection connection) throws SQLException {
+        if (this != DEFAULT) {
+            connection.setTransactionIsolation(level);
+        }
+    }
+}
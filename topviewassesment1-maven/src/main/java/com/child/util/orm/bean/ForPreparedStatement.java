@@ -1,8 +1,12 @@
 package com.child.util.orm.bean;
 
+import com.child.util.orm.dynamic.SqlNode;
 import com.child.util.orm.handler.SqlHandler;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * 用于{@link SqlHandler#sqlHandler(ForPreparedStatement, Object)}，
@@ -19,15 +23,84 @@ public class ForPreparedStatement {
      */
     private String prototypeSql;
 
+    /**
+     * 预编译的SQL模板，为null时根据原生SQL临时编译
+     */
+    private SqlTemplate sqlTemplate;
+
+    /**
+     * 动态SQL的节点树，静态SQL为null
+     */
+    private SqlNode sqlNode;
+
+    /**
+     * 是否需要返回数据库生成的主键
+     */
+    private boolean returnGeneratedKeys;
+
+    /**
+     * 会话内的语句缓存，为null时每次都创建新的语句
+     */
+    private StatementCache statementCache;
+
     public ForPreparedStatement(Connection connection, String prototypeSql) {
         this.connection = connection;
         this.prototypeSql = prototypeSql;
     }
+
+    /**
+     * 使用SQL映射对象中预编译的模板，执行时无需再解析原生SQL。<br/>
+     *
+     * @param connection          指定数据源的连接资源
+     * @param metaMapperStatement SQL映射对象
+     */
+    public ForPreparedStatement(Connection connection, MetaMapperStatement metaMapperStatement) {
+        this.connection = connection;
+        this.prototypeSql = metaMapperStatement.getPrototypeSql();
+        this.sqlTemplate = metaMapperStatement.getSqlTemplate();
+        this.sqlNode = metaMapperStatement.getSqlNode();
+        this.returnGeneratedKeys = metaMapperStatement.isUseGeneratedKeys();
+    }
     public Connection getConnection() {
         return connection;
     }
 
+    public void setStatementCache(StatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
+    /**
+     * 创建{@link PreparedStatement}，SQL映射对象开启了{@code useGeneratedKeys}时，
+     * 将以{@link Statement#RETURN_GENERATED_KEYS}创建，以便执行后读取生成的主键。<br/>
+     * 指定了语句缓存时，从缓存中获取可复用的语句。<br/>
+     *
+     * @param sql JDBC规范的SQL
+     * @return {@link PreparedStatement}
+     * @throws SQLException 直接向上抛出
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        if (statementCache != null) {
+            return statementCache.prepare(connection, sql, returnGeneratedKeys);
+        }
+        return returnGeneratedKeys ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql);
+    }
+
     public String getPrototypeSql() {
         return prototypeSql;
     }
+
+    public SqlNode getSqlNode() {
+        return sqlNode;
+    }
+
+    /**
+     * @return {@link SqlTemplate} SQL模板，未指定时根据原生SQL编译
+     */
+    public SqlTemplate getSqlTemplate() {
+        if (sqlTemplate == null) {
+            sqlTemplate = SqlTemplate.compile(prototypeSql);
+        }
+        return sqlTemplate;
+    }
 }
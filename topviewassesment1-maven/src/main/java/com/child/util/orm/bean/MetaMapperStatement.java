@@ -1,5 +1,7 @@
 package com.child.util.orm.bean;
 
+import com.child.util.orm.dynamic.SqlNode;
+
 /**
  * 用于保存xml映射文件中的CRUD标签的相关信息。<br/>
  * <p/>
@@ -26,6 +28,30 @@ public class MetaMapperStatement {
      * 每个CRUD中的返回值类型属性
      */
     private String resultType;
+    /**
+     * 由原生sql语句编译得到的SQL模板，解析mapper.xml或加载映射索引时生成
+     */
+    private volatile SqlTemplate sqlTemplate;
+    /**
+     * 含有动态SQL标签时的节点树，静态SQL为null
+     */
+    private SqlNode sqlNode;
+    /**
+     * 由插入语句的模板展开得到的多行插入模板，第一次以集合为参数执行时创建
+     */
+    private volatile MultiRowInsert multiRowInsert;
+    /**
+     * 插入语句是否读取数据库生成的主键
+     */
+    private boolean useGeneratedKeys;
+    /**
+     * 生成的主键写回到参数中的属性，多个主键列以","分隔，例如{@code id}或{@code user.id}
+     */
+    private String keyProperty;
+    /**
+     * 声明该SQL映射的mapper.xml资源名，即相对于包目录的路径，手动创建时为null
+     */
+    private String resource;
     public MetaMapperStatement() {}
 
     public MetaMapperStatement(String sqlId, String sqlType, String prototypeSql, String resultType) {
@@ -42,6 +68,8 @@ public class MetaMapperStatement {
                 ", sqlType='" + sqlType + '\'' +
                 ", prototypeSql='" + prototypeSql + '\'' +
                 ", resultType='" + resultType + '\'' +
+                (useGeneratedKeys ? ", keyProperty='" + keyProperty + '\'' : "") +
+                (sqlNode == null ? "" : ", sqlNode=" + sqlNode) +
                 '}';
     }
 
@@ -67,6 +95,85 @@ public class MetaMapperStatement {
 
     public void setPrototypeSql(String prototypeSql) {
         this.prototypeSql = prototypeSql;
+        // 原生sql语句改变后，原有的模板失效
+        this.sqlTemplate = null;
+        this.multiRowInsert = null;
+    }
+
+    /**
+     * 获取SQL模板，若尚未编译则根据原生sql语句编译一次。动态SQL返回null。<br/>
+     * 并发编译时得到的模板内容相同，故无需加锁。<br/>
+     *
+     * @return {@link SqlTemplate}
+     */
+    public SqlTemplate getSqlTemplate() {
+        SqlTemplate template = sqlTemplate;
+        // 动态SQL没有固定的模板
+        if (template == null && prototypeSql != null) {
+            template = SqlTemplate.compile(prototypeSql);
+            sqlTemplate = template;
+        }
+        return template;
+    }
+
+    public void setSqlTemplate(SqlTemplate sqlTemplate) {
+        this.sqlTemplate = sqlTemplate;
+    }
+
+    /**
+     * 获取多行插入的模板，仅适用于以{@code VALUES (...)}结尾的静态插入语句。<br/>
+     *
+     * @return {@link MultiRowInsert} 无法展开时返回null
+     */
+    public MultiRowInsert getMultiRowInsert() {
+        MultiRowInsert insert = multiRowInsert;
+        if (insert == null && !isDynamic() && getSqlTemplate() != null) {
+            insert = MultiRowInsert.of(getSqlTemplate());
+            multiRowInsert = insert;
+        }
+        return insert;
+    }
+
+    /**
+     * @return boolean 是否含有动态SQL标签
+     */
+    public boolean isDynamic() {
+        return sqlNode != null;
+    }
+
+    public SqlNode getSqlNode() {
+        return sqlNode;
+    }
+
+    public void setSqlNode(SqlNode sqlNode) {
+        this.sqlNode = sqlNode;
+    }
+
+    /**
+     * @return boolean 是否读取生成的主键，仅在同时指定了{@code keyProperty}时生效
+     */
+    public boolean isUseGeneratedKeys() {
+        return useGeneratedKeys && keyProperty != null;
+    }
+
+    public void setUseGeneratedKeys(boolean useGeneratedKeys) {
+        this.useGeneratedKeys = useGeneratedKeys;
+    }
+
+    public String getKeyProperty() {
+        return keyProperty;
+    }
+
+    public void setKeyProperty(String keyProperty) {
+        this.keyProperty = keyProperty;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public void setResource(String resource) {
+        this.resource = resource;
     }
 
     public String getResultType() {
@@ -0,0 +1,239 @@
+package com.child.util.orm.bean;
+
+import com.child.util.orm.util.PropertyAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 多行插入的模板，将单行的{@code INSERT ... VALUES (...)}展开为{@code INSERT ... VALUES (...),(...),...}。<br/>
+ * <p/>
+ * <ol>
+ *     <li>
+ *         由单行插入语句的{@link SqlTemplate}拆分得到：{@code VALUES}之前的部分作为语句头，
+ *         之后的括号作为每一行的模板，每一行的占位符与单行插入相同，按各个元素的属性赋值。
+ *     </li>
+ *     <li>
+ *         插入的行数较多时自动分块执行，每块的行数同时受以下两点限制：
+ *         占位符总数不超过{@code MAX_PLACEHOLDERS}，即JDBC协议的上限；
+ *         估算的语句大小不超过数据库的{@code max_allowed_packet}。
+ *     </li>
+ *     <li>
+ *         满块的行数以及2的幂次的行数对应的SQL只拼接一次并缓存，分块大小相同的块共用同一条SQL；
+ *         其余行数（通常是最后一块）每次重新拼接，使缓存的条目数不超过17个，而不是随插入的行数无限增长。
+ *         同一次插入中连续的相同大小的块还会复用同一个{@code PreparedStatement}。
+ *     </li>
+ * </ol>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class MultiRowInsert {
+    /**
+     * 单条语句中占位符的最大数量，受限于MySQL协议中2字节的参数个数
+     */
+    public static final int MAX_PLACEHOLDERS = 65535;
+    /**
+     * MySQL 5.7的默认{@code max_allowed_packet}，4MB
+     */
+    public static final long DEFAULT_MAX_ALLOWED_PACKET = 4L * 1024 * 1024;
+    /**
+     * 估算语句大小时预留的空间，用于协议头等额外开销
+     */
+    private static final int PACKET_RESERVE = 1024;
+    /**
+     * 匹配单词"values"
+     */
+    private static final Pattern VALUES = Pattern.compile("(?i)\\bvalues\\b");
+
+    /**
+     * {@code VALUES}及其之前的部分
+     */
+    private final String head;
+    /**
+     * 每一行的模板，例如{@code (?,?,'特斯拉')}
+     */
+    private final String row;
+    /**
+     * 单行插入的模板，保存每一行的属性路径
+     */
+    private final SqlTemplate rowTemplate;
+    /**
+     * 每块最多的行数，由占位符上限决定
+     */
+    private final int maxRowsPerChunk;
+    /**
+     * 已拼接的SQL，K为行数，仅缓存满块与2的幂次的行数
+     */
+    private final Map<Integer, String> chunkSqlCache = new ConcurrentHashMap<>();
+
+    private MultiRowInsert(String head, String row, SqlTemplate rowTemplate) {
+        this.head = head;
+        this.row = row;
+        this.rowTemplate = rowTemplate;
+        int parameterCount = rowTemplate.getParameterNames().size();
+        this.maxRowsPerChunk = parameterCount == 0 ? MAX_PLACEHOLDERS : MAX_PLACEHOLDERS / parameterCount;
+    }
+
+    /**
+     * 由单行插入的模板创建多行插入的模板。<br/>
+     * <p/>
+     * 仅支持以{@code VALUES (...)}结尾的语句，末尾的分号将被忽略。<br/>
+     *
+     * @param sqlTemplate 单行插入的模板
+     * @return {@link MultiRowInsert} 无法拆分时返回null
+     */
+    public static MultiRowInsert of(SqlTemplate sqlTemplate) {
+        String sql = sqlTemplate.getJdbcSql().trim();
+        if (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1).trim();
+        }
+        // 取最后一个values，语句头中的列名可能包含该单词
+        Matcher matcher = VALUES.matcher(sql);
+        int end = -1;
+        while (matcher.find()) {
+            end = matcher.end();
+        }
+        if (end < 0) {
+            return null;
+        }
+        String row = sql.substring(end).trim();
+        if (!isSingleTuple(row)) {
+            return null;
+        }
+        return new MultiRowInsert(sql.substring(0, end), row, sqlTemplate);
+    }
+
+    /**
+     * 判断是否为单个完整的括号，例如{@code (?,?)}，而不是{@code (?),(?)}。
+     */
+    private static boolean isSingleTuple(String row) {
+        if (row.isEmpty() || row.charAt(0) != '(' || row.charAt(row.length() - 1) != ')') {
+            return false;
+        }
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')') {
+                depth--;
+                // 最外层括号在末尾之前就已闭合
+                if (depth == 0 && i != row.length() - 1) {
+                    return false;
+                }
+            }
+        }
+        return depth == 0 && !quoted;
+    }
+
+    /**
+     * 读取每一行的占位符的值。<br/>
+     *
+     * @param elements 需要插入的元素
+     * @return {@link List} 每个元素对应一行，按占位符的次序排列
+     */
+    public List<Object[]> bindRows(Collection<?> elements) {
+        int parameterCount = rowTemplate.getParameterNames().size();
+        List<Object[]> rows = new ArrayList<>(elements.size());
+        for (Object element : elements) {
+            Object[] values = new Object[parameterCount];
+            for (int i = 0; i < parameterCount; i++) {
+                values[i] = PropertyAccessor.getPath(element, rowTemplate.getParameterPath(i));
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * 计算从{@code from}开始的下一块的行数，至少为1行。<br/>
+     *
+     * @param rows             每一行的占位符的值
+     * @param from             该块的第一行
+     * @param maxAllowedPacket 数据库的{@code max_allowed_packet}，单位字节
+     * @return int 该块的行数
+     */
+    public int nextChunkSize(List<Object[]> rows, int from, long maxAllowedPacket) {
+        long budget = maxAllowedPacket - PACKET_RESERVE - head.length();
+        long size = 0;
+        int count = 0;
+        for (int i = from; i < rows.size() && count < maxRowsPerChunk; i++) {
+            long rowSize = estimateRowSize(rows.get(i));
+            if (count > 0 && size + rowSize > budget) {
+                break;
+            }
+            size += rowSize;
+            count++;
+        }
+        return Math.max(count, 1);
+    }
+
+    /**
+     * 估算一行在语句中所占的字节数，即行模板的长度加上各个值以字面量形式发送时的长度。
+     */
+    private long estimateRowSize(Object[] values) {
+        // 行模板与分隔的逗号
+        long size = row.length() + 1;
+        for (Object value : values) {
+            if (value == null) {
+                size += 4;
+            } else if (value instanceof byte[]) {
+                // 以十六进制字面量发送
+                size += ((byte[]) value).length * 2L + 3;
+            } else if (value instanceof CharSequence) {
+                // 按UTF-8计算，并考虑引号与转义
+                size += value.toString().getBytes(StandardCharsets.UTF_8).length + 2;
+            } else {
+                size += value.toString().length() + 2;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 获取指定行数的SQL。<br/>
+     * <p/>
+     * 满块与2的幂次的行数只拼接一次，其余行数每次重新拼接。<br/>
+     *
+     * @param rowCount 行数
+     * @return String 多行插入的SQL
+     */
+    public String sql(int rowCount) {
+        if (rowCount != maxRowsPerChunk && Integer.bitCount(rowCount) != 1) {
+            return buildSql(rowCount);
+        }
+        String sql = chunkSqlCache.get(rowCount);
+        if (sql == null) {
+            sql = chunkSqlCache.computeIfAbsent(rowCount, this::buildSql);
+        }
+        return sql;
+    }
+
+    private String buildSql(int rowCount) {
+        StringBuilder builder = new StringBuilder(head.length() + (row.length() + 1) * rowCount);
+        builder.append(head).append(' ').append(row);
+        for (int i = 1; i < rowCount; i++) {
+            builder.append(',').append(row);
+        }
+        return builder.toString();
+    }
+
+    public int getParameterCount() {
+        return rowTemplate.getParameterNames().size();
+    }
+
+    public int getMaxRowsPerChunk() {
+        return maxRowsPerChunk;
+    }
+}
@@ -0,0 +1,89 @@
+package com.child.util.orm.bean;
+
+import com.child.util.orm.handler.ObjectSqlHandler;
+import com.child.util.orm.handler.SqlHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的SQL模板，保存由原生SQL解析得到的JDBC规范SQL以及各个占位符对应的属性名。<br/>
+ * <p/>
+ * 原生SQL的解析需要正则替换以及逐词的命名转换，开销较大。
+ * 故在解析mapper.xml时便将其编译为模板，执行时直接使用，不再重复解析。<br/>
+ * 模板一经创建便不可变，可以在多个线程之间共享。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class SqlTemplate {
+    /**
+     * 复用{@link SqlHandler}接口中解析原生SQL的默认方法
+     */
+    private static final SqlHandler<Object> PARSER = new ObjectSqlHandler();
+
+    /**
+     * 符合JDBC规范的SQL，占位符"#{}"已被替换为"?"
+     */
+    private final String jdbcSql;
+    /**
+     * 按占位符出现的次序保存其中的属性名
+     */
+    private final List<String> parameterNames;
+    /**
+     * 各个属性名按"."分割后的属性路径，避免每次取值时重复分割
+     */
+    private final String[][] parameterPaths;
+
+    public SqlTemplate(String jdbcSql, List<String> parameterNames) {
+        this.jdbcSql = jdbcSql;
+        this.parameterNames = Collections.unmodifiableList(new ArrayList<>(parameterNames));
+        this.parameterPaths = new String[parameterNames.size()][];
+        for (int i = 0; i < parameterPaths.length; i++) {
+            parameterPaths[i] = parameterNames.get(i).split("\\.");
+        }
+    }
+
+    /**
+     * 将原生SQL编译为模板。<br/>
+     *
+     * @param prototypeSql 原生SQL
+     * @return {@link SqlTemplate}
+     */
+    public static SqlTemplate compile(String prototypeSql) {
+        String jdbcSql = PARSER.parsePrototypeSql(prototypeSql);
+        Map<Integer, String> fieldMap = PARSER.fieldMap(prototypeSql);
+        List<String> parameterNames = new ArrayList<>(fieldMap.size());
+        for (int i = 1; i <= fieldMap.size(); i++) {
+            parameterNames.add(fieldMap.get(i));
+        }
+        return new SqlTemplate(jdbcSql, parameterNames);
+    }
+
+    public String getJdbcSql() {
+        return jdbcSql;
+    }
+
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * @param index 占位符的次序，从0开始
+     * @return String[] 该占位符按"."分割后的属性路径
+     */
+    public String[] getParameterPath(int index) {
+        return parameterPaths[index];
+    }
+
+    @Override
+    public String toString() {
+        return "SqlTemplate{" +
+                "jdbcSql='" + jdbcSql + '\'' +
+                ", parameterNames=" + parameterNames +
+                '}';
+    }
+}
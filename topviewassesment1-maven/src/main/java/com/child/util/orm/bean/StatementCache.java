@@ -0,0 +1,120 @@
+package com.child.util.orm.bean;
+
+import com.child.util.orm.ExecutorType;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 会话内的{@link PreparedStatement}缓存，用于{@link ExecutorType#REUSE}。<br/>
+ * <p/>
+ * 以连接与JDBC规范的SQL为键缓存语句，再次执行相同的SQL时只清空参数后重新赋值，省去驱动解析SQL与创建语句的开销。<br/>
+ * 返回给调用者的是语句的代理，其{@code close()}不会关闭语句，故调用者仍可以按原有方式使用try-with-resources。
+ * 缓存中的语句在{@code close()}时统一关闭，应在归还连接之前调用。<br/>
+ * 与会话相同，该类不是线程安全的。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class StatementCache {
+    private static final String CLOSE = "close";
+    /**
+     * 需要返回生成主键的语句与普通语句分开缓存
+     */
+    private static final String GENERATED_KEYS_SUFFIX = "#generatedKeys";
+
+    /**
+     * K为连接，V为该连接上已创建的语句，读写分离时一个会话可能持有两个连接
+     */
+    private final Map<Connection, Map<String, PreparedStatement>> statements = new IdentityHashMap<>();
+
+    /**
+     * 获取缓存的语句，不存在或已被关闭时创建。<br/>
+     *
+     * @param connection          连接
+     * @param sql                 JDBC规范的SQL
+     * @param returnGeneratedKeys 是否需要返回生成的主键
+     * @return {@link PreparedStatement} 语句的代理，关闭代理不会关闭语句
+     * @throws SQLException 直接向上抛出
+     */
+    public PreparedStatement prepare(Connection connection, String sql, boolean returnGeneratedKeys)
+            throws SQLException {
+        Map<String, PreparedStatement> cache = statements.computeIfAbsent(connection, key -> new HashMap<>());
+        String key = returnGeneratedKeys ? sql + GENERATED_KEYS_SUFFIX : sql;
+        PreparedStatement statement = cache.get(key);
+        if (statement == null || statement.isClosed()) {
+            statement = returnGeneratedKeys ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : connection.prepareStatement(sql);
+            cache.put(key, statement);
+        } else {
+            // 清除上一次执行留下的参数与行数限制
+            statement.clearParameters();
+            if (statement.getMaxRows() != 0) {
+                statement.setMaxRows(0);
+            }
+        }
+        return nonClosing(statement);
+    }
+
+    /**
+     * @return int 缓存的语句数量
+     */
+    public int size() {
+        int size = 0;
+        for (Map<String, PreparedStatement> cache : statements.values()) {
+            size += cache.size();
+        }
+        return size;
+    }
+
+    /**
+     * 关闭所有缓存的语句，某个语句关闭失败时仍会关闭其余语句，最后抛出第一个异常。<br/>
+     *
+     * @throws SQLException 关闭语句时抛出的异常
+     */
+    public void close() throws SQLException {
+        SQLException failure = null;
+        for (Map<String, PreparedStatement> cache : statements.values()) {
+            for (PreparedStatement statement : cache.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        statements.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 创建语句的代理，忽略{@code close()}，其余方法直接调用语句本身。
+     */
+    private static PreparedStatement nonClosing(PreparedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (CLOSE.equals(method.getName())) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
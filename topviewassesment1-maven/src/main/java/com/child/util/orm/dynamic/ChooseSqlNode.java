@@ -0,0 +1,53 @@
+package com.child.util.orm.dynamic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code <choose>}标签，依次判断各个{@code <when>}，仅追加第一个条件成立的分支，
+ * 均不成立时追加{@code <otherwise>}。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ChooseSqlNode implements SqlNode {
+    private final List<IfSqlNode> whens;
+    /**
+     * {@code <otherwise>}中的内容，可以为null
+     */
+    private final SqlNode otherwise;
+
+    public ChooseSqlNode(List<IfSqlNode> whens, SqlNode otherwise) {
+        this.whens = Collections.unmodifiableList(new ArrayList<>(whens));
+        this.otherwise = otherwise;
+    }
+
+    @Override
+    public boolean apply(DynamicContext context) {
+        for (IfSqlNode when : whens) {
+            if (when.apply(context)) {
+                return true;
+            }
+        }
+        if (otherwise != null) {
+            otherwise.apply(context);
+            return true;
+        }
+        return false;
+    }
+
+    public List<IfSqlNode> getWhens() {
+        return whens;
+    }
+
+    public SqlNode getOtherwise() {
+        return otherwise;
+    }
+
+    @Override
+    public String toString() {
+        return "<choose>" + whens + (otherwise == null ? "" : "<otherwise>" + otherwise + "</otherwise>") + "</choose>";
+    }
+}
@@ -0,0 +1,111 @@
+package com.child.util.orm.dynamic;
+
+import com.child.util.orm.util.PropertyAccessor;
+
+import java.util.*;
+
+/**
+ * 动态SQL一次求值的上下文，保存参数、{@code <foreach>}绑定的变量以及生成的SQL与占位符的值。<br/>
+ * <p/>
+ * 每次执行都会新建一个上下文，故不需要考虑线程安全。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class DynamicContext {
+    /**
+     * 传入的参数，可能是Map、pojo或者单个的简单类型值
+     */
+    private final Object parameter;
+    /**
+     * {@code <foreach>}中绑定的变量，优先于参数中的同名属性
+     */
+    private final Map<String, Object> bindings = new HashMap<>();
+    private final StringBuilder sql = new StringBuilder();
+    /**
+     * 按占位符"?"出现的次序保存的值
+     */
+    private final List<Object> values = new ArrayList<>();
+
+    public DynamicContext(Object parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * 按路径取值。<br/>
+     * <p/>
+     * 第一级依次从绑定的变量、参数中查找；若参数是单个的简单类型值，则直接返回该值。
+     * 之后的每一级通过{@link PropertyAccessor}读取。<br/>
+     *
+     * @param segments 按"."分割后的属性路径
+     * @return Object 值，路径中任意一级为null时返回null
+     */
+    public Object getValue(String[] segments) {
+        String first = segments[0];
+        Object value;
+        if (bindings.containsKey(first)) {
+            value = bindings.get(first);
+        } else if (parameter == null || PropertyAccessor.isSimpleValue(parameter)) {
+            value = parameter;
+        } else {
+            value = PropertyAccessor.getProperty(parameter, first);
+        }
+        for (int i = 1; i < segments.length && value != null; i++) {
+            value = PropertyAccessor.getProperty(value, segments[i]);
+        }
+        return value;
+    }
+
+    /**
+     * 绑定变量。<br/>
+     *
+     * @param name  变量名
+     * @param value 变量值
+     * @return Object 被覆盖的旧值，用于在{@code <foreach>}结束后恢复
+     */
+    Object bind(String name, Object value) {
+        return bindings.put(name, value);
+    }
+
+    /**
+     * 恢复绑定变量在{@code bind()}之前的状态。
+     */
+    void restore(String name, Object previous, boolean existed) {
+        if (existed) {
+            bindings.put(name, previous);
+        } else {
+            bindings.remove(name);
+        }
+    }
+
+    boolean isBound(String name) {
+        return bindings.containsKey(name);
+    }
+
+    void appendSql(String fragment) {
+        sql.append(fragment);
+    }
+
+    void addValue(Object value) {
+        values.add(value);
+    }
+
+    StringBuilder sqlBuilder() {
+        return sql;
+    }
+
+    /**
+     * @return String 生成的SQL，占位符为"?"
+     */
+    public String getSql() {
+        return sql.toString().trim();
+    }
+
+    /**
+     * @return {@link List} 按次序排列的占位符的值
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,99 @@
+package com.child.util.orm.dynamic;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 编译后的条件表达式，用于{@code <if>}与{@code <when>}的{@code test}属性。<br/>
+ * <p/>
+ * 由{@link ExpressionParser}在解析mapper.xml时编译为表达式树，求值时直接遍历该树，不再解析字符串。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+@FunctionalInterface
+public interface Expression {
+    /**
+     * 根据上下文求值。<br/>
+     *
+     * @param context 本次执行的上下文
+     * @return Object 表达式的值
+     */
+    Object evaluate(DynamicContext context);
+
+    /**
+     * 判断值是否为真：null、false、0、空字符串与空集合为假，其余为真。<br/>
+     *
+     * @param value 表达式的值
+     * @return boolean 是否为真
+     */
+    static boolean isTrue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return toDecimal((Number) value).signum() != 0;
+        }
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() > 0;
+        }
+        if (value instanceof Collection) {
+            return !((Collection<?>) value).isEmpty();
+        }
+        if (value instanceof Map) {
+            return !((Map<?, ?>) value).isEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * 比较两个值是否相等，数字按数值比较，字符与单字符的字符串视为相等。
+     */
+    static boolean isEqual(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return toDecimal((Number) left).compareTo(toDecimal((Number) right)) == 0;
+        }
+        if (left instanceof Character || right instanceof Character) {
+            return left.toString().equals(right.toString());
+        }
+        if (left instanceof Enum || right instanceof Enum) {
+            return left.toString().equals(right.toString());
+        }
+        return left.equals(right);
+    }
+
+    /**
+     * 比较两个值的大小，支持数字与可比较的同类对象。
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object left, Object right) {
+        if (left == null || right == null) {
+            throw new RuntimeException("条件表达式无法比较null的大小");
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return toDecimal((Number) left).compareTo(toDecimal((Number) right));
+        }
+        if (left instanceof Comparable && left.getClass().isInstance(right)) {
+            return ((Comparable) left).compareTo(right);
+        }
+        throw new RuntimeException("条件表达式无法比较大小:" + left + "与" + right);
+    }
+
+    static BigDecimal toDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof Double || number instanceof Float) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return new BigDecimal(number.toString());
+    }
+}
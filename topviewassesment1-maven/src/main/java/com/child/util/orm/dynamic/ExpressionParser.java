@@ -0,0 +1,219 @@
+package com.child.util.orm.dynamic;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将{@code test}属性中的条件表达式编译为{@link Expression}。<br/>
+ * <p/>
+ * 支持的语法如下，优先级从低到高：
+ * <ol>
+ *     <li>逻辑或：{@code or}、{@code ||}</li>
+ *     <li>逻辑与：{@code and}、{@code &&}</li>
+ *     <li>逻辑非：{@code not}、{@code !}</li>
+ *     <li>比较：{@code ==}、{@code !=}、{@code <}、{@code <=}、{@code >}、{@code >=}，
+ *     以及对应的{@code eq}、{@code neq}、{@code lt}、{@code lte}、{@code gt}、{@code gte}</li>
+ *     <li>括号、字面量（{@code null}、{@code true}、{@code false}、数字、单引号或双引号字符串）以及属性路径，
+ *     例如{@code user.name}，路径末尾的{@code ()}将被忽略，故{@code list.size()}与{@code list.size}等价</li>
+ * </ol>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ExpressionParser {
+    private final List<String> tokens;
+    private final String source;
+    private int position;
+
+    private ExpressionParser(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+    }
+
+    /**
+     * 编译条件表达式。<br/>
+     *
+     * @param source 表达式原文
+     * @return {@link Expression}
+     */
+    public static Expression parse(String source) {
+        if (source == null || source.trim().isEmpty()) {
+            throw new RuntimeException("条件表达式不能为空");
+        }
+        ExpressionParser parser = new ExpressionParser(source);
+        Expression expression = parser.parseOr();
+        if (parser.position != parser.tokens.size()) {
+            throw parser.error("多余的内容" + parser.tokens.get(parser.position));
+        }
+        return expression;
+    }
+
+    private Expression parseOr() {
+        Expression left = parseAnd();
+        while (accept("or") || accept("||")) {
+            Expression l = left;
+            Expression r = parseAnd();
+            left = context -> Expression.isTrue(l.evaluate(context)) || Expression.isTrue(r.evaluate(context));
+        }
+        return left;
+    }
+
+    private Expression parseAnd() {
+        Expression left = parseNot();
+        while (accept("and") || accept("&&")) {
+            Expression l = left;
+            Expression r = parseNot();
+            left = context -> Expression.isTrue(l.evaluate(context)) && Expression.isTrue(r.evaluate(context));
+        }
+        return left;
+    }
+
+    private Expression parseNot() {
+        if (accept("not") || accept("!")) {
+            Expression operand = parseNot();
+            return context -> !Expression.isTrue(operand.evaluate(context));
+        }
+        return parseComparison();
+    }
+
+    private Expression parseComparison() {
+        Expression l = parsePrimary();
+        if (position >= tokens.size()) {
+            return l;
+        }
+        String operator = tokens.get(position);
+        switch (operator) {
+            case "==":
+            case "eq":
+                position++;
+                Expression eq = parsePrimary();
+                return context -> Expression.isEqual(l.evaluate(context), eq.evaluate(context));
+            case "!=":
+            case "neq":
+                position++;
+                Expression neq = parsePrimary();
+                return context -> !Expression.isEqual(l.evaluate(context), neq.evaluate(context));
+            case "<":
+            case "lt":
+                position++;
+                Expression lt = parsePrimary();
+                return context -> Expression.compare(l.evaluate(context), lt.evaluate(context)) < 0;
+            case "<=":
+            case "lte":
+                position++;
+                Expression lte = parsePrimary();
+                return context -> Expression.compare(l.evaluate(context), lte.evaluate(context)) <= 0;
+            case ">":
+            case "gt":
+                position++;
+                Expression gt = parsePrimary();
+                return context -> Expression.compare(l.evaluate(context), gt.evaluate(context)) > 0;
+            case ">=":
+            case "gte":
+                position++;
+                Expression gte = parsePrimary();
+                return context -> Expression.compare(l.evaluate(context), gte.evaluate(context)) >= 0;
+            default:
+                return l;
+        }
+    }
+
+    private Expression parsePrimary() {
+        if (position >= tokens.size()) {
+            throw error("表达式不完整");
+        }
+        String token = tokens.get(position++);
+        if ("(".equals(token)) {
+            Expression expression = parseOr();
+            if (!accept(")")) {
+                throw error("缺少右括号");
+            }
+            return expression;
+        }
+        char first = token.charAt(0);
+        if (first == '\'' || first == '"') {
+            String value = token.substring(1, token.length() - 1);
+            return context -> value;
+        }
+        if (Character.isDigit(first) || (first == '-' && token.length() > 1)) {
+            BigDecimal value = new BigDecimal(token);
+            return context -> value;
+        }
+        switch (token) {
+            case "null":
+                return context -> null;
+            case "true":
+                return context -> Boolean.TRUE;
+            case "false":
+                return context -> Boolean.FALSE;
+            default:
+                break;
+        }
+        if (!Character.isJavaIdentifierStart(first)) {
+            throw error("无法识别" + token);
+        }
+        // 属性路径，去除方法调用的括号
+        String[] path = token.replace("()", "").split("\\.");
+        return context -> context.getValue(path);
+    }
+
+    private boolean accept(String token) {
+        if (position < tokens.size() && tokens.get(position).equals(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private RuntimeException error(String message) {
+        return new RuntimeException("条件表达式错误:" + message + "\n表达式:" + source);
+    }
+
+    private List<String> tokenize(String text) {
+        List<String> list = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                int end = text.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw error("字符串缺少结束引号");
+                }
+                list.add(text.substring(i, end + 1));
+                i = end + 1;
+            } else if (c == '(' || c == ')') {
+                list.add(String.valueOf(c));
+                i++;
+            } else if ("=!<>&|".indexOf(c) >= 0) {
+                // 双字符运算符优先
+                if (i + 1 < text.length() && "=&|".indexOf(text.charAt(i + 1)) >= 0) {
+                    list.add(text.substring(i, i + 2));
+                    i += 2;
+                } else {
+                    list.add(String.valueOf(c));
+                    i++;
+                }
+            } else if (Character.isDigit(c) || (c == '-' && i + 1 < text.length() && Character.isDigit(text.charAt(i + 1)))) {
+                int start = i++;
+                while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+                    i++;
+                }
+                list.add(text.substring(start, i));
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i++;
+                while (i < text.length() && (Character.isJavaIdentifierPart(text.charAt(i)) || text.charAt(i) == '.'
+                        || text.startsWith("()", i))) {
+                    i += text.startsWith("()", i) ? 2 : 1;
+                }
+                list.add(text.substring(start, i));
+            } else {
+                throw error("无法识别的字符" + c);
+            }
+        }
+        return list;
+    }
+}
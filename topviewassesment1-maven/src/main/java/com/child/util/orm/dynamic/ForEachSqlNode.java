@@ -0,0 +1,160 @@
+package com.child.util.orm.dynamic;
+
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * {@code <foreach>}标签，遍历集合并对每个元素追加一次其中的内容，常用于IN列表与批量插入。<br/>
+ * <p/>
+ * 支持{@link Iterable}、数组以及{@link Map}，遍历Map时{@code index}绑定键，{@code item}绑定值。<br/>
+ * 每次迭代时将元素绑定到{@code item}，下标绑定到{@code index}，内容中的占位符可以通过
+ * {@code #{item}}或{@code #{item.属性名}}取值。遍历结束后恢复原有的绑定。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ForEachSqlNode implements SqlNode {
+    private final SqlNode contents;
+    private final String collection;
+    private final String[] collectionPath;
+    private final String item;
+    private final String index;
+    private final String open;
+    private final String close;
+    private final String separator;
+
+    /**
+     * @param contents   子节点
+     * @param collection 集合的属性路径
+     * @param item       元素绑定的变量名
+     * @param index      下标绑定的变量名，可以为null
+     * @param open       开始时追加的内容，可以为null
+     * @param close      结束时追加的内容，可以为null
+     * @param separator  元素之间的分隔符，可以为null
+     */
+    public ForEachSqlNode(SqlNode contents, String collection, String item, String index,
+                          String open, String close, String separator) {
+        if (collection == null || item == null) {
+            throw new RuntimeException("foreach标签必须指定collection与item属性");
+        }
+        this.contents = contents;
+        this.collection = collection;
+        this.collectionPath = collection.split("\\.");
+        this.item = item;
+        this.index = index;
+        this.open = open;
+        this.close = close;
+        this.separator = separator;
+    }
+
+    @Override
+    public boolean apply(DynamicContext context) {
+        Object value = context.getValue(collectionPath);
+        if (value == null) {
+            throw new RuntimeException("foreach标签的集合不能为null:" + collection);
+        }
+
+        boolean itemBound = context.isBound(item);
+        boolean indexBound = index != null && context.isBound(index);
+        Object previousItem = context.bind(item, null);
+        Object previousIndex = index == null ? null : context.bind(index, null);
+
+        if (open != null) {
+            context.appendSql(' ' + open);
+        }
+        int i = 0;
+        Iterator<?> iterator = iterator(value);
+        while (iterator.hasNext()) {
+            Object element = iterator.next();
+            if (i > 0 && separator != null) {
+                context.appendSql(separator);
+            }
+            if (element instanceof Map.Entry) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) element;
+                bind(context, entry.getValue(), entry.getKey());
+            } else {
+                bind(context, element, i);
+            }
+            contents.apply(context);
+            i++;
+        }
+        if (close != null) {
+            context.appendSql(close + ' ');
+        }
+
+        context.restore(item, previousItem, itemBound);
+        if (index != null) {
+            context.restore(index, previousIndex, indexBound);
+        }
+        return i > 0;
+    }
+
+    private void bind(DynamicContext context, Object element, Object position) {
+        context.bind(item, element);
+        if (index != null) {
+            context.bind(index, position);
+        }
+    }
+
+    private Iterator<?> iterator(Object value) {
+        if (value instanceof Iterable) {
+            return ((Iterable<?>) value).iterator();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).entrySet().iterator();
+        }
+        if (value.getClass().isArray()) {
+            // 兼容基本类型数组
+            int length = Array.getLength(value);
+            return new Iterator<Object>() {
+                private int position;
+
+                @Override
+                public boolean hasNext() {
+                    return position < length;
+                }
+
+                @Override
+                public Object next() {
+                    return Array.get(value, position++);
+                }
+            };
+        }
+        throw new RuntimeException("foreach标签的集合类型不支持:" + collection + "=" + value.getClass().getName());
+    }
+
+    public SqlNode getContents() {
+        return contents;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getItem() {
+        return item;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getOpen() {
+        return open;
+    }
+
+    public String getClose() {
+        return close;
+    }
+
+    public String getSeparator() {
+        return separator;
+    }
+
+    @Override
+    public String toString() {
+        return "<foreach collection=\"" + collection + "\">" + contents + "</foreach>";
+    }
+}
@@ -0,0 +1,48 @@
+package com.child.util.orm.dynamic;
+
+/**
+ * {@code <if test="...">}标签，条件成立时才追加其中的内容。<br/>
+ * <p/>
+ * 条件表达式在构建时编译为{@link Expression}，求值时不再解析。<br/>
+ * 同时也用于表示{@code <choose>}中的{@code <when>}标签。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class IfSqlNode implements SqlNode {
+    /**
+     * 条件表达式的原文
+     */
+    private final String test;
+    private final Expression expression;
+    private final SqlNode contents;
+
+    public IfSqlNode(String test, SqlNode contents) {
+        this.test = test;
+        this.expression = ExpressionParser.parse(test);
+        this.contents = contents;
+    }
+
+    @Override
+    public boolean apply(DynamicContext context) {
+        if (Expression.isTrue(expression.evaluate(context))) {
+            contents.apply(context);
+            return true;
+        }
+        return false;
+    }
+
+    public String getTest() {
+        return test;
+    }
+
+    public SqlNode getContents() {
+        return contents;
+    }
+
+    @Override
+    public String toString() {
+        return "<if test=\"" + test + "\">" + contents + "</if>";
+    }
+}
@@ -0,0 +1,41 @@
+package com.child.util.orm.dynamic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按顺序组合多个子节点，对应一个标签内的全部内容。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class MixedSqlNode implements SqlNode {
+    private final List<SqlNode> contents;
+
+    public MixedSqlNode(List<SqlNode> contents) {
+        this.contents = Collections.unmodifiableList(new ArrayList<>(contents));
+    }
+
+    @Override
+    public boolean apply(DynamicContext context) {
+        for (SqlNode content : contents) {
+            content.apply(context);
+        }
+        return true;
+    }
+
+    public List<SqlNode> getContents() {
+        return contents;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (SqlNode content : contents) {
+            builder.append(content).append(' ');
+        }
+        return builder.toString().trim();
+    }
+}
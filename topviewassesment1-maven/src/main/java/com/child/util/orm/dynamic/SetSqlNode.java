@@ -0,0 +1,16 @@
+package com.child.util.orm.dynamic;
+
+import java.util.Collections;
+
+/**
+ * {@code <set>}标签，内容不为空时追加"SET"，并去除内容末尾多余的","。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class SetSqlNode extends TrimSqlNode {
+    public SetSqlNode(SqlNode contents) {
+        super(contents, "SET", null, Collections.singletonList(","), Collections.singletonList(","));
+    }
+}
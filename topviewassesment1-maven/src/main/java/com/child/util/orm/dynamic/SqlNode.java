@@ -0,0 +1,21 @@
+package com.child.util.orm.dynamic;
+
+/**
+ * 动态SQL的节点，由mapper.xml中的文本与{@code <if>}、{@code <where>}、{@code <foreach>}等标签解析得到。<br/>
+ * <p/>
+ * 节点树在解析mapper.xml时构建，之后不可变，可以在多个线程之间共享。
+ * 每次执行时根据参数对节点树求值，将得到的SQL片段与占位符的值写入{@link DynamicContext}。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public interface SqlNode {
+    /**
+     * 根据参数求值，并将结果写入上下文。<br/>
+     *
+     * @param context 本次执行的上下文
+     * @return boolean 该节点是否生效，用于{@code <choose>}判断是否已有分支命中
+     */
+    boolean apply(DynamicContext context);
+}
@@ -0,0 +1,60 @@
+package com.child.util.orm.dynamic;
+
+import com.child.util.orm.bean.SqlTemplate;
+
+/**
+ * 静态文本节点，即标签之间的SQL片段。<br/>
+ * <p/>
+ * 片段在构建时便编译为{@link SqlTemplate}，并预先分割好各个占位符的属性路径，
+ * 求值时只需追加SQL并按路径取值，与静态SQL的开销相同。<br/>
+ * 片段两端的空白被替换为一个空格，避免与相邻节点的内容粘连。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class StaticTextSqlNode implements SqlNode {
+    private final SqlTemplate sqlTemplate;
+    /**
+     * 追加到SQL中的内容，两端各带一个空格
+     */
+    private final String fragment;
+    /**
+     * 各个占位符按"."分割后的属性路径
+     */
+    private final String[][] parameterPaths;
+
+    public StaticTextSqlNode(SqlTemplate sqlTemplate) {
+        this.sqlTemplate = sqlTemplate;
+        this.fragment = ' ' + sqlTemplate.getJdbcSql() + ' ';
+        this.parameterPaths = new String[sqlTemplate.getParameterNames().size()][];
+        for (int i = 0; i < parameterPaths.length; i++) {
+            parameterPaths[i] = sqlTemplate.getParameterPath(i);
+        }
+    }
+
+    /**
+     * @param text mapper.xml中的原生SQL片段
+     */
+    public StaticTextSqlNode(String text) {
+        this(SqlTemplate.compile(text.trim()));
+    }
+
+    @Override
+    public boolean apply(DynamicContext context) {
+        context.appendSql(fragment);
+        for (String[] path : parameterPaths) {
+            context.addValue(context.getValue(path));
+        }
+        return true;
+    }
+
+    public SqlTemplate getSqlTemplate() {
+        return sqlTemplate;
+    }
+
+    @Override
+    public String toString() {
+        return sqlTemplate.getJdbcSql();
+    }
+}
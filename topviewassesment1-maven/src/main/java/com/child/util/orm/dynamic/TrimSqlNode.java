@@ -0,0 +1,138 @@
+package com.child.util.orm.dynamic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code <trim>}标签，对其中生成的内容去除指定的前缀与后缀，再加上{@code prefix}与{@code suffix}。<br/>
+ * <p/>
+ * 内容为空时不追加任何东西，包括{@code prefix}与{@code suffix}。
+ * {@code <where>}与{@code <set>}均是其特例。<br/>
+ * 去除前后缀时忽略大小写，由字母组成的前后缀只匹配完整的单词，例如"AND"不会匹配"ANDROID"。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class TrimSqlNode implements SqlNode {
+    private final SqlNode contents;
+    private final String prefix;
+    private final String suffix;
+    private final List<String> prefixOverrides;
+    private final List<String> suffixOverrides;
+
+    /**
+     * @param contents        子节点
+     * @param prefix          内容不为空时追加的前缀，可以为null
+     * @param suffix          内容不为空时追加的后缀，可以为null
+     * @param prefixOverrides 需要去除的前缀
+     * @param suffixOverrides 需要去除的后缀
+     */
+    public TrimSqlNode(SqlNode contents, String prefix, String suffix,
+                       List<String> prefixOverrides, List<String> suffixOverrides) {
+        this.contents = contents;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.prefixOverrides = Collections.unmodifiableList(new ArrayList<>(prefixOverrides));
+        this.suffixOverrides = Collections.unmodifiableList(new ArrayList<>(suffixOverrides));
+    }
+
+    /**
+     * 解析mapper.xml中以"|"分隔的前后缀。<br/>
+     *
+     * @param overrides 属性值，可以为null
+     * @return {@link List} 去除空白后的各个前后缀
+     */
+    public static List<String> parseOverrides(String overrides) {
+        List<String> list = new ArrayList<>();
+        if (overrides != null) {
+            for (String override : overrides.split("\\|")) {
+                if (!override.trim().isEmpty()) {
+                    list.add(override.trim());
+                }
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public boolean apply(DynamicContext context) {
+        StringBuilder sql = context.sqlBuilder();
+        int start = sql.length();
+        contents.apply(context);
+        String body = sql.substring(start).trim();
+        sql.setLength(start);
+
+        for (String override : prefixOverrides) {
+            if (startsWith(body, override)) {
+                body = body.substring(override.length()).trim();
+                break;
+            }
+        }
+        for (String override : suffixOverrides) {
+            if (endsWith(body, override)) {
+                body = body.substring(0, body.length() - override.length()).trim();
+                break;
+            }
+        }
+        if (body.isEmpty()) {
+            return false;
+        }
+
+        sql.append(' ');
+        if (prefix != null) {
+            sql.append(prefix).append(' ');
+        }
+        sql.append(body).append(' ');
+        if (suffix != null) {
+            sql.append(suffix).append(' ');
+        }
+        return true;
+    }
+
+    private static boolean startsWith(String body, String override) {
+        if (!body.regionMatches(true, 0, override, 0, override.length())) {
+            return false;
+        }
+        // 由字母组成的前缀之后不能紧跟字母或数字
+        return !Character.isLetter(override.charAt(override.length() - 1))
+                || body.length() == override.length()
+                || !Character.isLetterOrDigit(body.charAt(override.length()));
+    }
+
+    private static boolean endsWith(String body, String override) {
+        int offset = body.length() - override.length();
+        if (offset < 0 || !body.regionMatches(true, offset, override, 0, override.length())) {
+            return false;
+        }
+        return !Character.isLetter(override.charAt(0))
+                || offset == 0
+                || !Character.isLetterOrDigit(body.charAt(offset - 1));
+    }
+
+    public SqlNode getContents() {
+        return contents;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public List<String> getPrefixOverrides() {
+        return prefixOverrides;
+    }
+
+    public List<String> getSuffixOverrides() {
+        return suffixOverrides;
+    }
+
+    @Override
+    public String toString() {
+        return "<trim prefix=\"" + prefix + "\">" + contents + "</trim>";
+    }
+}
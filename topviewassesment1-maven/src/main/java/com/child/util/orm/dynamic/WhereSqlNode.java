@@ -0,0 +1,17 @@
+package com.child.util.orm.dynamic;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * {@code <where>}标签，内容不为空时追加"WHERE"，并去除内容开头多余的"AND"或"OR"。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class WhereSqlNode extends TrimSqlNode {
+    public WhereSqlNode(SqlNode contents) {
+        super(contents, "WHERE", null, Arrays.asList("AND", "OR"), Collections.emptyList());
+    }
+}
@@ -0,0 +1,35 @@
+package com.child.util.orm.handler;
+
+import com.child.util.orm.bean.ForPreparedStatement;
+import com.child.util.orm.dynamic.DynamicContext;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * SQL语句处理器，适用于含有动态SQL标签的语句，传入的实参可以是Map、pojo或单个的简单类型值。<br/>
+ * <p/>
+ * 根据参数对{@link ForPreparedStatement}中的节点树求值，得到本次执行的SQL以及按次序排列的占位符的值，
+ * 再创建{@link PreparedStatement}并依次赋值。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+public class DynamicSqlHandler implements SqlHandler<Object> {
+
+    @Override
+    public PreparedStatement sqlHandler(ForPreparedStatement forPreparedStatement,
+                                        Object parameters) throws SQLException {
+        // 对节点树求值
+        DynamicContext context = new DynamicContext(parameters);
+        forPreparedStatement.getSqlNode().apply(context);
+
+        PreparedStatement preparedStatement = forPreparedStatement.prepareStatement(context.getSql());
+        List<Object> values = context.getValues();
+        for (int i = 0; i < values.size(); i++) {
+            preparedStatement.setObject(i + 1, values.get(i));
+        }
+        return preparedStatement;
+    }
+}
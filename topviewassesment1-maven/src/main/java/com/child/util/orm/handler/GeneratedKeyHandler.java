@@ -0,0 +1,61 @@
+package com.child.util.orm.handler;
+
+import com.child.util.orm.util.PropertyAccessor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * 生成主键处理器，用于将插入语句执行后数据库生成的主键写回到参数对象中。<br/>
+ * <p/>
+ * 主键随插入语句的执行结果一同返回，读取时无需再向数据库发送查询。<br/>
+ * {@code keyProperty}中可以以","分隔多个属性，依次对应生成主键的各列；
+ * 每个属性可以是一个路径，例如以{@code @Param("user")}传参时写为{@code user.id}。<br/>
+ * 多行插入时，生成的主键按行的次序依次写回到各个元素中。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class GeneratedKeyHandler {
+    /**
+     * 各个主键属性按"."分割后的路径
+     */
+    private final String[][] keyPaths;
+
+    /**
+     * @param keyProperty mapper.xml中的keyProperty属性
+     */
+    public GeneratedKeyHandler(String keyProperty) {
+        String[] properties = keyProperty.split(",");
+        this.keyPaths = new String[properties.length][];
+        for (int i = 0; i < properties.length; i++) {
+            keyPaths[i] = properties[i].trim().split("\\.");
+        }
+    }
+
+    /**
+     * 读取生成的主键，并依次写回到{@code targets}中从{@code from}开始的元素。<br/>
+     *
+     * @param statement 已执行的语句，创建时需指定{@link Statement#RETURN_GENERATED_KEYS}
+     * @param targets   参数对象
+     * @param from      第一个主键对应的元素下标
+     * @return int 写回主键的元素个数
+     * @throws SQLException 直接向上抛出
+     */
+    public int assignKeys(Statement statement, List<?> targets, int from) throws SQLException {
+        try (ResultSet resultSet = statement.getGeneratedKeys()) {
+            int columnCount = Math.min(resultSet.getMetaData().getColumnCount(), keyPaths.length);
+            int index = from;
+            while (index < targets.size() && resultSet.next()) {
+                Object target = targets.get(index++);
+                for (int i = 0; i < columnCount; i++) {
+                    PropertyAccessor.setPath(target, keyPaths[i], resultSet.getObject(i + 1));
+                }
+            }
+            return index - from;
+        }
+    }
+}
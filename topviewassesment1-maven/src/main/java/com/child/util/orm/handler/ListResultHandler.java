@@ -10,7 +10,6 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Logger;
 
 /**
  * 继承了{@link ResultHandler}接口，该类将作为结果集的处理器，
@@ -109,9 +108,9 @@ public class ListResultHandler<E> implements ResultHandler<List<E>>{
             /*最后将装载记录的Object对象放入List集合中*/
             list.add((E) object);
         }
-        logger.info("结果集收集为List集合成功");
+        logger.debug(() -> "结果集收集为List集合成功");
         return list;
     }
-    private static final Logger logger = ChildLogger.getLogger();
+    private static final ChildLogger logger = ChildLogger.of(ListResultHandler.class);
 
 }
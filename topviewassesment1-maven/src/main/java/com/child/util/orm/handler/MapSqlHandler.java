@@ -1,9 +1,10 @@
 package com.child.util.orm.handler;
 
 import com.child.util.orm.bean.ForPreparedStatement;
+import com.child.util.orm.bean.SqlTemplate;
 import com.child.util.orm.handler.SqlHandler;
+import com.child.util.orm.util.PropertyAccessor;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Map;
@@ -23,8 +24,8 @@ public class MapSqlHandler implements SqlHandler<Map<String, Object>> {
      * 传入连接资源、sql语句以及含有特定数据的Map实例来为操作数据库数据进行准备，
      * 调用该方法将返回一个可以立即执行的{@link PreparedStatement}实例。<br/>
      * <p/>
-     * 该方法将调用{@code parsePrototypeSql()}方法获取一个解析后的SQL，
-     * 再通过该SQL与连接资源和Object实例资源配合进行操作。<br/>
+     * 该方法将使用预编译的{@link SqlTemplate}，其中保存了解析后的SQL以及占位符对应的属性名，
+     * 再通过该SQL与连接资源和Map实例资源配合进行操作。<br/>
      *
      * @param parameters           含有特定数据，即为占位符"?"传值的数据。K为占位符"#{}"中的字面量值，即属性名，V为要传入的实参值
      * @param forPreparedStatement 包含了创建所需要的参数
@@ -34,33 +35,18 @@ public class MapSqlHandler implements SqlHandler<Map<String, Object>> {
     @Override
     public PreparedStatement sqlHandler(ForPreparedStatement forPreparedStatement,
                                         Map<String, Object> parameters) throws SQLException {
-        /*获取所需参数*/
-        String prototypeSql = forPreparedStatement.getPrototypeSql();
-        Connection connection = forPreparedStatement.getConnection();
+        /*获取预编译的SQL模板，其中包含解析后的sql语句以及各个占位符对应的属性名*/
+        SqlTemplate sqlTemplate = forPreparedStatement.getSqlTemplate();
+        int parameterCount = sqlTemplate.getParameterNames().size();
 
-        /*获取解析后的sql语句*/
-        // 调用接口的默认方法
-        String sql = this.parsePrototypeSql(prototypeSql);
-
-        /*接下来解析原生sql中相关占位符中的对象属性信息保存在Map集合中*/
-        // 调用接口的默认方法
-        Map<Integer, String> field = this.fieldMap(prototypeSql);
-
-        /*将解析好的sql结合先前解析得到的Map集合为占位符"?"进行赋值*/
+        /*结合模板中的属性名为占位符"?"进行赋值*/
         // 创建preparedStatement实例
-        PreparedStatement preparedStatement = connection.prepareStatement(sql);
-        // 遍历，通过两个Map集合为每一个占位"?"进行赋值
-        field.forEach((index, fieldName) -> {
-            try {
-                // 得到需要传入的值
-                Object obj = parameters.get(fieldName);
-                // 给sql语句中的占位符?赋值
-                preparedStatement.setObject(index, obj);
-
-            } catch (SQLException e) {
-                throw new RuntimeException("赋值失败\n" + e.getMessage());
-            }
-        });
+        PreparedStatement preparedStatement = forPreparedStatement.prepareStatement(sqlTemplate.getJdbcSql());
+        // 遍历，通过属性名为每一个占位"?"进行赋值
+        for (int i = 0; i < parameterCount; i++) {
+            // 得到需要传入的值，属性路径的第一级为Map的键，给sql语句中的占位符?赋值
+            preparedStatement.setObject(i + 1, PropertyAccessor.getPath(parameters, sqlTemplate.getParameterPath(i)));
+        }
 
         return preparedStatement;
     }
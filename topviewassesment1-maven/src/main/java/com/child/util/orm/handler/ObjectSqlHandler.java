@@ -1,14 +1,12 @@
 package com.child.util.orm.handler;
 
 import com.child.util.orm.bean.ForPreparedStatement;
+import com.child.util.orm.bean.SqlTemplate;
 import com.child.util.orm.handler.SqlHandler;
+import com.child.util.orm.util.PropertyAccessor;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.Map;
 
 /**
  * SQL语句处理器，适用于传入的实参为pojo类的场景。<br/>
@@ -24,8 +22,10 @@ public class ObjectSqlHandler implements SqlHandler<Object> {
      * 传入连接资源、sql语句以及含有特定数据的pojo实例来为操作数据库数据进行准备，
      * 调用该方法将返回一个可以立即执行的{@link PreparedStatement}实例。<br/>
      * <p/>
-     * 该方法将调用{@code parsePrototypeSql()}方法获取一个解析后的SQL，
+     * 该方法将使用预编译的{@link SqlTemplate}，其中保存了解析后的SQL以及占位符对应的属性名，
      * 再通过该SQL与连接资源和Object实例资源配合进行操作。<br/>
+     * 属性值通过{@link PropertyAccessor}读取，每个类的读取方法只在第一次使用时通过反射查找。
+     * 实参为数字、字符串等单个的简单类型值时，与动态SQL一样直接作为每个占位符的值。<br/>
      *
      * @param parameters           含有特定数据，即为占位符"?"传值的数据
      * @param forPreparedStatement 包含了创建所需要的参数
@@ -35,45 +35,20 @@ public class ObjectSqlHandler implements SqlHandler<Object> {
     @Override
     public PreparedStatement sqlHandler(ForPreparedStatement forPreparedStatement,
                                         Object parameters) throws SQLException {
-        /*获取所需参数*/
-        String prototypeSql = forPreparedStatement.getPrototypeSql();
-        Connection connection = forPreparedStatement.getConnection();
+        /*获取预编译的SQL模板，其中包含解析后的sql语句以及各个占位符对应的属性名*/
+        SqlTemplate sqlTemplate = forPreparedStatement.getSqlTemplate();
+        int parameterCount = sqlTemplate.getParameterNames().size();
 
-        // 获取parameters的运行类型
-        Class<?> parametersClass = parameters.getClass();
-
-        /*接下来开始解析原生sql为符合JDBC规范的sql语句*/
-        // 调用接口的默认方法
-        String sql = this.parsePrototypeSql(prototypeSql);
-
-        /*接下来解析原生sql中相关占位符中的对象属性信息保存在Map集合中*/
-        // 调用接口的默认方法
-        Map<Integer, String> field = this.fieldMap(prototypeSql);
-
-
-        /*将解析好的sql结合先前解析得到的Map集合为占位符"?"进行赋值*/
-        // 用于拼接po类获取字段值的方法名
-        final String get = "get";
+        /*结合模板中的属性名为占位符"?"进行赋值*/
         // 创建preparedStatement实例
-        PreparedStatement preparedStatement = connection.prepareStatement(sql);
-        // 遍历，通过反射为每一个占位"?"进行赋值
-        field.forEach((index, fieldName) -> {
-            // 每一个占位符中的字段的get方法名
-            String getMethodName = get + (char) (fieldName.charAt(0) - 32) + fieldName.substring(1);
-            try {
-                // 通过反射获取get方法
-                Method getMethod = parametersClass.getDeclaredMethod(getMethodName);
-                // 调用get方法得到obj中的私有属性，然后给sql语句中的占位符?赋值
-                Object invoke = getMethod.invoke(parameters);
-                preparedStatement.setObject(index, invoke);
-
-            } catch (SQLException e) {
-                throw new RuntimeException("赋值失败\n" + e.getMessage());
-            }
-            catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException("反射调用方法出错\n" + e.getMessage());
-            }
-        });
+        PreparedStatement preparedStatement = forPreparedStatement.prepareStatement(sqlTemplate.getJdbcSql());
+        boolean simpleValue = PropertyAccessor.isSimpleValue(parameters);
+        // 遍历，通过缓存的属性读取方法为每一个占位"?"进行赋值
+        for (int i = 0; i < parameterCount; i++) {
+            Object value = simpleValue ? parameters
+                    : PropertyAccessor.getPath(parameters, sqlTemplate.getParameterPath(i));
+            preparedStatement.setObject(i + 1, value);
+        }
 
         // 返回赋完值的preparedStatement实例
         return preparedStatement;
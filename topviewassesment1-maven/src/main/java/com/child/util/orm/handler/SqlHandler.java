@@ -37,8 +37,8 @@ public interface SqlHandler<T> {
      * @return String 返回一个符合JDBC规范的sql语句
      */
     default String parsePrototypeSql(String prototypeSql) {
-        // 正则表达式，用于将整个占位符"#{}"的所有内容替换为"?"
-        String tempSql = prototypeSql.replaceAll("#\\{[a-zA-Z0-9_$]*}", "?");
+        // 正则表达式，用于将整个占位符"#{}"的所有内容替换为"?"，占位符中可以是"item.name"形式的属性路径
+        String tempSql = prototypeSql.replaceAll("#\\{[a-zA-Z0-9_$.]*}", "?");
         // 对字符串进行操作
         StringBuilder sql = new StringBuilder(tempSql);
         // 以空格、逗号、括号分割
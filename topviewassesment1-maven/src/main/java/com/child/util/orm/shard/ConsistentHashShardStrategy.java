@@ -0,0 +1,96 @@
+package com.child.util.orm.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希分片策略。<br/>
+ * <p/>
+ * 每个分片在哈希环上放置{@code virtualNodes}个虚拟节点，分片键按哈希值顺时针落到第一个虚拟节点所属的分片。
+ * 分片数量改变时，只有约{@code 1/分片数量}的数据需要迁移。<br/>
+ * 哈希环按分片数量构建一次后缓存，哈希函数为64位FNV-1a，再经过一次混合使分布更均匀。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ConsistentHashShardStrategy implements ShardStrategy {
+    /**
+     * 默认每个分片的虚拟节点数量
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * 每个分片的虚拟节点数量
+     */
+    private final int virtualNodes;
+    /**
+     * 已构建的哈希环，仅在分片数量改变时重新构建
+     */
+    private volatile Ring ring;
+
+    public ConsistentHashShardStrategy() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param virtualNodes 每个分片的虚拟节点数量，越多分布越均匀
+     */
+    public ConsistentHashShardStrategy(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    public int shard(Object shardKey, int shardCount) {
+        Ring current = ring;
+        if (current == null || current.shardCount != shardCount) {
+            current = new Ring(shardCount, virtualNodes);
+            ring = current;
+        }
+        return current.locate(hash(shardKey.toString()));
+    }
+
+    /**
+     * 计算字符串的64位哈希值。<br/>
+     *
+     * @param value 字符串
+     * @return long 哈希值
+     */
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        // FNV对短字符串的高位分布较差，再做一次混合
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * 哈希环，K为虚拟节点的哈希值，V为所属的分片
+     */
+    private static class Ring {
+        private final int shardCount;
+        private final TreeMap<Long, Integer> nodes = new TreeMap<>();
+
+        private Ring(int shardCount, int virtualNodes) {
+            this.shardCount = shardCount;
+            for (int shard = 0; shard < shardCount; shard++) {
+                for (int node = 0; node < virtualNodes; node++) {
+                    nodes.put(hash("shard-" + shard + "#" + node), shard);
+                }
+            }
+        }
+
+        private int locate(long hash) {
+            Map.Entry<Long, Integer> entry = nodes.ceilingEntry(hash);
+            return entry != null ? entry.getValue() : nodes.firstEntry().getValue();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.child.util.orm.shard;
+
+/**
+ * 取模分片策略。<br/>
+ * <p/>
+ * 整数类型的分片键直接对分片数量取模，内容为整数的字符串先转换为整数，保证{@code 7}与{@code "7"}位于同一个分片。
+ * 其余分片键对其字符串形式计算稳定的哈希值后取模，不使用{@link Object#hashCode()}，
+ * 因为未重写该方法的类型在每次运行时得到的值都不同。
+ * 数据分布均匀，但分片数量改变时几乎所有数据都需要迁移。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ModuloShardStrategy implements ShardStrategy {
+
+    @Override
+    public int shard(Object shardKey, int shardCount) {
+        return (int) Math.floorMod(normalize(shardKey), (long) shardCount);
+    }
+
+    /**
+     * 将分片键转换为用于取模的整数。<br/>
+     *
+     * @param shardKey 分片键的值
+     * @return long 整数或整数字符串的值，其余为字符串形式的哈希值
+     */
+    static long normalize(Object shardKey) {
+        if (shardKey instanceof Number) {
+            return ((Number) shardKey).longValue();
+        }
+        String text = shardKey.toString().trim();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return ConsistentHashShardStrategy.hash(text);
+        }
+    }
+}
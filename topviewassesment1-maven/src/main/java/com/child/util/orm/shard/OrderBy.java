@@ -0,0 +1,161 @@
+package com.child.util.orm.shard;
+
+import com.child.util.orm.util.PropertyAccessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL语句中{@code ORDER BY}子句的排序规则，用于合并各个分片已排好序的查询结果。<br/>
+ * <p/>
+ * 由语句最外层的{@code ORDER BY}解析得到，每一项为一个列名及其排序方向，
+ * 列名按结果集映射的规则转换为驼峰命名的属性名，例如{@code old_car desc}对应属性{@code oldCar}的降序。<br/>
+ * 排序项中含有函数或表达式时无法在内存中复现，此时视为无排序规则，各分片的结果按分片号依次合并。<br/>
+ * 比较时null小于任何值，与MySQL的升序规则一致；字符串按{@link String#compareTo(String)}比较，
+ * 与数据库排序规则不同时，合并后的次序可能与单库查询略有差异。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class OrderBy {
+    /**
+     * 无排序规则
+     */
+    public static final OrderBy NONE = new OrderBy(Collections.emptyList());
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)\\border\\s+by\\b");
+    /**
+     * 排序子句之后可能出现的子句
+     */
+    private static final Pattern TAIL = Pattern.compile("(?i)\\b(limit|offset|for\\s+update|lock\\s+in)\\b");
+    private static final Pattern COLUMN = Pattern.compile("`?(?:\\w+`?\\.`?)?(\\w+)`?");
+
+    private final List<Item> items;
+
+    private OrderBy(List<Item> items) {
+        this.items = items;
+    }
+
+    /**
+     * 解析SQL语句最外层的{@code ORDER BY}子句。<br/>
+     *
+     * @param sql SQL语句
+     * @return {@link OrderBy} 不含排序子句或无法解析时返回{@code NONE}
+     */
+    public static OrderBy parse(String sql) {
+        if (sql == null) {
+            return NONE;
+        }
+        Matcher matcher = ORDER_BY.matcher(sql);
+        int start = -1;
+        while (matcher.find()) {
+            start = matcher.end();
+        }
+        // 排序子句之后仍有右括号，说明位于子查询中
+        if (start < 0 || sql.indexOf(')', start) >= 0) {
+            return NONE;
+        }
+        String clause = sql.substring(start);
+        Matcher tail = TAIL.matcher(clause);
+        if (tail.find()) {
+            clause = clause.substring(0, tail.start());
+        }
+        clause = clause.trim();
+        if (clause.endsWith(";")) {
+            clause = clause.substring(0, clause.length() - 1);
+        }
+
+        List<Item> items = new ArrayList<>();
+        for (String part : clause.split(",")) {
+            String[] tokens = part.trim().split("\\s+");
+            if (tokens.length > 2) {
+                return NONE;
+            }
+            Matcher column = COLUMN.matcher(tokens[0]);
+            if (!column.matches()) {
+                return NONE;
+            }
+            boolean descending = false;
+            if (tokens.length == 2) {
+                String direction = tokens[1].toLowerCase(Locale.ROOT);
+                if (!"asc".equals(direction) && !"desc".equals(direction)) {
+                    return NONE;
+                }
+                descending = "desc".equals(direction);
+            }
+            items.add(new Item(toProperty(column.group(1)), descending));
+        }
+        return items.isEmpty() ? NONE : new OrderBy(Collections.unmodifiableList(items));
+    }
+
+    /**
+     * 将下划线命名的列名转换为驼峰命名的属性名。
+     */
+    private static String toProperty(String column) {
+        StringBuilder builder = new StringBuilder(column.length());
+        boolean upper = false;
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (c == '_') {
+                upper = builder.length() > 0;
+            } else {
+                builder.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return builder.toString();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * @return {@link Comparator} 按排序规则比较查询结果中的对象，无排序规则时返回null
+     */
+    public Comparator<Object> toComparator() {
+        Comparator<Object> comparator = null;
+        for (Item item : items) {
+            Comparator<Object> next = item.toComparator();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderBy" + items;
+    }
+
+    /**
+     * 排序项
+     */
+    private static class Item {
+        private final String property;
+        private final boolean descending;
+
+        private Item(String property, boolean descending) {
+            this.property = property;
+            this.descending = descending;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Comparator<Object> toComparator() {
+            Comparator<Comparable> natural = Comparator.nullsFirst(Comparator.naturalOrder());
+            Comparator<Object> comparator =
+                    (left, right) -> natural.compare((Comparable) PropertyAccessor.getProperty(left, property),
+                            (Comparable) PropertyAccessor.getProperty(right, property));
+            return descending ? comparator.reversed() : comparator;
+        }
+
+        @Override
+        public String toString() {
+            return property + (descending ? " desc" : " asc");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.child.util.orm.shard;
+
+import java.util.Arrays;
+
+/**
+ * 范围分片策略。<br/>
+ * <p/>
+ * 由各个分片的上界（不包含）描述：分片i保存{@code upperBounds[i-1] <= key < upperBounds[i]}的数据，
+ * 最后一个分片保存其余所有数据，故上界的数量应为分片数量减一。<br/>
+ * 例如上界为{@code 1000000, 2000000}时，id小于一百万的数据位于分片0，小于两百万的位于分片1，其余位于分片2。<br/>
+ * 适用于自增id，扩容时只需追加分片，已有数据无需迁移。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class RangeShardStrategy implements ShardStrategy {
+    /**
+     * 各个分片的上界，升序
+     */
+    private final long[] upperBounds;
+
+    /**
+     * @param upperBounds 各个分片的上界，必须严格递增
+     */
+    public RangeShardStrategy(long... upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new RuntimeException("分片上界必须严格递增:" + Arrays.toString(upperBounds));
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+    }
+
+    @Override
+    public int shard(Object shardKey, int shardCount) {
+        if (upperBounds.length != shardCount - 1) {
+            throw new RuntimeException("分片上界的数量应为分片数量减一:" + Arrays.toString(upperBounds));
+        }
+        long value = shardKey instanceof Number ? ((Number) shardKey).longValue()
+                : Long.parseLong(shardKey.toString().trim());
+        // 二分查找第一个大于value的上界，即value所在的分片
+        int low = 0;
+        int high = upperBounds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (upperBounds[middle] > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,276 @@
+package com.child.util.orm.shard;
+
+import com.child.util.ChildLogger;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 跨分片查询的执行器，在有界的线程池上并行执行各个分片的查询，并合并结果。<br/>
+ * <p/>
+ * <ol>
+ *     <li>
+ *         线程池的线程数与等待队列均有上限，队列已满时由调用线程直接执行该分片的查询，
+ *         故并发的跨分片查询再多也不会无限制地创建线程或堆积任务。
+ *     </li>
+ *     <li>
+ *         有排序规则时，各分片的结果已按相同规则排好序，使用k路归并合并：
+ *         以优先队列保存每个分片当前的首个元素，每次取出最小者，取满{@code maxRows}条即停止。
+ *     </li>
+ *     <li>
+ *         无排序规则时，按分片完成的先后依次追加结果，取满{@code maxRows}条后其余尚未开始的查询不再执行。
+ *     </li>
+ * </ol>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ScatterGather {
+    private static final ChildLogger logger = ChildLogger.of(ScatterGather.class);
+    /**
+     * 每个工作线程对应的等待队列长度
+     */
+    private static final int QUEUE_PER_THREAD = 4;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param parallelism 最多同时执行的分片查询数量
+     */
+    public ScatterGather(int parallelism) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private int sequence;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ChildShard-scatter-" + ++sequence);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(parallelism * QUEUE_PER_THREAD), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 并行执行各个分片的查询并合并结果。<br/>
+     * 任意分片失败时取消其余分片的查询，等待已经开始的查询结束后再抛出该分片的异常，
+     * 避免调用者关闭分片会话时工作线程仍在使用其连接。<br/>
+     *
+     * @param queries    各个分片的查询，下标即分片号
+     * @param comparator 排序规则，为null时不排序
+     * @param maxRows    最多返回的记录数，小于等于0时不限制
+     * @param <E>        元素类型
+     * @return {@link List} 合并后的结果
+     * @throws SQLException 分片查询抛出的异常
+     */
+    public <E> List<E> execute(List<Callable<List<E>>> queries, Comparator<? super E> comparator, int maxRows)
+            throws SQLException {
+        // 关闭后提交的任务会被拒绝策略直接丢弃，等待其结果将永远阻塞
+        if (executor.isShutdown()) {
+            throw new RuntimeException("跨分片查询的线程池已关闭");
+        }
+        CompletionService<List<E>> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<List<E>>, Integer> futures = new HashMap<>(queries.size() * 2);
+        AtomicBoolean satisfied = new AtomicBoolean();
+        InFlight inFlight = new InFlight();
+        boolean completed = false;
+        try {
+            for (int shard = 0; shard < queries.size(); shard++) {
+                Callable<List<E>> query = queries.get(shard);
+                futures.put(completionService.submit(() -> {
+                    // 已取满或已放弃时尚未开始的查询直接返回空结果
+                    if (satisfied.get() || !inFlight.enter()) {
+                        return Collections.<E>emptyList();
+                    }
+                    try {
+                        return query.call();
+                    } finally {
+                        inFlight.exit();
+                    }
+                }), shard);
+            }
+            List<E> result;
+            if (comparator == null) {
+                result = concat(completionService, queries.size(), maxRows, satisfied);
+            } else {
+                // 归并需要每个分片的首个元素，故等待所有分片完成
+                List<List<E>> parts = new ArrayList<>(Collections.nCopies(queries.size(), Collections.emptyList()));
+                for (int i = 0; i < queries.size(); i++) {
+                    Future<List<E>> future = completionService.take();
+                    parts.set(futures.get(future), future.get());
+                }
+                result = merge(parts, comparator, maxRows);
+            }
+            completed = true;
+            return result;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("跨分片查询失败", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("跨分片查询被中断");
+        } finally {
+            if (!completed) {
+                inFlight.abort();
+                for (Future<List<E>> future : futures.keySet()) {
+                    future.cancel(true);
+                }
+                // 被取消的Future立即返回，不代表查询已经结束，故单独等待已经开始的查询
+                inFlight.awaitIdle();
+            }
+        }
+    }
+
+    /**
+     * 按完成的先后追加结果。<br/>
+     * 取满后尚未开始的查询不再执行，但仍等待正在执行的查询结束，
+     * 避免其与调用线程同时使用同一个分片会话的连接。<br/>
+     */
+    private static <E> List<E> concat(CompletionService<List<E>> completionService, int count, int maxRows,
+                                      AtomicBoolean satisfied) throws InterruptedException, ExecutionException {
+        List<E> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<E> part = completionService.take().get();
+            if (satisfied.get()) {
+                continue;
+            }
+            for (E element : part) {
+                result.add(element);
+                if (maxRows > 0 && result.size() >= maxRows) {
+                    satisfied.set(true);
+                    int remaining = count - i - 1;
+                    logger.debug(() -> "已取满" + maxRows + "条记录，忽略其余" + remaining + "个分片的结果");
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * k路归并已排好序的各个分片结果。比较结果相同时，分片号小的在前，保证合并结果稳定。<br/>
+     *
+     * @param parts      各个分片的结果，均已按{@code comparator}排序
+     * @param comparator 排序规则
+     * @param maxRows    最多返回的记录数，小于等于0时不限制
+     * @param <E>        元素类型
+     * @return {@link List} 合并后的结果
+     */
+    public static <E> List<E> merge(List<List<E>> parts, Comparator<? super E> comparator, int maxRows) {
+        int total = 0;
+        for (List<E> part : parts) {
+            total += part.size();
+        }
+        int limit = maxRows > 0 ? Math.min(maxRows, total) : total;
+        List<E> result = new ArrayList<>(limit);
+
+        PriorityQueue<Cursor<E>> heads = new PriorityQueue<>(Math.max(parts.size(), 1), (left, right) -> {
+            int compared = comparator.compare(left.head(), right.head());
+            return compared != 0 ? compared : Integer.compare(left.shard, right.shard);
+        });
+        for (int shard = 0; shard < parts.size(); shard++) {
+            if (!parts.get(shard).isEmpty()) {
+                heads.add(new Cursor<>(shard, parts.get(shard)));
+            }
+        }
+        while (result.size() < limit) {
+            Cursor<E> cursor = heads.poll();
+            result.add(cursor.head());
+            if (++cursor.position < cursor.elements.size()) {
+                heads.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 关闭线程池，正在执行的查询不受影响。
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 线程池是否已关闭。<br/>
+     *
+     * @return boolean true为已关闭，之后的跨分片查询将抛出异常
+     */
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * 一次跨分片查询中正在执行的分片查询数量。放弃后不再有新的查询开始，可以等待已经开始的查询全部结束。
+     */
+    private static class InFlight {
+        private boolean aborted;
+        private int running;
+
+        /**
+         * @return boolean true为可以开始执行，false为已放弃
+         */
+        private synchronized boolean enter() {
+            if (aborted) {
+                return false;
+            }
+            running++;
+            return true;
+        }
+
+        private synchronized void exit() {
+            running--;
+            notifyAll();
+        }
+
+        private synchronized void abort() {
+            aborted = true;
+        }
+
+        /**
+         * 等待已经开始的查询全部结束，期间的中断在结束后恢复。
+         */
+        private synchronized void awaitIdle() {
+            boolean interrupted = false;
+            while (running > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 分片结果的游标
+     */
+    private static class Cursor<E> {
+        private final int shard;
+        private final List<E> elements;
+        private int position;
+
+        private Cursor(int shard, List<E> elements) {
+            this.shard = shard;
+            this.elements = elements;
+        }
+
+        private E head() {
+            return elements.get(position);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.child.util.orm.shard;
+
+/**
+ * 分片策略，根据分片键计算语句应路由到的分片。<br/>
+ * <p/>
+ * 实现类应该是无状态或线程安全的，同一个策略由工厂开启的所有会话共享。<br/>
+ * 内置了取模{@link ModuloShardStrategy}、范围{@link RangeShardStrategy}
+ * 与一致性哈希{@link ConsistentHashShardStrategy}三种策略。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public interface ShardStrategy {
+    /**
+     * 计算分片键所在的分片。<br/>
+     *
+     * @param shardKey   分片键的值，不为null
+     * @param shardCount 分片数量
+     * @return int 分片下标，范围为[0, shardCount)
+     */
+    int shard(Object shardKey, int shardCount);
+}
@@ -0,0 +1,304 @@
+package com.child.util.orm.shard;
+
+import com.child.util.ChildLogger;
+import com.child.util.orm.ExecutorType;
+import com.child.util.orm.SqlSession;
+import com.child.util.orm.SqlSessionFactory;
+import com.child.util.orm.TransactionIsolation;
+import com.child.util.orm.util.PropertyAccessor;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * 分片会话，根据参数中的分片键将每条语句路由到对应分片的会话中执行。<br/>
+ * <p/>
+ * <ol>
+ *     <li>
+ *         分片键从参数中读取：参数为数字或字符串时，只有语句的占位符只有{@code shardKey}时才是分片键本身，
+ *         例如{@code where id = #{id}}，否则视为不含分片键；其余参数读取名为{@code shardKey}的属性，
+ *         以{@code @Param}传参时即Map中的同名键。
+ *     </li>
+ *     <li>以集合为参数的DML将按分片键分组，每个分片只执行属于自己的元素。不含分片键的DML将抛出异常。</li>
+ *     <li>
+ *         不含分片键的查询将在各个分片上并行执行并合并结果。各分片会话的连接在调用线程上获取，
+ *         避免连接池将连接绑定到线程池的工作线程上。
+ *         语句含有{@code ORDER BY}时各分片的结果按排序规则归并，否则按分片完成的先后追加。
+ *     </li>
+ *     <li>
+ *         分页查询{@code selectList(sqlId, parameters, offset, limit)}向每个分片只取前{@code offset + limit}条记录，
+ *         合并后再跳过前{@code offset}条，以保证跨分片的排序与分页正确。
+ *     </li>
+ *     <li>
+ *         提交与回滚依次作用于已开启的各个分片会话，不是分布式事务：
+ *         若某个分片提交失败，之前已提交的分片不会回滚。
+ *     </li>
+ * </ol>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ShardedSqlSession implements SqlSession {
+    /**
+     * 各个分片的会话工厂
+     */
+    private final List<SqlSessionFactory> shardFactories;
+    /**
+     * 各个分片的会话，第一次路由到该分片时开启
+     */
+    private final SqlSession[] sessions;
+    private final String shardKey;
+    private final ShardStrategy shardStrategy;
+    private final ScatterGather scatterGather;
+    /**
+     * 各条查询语句的排序规则，K为全限定id
+     */
+    private final Map<String, OrderBy> orderings;
+    /**
+     * 只以分片键为占位符的语句的全限定id
+     */
+    private final Set<String> keyedStatements;
+    /**
+     * 开启各个分片会话时使用的会话选项
+     */
+    private final boolean autoCommit;
+    private final ExecutorType executorType;
+    private final TransactionIsolation isolation;
+    private final boolean readOnly;
+
+    public ShardedSqlSession(List<SqlSessionFactory> shardFactories, String shardKey, ShardStrategy shardStrategy,
+                             ScatterGather scatterGather, Map<String, OrderBy> orderings,
+                             Set<String> keyedStatements, boolean autoCommit, ExecutorType executorType,
+                             TransactionIsolation isolation, boolean readOnly) {
+        this.shardFactories = shardFactories;
+        this.sessions = new SqlSession[shardFactories.size()];
+        this.shardKey = shardKey;
+        this.shardStrategy = shardStrategy;
+        this.scatterGather = scatterGather;
+        this.orderings = orderings;
+        this.keyedStatements = keyedStatements;
+        this.autoCommit = autoCommit;
+        this.executorType = executorType;
+        this.isolation = isolation;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * 关闭所有已开启的分片会话，某个分片关闭失败时仍会关闭其余分片，最后抛出第一个异常。
+     */
+    @Override
+    public void close() throws SQLException {
+        SQLException failure = null;
+        for (SqlSession session : sessions) {
+            if (session != null) {
+                try {
+                    session.close();
+                } catch (SQLException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        for (SqlSession session : sessions) {
+            if (session != null) {
+                session.commit();
+            }
+        }
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        for (SqlSession session : sessions) {
+            if (session != null) {
+                session.rollback();
+            }
+        }
+    }
+
+    @Override
+    public int insert(String sqlId, Object parameters) throws SQLException {
+        return update(sqlId, parameters);
+    }
+
+    @Override
+    public int delete(String sqlId, Object parameters) throws SQLException {
+        return update(sqlId, parameters);
+    }
+
+    /**
+     * 将DML路由到分片键所在的分片执行。以集合为参数时，按各个元素的分片键分组后分别执行。<br/>
+     *
+     * @param sqlId      SQL语句的全限定id
+     * @param parameters 参数
+     * @return int 各分片受影响行数之和
+     * @throws SQLException 直接向上抛出
+     */
+    @Override
+    public int update(String sqlId, Object parameters) throws SQLException {
+        if (parameters instanceof Collection) {
+            // 按分片分组，保持各元素原有的次序
+            Map<Integer, List<Object>> groups = new TreeMap<>();
+            for (Object element : (Collection<?>) parameters) {
+                groups.computeIfAbsent(requireShard(sqlId, element), shard -> new ArrayList<>()).add(element);
+            }
+            int rowCount = 0;
+            for (Map.Entry<Integer, List<Object>> group : groups.entrySet()) {
+                rowCount += session(group.getKey()).update(sqlId, group.getValue());
+            }
+            return rowCount;
+        }
+        return session(requireShard(sqlId, parameters)).update(sqlId, parameters);
+    }
+
+    @Override
+    public <T> T selectOne(String sqlId, Object parameters) throws SQLException {
+        List<T> objects = selectList(sqlId, parameters);
+        if (objects.size() == 0) {
+            logger.debug(() -> "查询记录不存在");
+            return null;
+        } else if (objects.size() > 1) {
+            logger.info("查询记录不唯一");
+            throw new RuntimeException("查询记录不唯一");
+        }
+        return objects.get(0);
+    }
+
+    @Override
+    public <E> List<E> selectList(String sqlId, Object parameters) throws SQLException {
+        return selectList(sqlId, parameters, 0);
+    }
+
+    /**
+     * 含有分片键时只查询对应的分片，否则在所有分片上并行查询并合并结果。<br/>
+     *
+     * @param sqlId      SQL语句的全限定id
+     * @param parameters 参数
+     * @param maxRows    最多返回的记录数，小于等于0时不限制，跨分片查询时同样下推到每个分片
+     * @return {@link List} 查询结果
+     * @throws SQLException 直接向上抛出
+     */
+    @Override
+    public <E> List<E> selectList(String sqlId, Object parameters, int maxRows) throws SQLException {
+        Integer shard = shardOf(sqlId, parameters);
+        if (shard != null) {
+            return session(shard).selectList(sqlId, parameters, maxRows);
+        }
+        return scatter(sqlId, parameters, maxRows);
+    }
+
+    /**
+     * 分页查询，跳过前{@code offset}条记录后最多返回{@code limit}条。<br/>
+     * 每个分片最多返回{@code offset + limit}条记录，合并后再截取，故语句本身不应再含有{@code LIMIT}。<br/>
+     *
+     * @param sqlId      SQL语句的全限定id
+     * @param parameters 参数
+     * @param offset     跳过的记录数
+     * @param limit      最多返回的记录数
+     * @return {@link List} 查询结果
+     * @throws SQLException 直接向上抛出
+     */
+    public <E> List<E> selectList(String sqlId, Object parameters, int offset, int limit) throws SQLException {
+        if (offset < 0 || limit < 1) {
+            throw new RuntimeException("分页参数不合法，offset:" + offset + "，limit:" + limit);
+        }
+        List<E> rows = selectList(sqlId, parameters, offset + limit);
+        if (offset >= rows.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(rows.subList(offset, rows.size()));
+    }
+
+    /**
+     * 在所有分片上并行执行查询，由{@link ScatterGather}合并结果。<br/>
+     * 任意分片失败时取消其余分片的查询，并抛出该分片的异常。
+     */
+    private <E> List<E> scatter(String sqlId, Object parameters, int maxRows) throws SQLException {
+        List<Callable<List<E>>> queries = new ArrayList<>(sessions.length);
+        for (int shard = 0; shard < sessions.length; shard++) {
+            SqlSession session = session(shard);
+            // 会话持有连接时在调用线程上获取，工作线程只使用会话中已持有的连接；
+            // 自动提交且不复用语句时连接在每条语句后归还，由工作线程自行获取与归还
+            if (!autoCommit || executorType == ExecutorType.REUSE) {
+                session.openConnection();
+            }
+            queries.add(() -> session.<E>selectList(sqlId, parameters, maxRows));
+        }
+        OrderBy orderBy = orderings.get(sqlId);
+        List<E> result = scatterGather.execute(queries, orderBy == null ? null : orderBy.toComparator(), maxRows);
+        logger.debug(() -> "跨分片查询成功:" + sqlId + (orderBy == null ? "" : "，" + orderBy));
+        return result;
+    }
+
+    /**
+     * 打开所有分片的连接。
+     */
+    @Override
+    public void openConnection() throws SQLException {
+        for (int shard = 0; shard < sessions.length; shard++) {
+            session(shard).openConnection();
+        }
+    }
+
+    /**
+     * 获取指定分片的会话，第一次使用时开启。
+     */
+    private SqlSession session(int shard) {
+        SqlSession session = sessions[shard];
+        if (session == null) {
+            session = shardFactories.get(shard).openSession(autoCommit, executorType, isolation, readOnly);
+            sessions[shard] = session;
+        }
+        return session;
+    }
+
+    /**
+     * 计算参数所在的分片。<br/>
+     *
+     * @param sqlId      SQL语句的全限定id
+     * @param parameters 参数
+     * @return Integer 分片号，参数中不含分片键时返回null
+     */
+    private Integer shardOf(String sqlId, Object parameters) {
+        Object value = shardKeyOf(sqlId, parameters);
+        return value == null ? null : shardStrategy.shard(value, sessions.length);
+    }
+
+    private int requireShard(String sqlId, Object parameters) {
+        Integer shard = shardOf(sqlId, parameters);
+        if (shard == null) {
+            throw new RuntimeException("DML语句缺少分片键" + shardKey + ":" + sqlId);
+        }
+        return shard;
+    }
+
+    /**
+     * 读取分片键的值。参数为数字或字符串时，只有语句的占位符只有分片键时才是分片键本身，
+     * 否则例如按name查询时，参数不是分片键，不能据此路由。
+     */
+    private Object shardKeyOf(String sqlId, Object parameters) {
+        if (parameters == null) {
+            return null;
+        }
+        if (parameters instanceof Number || parameters instanceof CharSequence) {
+            return keyedStatements.contains(sqlId) ? parameters : null;
+        }
+        if (parameters instanceof Collection) {
+            return null;
+        }
+        return PropertyAccessor.getProperty(parameters, shardKey);
+    }
+
+    private static final ChildLogger logger = ChildLogger.of(ShardedSqlSession.class);
+}
@@ -0,0 +1,229 @@
+package com.child.util.orm.shard;
+
+import com.child.util.ChildLogger;
+import com.child.util.metrics.StatementMetrics;
+import com.child.util.orm.ExecutorType;
+import com.child.util.orm.SimpleSqlSessionFactory;
+import com.child.util.orm.SqlSession;
+import com.child.util.orm.SqlSessionFactory;
+import com.child.util.orm.TransactionIsolation;
+import com.child.util.orm.bean.MetaMapperStatement;
+
+import javax.sql.DataSource;
+import java.util.*;
+
+/**
+ * 分片的会话工厂，将同一张逻辑表的数据按分片键分布到多个数据库中。<br/>
+ * <p/>
+ * <ol>
+ *     <li>每个分片持有一个独立的连接池，并由一个{@link SimpleSqlSessionFactory}管理，各分片共享SQL映射集合与执行指标。</li>
+ *     <li>
+ *         开启的会话{@link ShardedSqlSession}从参数中读取分片键{@code shardKey}，
+ *         再由分片策略{@link ShardStrategy}计算语句应路由到的分片。
+ *     </li>
+ *     <li>
+ *         不含分片键的查询将并行发往所有分片，并发度受限于工厂持有的有界线程池{@link ScatterGather}。
+ *         语句含有{@code ORDER BY}时，各分片的结果按相同规则归并，详见{@link OrderBy}。
+ *     </li>
+ * </ol>
+ * 工厂类与{@link SimpleSqlSessionFactory}相同，应作为应用域对象。
+ * 不再使用时调用{@code close()}，关闭跨分片查询的线程池与各分片的连接池。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ShardedSqlSessionFactory implements SqlSessionFactory, AutoCloseable {
+    /**
+     * 各个分片的连接池，下标即分片号
+     */
+    private final List<DataSource> dataSources;
+    /**
+     * 各个分片的会话工厂，下标即分片号
+     */
+    private final List<SqlSessionFactory> shardFactories;
+    /**
+     * 分片键，即参数中的属性名，例如{@code id}
+     */
+    private final String shardKey;
+    /**
+     * 分片策略
+     */
+    private final ShardStrategy shardStrategy;
+    /**
+     * 各个分片共享的SQL执行指标
+     */
+    private final StatementMetrics statementMetrics;
+    /**
+     * 用于并行执行跨分片查询的执行器
+     */
+    private final ScatterGather scatterGather;
+    /**
+     * 各条查询语句的排序规则，K为全限定id，只包含含有排序规则的语句
+     */
+    private final Map<String, OrderBy> orderings;
+    /**
+     * 只以分片键为占位符的语句的全限定id，这些语句以数字或字符串为参数时，参数即分片键
+     */
+    private final Set<String> keyedStatements;
+
+    /**
+     * @param dataSources   各个分片的连接池，下标即分片号
+     * @param statementMap  SQL映射集合
+     * @param shardKey      分片键，即参数中的属性名
+     * @param shardStrategy 分片策略
+     */
+    public ShardedSqlSessionFactory(List<? extends DataSource> dataSources,
+                                    Map<String, MetaMapperStatement> statementMap,
+                                    String shardKey, ShardStrategy shardStrategy) {
+        this(dataSources, statementMap, shardKey, shardStrategy, dataSources.size());
+    }
+
+    /**
+     * @param dataSources         各个分片的连接池，下标即分片号
+     * @param statementMap        SQL映射集合
+     * @param shardKey            分片键，即参数中的属性名
+     * @param shardStrategy       分片策略
+     * @param scatterParallelism  最多同时执行的跨分片查询数量，超出时由调用线程执行
+     */
+    public ShardedSqlSessionFactory(List<? extends DataSource> dataSources,
+                                    Map<String, MetaMapperStatement> statementMap,
+                                    String shardKey, ShardStrategy shardStrategy, int scatterParallelism) {
+        if (dataSources.isEmpty()) {
+            throw new RuntimeException("分片数量不能为0");
+        }
+        if (scatterParallelism < 1) {
+            throw new RuntimeException("跨分片查询的并发数必须大于0:" + scatterParallelism);
+        }
+        this.dataSources = new ArrayList<>(dataSources);
+        this.shardKey = shardKey;
+        this.shardStrategy = shardStrategy;
+        this.statementMetrics = new StatementMetrics();
+        List<SqlSessionFactory> factories = new ArrayList<>(dataSources.size());
+        for (DataSource dataSource : dataSources) {
+            factories.add(new SimpleSqlSessionFactory(dataSource, statementMap, statementMetrics));
+        }
+        this.shardFactories = Collections.unmodifiableList(factories);
+        this.scatterGather = new ScatterGather(scatterParallelism);
+        this.orderings = parseOrderings(statementMap);
+        this.keyedStatements = parseKeyedStatements(statementMap, shardKey);
+        logger.info("分片会话工厂初始化完毕，分片数量:" + dataSources.size() + "，分片键:" + shardKey
+                + "，跨分片查询并发数:" + scatterParallelism);
+    }
+
+    /**
+     * 解析各条查询语句的排序规则。动态SQL的最终语句在执行时才确定，故不参与解析，跨分片查询时按分片号依次合并。
+     */
+    private static Map<String, OrderBy> parseOrderings(Map<String, MetaMapperStatement> statementMap) {
+        Map<String, OrderBy> orderings = new HashMap<>();
+        for (Map.Entry<String, MetaMapperStatement> entry : statementMap.entrySet()) {
+            MetaMapperStatement statement = entry.getValue();
+            if (SELECT.equals(statement.getSqlType()) && !statement.isDynamic()) {
+                OrderBy orderBy = OrderBy.parse(statement.getSqlTemplate().getJdbcSql());
+                if (!orderBy.isEmpty()) {
+                    orderings.put(entry.getKey(), orderBy);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(orderings);
+    }
+
+    /**
+     * 找出只以分片键为占位符的语句。动态SQL的占位符在执行时才确定，故不包含在内。
+     */
+    private static Set<String> parseKeyedStatements(Map<String, MetaMapperStatement> statementMap,
+                                                    String shardKey) {
+        Set<String> keyedStatements = new HashSet<>();
+        for (Map.Entry<String, MetaMapperStatement> entry : statementMap.entrySet()) {
+            MetaMapperStatement statement = entry.getValue();
+            if (statement.isDynamic()) {
+                continue;
+            }
+            List<String> parameterNames = statement.getSqlTemplate().getParameterNames();
+            if (!parameterNames.isEmpty() && new HashSet<>(parameterNames).equals(Collections.singleton(shardKey))) {
+                keyedStatements.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(keyedStatements);
+    }
+
+    @Override
+    public SqlSession openSession() {
+        return openSession(false);
+    }
+
+    /**
+     * 开启分片会话，各个分片的会话在第一次路由到该分片时才开启。<br/>
+     *
+     * @param autoCommit 提交事务的方式，true为自动提交，false为手动提交。
+     * @return {@link SqlSession} 实际上是{@link ShardedSqlSession}
+     */
+    @Override
+    public SqlSession openSession(boolean autoCommit) {
+        return openSession(autoCommit, ExecutorType.SIMPLE, TransactionIsolation.DEFAULT, false);
+    }
+
+    /**
+     * 开启分片会话，各个分片的会话均按指定的会话选项开启。<br/>
+     *
+     * @param autoCommit   提交事务的方式，true为自动提交，false为手动提交。
+     * @param executorType 执行SQL语句的方式
+     * @param isolation    事务隔离级别
+     * @param readOnly     是否只读
+     * @return {@link SqlSession} 实际上是{@link ShardedSqlSession}
+     */
+    @Override
+    public SqlSession openSession(boolean autoCommit, ExecutorType executorType, TransactionIsolation isolation,
+                                  boolean readOnly) {
+        SqlSession sqlSession = new ShardedSqlSession(shardFactories, shardKey, shardStrategy, scatterGather,
+                orderings, keyedStatements, autoCommit, executorType, isolation, readOnly);
+        logger.debug(() -> "开启分片会话成功");
+        return sqlSession;
+    }
+
+    public int getShardCount() {
+        return shardFactories.size();
+    }
+
+    /**
+     * 获取各个分片共享的SQL执行指标。
+     * @return {@link StatementMetrics}
+     */
+    public StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
+    /**
+     * 关闭工厂。<br/>
+     * <p/>
+     * 先关闭跨分片查询的线程池，正在执行的查询不受影响；再依次关闭各分片中实现了{@link AutoCloseable}的连接池，
+     * 某个连接池关闭失败时仍会关闭其余的连接池，最后抛出第一个异常。
+     * 关闭后开启的会话执行跨分片查询将抛出异常。<br/>
+     */
+    @Override
+    public void close() {
+        scatterGather.shutdown();
+        RuntimeException failure = null;
+        for (DataSource dataSource : dataSources) {
+            if (!(dataSource instanceof AutoCloseable)) {
+                continue;
+            }
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new RuntimeException("关闭分片连接池失败", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        logger.info("分片会话工厂已关闭");
+    }
+
+    private static final String SELECT = "select";
+    private static final ChildLogger logger = ChildLogger.of(ShardedSqlSessionFactory.class);
+}
@@ -9,6 +9,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.Proxy;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,46 @@ public class DaoImplFactory implements InvocationHandler {
      */
     private Class<?> clazz;
 
+    /**
+     * 数据库连接池配置文件的全限定类名，为null时使用默认的数据库环境
+     */
+    private final String resource;
+
+    /**
+     * 是否以自动提交的方式执行，为true时每次调用都在独立的会话中执行，调用结束后关闭会话
+     */
+    private final boolean autoCommit;
+
+    /**
+     * 创建使用默认数据库环境的代理工厂。
+     */
+    public DaoImplFactory() {
+        this(null);
+    }
+
+    /**
+     * 创建使用指定数据库环境的代理工厂。<br/>
+     *
+     * @param resource 数据库连接池配置文件的全限定类名
+     */
+    public DaoImplFactory(String resource) {
+        this(resource, false);
+    }
+
+    /**
+     * 创建使用指定数据库环境与提交方式的代理工厂。<br/>
+     * <p/>
+     * 手动提交时会话不会被关闭，由调用方在同一线程上开启的会话提交或回滚；
+     * 自动提交时每次调用都在独立的会话中执行，语句执行完立即生效，调用结束后关闭会话并归还连接。<br/>
+     *
+     * @param resource   数据库连接池配置文件的全限定类名，为null时使用默认的数据库环境
+     * @param autoCommit 提交事务的方式，true为自动提交，false为手动提交
+     */
+    public DaoImplFactory(String resource, boolean autoCommit) {
+        this.resource = resource;
+        this.autoCommit = autoCommit;
+    }
+
     /**
      * 获取对应DAO接口的实现类的代理类。<br/>
      * <p/>
@@ -55,9 +96,18 @@ public class DaoImplFactory implements InvocationHandler {
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         /*准备会话类相关配置*/
-        SqlSession sqlSession = SimpleSqlSessionUtil.openSession();
-
+        if (!autoCommit) {
+            SqlSession sqlSession = resource == null
+                    ? SimpleSqlSessionUtil.openSession() : SimpleSqlSessionUtil.openSession(resource);
+            return execute(sqlSession, method, args);
+        }
+        try (SqlSession sqlSession = resource == null
+                ? SimpleSqlSessionUtil.openSession(true) : SimpleSqlSessionUtil.openSession(resource, true)) {
+            return execute(sqlSession, method, args);
+        }
+    }
 
+    private Object execute(SqlSession sqlSession, Method method, Object[] args) throws SQLException {
         /*开始进行多参数转化为单参数过程*/
 
         // 用于存储原Map集合元素或者被注解修饰的参数。
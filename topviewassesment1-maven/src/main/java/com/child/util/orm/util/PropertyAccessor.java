@@ -0,0 +1,316 @@
+package com.child.util.orm.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 读取对象属性的工具类，用于为占位符取值以及计算动态SQL中的条件表达式。<br/>
+ * <p/>
+ * 每个类的属性读取方法在第一次使用时通过反射查找，之后缓存在{@link ClassValue}中，
+ * 再次读取时仅是一次Map查询和一次方法调用，不再逐次调用{@code getDeclaredMethod()}。<br/>
+ * 属性按以下顺序查找：
+ * <ol>
+ *     <li>get方法，例如{@code getName()}</li>
+ *     <li>boolean类型的is方法，例如{@code isEnabled()}</li>
+ *     <li>与属性同名的无参方法，例如集合的{@code size()}</li>
+ *     <li>同名字段</li>
+ * </ol>
+ * 若对象为{@link Map}，则直接以属性名为键取值。<br/>
+ * <p/>
+ * 写入属性时依次查找set方法与同名字段，同样按类缓存。写入的值为数字时，将转换为属性声明的数字类型，
+ * 例如数据库生成的{@code BigInteger}主键写入{@code Long}类型的id。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class PropertyAccessor {
+    /**
+     * 每个类的属性读取器，K为属性名
+     */
+    private static final ClassValue<Map<String, Getter>> GETTERS = new ClassValue<Map<String, Getter>>() {
+        @Override
+        protected Map<String, Getter> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * 每个类的属性写入器，K为属性名
+     */
+    private static final ClassValue<Map<String, Setter>> SETTERS = new ClassValue<Map<String, Setter>>() {
+        @Override
+        protected Map<String, Setter> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private PropertyAccessor() {
+    }
+
+    /**
+     * 读取对象的属性值。<br/>
+     *
+     * @param target 对象，为null时返回null
+     * @param name   属性名
+     * @return Object 属性值
+     */
+    @SuppressWarnings("rawtypes")
+    public static Object getProperty(Object target, String name) {
+        if (target == null) {
+            return null;
+        }
+        if (target instanceof Map) {
+            return ((Map) target).get(name);
+        }
+        Map<String, Getter> getters = GETTERS.get(target.getClass());
+        Getter getter = getters.get(name);
+        if (getter == null) {
+            getter = getters.computeIfAbsent(name, key -> findGetter(target.getClass(), key));
+        }
+        return getter.get(target);
+    }
+
+    /**
+     * 按路径依次读取属性值，例如{@code user.address.city}。<br/>
+     * 路径中任意一级为null时返回null。<br/>
+     *
+     * @param target   对象
+     * @param segments 按"."分割后的属性路径
+     * @return Object 属性值
+     */
+    public static Object getPath(Object target, String[] segments) {
+        Object value = target;
+        for (String segment : segments) {
+            if (value == null) {
+                return null;
+            }
+            value = getProperty(value, segment);
+        }
+        return value;
+    }
+
+    /**
+     * 判断参数是否为单个的简单类型值，例如数字与字符串。
+     * 这样的参数本身就是占位符的值，不再从中读取属性。<br/>
+     *
+     * @param value 参数
+     * @return boolean true为简单类型值
+     */
+    public static boolean isSimpleValue(Object value) {
+        return value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Date || value instanceof Enum
+                || value instanceof BigDecimal || value instanceof BigInteger
+                || value instanceof java.time.temporal.Temporal;
+    }
+
+    /**
+     * 写入对象的属性值。<br/>
+     *
+     * @param target 对象，不能为null
+     * @param name   属性名
+     * @param value  属性值
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static void setProperty(Object target, String name, Object value) {
+        if (target instanceof Map) {
+            ((Map) target).put(name, value);
+            return;
+        }
+        Map<String, Setter> setters = SETTERS.get(target.getClass());
+        Setter setter = setters.get(name);
+        if (setter == null) {
+            setter = setters.computeIfAbsent(name, key -> findSetter(target.getClass(), key));
+        }
+        setter.set(target, value);
+    }
+
+    /**
+     * 按路径写入属性值，路径中除最后一级外的各级均不能为null。<br/>
+     *
+     * @param target   对象
+     * @param segments 按"."分割后的属性路径
+     * @param value    属性值
+     */
+    public static void setPath(Object target, String[] segments, Object value) {
+        Object owner = getPath(target, Arrays.copyOf(segments, segments.length - 1));
+        if (owner == null) {
+            throw new RuntimeException("无法写入属性，路径中存在null:" + String.join(".", segments));
+        }
+        setProperty(owner, segments[segments.length - 1], value);
+    }
+
+    private static Getter findGetter(Class<?> type, String name) {
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Method method = findMethod(type, "get" + capitalized);
+        if (method == null) {
+            method = findMethod(type, "is" + capitalized);
+        }
+        if (method == null) {
+            method = findMethod(type, name);
+        }
+        if (method != null) {
+            Method getter = method;
+            return target -> {
+                try {
+                    return getter.invoke(target);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException("反射调用方法出错:" + getter + "\n" + e.getMessage());
+                }
+            };
+        }
+        Field field = findField(type, name);
+        if (field != null) {
+            return target -> {
+                try {
+                    return field.get(target);
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException("读取字段出错:" + field + "\n" + e.getMessage());
+                }
+            };
+        }
+        throw new RuntimeException("找不到属性" + name + "的读取方法:" + type.getName());
+    }
+
+    private static Setter findSetter(Class<?> type, String name) {
+        String methodName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getName().equals(methodName) && method.getParameterCount() == 1
+                        && !Modifier.isStatic(method.getModifiers())) {
+                    method.setAccessible(true);
+                    Class<?> parameterType = method.getParameterTypes()[0];
+                    return (target, value) -> {
+                        try {
+                            method.invoke(target, convert(value, parameterType));
+                        } catch (IllegalAccessException | InvocationTargetException e) {
+                            throw new RuntimeException("反射调用方法出错:" + method + "\n" + e.getMessage());
+                        }
+                    };
+                }
+            }
+        }
+        Field field = findField(type, name);
+        if (field != null && !Modifier.isFinal(field.getModifiers())) {
+            return (target, value) -> {
+                try {
+                    field.set(target, convert(value, field.getType()));
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException("写入字段出错:" + field + "\n" + e.getMessage());
+                }
+            };
+        }
+        throw new RuntimeException("找不到属性" + name + "的写入方法:" + type.getName());
+    }
+
+    /**
+     * 将值转换为属性声明的类型，仅处理数字之间以及转为字符串的转换，其余情况原样返回。
+     */
+    static Object convert(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (type == Long.class || type == long.class) {
+                return number.longValue();
+            } else if (type == Integer.class || type == int.class) {
+                return number.intValue();
+            } else if (type == Short.class || type == short.class) {
+                return number.shortValue();
+            } else if (type == BigInteger.class) {
+                return new BigDecimal(number.toString()).toBigInteger();
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(number.toString());
+            } else if (type == Double.class || type == double.class) {
+                return number.doubleValue();
+            }
+        }
+        if (type == String.class) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * 查找无参方法，优先查找公开方法（包括继承的方法），其次查找本类声明的方法。
+     */
+    private static Method findMethod(Class<?> type, String name) {
+        Method method;
+        try {
+            method = type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            try {
+                method = type.getDeclaredMethod(name);
+            } catch (NoSuchMethodException ex) {
+                return null;
+            }
+        }
+        if (method.getReturnType() == void.class || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        // 非公开类的公开方法同样需要设置为可访问，例如集合的内部实现类
+        if (!Modifier.isPublic(method.getModifiers())
+                || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            try {
+                method.setAccessible(true);
+            } catch (RuntimeException e) {
+                method = findPublicMethod(type, name);
+            }
+        }
+        return method;
+    }
+
+    /**
+     * 在公开的接口中查找方法，用于无法设置为可访问的jdk内部类。
+     */
+    private static Method findPublicMethod(Class<?> type, String name) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Class<?> anInterface : current.getInterfaces()) {
+                if (Modifier.isPublic(anInterface.getModifiers())) {
+                    try {
+                        return anInterface.getMethod(name);
+                    } catch (NoSuchMethodException ignored) {
+                        // 继续查找下一个接口
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException ignored) {
+                // 继续在父类中查找
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 属性读取器
+     */
+    private interface Getter {
+        Object get(Object target);
+    }
+
+    /**
+     * 属性写入器
+     */
+    private interface Setter {
+        void set(Object target, Object value);
+    }
+}
@@ -2,17 +2,30 @@ package com.child.util.orm.util;
 
 import com.child.util.ChildDataSource;
 import com.child.util.ChildLogger;
+import com.child.util.RoutingDataSource;
+import com.child.util.metrics.StatementMetrics;
 import com.child.util.orm.SimpleSqlSessionFactory;
 import com.child.util.orm.SqlSession;
 import com.child.util.orm.SqlSessionFactory;
 import com.child.util.orm.bean.MetaMapperStatement;
+import com.child.util.orm.bean.MultiRowInsert;
+import com.child.util.orm.shard.ShardStrategy;
+import com.child.util.orm.shard.ShardedSqlSessionFactory;
+import com.child.util.xml.ClasspathMapperScanner;
+import com.child.util.xml.MapperIndex;
+import com.child.util.xml.MapperResource;
+import com.child.util.xml.MapperWatcher;
 import com.child.util.xml.ParseXmlUtils;
 
 import javax.sql.DataSource;
 import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * orm的工具类。<br/>
@@ -26,6 +39,7 @@ import java.util.logging.Logger;
  *         特别是对于mapper.xml的路径位置，也会在config.xml文件声明。但是对于简易的orm来说，此处并没有config.cml文件，
  *         故所有的mapper.xml文件默认放在dao包之下，在{@code build()}方法内，将对dao包下的mapper.xml进行解析，
  *         并将解析得到的SQL映射存放到Mao集合中，最后传给每一个Factory实例中。
+ *         其中dao包下的mapper.xml仅在第一次{@code build()}时解析一次，之后所有Factory实例共享同一个SQL映射集合。
  *     </li>
  *     <li>
  *         第三，如果不是特殊要求的话，
@@ -41,33 +55,161 @@ import java.util.logging.Logger;
 public class SimpleSqlSessionUtil {
     /**
      * 该集合中保存了所有已存在的SqlSessionFactory实例。对于每一个工厂类应该都是保存不同数据的实例。<br/>
-     * Key为对应数据库连接池配置文件的全限定类名，Value是根据数据库连接池创建的工厂类。<br/>
+     * Key为对应数据库连接池配置文件的全限定类名，Value为创建中或已创建完成的工厂类。<br/>
+     * 以Future占位保证同一配置文件只创建一次工厂类，并发的首次访问等待同一个创建结果，
+     * 而不是各自创建连接池后只保留其中一个，详见{@code getSqlSessionFactory()}。<br/>
      */
-    private static final Map<String, SqlSessionFactory> SQL_SESSION_FACTORY_MAP = new HashMap<>();
+    private static final ConcurrentMap<String, CompletableFuture<SqlSessionFactory>> SQL_SESSION_FACTORY_MAP =
+            new ConcurrentHashMap<>();
 
     /**
-     * 根据配置文件创建一个{@code SqlSessionFactory}实例。<br/>
+     * 获取配置文件对应的工厂类，不存在时创建并放入{@code SQL_SESSION_FACTORY_MAP}中。<br/>
      * <p/>
+     * 多个线程同时首次访问时，只有放入占位Future的线程执行创建，其余线程等待其结果，
+     * 创建工厂类的耗时操作不在任何锁内进行。创建失败时移除占位，之后的访问将重新尝试创建。<br/>
+     *
+     * @param resource 对应数据库连接池配置文件的全限定类名
+     * @return {@link SqlSessionFactory}
+     */
+    public static SqlSessionFactory getSqlSessionFactory(String resource) {
+        CompletableFuture<SqlSessionFactory> future = SQL_SESSION_FACTORY_MAP.get(resource);
+        if (future == null) {
+            CompletableFuture<SqlSessionFactory> created = new CompletableFuture<>();
+            future = SQL_SESSION_FACTORY_MAP.putIfAbsent(resource, created);
+            if (future == null) {
+                // 当前线程抢到了创建权
+                try {
+                    created.complete(create(resource));
+                } catch (RuntimeException | Error e) {
+                    SQL_SESSION_FACTORY_MAP.remove(resource, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+                return created.join();
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * 根据配置文件创建一个{@code SqlSessionFactory}实例，并替换{@code SQL_SESSION_FACTORY_MAP}中已有的工厂类。<br/>
+     * <p/>
+     * 只需获取工厂类时应使用{@code getSqlSessionFactory()}，该方法每次调用都会创建新的连接池。
+     * 被替换的工厂类将被关闭以释放其连接池，仍在创建中的工厂类在创建完成后关闭，
+     * 因此不应继续使用之前获取到的该配置文件的工厂类。<br/>
      *
      * @param resource 对应数据库连接池配置文件的全限定类名
      * @return {@link SqlSessionFactory} 返回一个含有对应配置信息的工厂类
      */
     public static SqlSessionFactory build(String resource) {
+        SqlSessionFactory sqlSessionFactory = create(resource);
+        // 将工厂类放入sqlSessionFactoryMap集合中统一管理
+        CompletableFuture<SqlSessionFactory> replaced =
+                SQL_SESSION_FACTORY_MAP.put(resource, CompletableFuture.completedFuture(sqlSessionFactory));
+        if (replaced != null) {
+            // 创建失败的Future不会执行回调，此时也没有需要关闭的连接池
+            replaced.thenAccept(SimpleSqlSessionUtil::closeReplaced);
+        }
+        return sqlSessionFactory;
+    }
+
+    /**
+     * 关闭被{@code build()}替换的工厂类，关闭失败时只记录日志，不影响新工厂类的使用。<br/>
+     *
+     * @param sqlSessionFactory 被替换的工厂类
+     */
+    private static void closeReplaced(SqlSessionFactory sqlSessionFactory) {
+        if (!(sqlSessionFactory instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) sqlSessionFactory).close();
+        } catch (Exception e) {
+            logger.warn("关闭被替换的会话工厂失败", e);
+        }
+    }
+
+    /**
+     * 根据配置文件创建一个{@code SqlSessionFactory}实例，不放入{@code SQL_SESSION_FACTORY_MAP}中。<br/>
+     *
+     * @param resource 对应数据库连接池配置文件的全限定类名
+     * @return {@link SqlSessionFactory}
+     */
+    private static SqlSessionFactory create(String resource) {
         // 根据配置文件的全限定类名来创建数据库资源
         DataSource childDataSource = ChildDataSource.creatDataSource(resource);
-        // 对mapper.xml进行解析，并接收原生SQL映射对象集合
-        Map<String, MetaMapperStatement> mapperStatementMap = getStatementMapperFromPackage(PACKAGE_NAME);
+        // 获取所有工厂类共享的SQL映射集合，仅在第一次创建工厂类时解析mapper.xml
+        Map<String, MetaMapperStatement> mapperStatementMap = StatementRegistryHolder.STATEMENT_MAP;
+        // 读取慢查询阈值，未配置时使用默认值
+        ResourceBundle resourceBundle = ResourceBundle.getBundle(resource);
+        // 配置了从库时，以该配置文件的连接池为主库，创建读写分离的数据源
+        if (resourceBundle.containsKey(REPLICAS)) {
+            childDataSource = createRoutingDataSource(childDataSource, resourceBundle);
+        }
+        long slowQueryThreshold = resourceBundle.containsKey(SLOW_QUERY_THRESHOLD)
+                ? Long.parseLong(resourceBundle.getString(SLOW_QUERY_THRESHOLD).trim())
+                : StatementMetrics.DEFAULT_SLOW_QUERY_THRESHOLD;
+
+        // 读取数据库的max_allowed_packet，用于多行插入时分块
+        long maxAllowedPacket = resourceBundle.containsKey(MAX_ALLOWED_PACKET)
+                ? Long.parseLong(resourceBundle.getString(MAX_ALLOWED_PACKET).trim())
+                : MultiRowInsert.DEFAULT_MAX_ALLOWED_PACKET;
 
         // 创建工厂类
-        SqlSessionFactory simpleSqlSessionFactory =
-                new SimpleSqlSessionFactory(childDataSource, mapperStatementMap);
-        // 将工厂类放入sqlSessionFactoryMap集合中统一管理
-        SQL_SESSION_FACTORY_MAP.put(resource, simpleSqlSessionFactory);
+        SqlSessionFactory simpleSqlSessionFactory = new SimpleSqlSessionFactory(childDataSource,
+                mapperStatementMap, new StatementMetrics(slowQueryThreshold), maxAllowedPacket);
         logger.info("创建会话工厂成功");
         // 返回一个工厂类
         return simpleSqlSessionFactory;
     }
 
+    /**
+     * 根据多个连接池配置文件创建分片的会话工厂，每个配置文件对应一个分片。<br/>
+     * <p/>
+     * 分片工厂不放入{@code SQL_SESSION_FACTORY_MAP}中，调用者应自行持有并作为应用域对象，
+     * 不再使用时调用{@link ShardedSqlSessionFactory#close()}关闭此处创建的各个连接池。<br/>
+     *
+     * @param resources     各个分片的连接池配置文件，下标即分片号
+     * @param shardKey      分片键，即参数中的属性名
+     * @param shardStrategy 分片策略
+     * @return {@link ShardedSqlSessionFactory}
+     */
+    public static ShardedSqlSessionFactory buildSharded(List<String> resources, String shardKey,
+                                                        ShardStrategy shardStrategy) {
+        List<DataSource> dataSources = new ArrayList<>(resources.size());
+        for (String resource : resources) {
+            dataSources.add(ChildDataSource.creatDataSource(resource));
+        }
+        return new ShardedSqlSessionFactory(dataSources, StatementRegistryHolder.STATEMENT_MAP, shardKey,
+                shardStrategy);
+    }
+
+    /**
+     * 创建读写分离的数据源，每个从库同样以一个连接池配置文件描述。<br/>
+     *
+     * @param primary        主库连接池
+     * @param resourceBundle 主库的配置，其中{@code REPLICAS}为以","分隔的从库配置文件，
+     *                       {@code LOAD_BALANCE}为从库的负载均衡策略，默认为轮询
+     * @return {@link RoutingDataSource}
+     */
+    private static RoutingDataSource createRoutingDataSource(DataSource primary, ResourceBundle resourceBundle) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String replica : resourceBundle.getString(REPLICAS).split(",")) {
+            if (!replica.trim().isEmpty()) {
+                replicas.add(ChildDataSource.creatDataSource(replica.trim()));
+            }
+        }
+        RoutingDataSource.LoadBalance loadBalance = resourceBundle.containsKey(LOAD_BALANCE)
+                ? RoutingDataSource.LoadBalance.of(resourceBundle.getString(LOAD_BALANCE))
+                : RoutingDataSource.LoadBalance.ROUND_ROBIN;
+        return new RoutingDataSource(primary, replicas, loadBalance);
+    }
+
     /**
      * 开启带有默认数据库环境{@code DEFAULT_DATASOURCE_ENVIRONMENT}的{@link SqlSession}实例，
      * 并默认手动提交事务。<br/>
@@ -79,6 +221,17 @@ public class SimpleSqlSessionUtil {
         return openSession(DEFAULT_DATASOURCE_ENVIRONMENT, false);
     }
 
+    /**
+     * 开启带有默认数据库环境{@code DEFAULT_DATASOURCE_ENVIRONMENT}的{@link SqlSession}实例。<br/>
+     *
+     * @param autoCommit 提交事务的方式，true为自动提交，false为手动提交
+     * @return {@link SqlSession}
+     * @throws SQLException sqlexception异常，直接向上抛出
+     */
+    public static SqlSession openSession(boolean autoCommit) throws SQLException {
+        return openSession(DEFAULT_DATASOURCE_ENVIRONMENT, autoCommit);
+    }
+
     /**
      * 通过指定数据库连接资源的全限定类名来得到对应的{@link SqlSession}，默认事务提交方式为手动提交。<br/>
      * <p/>
@@ -94,45 +247,41 @@ public class SimpleSqlSessionUtil {
     /**
      * 通过指定数据库连接资源的全限定类名来得到对应的{@link SqlSession}。<br/>
      * <p/>
-     * 注意该方法将会自动开启会话类中对数据库的连接。<br/>
+     * 会话不会立即占用连接，第一次执行语句时才从连接池中获取。<br/>
      * @param resource   resource 数据库连接资源的全限定类名
      * @param autoCommit 提交事务的方式，true为自动提交，false为手动提交
      * @return {@link SqlSession}
      * @throws SQLException sqlexception异常，直接向上抛出
      */
     public static SqlSession openSession(String resource, boolean autoCommit) throws SQLException {
-        // 尝试从sqlSessionFactoryMap集合中获取工厂类
-        SqlSessionFactory sqlSessionFactory = SQL_SESSION_FACTORY_MAP.get(resource);
-        // 如果不存在该工厂类，那么就build一个出来
-        if (sqlSessionFactory == null) {
-            sqlSessionFactory = build(resource);
-        }
-        // 通过指定工厂获取会话资源并返回
-        SqlSession sqlSession = sqlSessionFactory.openSession(autoCommit);
-        // 开启连接
-        sqlSession.openConnection();
-        return sqlSession;
+        // 从sqlSessionFactoryMap集合中获取工厂类，不存在时只由一个线程创建
+        SqlSessionFactory sqlSessionFactory = getSqlSessionFactory(resource);
+        // 通过指定工厂获取会话资源并返回，连接在第一次执行语句时获取
+        return sqlSessionFactory.openSession(autoCommit);
     }
 
 
     /**
-     * 通过指定包名获取包下所有“.xml”为后缀的文件中的SQL映射对象。<br/>
+     * 通过指定包名获取包下所有“.xml”为后缀的文件中的SQL映射对象，包括jar包中的文件。<br/>
      * <p/>
+     * 若包下存在构建时生成的{@link MapperIndex}且未过期，则直接加载索引，不再解析XML文件。<br/>
      *
      * @param packageName 指定包名，包下含有xml文件
      * @return Map<String, MapperStatement>返回包含dao包下所有的mapper.xml文件中对应的SQL映射对象集合。
      * K为全限定id，V为SQL映射对象。
      */
     public static Map<String, MetaMapperStatement> getStatementMapperFromPackage(String packageName) {
-        // 用于接收SQL映射对象
-        // noinspection AlibabaCollectionInitShouldAssignCapacity
-        Map<String, MetaMapperStatement> mapperStatementMap = new HashMap<>();
+        // 获取类路径中的mapper.xml，包括jar包中的mapper.xml
+        List<MapperResource> resources = ClasspathMapperScanner.scan(packageName);
 
-        // 获取XML文件
-        List<File> xmlFiles = ParseXmlUtils.getXmlFileFromPackage(packageName);
+        // 优先加载构建时生成的索引，索引不存在或已过期时再解析XML文件
+        Map<String, MetaMapperStatement> indexed = MapperIndex.load(packageName, resources);
+        if (indexed != null) {
+            return indexed;
+        }
 
         // 解析XML文件，并返回
-        return ParseXmlUtils.parseMapper(xmlFiles);
+        return ParseXmlUtils.parseMapperResources(resources);
     }
 
     /**
@@ -156,7 +305,27 @@ public class SimpleSqlSessionUtil {
 
 
     }
-    private static final Logger logger = ChildLogger.getLogger();
+    private static final ChildLogger logger = ChildLogger.of(SimpleSqlSessionUtil.class);
+
+    /**
+     * 持有所有工厂类共享的SQL映射集合。<br/>
+     * 利用类的延迟加载，保证dao包下的mapper.xml在第一次使用时才被解析，并且在整个应用中只解析一次。<br/>
+     * 若开启了系统属性{@code MAPPER_WATCH}，之后修改mapper.xml时将由{@link MapperWatcher}增量更新该集合。
+     */
+    private static class StatementRegistryHolder {
+        private static final Map<String, MetaMapperStatement> STATEMENT_MAP =
+                getStatementMapperFromPackage(PACKAGE_NAME);
+
+        static {
+            if (Boolean.getBoolean(MAPPER_WATCH)) {
+                try {
+                    new MapperWatcher(STATEMENT_MAP, ClasspathMapperScanner.scan(PACKAGE_NAME));
+                } catch (IOException e) {
+                    logger.warn("监听mapper.xml失败:" + e.getMessage());
+                }
+            }
+        }
+    }
 
     /**
      * 默认数据库连接池配置地址，即数据库环境地址。
@@ -166,6 +335,26 @@ public class SimpleSqlSessionUtil {
      * 默认存放Mapper.xml文件的全限定包名
      */
     private static final String PACKAGE_NAME = "com.child.dao";
+    /**
+     * 慢查询阈值的配置项，单位毫秒
+     */
+    private static final String SLOW_QUERY_THRESHOLD = "slowQueryThreshold";
+    /**
+     * 数据库max_allowed_packet的配置项，单位字节
+     */
+    private static final String MAX_ALLOWED_PACKET = "maxAllowedPacket";
+    /**
+     * 从库的配置项，值为以","分隔的从库连接池配置文件
+     */
+    private static final String REPLICAS = "replicas";
+    /**
+     * 从库负载均衡策略的配置项，可选roundRobin或leastActive
+     */
+    private static final String LOAD_BALANCE = "loadBalance";
+    /**
+     * 开启mapper.xml监听的系统属性，仅用于开发环境
+     */
+    private static final String MAPPER_WATCH = "child.mapper.watch";
     /**
      * 协议类型常量
      */
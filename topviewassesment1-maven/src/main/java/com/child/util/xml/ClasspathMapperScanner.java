@@ -0,0 +1,148 @@
+package com.child.util.xml;
+
+import com.child.util.ChildLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * 扫描类路径中指定包下的所有mapper.xml。<br/>
+ * <p/>
+ * 同一个包可能同时存在于多个类路径条目中，例如编译输出目录与依赖的jar包，本类将合并所有条目中的mapper.xml：
+ * <ol>
+ *     <li>{@code file}协议：递归遍历目录。</li>
+ *     <li>
+ *         {@code jar}协议：通过{@link JarFile}遍历jar包中的条目，仅读取目录表，无需解压。
+ *         得到的资源地址同样为{@code jar}协议，读取内容时直接从jar包中读取对应的条目。
+ *     </li>
+ * </ol>
+ * 其余协议的条目将被忽略，并记录日志。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class ClasspathMapperScanner {
+    private static final ChildLogger logger = ChildLogger.of(ClasspathMapperScanner.class);
+    private static final String FILE = "file";
+    private static final String JAR = "jar";
+    private static final String XML_SUFFIX = ".xml";
+
+    private ClasspathMapperScanner() {
+    }
+
+    /**
+     * 扫描指定包下的所有mapper.xml。<br/>
+     * <p/>
+     * 该方法始终不会返回一个null，当不存在资源时，返回的是一个空的{@link ArrayList}<br/>
+     *
+     * @param packageName 指定包名
+     * @return {@link List}<{@link MapperResource}> 所有类路径条目中该包下的mapper.xml
+     */
+    public static List<MapperResource> scan(String packageName) {
+        String packagePath = packageName.replace('.', '/');
+        List<MapperResource> resources = new ArrayList<>();
+        try {
+            Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources(packagePath);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                String protocol = url.getProtocol();
+                if (FILE.equals(protocol)) {
+                    resources.addAll(scanDirectory(new File(url.toURI())));
+                } else if (JAR.equals(protocol)) {
+                    scanJar(url, packagePath, resources);
+                } else {
+                    logger.info("不支持的类路径协议，已忽略:" + url);
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new RuntimeException("通过包名获取XML文件失败\n" + e.getMessage());
+        }
+        return resources;
+    }
+
+    /**
+     * 扫描文件系统中指定目录下的所有mapper.xml，包括子目录。<br/>
+     *
+     * @param directory 包对应的目录
+     * @return {@link List}<{@link MapperResource}> 资源名为相对于该目录的路径
+     */
+    public static List<MapperResource> scanDirectory(File directory) {
+        List<MapperResource> resources = new ArrayList<>();
+        scanDirectory(directory, "", resources);
+        return resources;
+    }
+
+    private static void scanDirectory(File directory, String prefix, List<MapperResource> resources) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                scanDirectory(file, prefix + file.getName() + '/', resources);
+            } else if (file.getName().endsWith(XML_SUFFIX)) {
+                resources.add(MapperResource.of(prefix + file.getName(), file));
+            }
+        }
+    }
+
+    /**
+     * 遍历jar包中以包路径开头的条目。<br/>
+     * 单独打开一个{@link JarFile}并在遍历后关闭，读取条目内容时由jdk复用其缓存的jar包。
+     */
+    private static void scanJar(URL url, String packagePath, List<MapperResource> resources)
+            throws IOException, URISyntaxException {
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+            logger.info("无法读取jar包，已忽略:" + url);
+            return;
+        }
+        URL jarFileUrl = ((JarURLConnection) connection).getJarFileURL();
+        String prefix = packagePath + '/';
+        try (JarFile jarFile = new JarFile(Paths.get(jarFileUrl.toURI()).toFile())) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String entryName = entry.getName();
+                if (!entry.isDirectory() && entryName.startsWith(prefix) && entryName.endsWith(XML_SUFFIX)) {
+                    URL entryUrl = new URL(JAR + ':' + jarFileUrl + "!/" + entryName);
+                    long size = entry.getSize();
+                    long crc = entry.getCrc();
+                    if (size < 0 || crc < 0) {
+                        // 目录表中未记录时读取条目内容计算
+                        byte[] content = read(jarFile, entry);
+                        size = content.length;
+                        crc = MapperResource.crc(content);
+                    }
+                    resources.add(new MapperResource(entryName.substring(prefix.length()), entryUrl, null,
+                            size, crc));
+                }
+            }
+        }
+    }
+
+    private static byte[] read(JarFile jarFile, JarEntry entry) throws IOException {
+        try (InputStream in = jarFile.getInputStream(entry)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
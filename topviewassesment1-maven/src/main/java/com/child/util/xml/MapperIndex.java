@@ -0,0 +1,346 @@
+package com.child.util.xml;
+
+import com.child.util.ChildLogger;
+import com.child.util.orm.bean.MetaMapperStatement;
+import com.child.util.orm.bean.SqlTemplate;
+import com.child.util.orm.dynamic.*;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SQL映射的二进制索引，用于在启动时跳过mapper.xml的解析。<br/>
+ * <p/>
+ * 构建时由{@link MapperIndexCompiler}将解析得到的SQL映射对象连同编译好的{@link SqlTemplate}写入索引文件，
+ * 索引文件与mapper.xml放在同一个包下，文件名为{@code INDEX_FILE_NAME}。<br/>
+ * 运行时通过{@code load()}以内存映射的方式读取索引，直接得到SQL映射集合。<br/>
+ * 索引中记录了构建时所有mapper.xml的指纹（文件名、大小与内容的CRC-32），
+ * 若与运行时的mapper.xml不一致，说明索引已过期，此时返回null，由调用者退回到解析XML。<br/>
+ * <p/>
+ * 文件格式（均为大端序）：
+ * <ol>
+ *     <li>魔数{@code MAGIC}与版本号{@code VERSION}，各4字节</li>
+ *     <li>mapper.xml的指纹，8字节</li>
+ *     <li>SQL映射数量，4字节</li>
+ *     <li>
+ *         每个SQL映射依次为：全限定id、CRUD类型、原生SQL、返回值类型、是否读取生成的主键、主键属性、所在的资源名，
+ *         之后为JDBC规范SQL、占位符数量以及各个属性名。
+ *         字符串以4字节的UTF-8长度加内容的形式保存，长度为-1表示null
+ *     </li>
+ * </ol>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class MapperIndex {
+    private static final ChildLogger logger = ChildLogger.of(MapperIndex.class);
+    /**
+     * 索引文件名
+     */
+    public static final String INDEX_FILE_NAME = "mapper.idx";
+    /**
+     * 魔数，即"CHIX"
+     */
+    private static final int MAGIC = 0x43484958;
+    /**
+     * 格式版本号，格式改变时递增，旧版本的索引将被视为过期
+     */
+    private static final int VERSION = 5;
+
+    /**
+     * SQL映射与节点的类型标记
+     */
+    private static final byte STATIC_STATEMENT = 0;
+    private static final byte DYNAMIC_STATEMENT = 1;
+    private static final byte TEXT_NODE = 1;
+    private static final byte MIXED_NODE = 2;
+    private static final byte IF_NODE = 3;
+    private static final byte TRIM_NODE = 4;
+    private static final byte FOREACH_NODE = 5;
+    private static final byte CHOOSE_NODE = 6;
+
+    private MapperIndex() {
+    }
+
+    /**
+     * 计算mapper.xml文件的指纹。<br/>
+     * <p/>
+     * 仅使用扫描时得到的资源名、大小与内容的CRC-32，与资源的顺序无关。<br/>
+     * 不使用修改时间：jar包中条目的修改时间只精确到2秒，打包后的索引将永远被视为过期。<br/>
+     *
+     * @param resources mapper.xml资源
+     * @return long 指纹
+     */
+    public static long fingerprint(List<MapperResource> resources) {
+        List<MapperResource> sorted = new ArrayList<>(resources);
+        sorted.sort(Comparator.comparing(MapperResource::getName));
+        long hash = 1125899906842597L;
+        for (MapperResource resource : sorted) {
+            hash = 31 * hash + resource.getName().hashCode();
+            hash = 31 * hash + resource.getSize();
+            hash = 31 * hash + resource.getCrc();
+        }
+        return hash;
+    }
+
+    /**
+     * 将SQL映射集合写入索引文件。<br/>
+     *
+     * @param statementMap SQL映射集合，K为全限定id，V为SQL映射对象
+     * @param fingerprint  生成该集合的mapper.xml的指纹
+     * @param target       索引文件
+     * @throws IOException 直接向上抛出
+     */
+    public static void write(Map<String, MetaMapperStatement> statementMap, long fingerprint, File target)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(target)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(statementMap.size());
+            for (MetaMapperStatement statement : statementMap.values()) {
+                writeString(out, statement.getSqlId());
+                writeString(out, statement.getSqlType());
+                writeString(out, statement.getPrototypeSql());
+                writeString(out, statement.getResultType());
+                out.writeBoolean(statement.isUseGeneratedKeys());
+                writeString(out, statement.getKeyProperty());
+                writeString(out, statement.getResource());
+                if (statement.isDynamic()) {
+                    out.writeByte(DYNAMIC_STATEMENT);
+                    writeNode(out, statement.getSqlNode());
+                } else {
+                    out.writeByte(STATIC_STATEMENT);
+                    writeTemplate(out, statement.getSqlTemplate());
+                }
+            }
+        }
+    }
+
+    /**
+     * 从类路径中加载指定包下的索引文件。<br/>
+     * <p/>
+     * 索引不存在、已过期或格式损坏时均返回null，调用者应退回到解析XML。<br/>
+     *
+     * @param packageName 存放mapper.xml的包名
+     * @param resources   运行时该包下的mapper.xml资源，用于校验索引是否过期
+     * @return {@link Map} SQL映射集合，K为全限定id，V为SQL映射对象
+     */
+    public static Map<String, MetaMapperStatement> load(String packageName, List<MapperResource> resources) {
+        String resource = packageName.replace('.', '/') + '/' + INDEX_FILE_NAME;
+        URL url = Thread.currentThread().getContextClassLoader().getResource(resource);
+        if (url == null) {
+            logger.debug(() -> "未找到SQL映射索引:" + resource);
+            return null;
+        }
+        try {
+            Map<String, MetaMapperStatement> statementMap = read(map(url), fingerprint(resources));
+            if (statementMap == null) {
+                logger.info("SQL映射索引已过期，将重新解析mapper.xml:" + url);
+            }
+            return statementMap;
+        } catch (IOException | URISyntaxException | BufferUnderflowException | IllegalStateException e) {
+            logger.info("读取SQL映射索引失败，将重新解析mapper.xml:" + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从缓冲区中读取SQL映射集合。<br/>
+     *
+     * @param buffer      索引文件的内容
+     * @param fingerprint 当前mapper.xml的指纹
+     * @return {@link Map} SQL映射集合，版本或指纹不一致时返回null
+     */
+    static Map<String, MetaMapperStatement> read(ByteBuffer buffer, long fingerprint) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) {
+            return null;
+        }
+        int count = buffer.getInt();
+        Map<String, MetaMapperStatement> statementMap = new ConcurrentHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            MetaMapperStatement statement = new MetaMapperStatement(readString(buffer), readString(buffer),
+                    readString(buffer), readString(buffer));
+            statement.setUseGeneratedKeys(buffer.get() != 0);
+            statement.setKeyProperty(readString(buffer));
+            statement.setResource(readString(buffer));
+            if (buffer.get() == DYNAMIC_STATEMENT) {
+                statement.setSqlNode(readNode(buffer));
+            } else {
+                statement.setSqlTemplate(readTemplate(buffer));
+            }
+            statementMap.put(statement.getSqlId(), statement);
+        }
+        return statementMap;
+    }
+
+    private static void writeTemplate(DataOutputStream out, SqlTemplate sqlTemplate) throws IOException {
+        writeString(out, sqlTemplate.getJdbcSql());
+        writeStrings(out, sqlTemplate.getParameterNames());
+    }
+
+    private static SqlTemplate readTemplate(ByteBuffer buffer) {
+        return new SqlTemplate(readString(buffer), readStrings(buffer));
+    }
+
+    /**
+     * 写入动态SQL的节点树。{@link WhereSqlNode}与{@link SetSqlNode}均作为{@link TrimSqlNode}写入。
+     */
+    private static void writeNode(DataOutputStream out, SqlNode node) throws IOException {
+        if (node instanceof StaticTextSqlNode) {
+            out.writeByte(TEXT_NODE);
+            writeTemplate(out, ((StaticTextSqlNode) node).getSqlTemplate());
+        } else if (node instanceof MixedSqlNode) {
+            List<SqlNode> contents = ((MixedSqlNode) node).getContents();
+            out.writeByte(MIXED_NODE);
+            out.writeInt(contents.size());
+            for (SqlNode content : contents) {
+                writeNode(out, content);
+            }
+        } else if (node instanceof IfSqlNode) {
+            out.writeByte(IF_NODE);
+            writeString(out, ((IfSqlNode) node).getTest());
+            writeNode(out, ((IfSqlNode) node).getContents());
+        } else if (node instanceof TrimSqlNode) {
+            TrimSqlNode trim = (TrimSqlNode) node;
+            out.writeByte(TRIM_NODE);
+            writeString(out, trim.getPrefix());
+            writeString(out, trim.getSuffix());
+            writeStrings(out, trim.getPrefixOverrides());
+            writeStrings(out, trim.getSuffixOverrides());
+            writeNode(out, trim.getContents());
+        } else if (node instanceof ForEachSqlNode) {
+            ForEachSqlNode forEach = (ForEachSqlNode) node;
+            out.writeByte(FOREACH_NODE);
+            writeString(out, forEach.getCollection());
+            writeString(out, forEach.getItem());
+            writeString(out, forEach.getIndex());
+            writeString(out, forEach.getOpen());
+            writeString(out, forEach.getClose());
+            writeString(out, forEach.getSeparator());
+            writeNode(out, forEach.getContents());
+        } else if (node instanceof ChooseSqlNode) {
+            ChooseSqlNode choose = (ChooseSqlNode) node;
+            out.writeByte(CHOOSE_NODE);
+            out.writeInt(choose.getWhens().size());
+            for (IfSqlNode when : choose.getWhens()) {
+                writeString(out, when.getTest());
+                writeNode(out, when.getContents());
+            }
+            out.writeBoolean(choose.getOtherwise() != null);
+            if (choose.getOtherwise() != null) {
+                writeNode(out, choose.getOtherwise());
+            }
+        } else {
+            throw new IOException("无法写入索引的SQL节点:" + node.getClass().getName());
+        }
+    }
+
+    private static SqlNode readNode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case TEXT_NODE:
+                return new StaticTextSqlNode(readTemplate(buffer));
+            case MIXED_NODE:
+                int count = buffer.getInt();
+                List<SqlNode> contents = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    contents.add(readNode(buffer));
+                }
+                return new MixedSqlNode(contents);
+            case IF_NODE:
+                return new IfSqlNode(readString(buffer), readNode(buffer));
+            case TRIM_NODE:
+                String prefix = readString(buffer);
+                String suffix = readString(buffer);
+                List<String> prefixOverrides = readStrings(buffer);
+                List<String> suffixOverrides = readStrings(buffer);
+                return new TrimSqlNode(readNode(buffer), prefix, suffix, prefixOverrides, suffixOverrides);
+            case FOREACH_NODE:
+                String collection = readString(buffer);
+                String item = readString(buffer);
+                String index = readString(buffer);
+                String open = readString(buffer);
+                String close = readString(buffer);
+                String separator = readString(buffer);
+                return new ForEachSqlNode(readNode(buffer), collection, item, index, open, close, separator);
+            case CHOOSE_NODE:
+                int whenCount = buffer.getInt();
+                List<IfSqlNode> whens = new ArrayList<>(whenCount);
+                for (int i = 0; i < whenCount; i++) {
+                    whens.add(new IfSqlNode(readString(buffer), readNode(buffer)));
+                }
+                SqlNode otherwise = buffer.get() != 0 ? readNode(buffer) : null;
+                return new ChooseSqlNode(whens, otherwise);
+            default:
+                throw new IllegalStateException("未知的SQL节点类型:" + type);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    /**
+     * 文件系统中的索引以内存映射的方式读取，其余情况（例如jar包中）读取到堆内存中。
+     */
+    private static ByteBuffer map(URL url) throws IOException, URISyntaxException {
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] bytes = new byte[8192];
+            int read;
+            while ((read = in.read(bytes)) != -1) {
+                out.write(bytes, 0, read);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
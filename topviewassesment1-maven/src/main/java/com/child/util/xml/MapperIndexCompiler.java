@@ -0,0 +1,34 @@
+package com.child.util.xml;
+
+import com.child.util.orm.bean.MetaMapperStatement;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 构建时生成SQL映射索引的入口，由maven在process-classes阶段调用。<br/>
+ * <p/>
+ * 参数依次为存放mapper.xml的包名以及编译输出目录，
+ * 将解析该目录下对应包中的所有mapper.xml，并在同一目录中生成{@link MapperIndex#INDEX_FILE_NAME}。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class MapperIndexCompiler {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("用法: MapperIndexCompiler <包名> <编译输出目录>");
+        }
+        File directory = new File(args[1], args[0].replace('.', '/'));
+        List<MapperResource> resources = ClasspathMapperScanner.scanDirectory(directory);
+        if (resources.isEmpty()) {
+            return;
+        }
+        Map<String, MetaMapperStatement> statementMap = ParseXmlUtils.parseMapperResources(resources);
+        MapperIndex.write(statementMap, MapperIndex.fingerprint(resources),
+                new File(directory, MapperIndex.INDEX_FILE_NAME));
+    }
+}
@@ -0,0 +1,112 @@
+package com.child.util.xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * 类路径中的一个mapper.xml资源，可能位于文件系统的目录中，也可能位于jar包中。<br/>
+ * <p/>
+ * 除了资源的{@link URL}外，还保存了扫描时得到的大小与内容的CRC-32，用于计算{@link MapperIndex}的指纹，
+ * 计算时无需再次访问文件或jar包。<br/>
+ * 不使用修改时间，因为jar包中条目的修改时间只精确到2秒，与构建时文件系统中的修改时间不一致；
+ * jar包的目录表中本就记录了每个条目的CRC-32，扫描jar包时无需解压即可得到，与对文件内容计算的结果相同。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class MapperResource {
+    /**
+     * 相对于包目录的路径，使用"/"分隔
+     */
+    private final String name;
+    /**
+     * 资源的地址，用于读取内容
+     */
+    private final URL url;
+    /**
+     * 资源所在的文件，位于jar包中时为null
+     */
+    private final File file;
+    private final long size;
+    /**
+     * 内容的CRC-32
+     */
+    private final long crc;
+
+    public MapperResource(String name, URL url, File file, long size, long crc) {
+        this.name = name;
+        this.url = url;
+        this.file = file;
+        this.size = size;
+        this.crc = crc;
+    }
+
+    /**
+     * 根据文件系统中的文件创建资源。<br/>
+     *
+     * @param name 相对于包目录的路径
+     * @param file mapper.xml文件
+     * @return {@link MapperResource}
+     */
+    public static MapperResource of(String name, File file) {
+        try {
+            byte[] content = Files.readAllBytes(file.toPath());
+            return new MapperResource(name, file.toURI().toURL(), file, content.length, crc(content));
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("获取文件地址失败:" + file + "\n" + e.getMessage());
+        } catch (IOException e) {
+            throw new RuntimeException("读取文件失败:" + file + "\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * 计算内容的CRC-32，与jar包中条目记录的值一致。<br/>
+     *
+     * @param content 资源的内容
+     * @return long CRC-32
+     */
+    public static long crc(byte[] content) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(content, 0, content.length);
+        return crc32.getValue();
+    }
+
+    /**
+     * @return {@link InputStream} 资源的内容，由调用者负责关闭
+     * @throws IOException 直接向上抛出
+     */
+    public InputStream openStream() throws IOException {
+        return url.openStream();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCrc() {
+        return crc;
+    }
+
+    @Override
+    public String toString() {
+        return url.toString();
+    }
+}
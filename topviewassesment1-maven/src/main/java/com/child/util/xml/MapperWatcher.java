@@ -0,0 +1,184 @@
+package com.child.util.xml;
+
+import com.child.util.ChildLogger;
+import com.child.util.orm.bean.MetaMapperStatement;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 监听文件系统中mapper.xml的变化，并增量地更新正在使用的SQL映射集合，仅用于开发环境。<br/>
+ * <p/>
+ * <ol>
+ *     <li>
+ *         通过{@link WatchService}监听所有mapper.xml所在的目录，某个文件被创建或修改后，
+ *         仅重新解析该文件，用新的SQL映射替换该文件原有的映射，并移除已被删除的id。
+ *         会话工厂与连接池均无需重建，之后的会话直接使用新的SQL映射。
+ *     </li>
+ *     <li>
+ *         文件解析失败或新的id与其他文件冲突时，仅记录日志，保留原有的SQL映射，等待下一次修改。
+ *     </li>
+ *     <li>
+ *         每个文件中的id由已加载的SQL映射所记录的资源名得到，开始监听时不会再次解析mapper.xml。
+ *     </li>
+ *     <li>
+ *         是否真正被修改以内容的CRC-32判断，与{@link MapperIndex}的指纹一致，而不是修改时间。
+ *         同一次保存产生的多个事件以及只改变了修改时间的事件都不会触发重新解析。
+ *     </li>
+ *     <li>
+ *         jar包中的mapper.xml无法修改，故不会被监听。
+ *     </li>
+ * </ol>
+ * 监听线程为守护线程，调用{@code close()}可以提前结束监听。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+
+public class MapperWatcher implements Closeable {
+    private static final ChildLogger logger = ChildLogger.of(MapperWatcher.class);
+
+    /**
+     * 正在使用的SQL映射集合，必须是线程安全的
+     */
+    private final Map<String, MetaMapperStatement> statementMap;
+    /**
+     * 每个mapper.xml中声明的全限定id，K为文件的绝对路径
+     */
+    private final Map<Path, Set<String>> fileStatementIds = new ConcurrentHashMap<>();
+    /**
+     * 每个mapper.xml的资源名，重新解析时沿用，K为文件的绝对路径
+     */
+    private final Map<Path, String> fileNames = new ConcurrentHashMap<>();
+    /**
+     * 每个mapper.xml最近一次被解析时内容的CRC-32，K为文件的绝对路径
+     */
+    private final Map<Path, Long> fileCrcs = new ConcurrentHashMap<>();
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * 创建并立即开始监听。<br/>
+     *
+     * @param statementMap 正在使用的SQL映射集合，必须是线程安全的
+     * @param resources    需要监听的mapper.xml资源，jar包中的资源将被忽略
+     * @throws IOException 创建监听服务失败时抛出
+     */
+    public MapperWatcher(Map<String, MetaMapperStatement> statementMap, List<MapperResource> resources)
+            throws IOException {
+        this.statementMap = statementMap;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Set<Path> directories = new HashSet<>();
+        Map<String, Path> paths = new HashMap<>();
+        for (MapperResource resource : resources) {
+            File file = resource.getFile();
+            if (file == null) {
+                continue;
+            }
+            Path path = file.toPath().toAbsolutePath();
+            paths.put(resource.getName(), path);
+            fileNames.put(path, resource.getName());
+            fileStatementIds.put(path, new HashSet<>());
+            fileCrcs.put(path, resource.getCrc());
+            if (directories.add(path.getParent())) {
+                path.getParent().register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+
+        // 记录每个文件中的id，以便文件修改后找出被删除的id
+        for (MetaMapperStatement statement : statementMap.values()) {
+            Path path = statement.getResource() == null ? null : paths.get(statement.getResource());
+            if (path != null) {
+                fileStatementIds.get(path).add(statement.getSqlId());
+            }
+        }
+
+        thread = new Thread(this::watch, "ChildMapper-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("开始监听mapper.xml，共" + directories.size() + "个目录");
+    }
+
+    private void watch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            // 同一次修改可能产生多个事件，合并后每个文件只解析一次
+            Set<Path> changed = new LinkedHashSet<>();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                Object context = event.context();
+                if (context instanceof Path && context.toString().endsWith(".xml")) {
+                    changed.add(directory.resolve((Path) context));
+                }
+            }
+            key.reset();
+            changed.forEach(this::reload);
+        }
+    }
+
+    /**
+     * 重新解析一个mapper.xml，并更新SQL映射集合。<br/>
+     * <p/>
+     * 监听线程与手动调用可能同时重新加载同一个文件，因此串行执行，
+     * 否则后者会把前者刚放入的id误判为与其他文件冲突。<br/>
+     *
+     * @param path 被修改的文件
+     * @return boolean 是否更新成功，内容未改变时不重新解析，同样返回true
+     */
+    synchronized boolean reload(Path path) {
+        Map<String, MetaMapperStatement> reloaded;
+        long crc;
+        try {
+            crc = MapperResource.crc(Files.readAllBytes(path));
+            if (Long.valueOf(crc).equals(fileCrcs.get(path))) {
+                logger.debug(() -> "mapper.xml的内容未改变，无需重新加载:" + path);
+                return true;
+            }
+            String name = fileNames.getOrDefault(path, path.getFileName().toString());
+            reloaded = ParseXmlUtils.parseMapper(MapperResource.of(name, path.toFile()));
+        } catch (IOException e) {
+            logger.warn("读取mapper.xml失败，保留原有的SQL映射:" + path + "\n" + e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            logger.warn("重新加载mapper.xml失败，保留原有的SQL映射:" + path + "\n" + e.getMessage());
+            return false;
+        }
+
+        Set<String> previous = fileStatementIds.getOrDefault(path, Collections.emptySet());
+        // 检查新的id是否与其他文件冲突
+        for (String sqlId : reloaded.keySet()) {
+            if (!previous.contains(sqlId) && statementMap.containsKey(sqlId)) {
+                logger.warn("重新加载mapper.xml失败，SQL映射id重复:" + sqlId + "\n位于" + path);
+                return false;
+            }
+        }
+        // 先放入新的映射，再移除已删除的id，保证修改期间已有的id始终可用
+        statementMap.putAll(reloaded);
+        for (String sqlId : previous) {
+            if (!reloaded.containsKey(sqlId)) {
+                statementMap.remove(sqlId);
+            }
+        }
+        fileStatementIds.put(path, new HashSet<>(reloaded.keySet()));
+        fileCrcs.put(path, crc);
+        logger.info("重新加载mapper.xml成功:" + path + "，共" + reloaded.size() + "条SQL映射");
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
@@ -1,16 +1,23 @@
 package com.child.util.xml;
 
 import com.child.util.orm.bean.MetaMapperStatement;
+import com.child.util.orm.bean.SqlTemplate;
+import com.child.util.orm.dynamic.*;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * 作为解析器处理器，用于对每个mapper.xml文件进行解析，最终得到的CRUD标签数据将存放在{@code map}中。
- * 调用者可以通过{@code getMap()}方法获取该{@code map}集合。
+ * 调用者可以通过{@code getMap()}方法获取该{@code map}集合。<br/>
+ * 注意每个处理器仅应用于解析一个文件，解析多个文件时应分别创建处理器。<br/>
+ * <p/>
+ * CRUD标签中可以嵌套{@code <if>}、{@code <where>}、{@code <set>}、{@code <trim>}、{@code <foreach>}
+ * 与{@code <choose>}等动态SQL标签。解析时以栈的形式记录当前所在的标签，标签结束时将其内容构建为{@link SqlNode}，
+ * 加入到外层标签中。不含动态SQL标签的语句仍作为静态SQL，直接编译为{@link SqlTemplate}。<br/>
+ * 标签内的文本可能被分多次回调{@code characters()}，例如含有实体引用时，故统一累积后再处理。<br/>
  * @author silent_child
  * @version 1.0
  **/
@@ -29,6 +36,10 @@ public class ParseMapperHandler extends DefaultHandler {
      * K为SQL映射对象的全限定id，V为SQL映射对象
      */
     private final Map<String, MetaMapperStatement> statementMapper = new HashMap<>();
+    /**
+     * 当前所在的标签，栈底为CRUD标签
+     */
+    private final Deque<Element> elements = new ArrayDeque<>();
 
     /**
      * 用于创建解析器
@@ -49,6 +60,7 @@ public class ParseMapperHandler extends DefaultHandler {
      * 获取标签头，可以获取标签头的内的属性。<br/>
      * <p/>
      * 需要注意的是，每当进入一个新的CURD标签时，就应该新建一个SQL映射对象。以便存储新的SQL相关信息。<br/>
+     * 进入CRUD标签内的动态SQL标签时，先将之前累积的文本作为一个文本节点，再将该标签压入栈中。<br/>
      * 会将误操作填写属性值时出现的前后空格进行删除。<br/>
      * 但是需要注意的是，对于resultType属性来说，可能在mapper.xml文件并未填写，
      * 那么届时搜索该属性时将返回null，故不可再调用{@link String#trim()}方法<br/>
@@ -64,45 +76,53 @@ public class ParseMapperHandler extends DefaultHandler {
      * @param attributes The attributes attached to the element.  If
      *        there are no attributes, it shall be an empty
      *        Attributes object.
+     * @throws SAXException 出现未知标签时抛出
      */
     @Override
-    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
 
         // 匹配mapper标签，将标签内属性namespace，赋值给本类的私有属性namespace
         if (QualifiedName.MAPPER.equals(qName)) {
             namespace = attributes.getValue(QualifiedName.NAMESPACE).trim();
         }
-        else {
-            // 每得到一个新的CRUD标签就新建一个映射对象
-            metaMapperStatement = new MetaMapperStatement();
-
-            // 接下来四条语句为映射对象中的sqlType进行赋值
-            if (QualifiedName.INSERT.equals(qName)) {
-                metaMapperStatement.setSqlType(QualifiedName.INSERT);
-            }
-            else if (QualifiedName.UPDATE.equals(qName)) {
-                metaMapperStatement.setSqlType(QualifiedName.UPDATE);
-            }
-            else if (QualifiedName.DELETE.equals(qName)) {
-                metaMapperStatement.setSqlType(QualifiedName.DELETE);
-            }
-            else if (QualifiedName.SELECT.equals(qName)) {
-                metaMapperStatement.setSqlType(QualifiedName.SELECT);
+        else if (metaMapperStatement == null) {
+            if (!QualifiedName.isStatement(qName)) {
+                throw new SAXException("未知的标签:" + qName);
             }
+            // 每得到一个新的CRUD标签就新建一个映射对象，并为映射对象中的sqlType进行赋值
+            metaMapperStatement = new MetaMapperStatement();
+            metaMapperStatement.setSqlType(qName);
             // 获取标签内属性id，与namespace进行拼接得到sql语句的映射位置,并且给映射对象中的sqlId赋值
             String sqlId = namespace + '.' + attributes.getValue(QualifiedName.ID).trim();
             metaMapperStatement.setSqlId(sqlId);
             // 最后对返回值类型属性赋值
             String resultType = attributes.getValue(QualifiedName.RESULT_TYPE);
             metaMapperStatement.setResultType(resultType);
-
+            // 插入语句可以通过useGeneratedKeys与keyProperty将生成的主键写回到参数中
+            metaMapperStatement.setUseGeneratedKeys(
+                    Boolean.parseBoolean(attributes.getValue(QualifiedName.USE_GENERATED_KEYS)));
+            String keyProperty = attributes.getValue(QualifiedName.KEY_PROPERTY);
+            metaMapperStatement.setKeyProperty(keyProperty == null ? null : keyProperty.trim());
+            elements.push(new Element(qName, attributes));
+        }
+        else {
+            // 进入动态SQL标签
+            if (!QualifiedName.isDynamic(qName)) {
+                throw new SAXException("未知的动态SQL标签:" + qName + "\n位于" + metaMapperStatement.getSqlId());
+            }
+            elements.peek().flushText();
+            elements.push(new Element(qName, attributes));
         }
     }
 
     /**
-     * 当解析到标签末尾时将SQL映射对象放入Map集合中<br/>
+     * 当解析到标签末尾时构建对应的节点。<br/>
      * <p/>
+     * 动态SQL标签结束时，将其构建为{@link SqlNode}加入外层标签；
+     * CRUD标签结束时，将SQL映射对象放入Map集合中。<br/>
      * 需要注意的是，每当放入一个SQL映射对象之后应该将引用置为null，否则后续的解析将会失败。<br/>
+     * 若同一文件中出现了相同的全限定id，则抛出异常终止解析。<br/>
      * @param uri The Namespace URI, or the empty string if the
      *        element has no Namespace URI or if Namespace
      *        processing is not being performed.
@@ -111,35 +131,168 @@ public class ParseMapperHandler extends DefaultHandler {
      *        performed.
      * @param qName The qualified name (with prefix), or the
      *        empty string if qualified names are not available.
+     * @throws SAXException 出现重复的id或动态SQL标签有误时抛出
      */
     @Override
-    public void endElement(String uri, String localName, String qName) {
-        // 匹配crud标签，将全限定id和映射对象放入hashMap中
-        if (!QualifiedName.MAPPER.equals(qName)) {
-            statementMapper.put(metaMapperStatement.getSqlId(), metaMapperStatement);
-            // 每当解析完一个SQL映射对象之后，将引用指向null
-            metaMapperStatement = null;
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (QualifiedName.MAPPER.equals(qName)) {
+            return;
         }
+        Element element = elements.pop();
+        element.flushText();
+        if (!elements.isEmpty()) {
+            try {
+                elements.peek().nodes.add(element.build());
+            } catch (RuntimeException e) {
+                throw new SAXException(e.getMessage() + "\n位于" + metaMapperStatement.getSqlId());
+            }
+            return;
+        }
+
+        // CRUD标签结束
+        if (element.isStatic()) {
+            // 不含动态SQL标签，解析时即编译SQL模板，执行时无需再解析原生sql语句
+            String prototypeSql = element.staticText.toString().trim();
+            metaMapperStatement.setPrototypeSql(prototypeSql);
+            metaMapperStatement.setSqlTemplate(SqlTemplate.compile(prototypeSql));
+        }
+        else {
+            metaMapperStatement.setSqlNode(new MixedSqlNode(element.nodes));
+        }
+        // 同一文件中不允许出现相同的id
+        if (statementMapper.containsKey(metaMapperStatement.getSqlId())) {
+            throw new SAXException("SQL映射id重复:" + metaMapperStatement.getSqlId());
+        }
+        statementMapper.put(metaMapperStatement.getSqlId(), metaMapperStatement);
+        // 每当解析完一个SQL映射对象之后，将引用指向null
+        metaMapperStatement = null;
     }
 
     /**
-     * 将原生sql语句赋值给SQL映射对象。<br/>
+     * 累积标签内的原生sql语句。<br/>
      * <p/>
      * 需要注意的是，当未进入CRUD标签时，那么SQL映射对象为null.<br/>
      * @param ch The characters.
      * @param start The start position in the character array.
      * @param length The number of characters to use from the
      *               character array.
-     * @throws SAXException
      */
     @Override
-    public void characters(char[] ch, int start, int length)
-            throws SAXException {
-        // 为映射对象中的prototypeSql赋值，即赋值xml文件中的原生sql语句
-        String value = new String(ch, start, length).trim();
+    public void characters(char[] ch, int start, int length) {
         // 如果不为null，说明此时已经进入CRUD标签内
         if (metaMapperStatement != null) {
-            metaMapperStatement.setPrototypeSql(value);
+            elements.peek().text.append(ch, start, length);
+        }
+    }
+
+    /**
+     * 解析过程中的一个标签，保存其属性以及已构建的子节点。
+     */
+    private static class Element {
+        private final String name;
+        private final Map<String, String> attributes = new HashMap<>();
+        private final List<SqlNode> nodes = new ArrayList<>();
+        /**
+         * 尚未构建为节点的文本
+         */
+        private final StringBuilder text = new StringBuilder();
+        /**
+         * 全部文本，仅用于不含动态SQL标签的CRUD标签
+         */
+        private final StringBuilder staticText = new StringBuilder();
+        private boolean hasElement;
+
+        private Element(String name, Attributes attributes) {
+            this.name = name;
+            for (int i = 0; i < attributes.getLength(); i++) {
+                this.attributes.put(attributes.getQName(i), attributes.getValue(i));
+            }
+        }
+
+        /**
+         * 将累积的文本构建为文本节点，空白文本将被忽略。
+         */
+        private void flushText() {
+            if (text.toString().trim().length() > 0) {
+                nodes.add(new StaticTextSqlNode(text.toString()));
+            }
+            staticText.append(text);
+            text.setLength(0);
+        }
+
+        private boolean isStatic() {
+            for (SqlNode node : nodes) {
+                if (!(node instanceof StaticTextSqlNode)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private SqlNode contents() {
+            return nodes.size() == 1 ? nodes.get(0) : new MixedSqlNode(nodes);
+        }
+
+        private SqlNode build() {
+            switch (name) {
+                case QualifiedName.IF:
+                case QualifiedName.WHEN:
+                    return new IfSqlNode(attributes.get(QualifiedName.TEST), contents());
+                case QualifiedName.WHERE:
+                    return new WhereSqlNode(contents());
+                case QualifiedName.SET:
+                    return new SetSqlNode(contents());
+                case QualifiedName.TRIM:
+                    return new TrimSqlNode(contents(), attributes.get(QualifiedName.PREFIX),
+                            attributes.get(QualifiedName.SUFFIX),
+                            TrimSqlNode.parseOverrides(attributes.get(QualifiedName.PREFIX_OVERRIDES)),
+                            TrimSqlNode.parseOverrides(attributes.get(QualifiedName.SUFFIX_OVERRIDES)));
+                case QualifiedName.FOREACH:
+                    return new ForEachSqlNode(contents(), attributes.get(QualifiedName.COLLECTION),
+                            attributes.get(QualifiedName.ITEM), attributes.get(QualifiedName.INDEX),
+                            attributes.get(QualifiedName.OPEN), attributes.get(QualifiedName.CLOSE),
+                            attributes.get(QualifiedName.SEPARATOR));
+                case QualifiedName.OTHERWISE:
+                    return new OtherwiseNode(contents());
+                case QualifiedName.CHOOSE:
+                    return buildChoose();
+                default:
+                    throw new RuntimeException("未知的动态SQL标签:" + name);
+            }
+        }
+
+        /**
+         * choose标签中只允许出现when与otherwise标签。
+         */
+        private SqlNode buildChoose() {
+            List<IfSqlNode> whens = new ArrayList<>();
+            SqlNode otherwise = null;
+            for (SqlNode node : nodes) {
+                if (node instanceof IfSqlNode) {
+                    whens.add((IfSqlNode) node);
+                } else if (node instanceof OtherwiseNode && otherwise == null) {
+                    otherwise = ((OtherwiseNode) node).contents;
+                } else {
+                    throw new RuntimeException("choose标签中只能包含when与一个otherwise标签");
+                }
+            }
+            return new ChooseSqlNode(whens, otherwise);
+        }
+    }
+
+    /**
+     * otherwise标签仅在构建choose标签时作为标记使用。
+     */
+    private static class OtherwiseNode implements SqlNode {
+        private final SqlNode contents;
+
+        private OtherwiseNode(SqlNode contents) {
+            this.contents = contents;
+        }
+
+        @Override
+        public boolean apply(DynamicContext context) {
+            return contents.apply(context);
         }
     }
 
@@ -152,5 +305,48 @@ public class ParseMapperHandler extends DefaultHandler {
         private static final String NAMESPACE = "namespace";
         private static final String ID = "id";
         private static final String RESULT_TYPE = "resultType";
+        private static final String USE_GENERATED_KEYS = "useGeneratedKeys";
+        private static final String KEY_PROPERTY = "keyProperty";
+
+        private static final String IF = "if";
+        private static final String WHERE = "where";
+        private static final String SET = "set";
+        private static final String TRIM = "trim";
+        private static final String FOREACH = "foreach";
+        private static final String CHOOSE = "choose";
+        private static final String WHEN = "when";
+        private static final String OTHERWISE = "otherwise";
+
+        private static final String TEST = "test";
+        private static final String PREFIX = "prefix";
+        private static final String SUFFIX = "suffix";
+        private static final String PREFIX_OVERRIDES = "prefixOverrides";
+        private static final String SUFFIX_OVERRIDES = "suffixOverrides";
+        private static final String COLLECTION = "collection";
+        private static final String ITEM = "item";
+        private static final String INDEX = "index";
+        private static final String OPEN = "open";
+        private static final String CLOSE = "close";
+        private static final String SEPARATOR = "separator";
+
+        private static boolean isStatement(String qName) {
+            return INSERT.equals(qName) || UPDATE.equals(qName) || DELETE.equals(qName) || SELECT.equals(qName);
+        }
+
+        private static boolean isDynamic(String qName) {
+            switch (qName) {
+                case IF:
+                case WHERE:
+                case SET:
+                case TRIM:
+                case FOREACH:
+                case CHOOSE:
+                case WHEN:
+                case OTHERWISE:
+                    return true;
+                default:
+                    return false;
+            }
+        }
     }
 }
@@ -3,6 +3,7 @@ package com.child.util.xml;
 import com.child.util.ChildLogger;
 import com.child.util.ioc.bean.MetaBean;
 import com.child.util.orm.bean.MetaMapperStatement;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -10,11 +11,10 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
 import java.util.*;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * 解析XML文件的工具类。<br/>
@@ -24,94 +24,51 @@ import java.util.stream.Stream;
  * @date 2023/03/14
  */
 public class ParseXmlUtils {
-    private static final Logger logger = ChildLogger.getLogger();
+    private static final ChildLogger logger = ChildLogger.of(ParseXmlUtils.class);
+    /**
+     * {@link SAXParser}不是线程安全的，故每个线程持有一个解析器，在并行解析时各自复用。
+     */
+    private static final ThreadLocal<SAXParser> SAX_PARSER = ThreadLocal.withInitial(() -> {
+        try {
+            return SAXParserFactory.newInstance().newSAXParser();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new RuntimeException("创建XML解析器失败\n" + e.getMessage());
+        }
+    });
     /**
      * 通过指定包名获取包下所有“.xml”为后缀的文件<br/>
      * <p/>
+     * 仅返回文件系统中的文件，jar包中的mapper.xml请使用{@link ClasspathMapperScanner#scan(String)}获取。<br/>
      * 该方法始终不会返回一个null，当不存在文件时，返回的是一个空的{@link ArrayList}<br/>
      *
      * @param packageName 指定包名，包下含有xml文件
      * @return {@link List}<{@link File}> 返回指定包下的所有xml文件集合
      */
     public static List<File> getXmlFileFromPackage(String packageName) {
-        // 接收文件的容器
-        Stream<File> stream = new ArrayList<File>().stream();
-
-        try {
-            final String file = "file";
-            // 获取指定包下的所有文件的URL
-            Enumeration<URL> resources = Thread.currentThread()
-                    .getContextClassLoader()
-                    // 注意！需要将包名各式转换为目录路径格式
-                    .getResources(packageName.replace('.', '/'));
-
-            // 遍历每一个URL
-            while (resources.hasMoreElements()) {
-                // 获取URL
-                URL url = resources.nextElement();
-                // 获取协议
-                String protocol = url.getProtocol();
-                // 如果满足协议，则进行解析，并将解析后的元素合并到集合中
-                if (file.equals(protocol)) {
-                    stream = Stream.concat(stream, getXmlFileFromDirectory(url.getPath()).stream());
-                }
-            }
-
-        } catch (IOException e) {
-            throw new RuntimeException("通过包名获取XML文件失败\n" + e.getMessage());
-        }
-
-        // 返回结果
-        return stream.collect(Collectors.toList());
+        return toFiles(ClasspathMapperScanner.scan(packageName));
     }
 
     /**
      * 通过指定目录路径获取包下所有“.xml”为后缀的文件<br/>
      * <p/>
-     * 根据目录名可以获取该目录下的所有xml文件，通过包名可以获取进一步解析子目录。<br/>
+     * 根据目录名可以获取该目录下的所有xml文件，包括子目录中的xml文件。<br/>
      * 该方法始终不会返回一个null，当不存在文件时，返回的是一个空的{@link ArrayList}<br/>
      *
      * @param directoryPath 指定包名的目录路径
      * @return {@link List}<{@link File}> 返回指定目录路径下的所有xml文件集合
      */
     public static List<File> getXmlFileFromDirectory(String directoryPath) {
-        // 接收文件的容器
-        Stream<File> stream = new ArrayList<File>().stream();
-        List<File> list = new ArrayList<>();
-
-        // 根据目录创建文件
-        File currentFile = new File(directoryPath);
-
-        // 如果不存在该目录则直接返回一个空list
-        if (!currentFile.isDirectory() || !currentFile.exists()) {
-            return new ArrayList<>();
-        }
-
-        // 获取目录下的所有".xml"结尾的文件和子目录
-        File[] files =
-                currentFile.listFiles(file -> file.getName().endsWith(".xml"));
-
-        // 如果不存在文件，返回一个空list
-        if (files == null) {
-            return new ArrayList<>();
-        }
-
-        for (File file : files) {
-            // 如果是的xml文件的话则添加到集合中
-            boolean isXml = file.getName().endsWith(".xml");
-            if (isXml){
-                list.add(file);
-            }
+        return toFiles(ClasspathMapperScanner.scanDirectory(new File(directoryPath)));
+    }
 
-            // 如果是子目录则继续搜索
-            if (file.isDirectory()) {
-                // 并将返回结果与原来的stream进行合并
-                stream = Stream.concat(stream, getXmlFileFromDirectory(file.getAbsolutePath()).stream());
+    private static List<File> toFiles(List<MapperResource> resources) {
+        List<File> files = new ArrayList<>(resources.size());
+        for (MapperResource resource : resources) {
+            if (resource.getFile() != null) {
+                files.add(resource.getFile());
             }
-
         }
-        // 最后再合并一次stream吗，并返回结果
-        return Stream.concat(stream, list.stream()).collect(Collectors.toList());
+        return files;
     }
 
     /**
@@ -120,41 +77,81 @@ public class ParseXmlUtils {
      * 根据目录名可以获取该目录下的所有xml文件，通过包名可以获取进一步解析子目录。<br/>
      * 其中核心部分为：
      * 解析处理器{@link ParseMapperHandler}帮助完成了将xml中的sql映射放置到Map集合中。<br/>
+     * 各个文件将并行解析，每个文件使用独立的解析处理器，解析器则由每个线程各自持有。
+     * 解析结果合并到同一个并发Map中，若不同文件中出现了相同的全限定id，将直接抛出异常。<br/>
      *
      * @param files 文件集合
      * @return {@link Map}<{@link String}, {@link MetaMapperStatement}> K为全限定id，V为SQL映射对象
      */
     public static Map<String, MetaMapperStatement> parseMapper(List<File> files) {
-        try {
-            // 获取解析器工厂
-            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-            // 获取解析器
-            SAXParser saxParser = saxParserFactory.newSAXParser();
-            // 获取解析器处理器
-            ParseMapperHandler parseMapperHandler = new ParseMapperHandler();
+        List<MapperResource> resources = new ArrayList<>(files.size());
+        for (File file : files) {
+            resources.add(MapperResource.of(file.getName(), file));
+        }
+        return parseMapperResources(resources);
+    }
 
-            Map<String, MetaMapperStatement> collect = files.stream()
-                    // 将流中的.xml文件进行解析，返回SQL映射集合的K-V条目
-                    .map(x -> {
-                        try {
-                            saxParser.parse(x, parseMapperHandler);
-                            // 返回K-V条目回到流中
-                            return parseMapperHandler.getStatementMapper().entrySet();
-                        } catch (SAXException | IOException e) {
-                            logger.info("解析Mapper.xml文件失败\n" + e.getMessage());
-                            throw new RuntimeException("解析Mapper.xml文件失败\n" + e.getMessage());
-                        }
-                    })
-                    // 将Set<Entry<String, String>>一对多映射为Entry<String, String>，即从Set集合中取出元素
-                    .flatMap(Set::stream)
-                    // 最后通过线程安全的终结管道操作，将流中元素包装进Map集合中进行返回
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (entity1, entity2) -> entity1));
+    /**
+     * 解析类路径中的Mapper.xml资源，资源可以位于目录或jar包中。<br/>
+     * <p/>
+     * 与{@code parseMapper(List)}相同，各个资源并行解析，出现相同的全限定id时抛出异常。<br/>
+     *
+     * @param resources mapper.xml资源
+     * @return {@link Map}<{@link String}, {@link MetaMapperStatement}> K为全限定id，V为SQL映射对象
+     */
+    public static Map<String, MetaMapperStatement> parseMapperResources(List<MapperResource> resources) {
+        // 用于合并各个文件的解析结果，并发Map保证并行合并时的线程安全
+        Map<String, MetaMapperStatement> statementMap = new ConcurrentHashMap<>();
+
+        resources.parallelStream().forEach(resource -> parseMapper(resource).forEach((sqlId, statement) -> {
+            // 若该id已存在，说明不同文件中声明了相同的全限定id
+            if (statementMap.putIfAbsent(sqlId, statement) != null) {
+                throw new RuntimeException("SQL映射id重复:" + sqlId + "\n位于" + resource);
+            }
+        }));
 
-            logger.info("解析Mapper.xml文件成功");
-            return collect;
+        logger.info("解析Mapper.xml文件成功，共" + resources.size() + "个文件，" + statementMap.size() + "条SQL映射");
+        return statementMap;
+    }
 
-        } catch (ParserConfigurationException | SAXException e) {
-            throw new RuntimeException("解析Mapper.xml文件失败\n"  +e.getMessage());
+    /**
+     * 解析单个Mapper.xml文件。<br/>
+     * <p/>
+     * 每次解析都使用一个全新的解析处理器，故返回的仅是该文件中的SQL映射对象。<br/>
+     *
+     * @param file mapper.xml文件
+     * @return {@link Map}<{@link String}, {@link MetaMapperStatement}> K为全限定id，V为SQL映射对象
+     */
+    public static Map<String, MetaMapperStatement> parseMapper(File file) {
+        return parseMapper(MapperResource.of(file.getName(), file));
+    }
+
+    /**
+     * 解析单个Mapper.xml资源。<br/>
+     *
+     * @param resource mapper.xml资源
+     * @return {@link Map}<{@link String}, {@link MetaMapperStatement}> K为全限定id，V为SQL映射对象
+     */
+    public static Map<String, MetaMapperStatement> parseMapper(MapperResource resource) {
+        SAXParser saxParser = SAX_PARSER.get();
+        ParseMapperHandler parseMapperHandler = new ParseMapperHandler();
+        try (InputStream in = resource.openStream()) {
+            InputSource inputSource = new InputSource(in);
+            // 用于解析相对路径以及在异常信息中定位文件
+            inputSource.setSystemId(resource.getUrl().toString());
+            saxParser.parse(inputSource, parseMapperHandler);
+            Map<String, MetaMapperStatement> statementMap = parseMapperHandler.getStatementMapper();
+            // 记录每个SQL映射所在的资源，以便监听文件修改时找出该文件中的id
+            for (MetaMapperStatement statement : statementMap.values()) {
+                statement.setResource(resource.getName());
+            }
+            return statementMap;
+        } catch (SAXException | IOException e) {
+            logger.info("解析Mapper.xml文件失败\n" + e.getMessage());
+            throw new RuntimeException("解析Mapper.xml文件失败:" + resource + "\n" + e.getMessage());
+        } finally {
+            // 重置解析器，以便该线程下一次复用
+            saxParser.reset();
         }
     }
 
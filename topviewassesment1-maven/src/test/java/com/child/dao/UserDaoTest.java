@@ -8,6 +8,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -28,6 +30,44 @@ public class UserDaoTest {
         try {
             sqlSession = SimpleSqlSessionUtil.openSession("default-config");
             Assertions.assertNotEquals(0, userDAO.insert(userPO));
+            // 生成的主键已写回
+            Assertions.assertNotNull(userPO.getId());
+            sqlSession.commit();
+        } catch (SQLException e) {
+            try {
+                sqlSession.rollback();
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+            throw new RuntimeException("添加记录失败" + e);
+        }
+        finally {
+            try {
+                sqlSession.close();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+    @Test
+    void testInsertBatch() {
+        List<UserPO> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UserPO userPO = new UserPO();
+            userPO.setName("王五" + i);
+            userPO.setEmail("@qq.com");
+            userPO.setAddress("上海");
+            users.add(userPO);
+        }
+
+        UserDAO userDAO = new UserDAOImpl();
+        SqlSession sqlSession = null;
+        try {
+            sqlSession = SimpleSqlSessionUtil.openSession();
+            Assertions.assertEquals(3, userDAO.insertBatch(users));
+            for (UserPO user : users) {
+                Assertions.assertNotNull(user.getId());
+            }
             sqlSession.commit();
         } catch (SQLException e) {
             try {
@@ -181,4 +221,60 @@ public class UserDaoTest {
             }
         }
     }
+
+    @Test
+    void testSelectByIds() {
+        UserDAOImpl userDAO = new UserDAOImpl();
+        SqlSession sqlSession = null;
+        try {
+            sqlSession = SimpleSqlSessionUtil.openSession();
+            Object obj = userDAO.selectByIds(Arrays.asList(1L, 2L, 3L));
+            Assertions.assertNotNull(obj);
+            logger.info(obj.toString());
+
+            sqlSession.commit();
+        } catch (SQLException e) {
+            try {
+                sqlSession.rollback();
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+            throw new RuntimeException("添加记录失败" + e);
+        }
+        finally {
+            try {
+                sqlSession.close();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    void testSelectByCondition() {
+        UserDAOImpl userDAO = new UserDAOImpl();
+        SqlSession sqlSession = null;
+        try {
+            sqlSession = SimpleSqlSessionUtil.openSession();
+            Object obj = userDAO.selectByCondition(null, "GTR");
+            Assertions.assertNotNull(obj);
+            logger.info(obj.toString());
+
+            sqlSession.commit();
+        } catch (SQLException e) {
+            try {
+                sqlSession.rollback();
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+            throw new RuntimeException("添加记录失败" + e);
+        }
+        finally {
+            try {
+                sqlSession.close();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
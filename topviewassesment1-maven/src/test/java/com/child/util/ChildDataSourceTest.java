@@ -1,12 +1,26 @@
 package com.child.util;
 
+import com.child.exception.OverMaxActiveException;
+import com.child.util.fake.FakeDatabase;
+import com.child.util.fake.FakeDriver;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 
@@ -93,4 +107,383 @@ public class ChildDataSourceTest {
         }
     }
 
+    /**
+     * 使用内嵌的H2数据库测试在线调整容量：<br/>
+     * 调小最大活跃数后其他线程获取失败且多余的空闲连接被关闭，调大后可以再次获取；
+     * 调大最小空闲数时立即补充空闲连接；不合法的配置被拒绝且配置不变。<br/>
+     */
+    @Test
+    void testResize() throws Exception {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("h2-primary");
+        dataSource.setMinIdle(0);
+        dataSource.setMaxActive(1);
+        Connection connection = dataSource.getConnection();
+        Assertions.assertEquals(0, dataSource.getMetrics().getIdleConnections());
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                () -> CompletableFuture.runAsync(() -> borrowAndClose(dataSource)).get());
+        Assertions.assertTrue(e.getCause() instanceof OverMaxActiveException);
+
+        dataSource.setMaxActive(2);
+        CompletableFuture.runAsync(() -> borrowAndClose(dataSource)).get();
+        connection.close();
+        Assertions.assertEquals(0, dataSource.getMetrics().getActiveConnections());
+
+        dataSource.setMaxActive(10);
+        dataSource.setMinIdle(4);
+        Assertions.assertEquals(4, dataSource.getMetrics().getIdleConnections());
+        dataSource.setMinIdle(1);
+        dataSource.setMaxActive(2);
+        Assertions.assertEquals(2, dataSource.getMetrics().getIdleConnections());
+
+        Assertions.assertThrows(RuntimeException.class, () -> dataSource.setMinIdle(3));
+        Assertions.assertThrows(RuntimeException.class, () -> dataSource.setMaxActive(0));
+        Assertions.assertEquals(2, dataSource.getMaxActive());
+        Assertions.assertEquals(1, dataSource.getMinIdle());
+    }
+
+    /**
+     * 测试初始化连接的预热：同步预热返回时已全部创建完毕；
+     * 异步预热立即返回，预热期间即可获取连接，完成后空闲池中有全部的初始化连接。<br/>
+     */
+    @Test
+    void testWarmUp() throws Exception {
+        ChildDataSource syncDataSource = ChildDataSource.creatDataSource("h2-primary");
+        Assertions.assertTrue(syncDataSource.getWarmUp().isDone());
+        Assertions.assertEquals(2, syncDataSource.getMetrics().getIdleConnections());
+
+        ChildDataSource asyncDataSource = ChildDataSource.creatDataSource("h2-warmup");
+        Connection connection = asyncDataSource.getConnection();
+        Assertions.assertFalse(connection.isClosed());
+        connection.close();
+        asyncDataSource.getWarmUp().get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(asyncDataSource.getMetrics().getIdleConnections() >= 8);
+    }
+
+    /**
+     * 测试预热不超出容量：异步预热期间获取连接时，预热中的连接已预留了容量，获取连接的线程等待预热的连接而不是另行补充；
+     * 同步预热失败时，已经创建的连接同样被关闭。<br/>
+     */
+    @Test
+    void testWarmUpCapacity() throws Exception {
+        ChildDataSource asyncDataSource = ChildDataSource.creatDataSource("fake-warmup-async");
+        Connection connection = asyncDataSource.getConnection();
+        asyncDataSource.getWarmUp().get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(4, asyncDataSource.getMetrics().getActiveConnections()
+                + asyncDataSource.getMetrics().getIdleConnections());
+        Assertions.assertEquals(4, FakeDriver.database("warmupasync").getOpenConnections());
+        connection.close();
+        asyncDataSource.close();
+
+        Assertions.assertThrows(RuntimeException.class, () -> ChildDataSource.creatDataSource("fake-warmup-fail"));
+        FakeDatabase database = FakeDriver.database("warmupfail");
+        Assertions.assertEquals(3, database.getConnectAttempts());
+        Assertions.assertEquals(0, database.getOpenConnections());
+    }
+
+    /**
+     * 测试连接校验：关闭物理连接模拟连接失效，失效的空闲连接被定期校验发现，
+     * 借出前的校验跳过失效连接并返回可用连接，归还时重置失败的连接不再入池。<br/>
+     */
+    @Test
+    void testValidation() throws SQLException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("h2-validation");
+        // 空闲时失效的连接由定期校验发现
+        Connection connection = dataSource.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        connection.close();
+        physical.close();
+        Assertions.assertEquals(1, dataSource.validateIdleConnections());
+
+        // 借出前的校验跳过失效的连接，失效连接位于队尾，依次借还一轮必然会遇到它
+        connection = dataSource.getConnection();
+        physical = connection.unwrap(Connection.class);
+        connection.close();
+        physical.close();
+        for (long i = dataSource.getMetrics().getIdleConnections(); i >= 0; i--) {
+            Connection valid = dataSource.getConnection();
+            Assertions.assertTrue(valid.isValid(1));
+            valid.close();
+        }
+        Assertions.assertEquals(2, dataSource.getMetrics().getValidationFailures());
+
+        // 归还时重置失败的连接不再入池
+        connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        connection.unwrap(Connection.class).close();
+        connection.close();
+        Assertions.assertEquals(0, dataSource.getMetrics().getActiveConnections());
+        Assertions.assertEquals(3, dataSource.getMetrics().getValidationFailures());
+    }
+
+    /**
+     * 测试连接状态的脏位跟踪：与当前值相同的设置不调用驱动，未修改状态的连接归还时不调用任何设置方法，
+     * 修改过的状态在归还时只重置一次。<br/>
+     */
+    @Test
+    void testResetState() throws SQLException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("fake-reset");
+        FakeDatabase database = FakeDriver.database("reset");
+
+        // 未修改状态，或设置为与当前相同的值，归还时不调用驱动
+        database.resetCounters();
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(true);
+        connection.setReadOnly(false);
+        connection.setTransactionIsolation(connection.getTransactionIsolation());
+        connection.close();
+        Assertions.assertEquals(0, database.getConnectionCalls("setAutoCommit"));
+        Assertions.assertEquals(0, database.getConnectionCalls("setTransactionIsolation"));
+        Assertions.assertEquals(0, database.getConnectionCalls("setReadOnly"));
+
+        // 修改过的状态在借出时设置一次，归还时重置一次
+        database.resetCounters();
+        connection = dataSource.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        int defaultIsolation = connection.getTransactionIsolation();
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        Assertions.assertFalse(physical.getAutoCommit());
+        Assertions.assertTrue(connection.isReadOnly());
+        connection.close();
+        Assertions.assertEquals(2, database.getConnectionCalls("setAutoCommit"));
+        Assertions.assertEquals(2, database.getConnectionCalls("setTransactionIsolation"));
+        Assertions.assertEquals(2, database.getConnectionCalls("setReadOnly"));
+        Assertions.assertTrue(physical.getAutoCommit());
+        Assertions.assertFalse(physical.isReadOnly());
+        Assertions.assertEquals(defaultIsolation, physical.getTransactionIsolation());
+
+        // 驱动抛出的异常不被反射包装
+        Connection borrowed = dataSource.getConnection();
+        borrowed.unwrap(Connection.class).close();
+        Assertions.assertThrows(SQLException.class, () -> borrowed.prepareStatement("select * from t_user"));
+        borrowed.close();
+        dataSource.close();
+    }
+
+    /**
+     * 测试关闭连接池：注销JMX中的注册，停止后台守护线程，关闭空闲连接；
+     * 仍被持有的连接在归还时关闭，关闭后获取连接失败。<br/>
+     */
+    @Test
+    void testClose() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName("com.child.util:*");
+        int registered = mBeanServer.queryNames(pattern, null).size();
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("fake-close");
+        FakeDatabase database = FakeDriver.database("close");
+        Assertions.assertEquals(registered + 2, mBeanServer.queryNames(pattern, null).size());
+
+        Connection connection = dataSource.getConnection();
+        dataSource.close();
+        Assertions.assertTrue(dataSource.isClosed());
+        Assertions.assertEquals(registered, mBeanServer.queryNames(pattern, null).size());
+        Field field = ChildDataSource.class.getDeclaredField("housekeeper");
+        field.setAccessible(true);
+        Assertions.assertTrue(((ExecutorService) field.get(dataSource)).isShutdown());
+        Assertions.assertEquals(1, database.getOpenConnections());
+
+        connection.close();
+        Assertions.assertEquals(0, database.getOpenConnections());
+        Assertions.assertEquals(0, dataSource.getMetrics().getIdleConnections());
+        Assertions.assertThrows(RuntimeException.class, dataSource::getConnection);
+        dataSource.close();
+    }
+
+    /**
+     * 测试超时后清除中断标志：计时线程中断了获取连接的线程，超时后该线程的中断标志被清除，之后可以正常获取连接。
+     * 调用前已被中断的线程获取连接时抛出异常而不是返回null，且中断标志被保留。<br/>
+     */
+    @Test
+    void testTimeoutClearsInterrupt() throws SQLException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("fake-timeout");
+        FakeDatabase database = FakeDriver.database("timeout");
+        database.setConnectLatencyMillis(300);
+        Assertions.assertThrows(RuntimeException.class, dataSource::getConnection);
+        Assertions.assertFalse(Thread.currentThread().isInterrupted());
+
+        database.setConnectLatencyMillis(0);
+        Connection connection = dataSource.getConnection();
+        Assertions.assertNotNull(connection);
+        connection.close();
+
+        Thread.currentThread().interrupt();
+        Assertions.assertThrows(RuntimeException.class, dataSource::getConnection);
+        Assertions.assertTrue(Thread.interrupted());
+        dataSource.close();
+    }
+
+    /**
+     * 测试泄漏检测：持有时间超过阈值的连接被报告，未开启{@code removeAbandoned}时连接仍可使用；
+     * 开启时连接被强制回收，物理连接被关闭，活跃数与持有时长的统计随之更新，后台补充一个新的空闲连接，
+     * 原持有者之后的归还不产生影响。<br/>
+     */
+    @Test
+    void testLeakDetection() throws Exception {
+        ChildDataSource leakDataSource = ChildDataSource.creatDataSource("fake-leak");
+        Connection leaked = CompletableFuture.supplyAsync(leakDataSource::getConnection).get();
+        Assertions.assertEquals(0, leakDataSource.checkLeakedConnections());
+        TimeUnit.MILLISECONDS.sleep(150);
+        Assertions.assertEquals(1, leakDataSource.checkLeakedConnections());
+        Assertions.assertFalse(leaked.isClosed());
+        Assertions.assertEquals(1, leakDataSource.getMetrics().getActiveConnections());
+        leaked.close();
+        Assertions.assertEquals(0, leakDataSource.getMetrics().getActiveConnections());
+        Assertions.assertEquals(1, leakDataSource.getMetrics().getHoldTime().getCount());
+        leakDataSource.close();
+
+        ChildDataSource abandonDataSource = ChildDataSource.creatDataSource("fake-abandon");
+        FakeDatabase database = FakeDriver.database("abandon");
+        Connection abandoned = CompletableFuture.supplyAsync(abandonDataSource::getConnection).get();
+        TimeUnit.MILLISECONDS.sleep(150);
+        Assertions.assertEquals(1, abandonDataSource.checkLeakedConnections());
+        Assertions.assertTrue(abandoned.isClosed());
+        Assertions.assertEquals(0, abandonDataSource.getMetrics().getActiveConnections());
+        Assertions.assertEquals(1, abandonDataSource.getMetrics().getHoldTime().getCount());
+        Assertions.assertEquals(0, abandonDataSource.checkLeakedConnections());
+        // 被回收的连接由后台补充
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (abandonDataSource.getMetrics().getIdleConnections() < 1 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        Assertions.assertEquals(1, abandonDataSource.getMetrics().getIdleConnections());
+        Assertions.assertEquals(1, database.getOpenConnections());
+
+        abandoned.close();
+        Assertions.assertEquals(1, abandonDataSource.getMetrics().getIdleConnections());
+        Assertions.assertEquals(1, abandonDataSource.getMetrics().getHoldTime().getCount());
+        borrowAndClose(abandonDataSource);
+        Assertions.assertEquals(0, abandonDataSource.getMetrics().getActiveConnections());
+        abandonDataSource.close();
+    }
+
+    /**
+     * 测试借出前的校验在锁外进行：一个线程取到失效连接并重新建立连接期间，其他线程仍能立即借出可用的空闲连接；
+     * 数据库宕机导致重新建立失败时，占用的容量被释放。<br/>
+     */
+    @Test
+    void testValidateOutsideLock() throws Exception {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("fake-borrow");
+        FakeDatabase database = FakeDriver.database("borrow");
+        // 使失效的连接位于队首：先借出队首的连接并关闭其物理连接，再借还另一个连接
+        Connection connection = dataSource.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        connection.close();
+        physical.close();
+        borrowAndClose(dataSource);
+
+        database.setConnectLatencyMillis(300);
+        CompletableFuture<Void> reconnect = CompletableFuture.runAsync(() -> borrowAndClose(dataSource));
+        TimeUnit.MILLISECONDS.sleep(50);
+        long start = System.nanoTime();
+        connection = dataSource.getConnection();
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 150);
+        connection.close();
+        reconnect.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, dataSource.getMetrics().getValidationFailures());
+        Assertions.assertEquals(2, database.getOpenConnections());
+
+        database.setConnectLatencyMillis(0);
+        database.setDown(true);
+        Assertions.assertThrows(RuntimeException.class, dataSource::getConnection);
+        Assertions.assertEquals(0, dataSource.getMetrics().getActiveConnections());
+        database.setDown(false);
+        dataSource.close();
+    }
+
+    /**
+     * 测试调大最小空闲数时在锁外补充：补充期间其他需要空闲池锁的操作不被阻塞，例如调整最大活跃数；
+     * 数据库宕机导致补充失败时不抛出异常，新的配置仍然生效。<br/>
+     */
+    @Test
+    void testSetMinIdleOutsideLock() throws Exception {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("fake-minidle");
+        FakeDatabase database = FakeDriver.database("minidle");
+        database.setConnectLatencyMillis(200);
+        CompletableFuture<Void> resize = CompletableFuture.runAsync(() -> dataSource.setMinIdle(3));
+        TimeUnit.MILLISECONDS.sleep(50);
+        long start = System.nanoTime();
+        dataSource.setMaxActive(4);
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+        resize.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(3, dataSource.getMetrics().getIdleConnections());
+
+        database.setConnectLatencyMillis(0);
+        database.setDown(true);
+        dataSource.setMinIdle(4);
+        Assertions.assertEquals(4, dataSource.getMinIdle());
+        Assertions.assertEquals(3, database.getOpenConnections());
+        database.setDown(false);
+        dataSource.close();
+    }
+
+    /**
+     * 测试归还连接与补充空闲连接并发时不超出容量：归还连接的线程在放回空闲池之前暂停，
+     * 此时另一个线程获取连接并触发{@code isMinIdled()}，归还中的连接已预留了容量，不会再补充新的连接。<br/>
+     */
+    @Test
+    void testReleaseReservesCapacity() throws Exception {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("fake-release");
+        FakeDatabase database = FakeDriver.database("release");
+        Connection released = dataSource.getConnection();
+        Assertions.assertEquals(2, database.getOpenConnections());
+
+        // 替换空闲池，归还该连接的线程在入池之前暂停
+        CountDownLatch offering = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        LinkedBlockingQueue<Connection> idlePool = new LinkedBlockingQueue<Connection>() {
+            @Override
+            public boolean offer(Connection connection) {
+                pause(connection);
+                return super.offer(connection);
+            }
+
+            @Override
+            public void put(Connection connection) throws InterruptedException {
+                pause(connection);
+                super.put(connection);
+            }
+
+            private void pause(Connection connection) {
+                if (connection == released) {
+                    offering.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        Field field = ChildDataSource.class.getDeclaredField("idlePool");
+        field.setAccessible(true);
+        idlePool.addAll((Collection<Connection>) field.get(dataSource));
+        field.set(dataSource, idlePool);
+
+        CompletableFuture<Void> release = CompletableFuture.runAsync(() -> {
+            try {
+                released.close();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Assertions.assertTrue(offering.await(5, TimeUnit.SECONDS));
+        // 空闲连接数不高于minIdle，获取连接时检查是否需要补充
+        Connection borrowed = CompletableFuture.supplyAsync(dataSource::getConnection).get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, database.getOpenConnections());
+        resume.countDown();
+        release.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, database.getOpenConnections());
+        borrowed.close();
+        dataSource.close();
+    }
+
+    private static void borrowAndClose(ChildDataSource dataSource) {
+        try {
+            dataSource.getConnection().close();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.child.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+class ChildLoggerTest {
+
+    /**
+     * 组件级别是全局的，无论断言是否通过都移除测试中设置的级别，避免影响之后的测试。<br/>
+     */
+    @AfterEach
+    void resetLevel() {
+        ChildLogger.setLevel(ChildLoggerTest.class.getName(), null);
+        ChildLogger.setLevel("com.child.util", null);
+    }
+
+    /**
+     * 测试同一组件获取到的是同一个日志对象。<br/>
+     */
+    @Test
+    void testOf() {
+        Assertions.assertSame(ChildLogger.of(ChildLoggerTest.class), ChildLogger.of(ChildLoggerTest.class));
+    }
+
+    /**
+     * 测试级别关闭时不会构建日志内容，并且按最长前缀匹配在运行时修改组件级别。<br/>
+     */
+    @Test
+    void testSetLevel() {
+        ChildLogger childLogger = ChildLogger.of(ChildLoggerTest.class);
+        AtomicInteger built = new AtomicInteger();
+
+        // 默认级别为INFO，调试日志不应构建内容
+        childLogger.debug(() -> "调试日志" + built.incrementAndGet());
+        Assertions.assertEquals(0, built.get());
+        Assertions.assertTrue(childLogger.isLoggable(Level.INFO));
+
+        // 包级别开启调试，类级别关闭日志，类级别优先
+        ChildLogger.setLevel("com.child.util", Level.FINE);
+        Assertions.assertTrue(childLogger.isLoggable(Level.FINE));
+        ChildLogger.setLevel(ChildLoggerTest.class.getName(), Level.OFF);
+        Assertions.assertFalse(childLogger.isLoggable(Level.WARNING));
+
+        resetLevel();
+        Assertions.assertFalse(childLogger.isLoggable(Level.FINE));
+    }
+}
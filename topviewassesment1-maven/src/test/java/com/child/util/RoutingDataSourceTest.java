@@ -0,0 +1,216 @@
+package com.child.util;
+
+import com.child.pojo.UserPO;
+import com.child.util.orm.ExecutorType;
+import com.child.util.orm.SimpleSqlSessionFactory;
+import com.child.util.orm.SqlSession;
+import com.child.util.orm.TransactionIsolation;
+import com.child.util.orm.bean.MetaMapperStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 使用三个内嵌的H2数据库分别作为主库与两个从库，每个库的t_user中预置一条以库名为name的记录，
+ * 通过查询结果判断语句被路由到了哪个库。<br/>
+ */
+class RoutingDataSourceTest {
+    private static ChildDataSource primary;
+    private static ChildDataSource replica1;
+    private static ChildDataSource replica2;
+
+    @BeforeAll
+    static void createDatabases() throws SQLException {
+        primary = createDatabase("h2-primary", "primary");
+        replica1 = createDatabase("h2-replica-1", "replica-1");
+        replica2 = createDatabase("h2-replica-2", "replica-2");
+    }
+
+    private static ChildDataSource createDatabase(String resource, String name) throws SQLException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource(resource);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists t_user(id bigint auto_increment primary key, " +
+                    "name varchar(50), email varchar(50), address varchar(50), old_car varchar(50))");
+            statement.execute("delete from t_user");
+            statement.execute("insert into t_user(name) values('" + name + "')");
+        }
+        return dataSource;
+    }
+
+    @AfterEach
+    void cleanUp() throws SQLException {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("delete from t_user where name <> 'primary'");
+        }
+    }
+
+    /**
+     * 测试轮询：依次使用各个从库，写连接始终为主库。<br/>
+     */
+    @Test
+    void testRoundRobin() throws SQLException {
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, Arrays.asList(replica1, replica2),
+                RoutingDataSource.LoadBalance.ROUND_ROBIN);
+
+        String first = readUrl(routingDataSource);
+        String second = readUrl(routingDataSource);
+        Assertions.assertNotEquals(first, second);
+        Assertions.assertEquals(first, readUrl(routingDataSource));
+        try (Connection connection = routingDataSource.getConnection()) {
+            Assertions.assertTrue(connection.getMetaData().getURL().contains("mem:primary"));
+        }
+    }
+
+    /**
+     * 测试最少活跃：某个从库的连接未归还时，之后的查询均使用另一个从库。<br/>
+     */
+    @Test
+    void testLeastActive() throws SQLException {
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, Arrays.asList(replica1, replica2),
+                RoutingDataSource.LoadBalance.LEAST_ACTIVE);
+
+        try (Connection busy = replica1.getConnection()) {
+            Assertions.assertNotNull(busy);
+            for (int i = 0; i < 4; i++) {
+                Assertions.assertTrue(readUrl(routingDataSource).contains("mem:replica_2"));
+            }
+        }
+        Assertions.assertEquals(RoutingDataSource.LoadBalance.LEAST_ACTIVE,
+                RoutingDataSource.LoadBalance.of("leastActive"));
+    }
+
+    /**
+     * 测试会话中的路由：自动提交时每条语句都不在事务中，执行过更新后的查询仍发往从库；
+     * 手动提交时事务从第一条语句开始，所有查询都发往主库，回滚后仍然如此。<br/>
+     */
+    @Test
+    void testSessionRouting() throws SQLException {
+        Map<String, MetaMapperStatement> statementMap = new HashMap<>();
+        statementMap.put("user.selectAll", new MetaMapperStatement("user.selectAll", "select",
+                "select * from t_user", UserPO.class.getName()));
+        statementMap.put("user.insert", new MetaMapperStatement("user.insert", "insert",
+                "insert into t_user(name) values(#{name})", null));
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, Arrays.asList(replica1, replica2),
+                RoutingDataSource.LoadBalance.ROUND_ROBIN);
+        SimpleSqlSessionFactory factory = new SimpleSqlSessionFactory(routingDataSource, statementMap);
+
+        try (SqlSession sqlSession = factory.openSession(true)) {
+            List<UserPO> users = sqlSession.selectList("user.selectAll", null);
+            Assertions.assertEquals(1, users.size());
+            Assertions.assertTrue(users.get(0).getName().startsWith("replica"));
+
+            Assertions.assertEquals(1, sqlSession.insert("user.insert", newUser()));
+            // 更新已自动提交，之后的查询不在事务中，仍在从库执行
+            for (int i = 0; i < 2; i++) {
+                users = sqlSession.selectList("user.selectAll", null);
+                Assertions.assertEquals(1, users.size());
+                Assertions.assertTrue(users.get(0).getName().startsWith("replica"));
+            }
+        }
+
+        SqlSession sqlSession = factory.openSession();
+        try {
+            // 事务中的第一条查询即在主库执行
+            List<UserPO> users = sqlSession.selectList("user.selectAll", null);
+            Assertions.assertEquals(2, users.size());
+            Assertions.assertEquals("primary", users.get(0).getName());
+            Assertions.assertEquals(0, replica1.getMetrics().getActiveConnections()
+                    + replica2.getMetrics().getActiveConnections());
+
+            Assertions.assertEquals(1, sqlSession.insert("user.insert", newUser()));
+            Assertions.assertEquals(3, sqlSession.<UserPO>selectList("user.selectAll", null).size());
+
+            sqlSession.rollback();
+            users = sqlSession.selectList("user.selectAll", null);
+            Assertions.assertEquals(2, users.size());
+            Assertions.assertEquals("primary", users.get(0).getName());
+        } finally {
+            sqlSession.close();
+        }
+    }
+
+    /**
+     * 测试只读会话：所有查询都在从库上执行，语句被复用，执行更新直接抛出异常。<br/>
+     */
+    @Test
+    void testReadOnlySession() throws SQLException {
+        Map<String, MetaMapperStatement> statementMap = new HashMap<>();
+        statementMap.put("user.selectAll", new MetaMapperStatement("user.selectAll", "select",
+                "select * from t_user", UserPO.class.getName()));
+        statementMap.put("user.insert", new MetaMapperStatement("user.insert", "insert",
+                "insert into t_user(name) values(#{name})", null));
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, Arrays.asList(replica1, replica2),
+                RoutingDataSource.LoadBalance.ROUND_ROBIN);
+        SimpleSqlSessionFactory factory = new SimpleSqlSessionFactory(routingDataSource, statementMap);
+
+        try (SqlSession sqlSession = factory.openSession(ExecutorType.REUSE, TransactionIsolation.READ_COMMITTED,
+                true)) {
+            String replica = sqlSession.<UserPO>selectList("user.selectAll", null).get(0).getName();
+            Assertions.assertTrue(replica.startsWith("replica"));
+            Assertions.assertEquals(replica, sqlSession.<UserPO>selectList("user.selectAll", null).get(0).getName());
+            Assertions.assertThrows(RuntimeException.class, () -> sqlSession.insert("user.insert", new UserPO()));
+        }
+        Assertions.assertEquals(0, replica1.getMetrics().getActiveConnections());
+        Assertions.assertEquals(0, replica2.getMetrics().getActiveConnections());
+    }
+
+    /**
+     * 测试延迟获取连接：会话在执行第一条语句前不占用连接，自动提交时每条语句执行后即归还，
+     * 手动提交时连接一直持有到会话关闭。<br/>
+     */
+    @Test
+    void testLazyConnection() throws SQLException {
+        Map<String, MetaMapperStatement> statementMap = new HashMap<>();
+        statementMap.put("user.selectAll", new MetaMapperStatement("user.selectAll", "select",
+                "select * from t_user", UserPO.class.getName()));
+        statementMap.put("user.insert", new MetaMapperStatement("user.insert", "insert",
+                "insert into t_user(name) values(#{name})", null));
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, Arrays.asList(replica1, replica2),
+                RoutingDataSource.LoadBalance.ROUND_ROBIN);
+        SimpleSqlSessionFactory factory = new SimpleSqlSessionFactory(routingDataSource, statementMap);
+
+        try (SqlSession sqlSession = factory.openSession(true)) {
+            Assertions.assertEquals(0, primary.getMetrics().getActiveConnections());
+            Assertions.assertEquals(1, sqlSession.<UserPO>selectList("user.selectAll", null).size());
+            Assertions.assertEquals(0, replica1.getMetrics().getActiveConnections()
+                    + replica2.getMetrics().getActiveConnections());
+            Assertions.assertEquals(1, sqlSession.insert("user.insert", newUser()));
+            Assertions.assertEquals(0, primary.getMetrics().getActiveConnections());
+        }
+
+        SqlSession sqlSession = factory.openSession();
+        try {
+            Assertions.assertEquals(1, sqlSession.insert("user.insert", newUser()));
+            Assertions.assertEquals(1, primary.getMetrics().getActiveConnections());
+            Assertions.assertEquals(3, sqlSession.<UserPO>selectList("user.selectAll", null).size());
+            sqlSession.commit();
+            Assertions.assertEquals(1, primary.getMetrics().getActiveConnections());
+        } finally {
+            sqlSession.close();
+        }
+        Assertions.assertEquals(0, primary.getMetrics().getActiveConnections());
+    }
+
+    private static UserPO newUser() {
+        UserPO userPO = new UserPO();
+        userPO.setName("lazy");
+        return userPO;
+    }
+
+    private static String readUrl(RoutingDataSource routingDataSource) throws SQLException {
+        try (Connection connection = routingDataSource.getReadConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+}
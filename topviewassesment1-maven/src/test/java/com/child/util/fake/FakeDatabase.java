@@ -0,0 +1,287 @@
+package com.child.util.fake;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link FakeDriver}中的一个模拟数据库，保存查询返回的数据、注入的延迟与故障以及各项计数。<br/>
+ * <p/>
+ * 所有查询都返回同一份结果集，默认为{@code rows}行t_user记录，也可以通过{@code setResult()}指定任意的列与数据；
+ * 更新返回{@code updateCount}。<br/>
+ * 故障按次数注入而不是按概率，例如{@code queryFailEvery=3}表示每第3次执行语句失败，
+ * 保证同样的负载下结果可以复现。{@code down}为true时模拟数据库宕机：
+ * 获取连接与执行语句均失败，已有连接的{@link Connection#isValid(int)}返回false。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+public class FakeDatabase {
+    /**
+     * 默认结果集的列名，与{@link com.child.pojo.UserPO}的字段对应
+     */
+    public static final String[] USER_COLUMNS = {"id", "name", "email", "address", "old_car"};
+
+    private final String name;
+    private volatile String[] columns = USER_COLUMNS;
+    private volatile Object[][] rows = userRows(1);
+    private volatile int updateCount = 1;
+    private volatile long connectLatencyMillis;
+    private volatile long queryLatencyMillis;
+    private volatile int connectFailEvery;
+    private volatile int queryFailEvery;
+    private volatile boolean down;
+
+    /**
+     * 尝试获取连接的次数，包括失败的
+     */
+    private final AtomicLong connectAttempts = new AtomicLong();
+    /**
+     * 尝试执行语句的次数，包括失败的
+     */
+    private final AtomicLong statementAttempts = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    /**
+     * 下一个生成的主键
+     */
+    private final AtomicLong nextId = new AtomicLong(1);
+    /**
+     * 所有连接上各个方法被调用的次数，K为方法名，不包括{@link Object}中的方法与关闭相关的方法
+     */
+    private final Map<String, LongAdder> connectionCalls = new ConcurrentHashMap<>();
+    /**
+     * 当前未关闭的物理连接数
+     */
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    FakeDatabase(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 按URL中的参数设置，可用的参数为：<br/>
+     * {@code rows}查询返回的t_user记录数，{@code updateCount}更新的受影响行数，
+     * {@code connectLatency}与{@code queryLatency}获取连接与执行语句的延迟（毫秒），
+     * {@code connectFailEvery}与{@code queryFailEvery}每第N次获取连接与执行语句失败，0为不失败。
+     *
+     * @param key   参数名
+     * @param value 参数值
+     */
+    void configure(String key, String value) {
+        switch (key) {
+            case "rows":
+                setResult(USER_COLUMNS, userRows(Integer.parseInt(value)));
+                break;
+            case "updateCount":
+                updateCount = Integer.parseInt(value);
+                break;
+            case "connectLatency":
+                connectLatencyMillis = Long.parseLong(value);
+                break;
+            case "queryLatency":
+                queryLatencyMillis = Long.parseLong(value);
+                break;
+            case "connectFailEvery":
+                connectFailEvery = Integer.parseInt(value);
+                break;
+            case "queryFailEvery":
+                queryFailEvery = Integer.parseInt(value);
+                break;
+            default:
+                throw new RuntimeException("不支持的参数:" + key);
+        }
+    }
+
+    /**
+     * 生成{@code count}行t_user记录，id从1开始。
+     *
+     * @param count 行数
+     * @return Object[][]
+     */
+    public static Object[][] userRows(int count) {
+        Object[][] data = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            long id = i + 1;
+            data[i] = new Object[]{id, "user" + id, "user" + id + "@qq.com", "CN", "GTR"};
+        }
+        return data;
+    }
+
+    /**
+     * 获取一个物理连接，先等待连接延迟，再判断是否注入故障。
+     */
+    Connection connect() throws SQLException {
+        pause(connectLatencyMillis);
+        if (down || shouldFail(connectAttempts, connectFailEvery)) {
+            failures.incrementAndGet();
+            throw new SQLException("模拟获取连接失败:" + name);
+        }
+        openConnections.incrementAndGet();
+        return FakeJdbc.connection(this);
+    }
+
+    /**
+     * 执行语句前调用，先等待执行延迟，再判断是否注入故障。
+     *
+     * @param query 是否为查询
+     */
+    void beforeStatement(boolean query) throws SQLException {
+        pause(queryLatencyMillis);
+        if (down || shouldFail(statementAttempts, queryFailEvery)) {
+            failures.incrementAndGet();
+            throw new SQLException("模拟执行语句失败:" + name);
+        }
+        (query ? queries : updates).incrementAndGet();
+    }
+
+    /**
+     * 生成{@code count}个自增的主键，作为{@link java.sql.Statement#getGeneratedKeys()}的结果。
+     */
+    Object[][] generateKeys(int count) {
+        Object[][] keys = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            keys[i] = new Object[]{nextId.getAndIncrement()};
+        }
+        return keys;
+    }
+
+    void connectionCalled(String method) {
+        connectionCalls.computeIfAbsent(method, key -> new LongAdder()).increment();
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    private static boolean shouldFail(AtomicLong attempts, int every) {
+        long attempt = attempts.incrementAndGet();
+        return every > 0 && attempt % every == 0;
+    }
+
+    private static void pause(long millis) throws SQLException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("模拟延迟被中断", e);
+        }
+    }
+
+    /**
+     * 创建一个包含当前结果集数据的结果集，不经过连接与语句，也不计入任何计数，用于单独测试结果集的映射。
+     *
+     * @return {@link ResultSet}
+     */
+    public ResultSet resultSet() {
+        return FakeJdbc.resultSet(columns, rows, 0);
+    }
+
+    /**
+     * 清空所有计数，不改变配置。
+     */
+    public void resetCounters() {
+        connectAttempts.set(0);
+        statementAttempts.set(0);
+        queries.set(0);
+        updates.set(0);
+        failures.set(0);
+        connectionCalls.clear();
+    }
+
+    /**
+     * 指定所有查询返回的结果集。
+     *
+     * @param columns 列名
+     * @param rows    每行的数据，顺序与列名一致
+     */
+    public void setResult(String[] columns, Object[][] rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public Object[][] getRows() {
+        return rows;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    public void setUpdateCount(int updateCount) {
+        this.updateCount = updateCount;
+    }
+
+    public void setConnectLatencyMillis(long connectLatencyMillis) {
+        this.connectLatencyMillis = connectLatencyMillis;
+    }
+
+    public void setQueryLatencyMillis(long queryLatencyMillis) {
+        this.queryLatencyMillis = queryLatencyMillis;
+    }
+
+    public void setConnectFailEvery(int connectFailEvery) {
+        this.connectFailEvery = connectFailEvery;
+    }
+
+    public void setQueryFailEvery(int queryFailEvery) {
+        this.queryFailEvery = queryFailEvery;
+    }
+
+    public boolean isDown() {
+        return down;
+    }
+
+    public void setDown(boolean down) {
+        this.down = down;
+    }
+
+    public long getConnectAttempts() {
+        return connectAttempts.get();
+    }
+
+    public long getQueries() {
+        return queries.get();
+    }
+
+    public long getUpdates() {
+        return updates.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * 获取所有连接上某个方法被调用的次数，例如{@code setAutoCommit}。
+     *
+     * @param method 方法名
+     * @return long 调用次数
+     */
+    public long getConnectionCalls(String method) {
+        LongAdder calls = connectionCalls.get(method);
+        return calls == null ? 0 : calls.sum();
+    }
+}
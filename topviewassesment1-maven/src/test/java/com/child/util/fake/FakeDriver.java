@@ -0,0 +1,102 @@
+package com.child.util.fake;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * 测试用的进程内JDBC驱动，不依赖任何外部数据库。<br/>
+ * <p/>
+ * URL的格式为{@code jdbc:childfake:<name>[;key=value]...}，同名的URL共享同一个{@link FakeDatabase}，
+ * 测试中可以通过{@code database(name)}获取它，在运行时调整行为并读取计数。<br/>
+ * 可选的参数只在该库第一次被使用时生效，详见{@link FakeDatabase#configure(String, String)}。<br/>
+ * 连接池配置文件中以{@code driver=com.child.util.fake.FakeDriver}加载该驱动。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+public class FakeDriver implements Driver {
+    /**
+     * URL前缀
+     */
+    public static final String PREFIX = "jdbc:childfake:";
+
+    /**
+     * 所有的模拟数据库，K为库名
+     */
+    private static final Map<String, FakeDatabase> DATABASES = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new FakeDriver());
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 获取指定名称的模拟数据库，不存在时以默认配置创建。
+     *
+     * @param name 库名
+     * @return {@link FakeDatabase}
+     */
+    public static FakeDatabase database(String name) {
+        return DATABASES.computeIfAbsent(name, FakeDatabase::new);
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        String[] parts = url.substring(PREFIX.length()).split(";");
+        FakeDatabase database = DATABASES.computeIfAbsent(parts[0].trim(), name -> {
+            FakeDatabase created = new FakeDatabase(name);
+            for (int i = 1; i < parts.length; i++) {
+                int index = parts[i].indexOf('=');
+                if (index > 0) {
+                    created.configure(parts[i].substring(0, index).trim(), parts[i].substring(index + 1).trim());
+                }
+            }
+            return created;
+        });
+        return database.connect();
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
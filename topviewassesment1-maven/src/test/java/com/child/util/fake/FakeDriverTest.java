@@ -0,0 +1,71 @@
+package com.child.util.fake;
+
+import com.child.pojo.UserPO;
+import com.child.util.ChildDataSource;
+import com.child.util.orm.SimpleSqlSessionFactory;
+import com.child.util.orm.SqlSession;
+import com.child.util.orm.bean.MetaMapperStatement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 使用模拟驱动测试连接池与会话：结果集、生成的主键、注入的延迟与故障以及模拟宕机。<br/>
+ */
+class FakeDriverTest {
+
+    @Test
+    void testFakeDriver() throws SQLException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("fake-pool");
+        FakeDatabase database = FakeDriver.database("pool");
+        Assertions.assertEquals(2, database.getOpenConnections());
+
+        Map<String, MetaMapperStatement> statementMap = new HashMap<>();
+        statementMap.put("user.selectAll", new MetaMapperStatement("user.selectAll", "select",
+                "select * from t_user", UserPO.class.getName()));
+        MetaMapperStatement insert = new MetaMapperStatement("user.insert", "insert",
+                "insert into t_user(name) values(#{name})", null);
+        insert.setUseGeneratedKeys(true);
+        insert.setKeyProperty("id");
+        statementMap.put("user.insert", insert);
+        SimpleSqlSessionFactory factory = new SimpleSqlSessionFactory(dataSource, statementMap);
+
+        try (SqlSession sqlSession = factory.openSession(true)) {
+            List<UserPO> users = sqlSession.selectList("user.selectAll", null);
+            Assertions.assertEquals(3, users.size());
+            Assertions.assertEquals("user1", users.get(0).getName());
+            UserPO userPO = new UserPO();
+            userPO.setName("fake");
+            Assertions.assertEquals(1, sqlSession.insert("user.insert", userPO));
+            Assertions.assertNotNull(userPO.getId());
+            Assertions.assertEquals(1, database.getQueries());
+            Assertions.assertEquals(1, database.getUpdates());
+
+            // 注入执行延迟
+            database.setQueryLatencyMillis(30);
+            long start = System.nanoTime();
+            sqlSession.selectList("user.selectAll", null);
+            Assertions.assertTrue(System.nanoTime() - start >= 30_000_000L);
+            database.setQueryLatencyMillis(0);
+
+            // 每第2次执行语句失败，失败后连接同样被归还
+            database.resetCounters();
+            database.setQueryFailEvery(2);
+            sqlSession.selectList("user.selectAll", null);
+            Assertions.assertThrows(SQLException.class, () -> sqlSession.selectList("user.selectAll", null));
+            Assertions.assertEquals(1, database.getFailures());
+            Assertions.assertEquals(0, dataSource.getMetrics().getActiveConnections());
+            database.setQueryFailEvery(0);
+        }
+
+        // 模拟宕机，空闲连接全部校验失败
+        long idle = dataSource.getMetrics().getIdleConnections();
+        database.setDown(true);
+        Assertions.assertEquals(idle, dataSource.validateIdleConnections());
+        database.setDown(false);
+    }
+}
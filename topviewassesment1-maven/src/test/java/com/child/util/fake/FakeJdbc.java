@@ -0,0 +1,280 @@
+package com.child.util.fake;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * 以动态代理创建{@link FakeDatabase}的连接、语句与结果集。<br/>
+ * <p/>
+ * 只实现了框架会用到的方法，其余方法返回对应返回值类型的默认值，例如语句的赋值方法不做任何操作。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+final class FakeJdbc {
+    private FakeJdbc() {
+    }
+
+    static Connection connection(FakeDatabase database) {
+        return proxy(Connection.class, new ConnectionHandler(database));
+    }
+
+    static ResultSet resultSet(String[] columns, Object[][] rows, int maxRows) {
+        int size = maxRows > 0 ? Math.min(rows.length, maxRows) : rows.length;
+        return proxy(ResultSet.class, new ResultSetHandler(columns, rows, size));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class[]{type}, handler);
+    }
+
+    /**
+     * 处理{@link Object}中的方法与关闭相关的方法，代理对象之间按引用比较。
+     */
+    private abstract static class FakeHandler implements InvocationHandler {
+        volatile boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return getClass().getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(proxy));
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        onClose();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "unwrap":
+                    return proxy;
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    return handle(proxy, method, args);
+            }
+        }
+
+        void onClose() {
+        }
+
+        abstract Object handle(Object proxy, Method method, Object[] args) throws SQLException;
+
+        void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("已关闭");
+            }
+        }
+
+        static Object defaultValue(Class<?> type) {
+            if (!type.isPrimitive() || type == void.class) {
+                return null;
+            }
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            if (type == double.class) {
+                return 0D;
+            }
+            if (type == float.class) {
+                return 0F;
+            }
+            if (type == short.class) {
+                return (short) 0;
+            }
+            if (type == byte.class) {
+                return (byte) 0;
+            }
+            if (type == char.class) {
+                return (char) 0;
+            }
+            return 0;
+        }
+    }
+
+    private static final class ConnectionHandler extends FakeHandler {
+        private final FakeDatabase database;
+        private boolean autoCommit = true;
+        private boolean readOnly;
+        private int isolation = Connection.TRANSACTION_REPEATABLE_READ;
+
+        ConnectionHandler(FakeDatabase database) {
+            this.database = database;
+        }
+
+        @Override
+        void onClose() {
+            database.connectionClosed();
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws SQLException {
+            database.connectionCalled(method.getName());
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "createStatement":
+                    checkOpen();
+                    // PreparedStatement同样可以作为Statement使用
+                    return proxy(PreparedStatement.class, new StatementHandler((Connection) proxy, database));
+                case "isValid":
+                    return !closed && !database.isDown();
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    checkOpen();
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "isReadOnly":
+                    return readOnly;
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    return null;
+                case "getTransactionIsolation":
+                    return isolation;
+                case "setTransactionIsolation":
+                    isolation = (Integer) args[0];
+                    return null;
+                case "commit":
+                case "rollback":
+                    checkOpen();
+                    return null;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private static final class StatementHandler extends FakeHandler {
+        private final Connection connection;
+        private final FakeDatabase database;
+        private int maxRows;
+        private int lastUpdateCount = -1;
+
+        StatementHandler(Connection connection, FakeDatabase database) {
+            this.connection = connection;
+            this.database = database;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws SQLException {
+            switch (method.getName()) {
+                case "executeQuery":
+                    checkOpen();
+                    database.beforeStatement(true);
+                    return resultSet(database.getColumns(), database.getRows(), maxRows);
+                case "executeUpdate":
+                    checkOpen();
+                    database.beforeStatement(false);
+                    lastUpdateCount = database.getUpdateCount();
+                    return lastUpdateCount;
+                case "getUpdateCount":
+                    return lastUpdateCount;
+                case "getGeneratedKeys":
+                    return resultSet(new String[]{"id"},
+                            database.generateKeys(Math.max(lastUpdateCount, 0)), 0);
+                case "setMaxRows":
+                    maxRows = (Integer) args[0];
+                    return null;
+                case "getMaxRows":
+                    return maxRows;
+                case "getConnection":
+                    return connection;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private static final class ResultSetHandler extends FakeHandler {
+        private final String[] columns;
+        private final Object[][] rows;
+        private final int size;
+        /**
+         * 当前行的下标，next()之前为-1
+         */
+        private int row = -1;
+
+        ResultSetHandler(String[] columns, Object[][] rows, int size) {
+            this.columns = columns;
+            this.rows = rows;
+            this.size = size;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws SQLException {
+            switch (method.getName()) {
+                case "next":
+                    return ++row < size;
+                case "getMetaData":
+                    return proxy(ResultSetMetaData.class, new MetaDataHandler(columns));
+                case "getObject":
+                    return value(args[0]);
+                case "getString":
+                    Object value = value(args[0]);
+                    return value == null ? null : value.toString();
+                case "getLong":
+                    value = value(args[0]);
+                    return value == null ? 0L : ((Number) value).longValue();
+                case "getInt":
+                    value = value(args[0]);
+                    return value == null ? 0 : ((Number) value).intValue();
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        /**
+         * 按列名或从1开始的列序号读取当前行的值。
+         */
+        private Object value(Object column) throws SQLException {
+            if (row < 0 || row >= size) {
+                throw new SQLException("结果集当前没有行");
+            }
+            if (column instanceof Integer) {
+                return rows[row][(Integer) column - 1];
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equalsIgnoreCase((String) column)) {
+                    return rows[row][i];
+                }
+            }
+            throw new SQLException("列不存在:" + column);
+        }
+    }
+
+    private static final class MetaDataHandler extends FakeHandler {
+        private final String[] columns;
+
+        MetaDataHandler(String[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return columns.length;
+                case "getColumnName":
+                case "getColumnLabel":
+                    return columns[(Integer) args[0] - 1];
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+}
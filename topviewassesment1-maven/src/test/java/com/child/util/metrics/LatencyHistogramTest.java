@@ -0,0 +1,63 @@
+package com.child.util.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    /**
+     * 测试桶下标与桶上界的对应关系，每个值都应落在其所在桶的上界之内，且相对误差不超过1/16。<br/>
+     */
+    @Test
+    void testBucketBounds() {
+        for (long value = 0; value < 100_000; value += 7) {
+            long upperBound = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(value));
+            Assertions.assertTrue(upperBound >= value);
+            Assertions.assertTrue(upperBound - value <= value / 16);
+        }
+    }
+
+    /**
+     * 测试记录1~1000后的统计值。<br/>
+     */
+    @Test
+    void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Assertions.assertEquals(1000, histogram.getCount());
+        Assertions.assertEquals(1000, histogram.getMax());
+        Assertions.assertEquals(500.5, histogram.getMean(), 0.001);
+
+        long p50 = histogram.getPercentile(50);
+        Assertions.assertTrue(p50 >= 500 && p50 <= 500 + 500 / 16);
+        long p99 = histogram.getPercentile(99);
+        Assertions.assertTrue(p99 >= 990 && p99 <= 1000);
+
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getPercentile(99));
+    }
+
+    /**
+     * 测试多线程并发记录时不会丢失记录。<br/>
+     */
+    @Test
+    void testConcurrentRecord() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    histogram.record(j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(80_000, histogram.getCount());
+    }
+}
@@ -0,0 +1,41 @@
+package com.child.util.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class StatementMetricsTest {
+    private static final String SQL_ID = "com.child.dao.UserDAO.selectById";
+
+    /**
+     * 测试按SQL的全限定id分别统计执行次数、记录数与各阶段耗时。<br/>
+     */
+    @Test
+    void testRecord() {
+        StatementMetrics statementMetrics = new StatementMetrics();
+        statementMetrics.recordQuery(SQL_ID, 100, 200, 300, 1, null);
+        statementMetrics.recordQuery(SQL_ID, 100, 200, 300, 2, null);
+        statementMetrics.recordUpdate("com.child.dao.UserDAO.insert", 100, 200, 1, null);
+
+        StatementMetrics.StatementStats stats = statementMetrics.getStatementStats(SQL_ID);
+        Assertions.assertEquals(2, stats.getExecutions());
+        Assertions.assertEquals(3, stats.getRows());
+        Assertions.assertEquals(200, stats.getExecute().getMax());
+        Assertions.assertEquals(2, stats.getMap().getCount());
+        Assertions.assertEquals(0, stats.getSlowQueries());
+        Assertions.assertEquals(2, statementMetrics.getStatementStats().size());
+    }
+
+    /**
+     * 测试总耗时超过阈值时记为慢查询。<br/>
+     */
+    @Test
+    void testSlowQuery() {
+        StatementMetrics statementMetrics = new StatementMetrics(10);
+        long slow = TimeUnit.MILLISECONDS.toNanos(20);
+        statementMetrics.recordQuery(SQL_ID, 0, slow, 0, 1, null);
+        statementMetrics.recordQuery(SQL_ID, 0, 1, 0, 1, null);
+        Assertions.assertEquals(1, statementMetrics.getStatementStats(SQL_ID).getSlowQueries());
+    }
+}
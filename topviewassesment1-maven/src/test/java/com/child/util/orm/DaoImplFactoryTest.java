@@ -2,14 +2,19 @@ package com.child.util.orm;
 
 import com.child.dao.UserDAO;
 import com.child.pojo.UserPO;
+import com.child.util.ChildDataSource;
 import com.child.util.ChildLogger;
 import com.child.util.orm.util.DaoImplFactory;
 import com.child.util.orm.util.SimpleSqlSessionUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Field;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 class DaoImplFactoryTest {
@@ -52,4 +57,46 @@ class DaoImplFactoryTest {
         logger.info(list.toString());
     }
 
-}
\ No newline at end of file
+    /**
+     * 测试自动提交的代理：每次调用都在独立的会话中执行并立即生效，其他线程可以立即看到修改。<br/>
+     */
+    @Test
+    void testAutoCommit() throws Exception {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("h2-dao");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists t_user(id bigint auto_increment primary key, " +
+                    "name varchar(50), email varchar(50), address varchar(50), old_car varchar(50))");
+            statement.execute("delete from t_user");
+        }
+
+        try {
+            UserDAO daoImplProxy = new DaoImplFactory("h2-dao", true).getDaoImplProxy(UserDAO.class);
+            UserPO userPO = new UserPO(null, "auto", "auto@qq.com", "CN", "GTR");
+            Assertions.assertEquals(1, daoImplProxy.insert(userPO));
+            Assertions.assertNotNull(userPO.getId());
+            Assertions.assertEquals(1, daoImplProxy.updateById(userPO.getId(), "auto", "BMW"));
+
+            // 另一个线程上的查询能看到已提交的修改
+            UserPO[] selected = new UserPO[1];
+            Thread thread = new Thread(() -> {
+                try {
+                    selected[0] = daoImplProxy.selectById(userPO.getId());
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+            thread.join();
+            Assertions.assertNotNull(selected[0]);
+            Assertions.assertEquals("BMW", selected[0].getOldCar());
+            Assertions.assertEquals(1, daoImplProxy.<UserPO>selectByName("auto").size());
+        } finally {
+            // 移除测试创建的工厂类，避免影响其他测试对集合大小的断言
+            Field field = SimpleSqlSessionUtil.class.getDeclaredField("SQL_SESSION_FACTORY_MAP");
+            field.setAccessible(true);
+            ((Map<?, ?>) field.get(null)).remove("h2-dao");
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.child.util.orm;
+
+import com.child.pojo.UserPO;
+import com.child.util.ChildDataSource;
+import com.child.util.orm.bean.MetaMapperStatement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 使用内嵌的H2数据库测试生成主键的写回，t_user的id为自增主键。<br/>
+ * <p/>
+ * 每次写回后按id查询数据库，断言写回的主键就是该元素所在行的主键。<br/>
+ */
+class GeneratedKeyTest {
+    private static ChildDataSource dataSource;
+    private static final Map<String, MetaMapperStatement> statementMap = new HashMap<>();
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        dataSource = ChildDataSource.creatDataSource("h2-keys");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists t_user(id bigint auto_increment primary key, " +
+                    "name varchar(50), email varchar(50), address varchar(50), old_car varchar(50))");
+        }
+        statementMap.put("user.insert", keyStatement("user.insert",
+                "insert into t_user(name,email) values(#{name},#{email})", "id"));
+        statementMap.put("user.insertNested", keyStatement("user.insertNested",
+                "insert into t_user(name,email) values(#{user.name},#{user.email})", "user.id"));
+    }
+
+    private static MetaMapperStatement keyStatement(String sqlId, String sql, String keyProperty) {
+        MetaMapperStatement metaMapperStatement = new MetaMapperStatement(sqlId, "insert", sql, null);
+        metaMapperStatement.setUseGeneratedKeys(true);
+        metaMapperStatement.setKeyProperty(keyProperty);
+        return metaMapperStatement;
+    }
+
+    @BeforeEach
+    void cleanUp() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("delete from t_user");
+        }
+    }
+
+    /**
+     * 测试单行插入：主键写回到参数对象的id中。<br/>
+     */
+    @Test
+    void testSingleRow() throws SQLException {
+        UserPO userPO = new UserPO(null, "用户1", "1@qq.com", "CN");
+        try (SqlSession sqlSession = new SimpleSqlSession(new JdbcTransaction(dataSource), statementMap)) {
+            Assertions.assertEquals(1, sqlSession.insert("user.insert", userPO));
+            sqlSession.commit();
+        }
+        Assertions.assertNotNull(userPO.getId());
+        Assertions.assertEquals("用户1", nameOf(userPO.getId()));
+    }
+
+    /**
+     * 测试以集合展开的多行插入：各行的主键按次序写回到对应的元素中，且互不相同。<br/>
+     */
+    @Test
+    void testMultiRow() throws SQLException {
+        List<UserPO> users = Arrays.asList(
+                new UserPO(null, "用户1", "1@qq.com", "CN"),
+                new UserPO(null, "用户2", "2@qq.com", "CN"),
+                new UserPO(null, "用户3", "3@qq.com", "CN"));
+        try (SqlSession sqlSession = new SimpleSqlSession(new JdbcTransaction(dataSource), statementMap)) {
+            Assertions.assertEquals(3, sqlSession.insert("user.insert", users));
+            sqlSession.commit();
+        }
+        Assertions.assertEquals(3, users.stream().map(UserPO::getId).distinct().count());
+        for (UserPO userPO : users) {
+            Assertions.assertNotNull(userPO.getId());
+            Assertions.assertEquals(userPO.getName(), nameOf(userPO.getId()));
+        }
+    }
+
+    /**
+     * 测试嵌套属性：keyProperty为{@code user.id}时，单行与多行插入都将主键写回到各个Map中的user对象。<br/>
+     */
+    @Test
+    void testNestedProperty() throws SQLException {
+        UserPO single = new UserPO(null, "用户1", "1@qq.com", "CN");
+        UserPO first = new UserPO(null, "用户2", "2@qq.com", "CN");
+        UserPO second = new UserPO(null, "用户3", "3@qq.com", "CN");
+        try (SqlSession sqlSession = new SimpleSqlSession(new JdbcTransaction(dataSource), statementMap)) {
+            Assertions.assertEquals(1, sqlSession.insert("user.insertNested", wrap(single)));
+            Assertions.assertEquals(2, sqlSession.insert("user.insertNested", Arrays.asList(wrap(first), wrap(second))));
+            sqlSession.commit();
+        }
+        for (UserPO userPO : Arrays.asList(single, first, second)) {
+            Assertions.assertNotNull(userPO.getId());
+            Assertions.assertEquals(userPO.getName(), nameOf(userPO.getId()));
+        }
+    }
+
+    private static Map<String, Object> wrap(UserPO userPO) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("user", userPO);
+        return parameters;
+    }
+
+    private static String nameOf(long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select name from t_user where id = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.child.util.orm;
+
+import com.child.pojo.UserPO;
+import com.child.util.ChildDataSource;
+import com.child.util.orm.bean.MetaMapperStatement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 使用内嵌的H2数据库测试以保存点实现的嵌套事务。<br/>
+ */
+class NestedTransactionTest {
+
+    /**
+     * 测试嵌套事务：回滚内层只撤销内层的修改，释放内层后由外层决定是否提交，全程只占用一个连接。
+     * 自动提交的会话不能开启嵌套事务，且不会因此占用连接。<br/>
+     */
+    @Test
+    void testNested() throws SQLException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("h2-primary");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists t_nested(id bigint auto_increment primary key, " +
+                    "name varchar(50), email varchar(50), address varchar(50), old_car varchar(50))");
+            statement.execute("delete from t_nested");
+        }
+        Map<String, MetaMapperStatement> statementMap = new HashMap<>();
+        statementMap.put("nested.insert", new MetaMapperStatement("nested.insert", "insert",
+                "insert into t_nested(name) values(#{name})", null));
+        statementMap.put("nested.selectAll", new MetaMapperStatement("nested.selectAll", "select",
+                "select * from t_nested order by id", UserPO.class.getName()));
+        SqlSessionFactory factory = new SimpleSqlSessionFactory(dataSource, statementMap);
+
+        try (SqlSession sqlSession = factory.openSession()) {
+            sqlSession.insert("nested.insert", user("outer"));
+            sqlSession.beginNested();
+            sqlSession.insert("nested.insert", user("inner-rollback"));
+            sqlSession.beginNested();
+            sqlSession.insert("nested.insert", user("innermost"));
+            Assertions.assertEquals(1, dataSource.getMetrics().getActiveConnections());
+            sqlSession.releaseNested();
+            sqlSession.rollbackNested();
+
+            sqlSession.beginNested();
+            sqlSession.insert("nested.insert", user("inner-release"));
+            sqlSession.releaseNested();
+            Assertions.assertThrows(RuntimeException.class, sqlSession::releaseNested);
+            sqlSession.commit();
+
+            List<UserPO> users = sqlSession.selectList("nested.selectAll", null);
+            Assertions.assertEquals(2, users.size());
+            Assertions.assertEquals("outer", users.get(0).getName());
+            Assertions.assertEquals("inner-release", users.get(1).getName());
+        }
+
+        try (SqlSession sqlSession = factory.openSession(true)) {
+            Assertions.assertThrows(RuntimeException.class, sqlSession::beginNested);
+            // 自动提交的会话在获取连接前即失败，不占用连接
+            Assertions.assertEquals(0, dataSource.getMetrics().getActiveConnections());
+        }
+    }
+
+    private static UserPO user(String name) {
+        UserPO userPO = new UserPO();
+        userPO.setName(name);
+        return userPO;
+    }
+}
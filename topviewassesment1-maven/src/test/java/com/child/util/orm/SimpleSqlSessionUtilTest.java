@@ -1,6 +1,8 @@
 package com.child.util.orm;
 
 import com.child.util.ChildLogger;
+import com.child.util.fake.FakeDatabase;
+import com.child.util.fake.FakeDriver;
 import com.child.util.orm.bean.MetaMapperStatement;
 import com.child.util.orm.util.SimpleSqlSessionUtil;
 import org.junit.jupiter.api.Assertions;
@@ -11,13 +13,31 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.logging.Logger;
 
 class SimpleSqlSessionUtilTest {
     public static final String DEFAULT_CONFIG = "default-config";
+    public static final String FAKE_CONFIG = "fake-factory";
     public static final Logger LOGGER = ChildLogger.getLogger();
 
+    private static Map<String, ?> factoryMap() throws ReflectiveOperationException {
+        Field field = SimpleSqlSessionUtil.class.getDeclaredField("SQL_SESSION_FACTORY_MAP");
+        field.setAccessible(true);
+        return (Map<String, ?>) field.get(null);
+    }
+
+    private static void closeFactory(Object future) {
+        if (future != null) {
+            ((SimpleSqlSessionFactory) ((CompletableFuture<?>) future).join()).close();
+        }
+    }
+
     /**
      * 测试开启会话。<br/>
      * <p/>
@@ -52,6 +72,67 @@ class SimpleSqlSessionUtilTest {
             throw new RuntimeException(e);
         }
     }
+    /**
+     * 使用模拟驱动测试并发的首次访问：8个线程同时获取同一配置文件的工厂类，只创建一个工厂类。<br/>
+     * <p/>
+     * 连接池初始化时创建{@code initialSize}个连接，据此通过模拟驱动的连接计数断言只创建了一个连接池。<br/>
+     */
+    @Test
+    void testConcurrentGetSqlSessionFactory() throws Exception {
+        Map<String, ?> factoryMap = factoryMap();
+        FakeDatabase database = FakeDriver.database("factory");
+        database.resetCounters();
+        int threads = 8;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        try {
+            List<CompletableFuture<SqlSessionFactory>> futures = IntStream.range(0, threads)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                        try {
+                            barrier.await();
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                        return SimpleSqlSessionUtil.getSqlSessionFactory(FAKE_CONFIG);
+                    }, runnable -> new Thread(runnable).start()))
+                    .collect(Collectors.toList());
+            SqlSessionFactory first = futures.get(0).get();
+            for (CompletableFuture<SqlSessionFactory> future : futures) {
+                Assertions.assertSame(first, future.get());
+            }
+            Assertions.assertSame(first, SimpleSqlSessionUtil.getSqlSessionFactory(FAKE_CONFIG));
+            // 只有一个连接池完成了初始化
+            Assertions.assertEquals(2, database.getConnectAttempts());
+            Assertions.assertEquals(2, database.getOpenConnections());
+        } finally {
+            // 移除并关闭测试创建的工厂类，避免影响其他测试对集合大小的断言
+            closeFactory(factoryMap.remove(FAKE_CONFIG));
+        }
+    }
+
+    /**
+     * 测试{@link SimpleSqlSessionUtil#build(String)}替换已有的工厂类时关闭其连接池。<br/>
+     * <p/>
+     * 第二次build之后，模拟数据库中只剩下新连接池的{@code initialSize}个连接。<br/>
+     */
+    @Test
+    void testBuildClosesReplaced() throws Exception {
+        Map<String, ?> factoryMap = factoryMap();
+        FakeDatabase database = FakeDriver.database("factory");
+        try {
+            SqlSessionFactory replaced = SimpleSqlSessionUtil.build(FAKE_CONFIG);
+            Assertions.assertEquals(2, database.getOpenConnections());
+
+            SqlSessionFactory factory = SimpleSqlSessionUtil.build(FAKE_CONFIG);
+            Assertions.assertNotSame(replaced, factory);
+            Assertions.assertSame(factory, SimpleSqlSessionUtil.getSqlSessionFactory(FAKE_CONFIG));
+            // 被替换的连接池已关闭，其空闲连接被释放
+            Assertions.assertEquals(2, database.getOpenConnections());
+        } finally {
+            closeFactory(factoryMap.remove(FAKE_CONFIG));
+        }
+        Assertions.assertEquals(0, database.getOpenConnections());
+    }
+
     /**
      * 测试{@link SimpleSqlSessionUtil#build(String)}方法。<br/>
      * 首先准备一个配置文件，然后通过build方法得到工厂类，再将工厂类的信息进行打印。
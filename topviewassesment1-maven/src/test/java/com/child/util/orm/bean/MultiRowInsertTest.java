@@ -0,0 +1,98 @@
+package com.child.util.orm.bean;
+
+import com.child.pojo.UserPO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class MultiRowInsertTest {
+    private static final String INSERT =
+            "insert into t_user(name,email,address,oldCar) values(#{name},#{email},#{address}, '特斯拉');";
+
+    /**
+     * 测试拆分单行插入语句，展开后每一行均使用相同的行模板；
+     * 满块与2的幂次的行数的SQL只拼接一次，其余行数不被缓存。<br/>
+     */
+    @Test
+    void testSql() {
+        MultiRowInsert multiRowInsert = MultiRowInsert.of(SqlTemplate.compile(INSERT));
+        Assertions.assertNotNull(multiRowInsert);
+        Assertions.assertEquals(3, multiRowInsert.getParameterCount());
+
+        String sql = multiRowInsert.sql(3);
+        Assertions.assertTrue(sql.endsWith("values (?,?,?, '特斯拉'),(?,?,?, '特斯拉'),(?,?,?, '特斯拉')"), sql);
+        Assertions.assertEquals(sql, multiRowInsert.sql(3));
+        Assertions.assertNotSame(sql, multiRowInsert.sql(3));
+        Assertions.assertSame(multiRowInsert.sql(4), multiRowInsert.sql(4));
+        int maxRows = multiRowInsert.getMaxRowsPerChunk();
+        Assertions.assertSame(multiRowInsert.sql(maxRows), multiRowInsert.sql(maxRows));
+        Assertions.assertTrue(multiRowInsert.sql(1).endsWith("values (?,?,?, '特斯拉')"));
+    }
+
+    /**
+     * 测试按元素的属性读取每一行的值，次序与占位符一致。<br/>
+     */
+    @Test
+    void testBindRows() {
+        MultiRowInsert multiRowInsert = MultiRowInsert.of(SqlTemplate.compile(INSERT));
+        UserPO first = new UserPO();
+        first.setName("张三");
+        first.setEmail("@qq.com");
+        first.setAddress("北京");
+        UserPO second = new UserPO();
+        second.setName("李四");
+
+        List<Object[]> rows = multiRowInsert.bindRows(Arrays.asList(first, second));
+        Assertions.assertEquals(2, rows.size());
+        Assertions.assertArrayEquals(new Object[]{"张三", "@qq.com", "北京"}, rows.get(0));
+        Assertions.assertArrayEquals(new Object[]{"李四", null, null}, rows.get(1));
+    }
+
+    /**
+     * 测试分块：每块的占位符不超过上限，语句大小不超过max_allowed_packet，且单行过大时仍至少为1行。<br/>
+     */
+    @Test
+    void testNextChunkSize() {
+        MultiRowInsert multiRowInsert = MultiRowInsert.of(SqlTemplate.compile(INSERT));
+        Assertions.assertEquals(MultiRowInsert.MAX_PLACEHOLDERS / 3, multiRowInsert.getMaxRowsPerChunk());
+
+        // 占位符上限
+        List<Object[]> smallRows = new ArrayList<>(Collections.nCopies(30000, new Object[]{"a", "b", "c"}));
+        Assertions.assertEquals(multiRowInsert.getMaxRowsPerChunk(),
+                multiRowInsert.nextChunkSize(smallRows, 0, Long.MAX_VALUE));
+        Assertions.assertEquals(30000 - multiRowInsert.getMaxRowsPerChunk(),
+                multiRowInsert.nextChunkSize(smallRows, multiRowInsert.getMaxRowsPerChunk(), Long.MAX_VALUE));
+
+        // max_allowed_packet上限
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+        List<Object[]> largeRows = new ArrayList<>(Collections.nCopies(100, new Object[]{value, value, value}));
+        int total = 0;
+        while (total < largeRows.size()) {
+            int chunkSize = multiRowInsert.nextChunkSize(largeRows, total, 64 * 1024);
+            Assertions.assertTrue(chunkSize < largeRows.size());
+            Assertions.assertTrue(chunkSize * 3L * value.length() <= 64 * 1024);
+            total += chunkSize;
+        }
+        Assertions.assertEquals(largeRows.size(), total);
+
+        // 单行已超过上限
+        Assertions.assertEquals(1, multiRowInsert.nextChunkSize(largeRows, 0, 1));
+    }
+
+    /**
+     * 测试无法展开的语句：没有values，或values之后不是单个括号。<br/>
+     */
+    @Test
+    void testNotSplittable() {
+        Assertions.assertNull(MultiRowInsert.of(SqlTemplate.compile("insert into t_user select * from t_old")));
+        Assertions.assertNull(MultiRowInsert.of(SqlTemplate.compile("insert into t_user(name) values(#{a}),(#{b})")));
+        Assertions.assertNull(MultiRowInsert.of(
+                SqlTemplate.compile("insert into t_user(name) values(#{name}) on duplicate key update name = 'x'")));
+    }
+}
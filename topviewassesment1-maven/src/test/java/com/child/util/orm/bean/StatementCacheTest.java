@@ -0,0 +1,46 @@
+package com.child.util.orm.bean;
+
+import com.child.util.ChildDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 使用内嵌的H2数据库测试会话内的语句缓存。<br/>
+ */
+class StatementCacheTest {
+
+    /**
+     * 测试相同的SQL复用同一个语句：关闭代理不会关闭语句，复用前清除参数与行数限制，关闭缓存时关闭全部语句。<br/>
+     */
+    @Test
+    void testReuse() throws SQLException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("h2-primary");
+        StatementCache statementCache = new StatementCache();
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement first = statementCache.prepare(connection, "select ? + 1", false);
+            first.setInt(1, 1);
+            first.setMaxRows(1);
+            try (ResultSet resultSet = first.executeQuery()) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(2, resultSet.getInt(1));
+            }
+            first.close();
+            Assertions.assertFalse(first.isClosed());
+
+            PreparedStatement second = statementCache.prepare(connection, "select ? + 1", false);
+            Assertions.assertEquals(0, second.getMaxRows());
+            Assertions.assertThrows(SQLException.class, second::executeQuery);
+            statementCache.prepare(connection, "select ? + 1", true);
+            Assertions.assertEquals(2, statementCache.size());
+
+            statementCache.close();
+            Assertions.assertTrue(second.isClosed());
+            Assertions.assertEquals(0, statementCache.size());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.child.util.orm.dynamic;
+
+import com.child.pojo.UserPO;
+import com.child.util.orm.bean.MetaMapperStatement;
+import com.child.util.xml.ParseXmlUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+class DynamicSqlTest {
+
+    /**
+     * 测试where与if标签，未满足条件的片段不应出现，并去除开头多余的and。<br/>
+     */
+    @Test
+    void testWhereIf(@TempDir Path directory) throws IOException {
+        SqlNode sqlNode = parse(directory, "<select id=\"select\" resultType=\"com.child.pojo.UserPO\">\n" +
+                "select * from t_user\n" +
+                "<where>\n" +
+                "    <if test=\"name != null and name != ''\">and name = #{name}</if>\n" +
+                "    <if test=\"oldCar != null\">and oldCar = #{oldCar}</if>\n" +
+                "</where>\n" +
+                "</select>");
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("name", "");
+        parameters.put("oldCar", "GTR");
+        DynamicContext context = evaluate(sqlNode, parameters);
+        Assertions.assertEquals("select * from t_user WHERE old_car = ?", normalize(context.getSql()));
+        Assertions.assertEquals(Collections.singletonList("GTR"), context.getValues());
+
+        // 所有条件都不满足时不追加where
+        Assertions.assertEquals("select * from t_user", normalize(evaluate(sqlNode, new HashMap<>()).getSql()));
+    }
+
+    /**
+     * 测试foreach标签生成IN列表，并支持item的属性路径。<br/>
+     */
+    @Test
+    void testForEach(@TempDir Path directory) throws IOException {
+        SqlNode sqlNode = parse(directory, "<select id=\"select\" resultType=\"com.child.pojo.UserPO\">\n" +
+                "select * from t_user where name in\n" +
+                "<foreach collection=\"users\" item=\"user\" open=\"(\" separator=\",\" close=\")\">#{user.name}</foreach>\n" +
+                "</select>");
+
+        UserPO first = new UserPO();
+        first.setName("a");
+        UserPO second = new UserPO();
+        second.setName("b");
+        DynamicContext context = evaluate(sqlNode, Collections.singletonMap("users", Arrays.asList(first, second)));
+        Assertions.assertEquals("select * from t_user where name in ( ? , ? )", normalize(context.getSql()));
+        Assertions.assertEquals(Arrays.asList("a", "b"), context.getValues());
+    }
+
+    /**
+     * 测试set与choose标签。<br/>
+     */
+    @Test
+    void testSetChoose(@TempDir Path directory) throws IOException {
+        SqlNode sqlNode = parse(directory, "<update id=\"update\">\n" +
+                "update t_user\n" +
+                "<set>\n" +
+                "    <if test=\"name != null\">name = #{name},</if>\n" +
+                "    <choose>\n" +
+                "        <when test=\"id gt 10\">email = #{email},</when>\n" +
+                "        <otherwise>email = null,</otherwise>\n" +
+                "    </choose>\n" +
+                "</set>\n" +
+                "where id = #{id}\n" +
+                "</update>");
+
+        UserPO user = new UserPO();
+        user.setId(20L);
+        user.setEmail("a@b.c");
+        DynamicContext context = evaluate(sqlNode, user);
+        Assertions.assertEquals("update t_user SET email = ? where id = ?", normalize(context.getSql()));
+        Assertions.assertEquals(Arrays.asList("a@b.c", 20L), context.getValues());
+
+        user.setId(1L);
+        Assertions.assertEquals("update t_user SET email = null where id = ?", normalize(evaluate(sqlNode, user).getSql()));
+    }
+
+    /**
+     * 测试条件表达式的优先级与比较运算。<br/>
+     */
+    @Test
+    void testExpression() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("ids", Arrays.asList(1, 2));
+        parameters.put("age", 18);
+        DynamicContext context = new DynamicContext(parameters);
+
+        Assertions.assertTrue(Expression.isTrue(ExpressionParser.parse("ids.size() == 2").evaluate(context)));
+        Assertions.assertTrue(Expression.isTrue(ExpressionParser.parse("age >= 18 and !(age > 60)").evaluate(context)));
+        Assertions.assertTrue(Expression.isTrue(ExpressionParser.parse("missing != null or age == 18").evaluate(context)));
+        Assertions.assertFalse(Expression.isTrue(ExpressionParser.parse("missing").evaluate(context)));
+        Assertions.assertThrows(RuntimeException.class, () -> ExpressionParser.parse("age >"));
+    }
+
+    private static SqlNode parse(Path directory, String statement) throws IOException {
+        Path path = directory.resolve("Mapper.xml");
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<mapper namespace=\"com.child.dao.TestDAO\">\n"
+                + statement + "\n</mapper>";
+        Files.write(path, xml.getBytes(StandardCharsets.UTF_8));
+        Map<String, MetaMapperStatement> statementMap = ParseXmlUtils.parseMapper(path.toFile());
+        MetaMapperStatement metaMapperStatement = statementMap.values().iterator().next();
+        Assertions.assertTrue(metaMapperStatement.isDynamic());
+        return metaMapperStatement.getSqlNode();
+    }
+
+    private static DynamicContext evaluate(SqlNode sqlNode, Object parameters) {
+        DynamicContext context = new DynamicContext(parameters);
+        sqlNode.apply(context);
+        return context;
+    }
+
+    private static String normalize(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,125 @@
+package com.child.util.orm.shard;
+
+import com.child.pojo.UserPO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 测试跨分片查询结果的合并与排序规则的解析。<br/>
+ */
+class ScatterGatherTest {
+
+    /**
+     * 测试解析最外层的ORDER BY：列名转换为驼峰命名的属性名，含有表达式或位于子查询中时视为无排序规则。<br/>
+     */
+    @Test
+    void testParseOrderBy() {
+        Assertions.assertEquals("OrderBy[oldCar desc, id asc]",
+                OrderBy.parse("select * from t_user u order by u.`old_car` DESC, id limit 10").toString());
+        Assertions.assertTrue(OrderBy.parse("select * from t_user").isEmpty());
+        Assertions.assertTrue(OrderBy.parse("select * from t_user order by length(name)").isEmpty());
+        Assertions.assertTrue(OrderBy.parse("select * from (select * from t_user order by id) t").isEmpty());
+
+        Comparator<Object> comparator = OrderBy.parse("select * from t_user order by name, id desc").toComparator();
+        Assertions.assertTrue(comparator.compare(user(1L, "a"), user(2L, "b")) < 0);
+        Assertions.assertTrue(comparator.compare(user(1L, "a"), user(2L, "a")) > 0);
+        Assertions.assertTrue(comparator.compare(user(1L, null), user(2L, "a")) < 0);
+    }
+
+    /**
+     * 测试k路归并：结果保持全局有序，比较结果相同时分片号小的在前，并在取满后停止。<br/>
+     */
+    @Test
+    void testMerge() {
+        List<List<Integer>> parts = Arrays.asList(Arrays.asList(1, 4, 7), Collections.emptyList(),
+                Arrays.asList(2, 4, 8, 9), Arrays.asList(3, 5));
+        Assertions.assertEquals(Arrays.asList(1, 2, 3, 4, 4, 5, 7, 8, 9),
+                ScatterGather.merge(parts, Comparator.naturalOrder(), 0));
+        Assertions.assertEquals(Arrays.asList(1, 2, 3, 4),
+                ScatterGather.merge(parts, Comparator.naturalOrder(), 4));
+
+        List<UserPO> first = Collections.singletonList(user(1L, "a"));
+        List<UserPO> second = Collections.singletonList(user(2L, "a"));
+        Comparator<Object> byName = OrderBy.parse("select * from t_user order by name").toComparator();
+        Assertions.assertEquals(1L, ScatterGather.merge(Arrays.asList(first, second), byName, 0).get(0).getId());
+        Assertions.assertEquals(2L, ScatterGather.merge(Arrays.asList(second, first), byName, 0).get(0).getId());
+    }
+
+    /**
+     * 测试并发数小于分片数时的执行：队列已满由调用线程执行，不排序时取满即止，分片异常原样抛出。<br/>
+     */
+    @Test
+    void testExecute() throws SQLException {
+        ScatterGather scatterGather = new ScatterGather(1);
+        try {
+            List<Callable<List<Integer>>> queries = new ArrayList<>();
+            for (int shard = 0; shard < 10; shard++) {
+                int base = shard;
+                queries.add(() -> Arrays.asList(base, base + 10, base + 20));
+            }
+            Assertions.assertEquals(30, scatterGather.execute(queries, null, 0).size());
+            Assertions.assertEquals(5, scatterGather.execute(queries, null, 5).size());
+            List<Integer> ordered = scatterGather.execute(queries, Comparator.naturalOrder(), 12);
+            Assertions.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), ordered);
+
+            queries.set(3, () -> {
+                throw new SQLException("shard 3");
+            });
+            SQLException e = Assertions.assertThrows(SQLException.class,
+                    () -> scatterGather.execute(queries, null, 0));
+            Assertions.assertEquals("shard 3", e.getMessage());
+        } finally {
+            scatterGather.shutdown();
+        }
+    }
+
+    /**
+     * 测试分片失败时等待正在执行的查询结束：分片0执行中时分片1失败，
+     * 抛出异常时分片0的查询已经结束，调用者随后关闭会话不会与工作线程同时使用连接。<br/>
+     */
+    @Test
+    void testFailureWaitsForRunningQueries() {
+        ScatterGather scatterGather = new ScatterGather(2);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            AtomicBoolean finished = new AtomicBoolean();
+            List<Callable<List<Integer>>> queries = new ArrayList<>();
+            queries.add(() -> {
+                started.countDown();
+                // 模拟不响应中断的JDBC查询
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+                while (System.nanoTime() < deadline) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException ignored) {
+                        // 继续执行
+                    }
+                }
+                finished.set(true);
+                return Collections.singletonList(0);
+            });
+            queries.add(() -> {
+                started.await();
+                throw new SQLException("shard 1");
+            });
+            Assertions.assertThrows(SQLException.class, () -> scatterGather.execute(queries, null, 0));
+            Assertions.assertTrue(finished.get());
+        } finally {
+            scatterGather.shutdown();
+        }
+    }
+
+    private static UserPO user(Long id, String name) {
+        UserPO userPO = new UserPO();
+        userPO.setId(id);
+        userPO.setName(name);
+        return userPO;
+    }
+}
@@ -0,0 +1,70 @@
+package com.child.util.orm.shard;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ShardStrategyTest {
+
+    /**
+     * 测试取模分片，负数与非数字的分片键同样落在[0, 分片数量)内。<br/>
+     * 整数字符串与对应的整数位于同一个分片，非数字的分片键每次计算的结果相同。<br/>
+     */
+    @Test
+    void testModulo() {
+        ShardStrategy strategy = new ModuloShardStrategy();
+        Assertions.assertEquals(0, strategy.shard(6L, 3));
+        Assertions.assertEquals(1, strategy.shard(7, 3));
+        Assertions.assertEquals(2, strategy.shard(-1L, 3));
+        Assertions.assertEquals(1, strategy.shard(Long.MIN_VALUE, 3));
+        Assertions.assertEquals(strategy.shard(7L, 3), strategy.shard("7", 3));
+        Assertions.assertEquals(strategy.shard(-1L, 3), strategy.shard(" -1 ", 3));
+        int shard = strategy.shard("张三", 3);
+        Assertions.assertTrue(shard >= 0 && shard < 3);
+        Assertions.assertEquals(shard, new ModuloShardStrategy().shard(new StringBuilder("张三"), 3));
+    }
+
+    /**
+     * 测试范围分片，上界本身属于下一个分片，超过最后一个上界的均属于最后一个分片。<br/>
+     */
+    @Test
+    void testRange() {
+        ShardStrategy strategy = new RangeShardStrategy(100, 200);
+        Assertions.assertEquals(0, strategy.shard(99L, 3));
+        Assertions.assertEquals(1, strategy.shard(100L, 3));
+        Assertions.assertEquals(1, strategy.shard("199", 3));
+        Assertions.assertEquals(2, strategy.shard(200, 3));
+        Assertions.assertEquals(2, strategy.shard(Long.MAX_VALUE, 3));
+
+        Assertions.assertThrows(RuntimeException.class, () -> strategy.shard(1L, 4));
+        Assertions.assertThrows(RuntimeException.class, () -> new RangeShardStrategy(200, 100));
+    }
+
+    /**
+     * 测试一致性哈希：分布大致均匀，且由4个分片扩容到5个时，只有约1/5的分片键改变了所在的分片。<br/>
+     */
+    @Test
+    void testConsistentHash() {
+        ShardStrategy strategy = new ConsistentHashShardStrategy();
+        int keys = 10000;
+        int[] counts = new int[4];
+        int[] before = new int[keys];
+        for (int key = 0; key < keys; key++) {
+            before[key] = strategy.shard(key, 4);
+            counts[before[key]]++;
+        }
+        for (int count : counts) {
+            Assertions.assertTrue(count > keys / 4 * 0.7 && count < keys / 4 * 1.3, "分布不均匀:" + count);
+        }
+
+        int moved = 0;
+        for (int key = 0; key < keys; key++) {
+            int after = strategy.shard(key, 5);
+            if (after != before[key]) {
+                // 迁移的分片键只会落到新增的分片上
+                Assertions.assertEquals(4, after);
+                moved++;
+            }
+        }
+        Assertions.assertTrue(moved > keys / 5 * 0.7 && moved < keys / 5 * 1.3, "迁移数量异常:" + moved);
+    }
+}
@@ -0,0 +1,191 @@
+package com.child.util.orm.shard;
+
+import com.child.pojo.UserPO;
+import com.child.util.ChildDataSource;
+import com.child.util.orm.SqlSession;
+import com.child.util.orm.bean.MetaMapperStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * 使用三个内嵌的H2数据库作为分片，按id取模分片。<br/>
+ */
+class ShardedSqlSessionTest {
+    private static final List<ChildDataSource> SHARDS = new ArrayList<>();
+    private static final Map<String, MetaMapperStatement> statementMap = new HashMap<>();
+    private static ShardedSqlSessionFactory factory;
+
+    @BeforeAll
+    static void createShards() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            ChildDataSource dataSource = ChildDataSource.creatDataSource("h2-shard-" + i);
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("create table if not exists t_user(id bigint primary key, " +
+                        "name varchar(50), email varchar(50), address varchar(50), old_car varchar(50))");
+            }
+            SHARDS.add(dataSource);
+        }
+        statementMap.put("user.insert", new MetaMapperStatement("user.insert", "insert",
+                "insert into t_user(id,name) values(#{id},#{name})", null));
+        statementMap.put("user.selectById", new MetaMapperStatement("user.selectById", "select",
+                "select * from t_user where id = #{id}", UserPO.class.getName()));
+        statementMap.put("user.selectByName", new MetaMapperStatement("user.selectByName", "select",
+                "select * from t_user where name = #{name}", UserPO.class.getName()));
+        statementMap.put("user.deleteByName", new MetaMapperStatement("user.deleteByName", "delete",
+                "delete from t_user where name = #{name}", null));
+        statementMap.put("user.selectAll", new MetaMapperStatement("user.selectAll", "select",
+                "select * from t_user", UserPO.class.getName()));
+        statementMap.put("user.selectAllOrderById", new MetaMapperStatement("user.selectAllOrderById", "select",
+                "select * from t_user order by id desc", UserPO.class.getName()));
+        factory = new ShardedSqlSessionFactory(SHARDS, statementMap, "id", new ModuloShardStrategy());
+    }
+
+    @AfterEach
+    void cleanUp() throws SQLException {
+        for (ChildDataSource shard : SHARDS) {
+            try (Connection connection = shard.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("delete from t_user");
+            }
+        }
+    }
+
+    /**
+     * 测试按id路由：单条插入与以集合批量插入后，每个分片中只保存属于自己的记录，按id查询只访问对应分片。<br/>
+     */
+    @Test
+    void testRouteByShardKey() throws SQLException {
+        try (SqlSession sqlSession = factory.openSession()) {
+            Assertions.assertEquals(1, sqlSession.insert("user.insert", user(1L, "用户1")));
+            Assertions.assertEquals(5, sqlSession.insert("user.insert", Arrays.asList(
+                    user(2L, "用户2"), user(3L, "用户3"), user(4L, "用户4"), user(5L, "用户5"), user(6L, "用户6"))));
+            sqlSession.commit();
+
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("id", 4L);
+            UserPO userPO = sqlSession.selectOne("user.selectById", parameters);
+            Assertions.assertEquals("用户4", userPO.getName());
+        }
+
+        for (int shard = 0; shard < SHARDS.size(); shard++) {
+            try (Connection connection = SHARDS.get(shard).getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("select id from t_user")) {
+                int count = 0;
+                while (resultSet.next()) {
+                    Assertions.assertEquals(shard, resultSet.getLong(1) % 3);
+                    count++;
+                }
+                Assertions.assertEquals(2, count);
+            }
+        }
+    }
+
+    /**
+     * 测试不含分片键的查询在所有分片上执行并合并结果，不含分片键的DML则直接抛出异常。<br/>
+     */
+    @Test
+    void testScatter() throws SQLException {
+        try (SqlSession sqlSession = factory.openSession()) {
+            for (long id = 1; id <= 7; id++) {
+                sqlSession.insert("user.insert", user(id, id % 2 == 0 ? "even" : "odd"));
+            }
+            sqlSession.commit();
+
+            List<UserPO> users = sqlSession.selectList("user.selectAll", null);
+            Assertions.assertEquals(7, users.size());
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("name", "even");
+            Assertions.assertEquals(3, sqlSession.selectList("user.selectByName", parameters).size());
+
+            Assertions.assertThrows(RuntimeException.class, () -> sqlSession.insert("user.insert", parameters));
+        }
+    }
+
+    /**
+     * 测试以数字或字符串为参数：只以分片键为占位符的语句按参数路由，
+     * 其余语句的参数不是分片键，查询在所有分片上执行，DML直接抛出异常。<br/>
+     */
+    @Test
+    void testScalarParameter() throws SQLException {
+        try (SqlSession sqlSession = factory.openSession()) {
+            for (long id = 1; id <= 7; id++) {
+                sqlSession.insert("user.insert", user(id, id % 2 == 0 ? "even" : "odd"));
+            }
+            sqlSession.commit();
+
+            UserPO userPO = sqlSession.selectOne("user.selectById", 4L);
+            Assertions.assertEquals(4L, userPO.getId());
+            // "even"位于多个分片，不能按其哈希值只查询一个分片
+            Assertions.assertEquals(3, sqlSession.selectList("user.selectByName", "even").size());
+            Assertions.assertEquals(4, sqlSession.selectList("user.selectByName", "odd").size());
+
+            Assertions.assertThrows(RuntimeException.class, () -> sqlSession.delete("user.deleteByName", "even"));
+        }
+    }
+
+    /**
+     * 测试含有排序规则的跨分片查询：各分片的结果按id降序归并，分页时每个分片只取前offset + limit条。<br/>
+     */
+    @Test
+    void testOrderedScatter() throws SQLException {
+        try (ShardedSqlSession sqlSession = (ShardedSqlSession) factory.openSession()) {
+            for (long id = 1; id <= 10; id++) {
+                sqlSession.insert("user.insert", user(id, "user" + id));
+            }
+            sqlSession.commit();
+
+            List<UserPO> users = sqlSession.selectList("user.selectAllOrderById", null);
+            Assertions.assertEquals(10, users.size());
+            for (int i = 0; i < users.size(); i++) {
+                Assertions.assertEquals(10L - i, users.get(i).getId());
+            }
+
+            List<UserPO> page = sqlSession.selectList("user.selectAllOrderById", null, 3, 4);
+            Assertions.assertEquals(4, page.size());
+            Assertions.assertEquals(7L, page.get(0).getId());
+            Assertions.assertEquals(4L, page.get(3).getId());
+            Assertions.assertTrue(sqlSession.selectList("user.selectAllOrderById", null, 10, 5).isEmpty());
+
+            Assertions.assertEquals(5, sqlSession.selectList("user.selectAll", null, 5).size());
+        }
+    }
+
+    /**
+     * 测试关闭工厂：各分片的连接池被关闭，之后的跨分片查询直接抛出异常而不是一直等待。<br/>
+     */
+    @Test
+    void testClose() throws SQLException {
+        List<ChildDataSource> shards = Arrays.asList(
+                ChildDataSource.creatDataSource("h2-shard-0"), ChildDataSource.creatDataSource("h2-shard-1"));
+        ShardedSqlSessionFactory closeable = new ShardedSqlSessionFactory(shards, statementMap, "id",
+                new ModuloShardStrategy());
+        try (SqlSession sqlSession = closeable.openSession()) {
+            Assertions.assertTrue(sqlSession.selectList("user.selectAll", null).isEmpty());
+        }
+
+        closeable.close();
+        for (ChildDataSource shard : shards) {
+            Assertions.assertTrue(shard.isClosed());
+        }
+        try (SqlSession sqlSession = closeable.openSession()) {
+            Assertions.assertThrows(RuntimeException.class, () -> sqlSession.selectList("user.selectAll", null));
+        }
+    }
+
+    private static UserPO user(Long id, String name) {
+        UserPO userPO = new UserPO();
+        userPO.setId(id);
+        userPO.setName(name);
+        return userPO;
+    }
+}
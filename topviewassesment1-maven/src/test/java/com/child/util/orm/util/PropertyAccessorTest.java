@@ -0,0 +1,44 @@
+package com.child.util.orm.util;
+
+import com.child.pojo.UserPO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+class PropertyAccessorTest {
+
+    /**
+     * 测试写入属性，数据库返回的BigInteger主键应转换为属性声明的Long类型。<br/>
+     */
+    @Test
+    void testSetProperty() {
+        UserPO userPO = new UserPO();
+        PropertyAccessor.setProperty(userPO, "id", BigInteger.valueOf(235));
+        Assertions.assertEquals(Long.valueOf(235), userPO.getId());
+
+        PropertyAccessor.setProperty(userPO, "name", "张三");
+        Assertions.assertEquals("张三", PropertyAccessor.getProperty(userPO, "name"));
+    }
+
+    /**
+     * 测试按路径写入属性，路径的第一级为Map的键，与{@code @Param}传参时的参数形式一致。<br/>
+     */
+    @Test
+    void testSetPath() {
+        UserPO userPO = new UserPO();
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("user", userPO);
+
+        PropertyAccessor.setPath(parameters, new String[]{"user", "id"}, 7L);
+        Assertions.assertEquals(Long.valueOf(7), userPO.getId());
+
+        PropertyAccessor.setPath(parameters, new String[]{"id"}, 8L);
+        Assertions.assertEquals(8L, parameters.get("id"));
+
+        Assertions.assertThrows(RuntimeException.class,
+                () -> PropertyAccessor.setPath(parameters, new String[]{"missing", "id"}, 1L));
+    }
+}
@@ -0,0 +1,285 @@
+package com.child.util.stress;
+
+import com.child.exception.OverMaxActiveException;
+import com.child.exception.TimedOutException;
+import com.child.util.ChildDataSource;
+import com.child.util.ChildLogger;
+import com.child.util.fake.FakeDatabase;
+import com.child.util.metrics.LatencyHistogram;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link ChildDataSource}的并发压测工具，大量线程反复借出与归还连接，并持续检查连接池的不变量：<br/>
+ * <ol>
+ *     <li>物理连接数不超过{@code maxActive}，活跃连接数同样不超过{@code maxActive}；</li>
+ *     <li>同一个物理连接不会同时被两个线程持有；</li>
+ *     <li>持有期间{@link Connection#isClosed()}为false；</li>
+ *     <li>压测结束后没有活跃连接，物理连接数等于空闲连接数，即超时与拒绝不会丢失连接。</li>
+ * </ol>
+ * 连接由{@link FakeDatabase}提供，物理连接数以模拟驱动的计数为准。
+ * 通过{@code setOutage()}可以让数据库周期性地宕机，此时获取连接失败计为失败次数而不是违反不变量，
+ * 用于在压测中触发借出校验、空闲校验与后台补充连接。<br/>
+ * 运行在JDK 21及以上时，虚拟线程通过反射创建，否则以平台线程代替。<br/>
+ *
+ * @author silent_child
+ * @version 1.0
+ **/
+public class PoolStressHarness {
+    private final ChildDataSource dataSource;
+    private final FakeDatabase database;
+    /**
+     * 物理连接到持有线程的映射，用于发现同一连接被两个线程持有
+     */
+    private final Map<Connection, Thread> owners = new ConcurrentHashMap<>();
+    private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    /**
+     * 宕机的周期与每个周期中宕机的时长（毫秒），周期为0时不宕机
+     */
+    private long outagePeriodMillis;
+    private long outageMillis;
+
+    public PoolStressHarness(ChildDataSource dataSource, FakeDatabase database) {
+        this.dataSource = dataSource;
+        this.database = database;
+    }
+
+    /**
+     * 设置数据库周期性宕机，每个周期的末尾宕机{@code outageMillis}毫秒，压测结束时恢复。
+     *
+     * @param outagePeriodMillis 宕机的周期（毫秒）
+     * @param outageMillis       每个周期中宕机的时长（毫秒）
+     */
+    public void setOutage(long outagePeriodMillis, long outageMillis) {
+        this.outagePeriodMillis = outagePeriodMillis;
+        this.outageMillis = outageMillis;
+    }
+
+    /**
+     * 开始压测，所有线程结束后检查连接池是否完整。
+     *
+     * @param platformThreads 平台线程数
+     * @param virtualThreads  虚拟线程数，不支持时以平台线程代替
+     * @param durationMillis  压测时长（毫秒）
+     * @param holdMicros      每次持有连接的时长（微秒）
+     * @return {@link Result}
+     * @throws InterruptedException 等待线程结束时被中断
+     */
+    public Result run(int platformThreads, int virtualThreads, long durationMillis, long holdMicros)
+            throws InterruptedException {
+        ThreadFactory virtualFactory = virtualThreadFactory();
+        if (virtualFactory == null && virtualThreads > 0) {
+            logger.info("当前JDK不支持虚拟线程，以平台线程代替");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        long holdNanos = TimeUnit.MICROSECONDS.toNanos(holdMicros);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(platformThreads + virtualThreads);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < platformThreads + virtualThreads; i++) {
+            Runnable worker = () -> {
+                try {
+                    start.await();
+                    work(deadline, holdNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            };
+            threads.add(i >= platformThreads && virtualFactory != null
+                    ? virtualFactory.newThread(worker) : new Thread(worker, "ChildStress-" + i));
+        }
+        threads.forEach(Thread::start);
+
+        long begin = System.nanoTime();
+        start.countDown();
+        // 在工作线程运行期间持续检查连接数，并按周期切换数据库的宕机状态
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            if (outagePeriodMillis > 0) {
+                long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                database.setDown(millis % outagePeriodMillis >= outagePeriodMillis - outageMillis);
+            }
+            checkCapacity();
+        }
+        long elapsed = System.nanoTime() - begin;
+        database.setDown(false);
+        checkQuiescent();
+        return new Result(completed.sum(), rejected.sum(), failed.sum(), elapsed, borrowLatency,
+                new ArrayList<>(violations));
+    }
+
+    private void work(long deadline, long holdNanos) {
+        while (System.nanoTime() < deadline && violations.isEmpty()) {
+            long begin = System.nanoTime();
+            Connection connection;
+            try {
+                connection = dataSource.getConnection();
+            } catch (OverMaxActiveException | TimedOutException e) {
+                rejected.increment();
+                // 被拒绝后稍作等待，避免空转
+                LockSupport.parkNanos(holdNanos);
+                continue;
+            } catch (RuntimeException e) {
+                if (outagePeriodMillis == 0) {
+                    violations.add("获取连接时出现异常:" + e);
+                    return;
+                }
+                // 数据库宕机期间建立连接失败
+                failed.increment();
+                LockSupport.parkNanos(holdNanos);
+                continue;
+            }
+            borrowLatency.record(System.nanoTime() - begin);
+            if (connection == null) {
+                violations.add("借出了null连接");
+                return;
+            }
+            try {
+                Connection physical = connection.unwrap(Connection.class);
+                Thread owner = owners.putIfAbsent(physical, Thread.currentThread());
+                if (owner != null) {
+                    violations.add("连接同时被两个线程持有:" + owner.getName() + "与" + Thread.currentThread().getName());
+                }
+                if (connection.isClosed()) {
+                    violations.add("持有中的连接isClosed()为true");
+                }
+                LockSupport.parkNanos(holdNanos);
+                owners.remove(physical, Thread.currentThread());
+                connection.close();
+                completed.increment();
+            } catch (Exception e) {
+                violations.add("使用连接时出现异常:" + e);
+                return;
+            }
+        }
+    }
+
+    private void checkCapacity() {
+        int maxActive = dataSource.getMaxActive();
+        int physical = database.getOpenConnections();
+        if (physical > maxActive) {
+            violations.add("物理连接数" + physical + "超过了最大活跃数" + maxActive);
+        }
+        long active = dataSource.getMetrics().getActiveConnections();
+        if (active > maxActive) {
+            violations.add("活跃连接数" + active + "超过了最大活跃数" + maxActive);
+        }
+    }
+
+    /**
+     * 检查压测结束后连接池是否完整。后台的空闲校验与补充连接可能仍在进行，
+     * 物理连接数与空闲连接数在一秒内趋于一致即可。
+     */
+    private void checkQuiescent() throws InterruptedException {
+        long settleDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (database.getOpenConnections() != dataSource.getMetrics().getIdleConnections()
+                && System.nanoTime() < settleDeadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        long active = dataSource.getMetrics().getActiveConnections();
+        if (active != 0) {
+            violations.add("压测结束后仍有" + active + "个活跃连接");
+        }
+        long idle = dataSource.getMetrics().getIdleConnections();
+        int physical = database.getOpenConnections();
+        if (physical != idle) {
+            violations.add("压测结束后物理连接数" + physical + "与空闲连接数" + idle + "不一致");
+        }
+        if (!owners.isEmpty()) {
+            violations.add("压测结束后仍有" + owners.size() + "个连接未归还");
+        }
+    }
+
+    /**
+     * 通过反射获取虚拟线程的工厂，不支持时返回null。
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 压测结果。
+     */
+    public static class Result {
+        private final long completed;
+        private final long rejected;
+        private final long failed;
+        private final long elapsedNanos;
+        private final LatencyHistogram borrowLatency;
+        private final List<String> violations;
+
+        Result(long completed, long rejected, long failed, long elapsedNanos, LatencyHistogram borrowLatency,
+               List<String> violations) {
+            this.completed = completed;
+            this.rejected = rejected;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.borrowLatency = borrowLatency;
+            this.violations = violations;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return long 数据库宕机期间获取连接失败的次数
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return double 每秒完成的借还次数
+         */
+        public double getThroughput() {
+            return completed * 1e9 / elapsedNanos;
+        }
+
+        public LatencyHistogram getBorrowLatency() {
+            return borrowLatency;
+        }
+
+        public List<String> getViolations() {
+            return violations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("完成%d次，拒绝%d次，失败%d次，吞吐量%.0f次/秒，获取连接耗时p50 %.3fms，p99 %.3fms，" +
+                            "p99.9 %.3fms，max %.3fms，违反不变量%d次",
+                    completed, rejected, failed, getThroughput(), borrowLatency.getPercentile(50) / 1e6,
+                    borrowLatency.getPercentile(99) / 1e6, borrowLatency.getPercentile(99.9) / 1e6,
+                    borrowLatency.getMax() / 1e6, violations.size());
+        }
+    }
+
+    private static final ChildLogger logger = ChildLogger.of(PoolStressHarness.class);
+}
@@ -0,0 +1,81 @@
+package com.child.util.stress;
+
+import com.child.util.ChildDataSource;
+import com.child.util.ChildLogger;
+import com.child.util.fake.FakeDatabase;
+import com.child.util.fake.FakeDriver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 使用模拟驱动对连接池进行并发压测：线程数远大于最大活跃数，部分获取将被拒绝，
+ * 压测期间与结束后均不应违反连接池的不变量。<br/>
+ */
+class PoolStressTest {
+
+    @Test
+    void testBorrowReleaseStress() throws InterruptedException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("stress-pool");
+        try {
+            PoolStressHarness harness = new PoolStressHarness(dataSource, FakeDriver.database("stress"));
+
+            PoolStressHarness.Result result = harness.run(100, 100, 1500, 200);
+            logger.info("连接池压测结果:" + result);
+
+            Assertions.assertTrue(result.getViolations().isEmpty(), result.getViolations().toString());
+            Assertions.assertTrue(result.getCompleted() > 0);
+
+            // 调小最大活跃数，使大量获取被拒绝，被拒绝的获取不应丢失连接
+            dataSource.setMaxActive(4);
+            result = new PoolStressHarness(dataSource, FakeDriver.database("stress")).run(50, 50, 500, 500);
+            logger.info("连接池压测结果(maxActive=4):" + result);
+            Assertions.assertTrue(result.getViolations().isEmpty(), result.getViolations().toString());
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * 异步预热与借出并发进行：连接池创建后立即开始借出，此时预热通常尚未完成，
+     * 预热线程在锁外创建的连接与借出线程补充的连接同时入池，物理连接数仍不应超过最大活跃数。
+     */
+    @Test
+    void testAsyncWarmUpStress() throws InterruptedException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("stress-warmup");
+        FakeDatabase database = FakeDriver.database("stress-warmup");
+        try {
+            PoolStressHarness.Result result = new PoolStressHarness(dataSource, database).run(50, 50, 1000, 200);
+            logger.info("连接池压测结果(asyncWarmUp):" + result);
+            Assertions.assertTrue(result.getViolations().isEmpty(), result.getViolations().toString());
+            Assertions.assertTrue(result.getCompleted() > 0);
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * 开启借出校验与空闲校验，数据库周期性宕机：宕机期间借出的连接校验失败后在锁外重新建立连接，
+     * 后台守护线程校验空闲连接并通过{@code replaceAsync()}补充，恢复后连接池应重新可用且不丢失连接。
+     */
+    @Test
+    void testValidationStress() throws InterruptedException {
+        ChildDataSource dataSource = ChildDataSource.creatDataSource("stress-validation");
+        FakeDatabase database = FakeDriver.database("stress-validation");
+        try {
+            PoolStressHarness harness = new PoolStressHarness(dataSource, database);
+            // 每100ms中宕机30ms，空闲校验每10ms执行一次
+            harness.setOutage(100, 30);
+            PoolStressHarness.Result result = harness.run(50, 50, 1500, 200);
+            logger.info("连接池压测结果(validation):" + result + "，校验失败"
+                    + dataSource.getMetrics().getValidationFailures() + "次");
+            Assertions.assertTrue(result.getViolations().isEmpty(), result.getViolations().toString());
+            Assertions.assertTrue(result.getCompleted() > 0);
+            Assertions.assertTrue(result.getFailed() > 0);
+            Assertions.assertTrue(dataSource.getMetrics().getValidationFailures() > 0);
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    private static final ChildLogger logger = ChildLogger.of(PoolStressTest.class);
+}
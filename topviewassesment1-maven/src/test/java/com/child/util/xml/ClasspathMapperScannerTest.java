@@ -0,0 +1,132 @@
+package com.child.util.xml;
+
+import com.child.util.orm.bean.MetaMapperStatement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+class ClasspathMapperScannerTest {
+
+    /**
+     * 测试扫描jar包中的mapper.xml，并直接从jar包中解析。<br/>
+     */
+    @Test
+    void testScanJar(@TempDir Path directory) throws IOException {
+        File jar = directory.resolve("mapper.jar").toFile();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("com/child/jardao/"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("com/child/jardao/OrderMapper.xml"));
+            out.write(mapper("com.child.jardao.OrderDAO").getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("com/child/other/OtherMapper.xml"));
+            out.write(mapper("com.child.other.OtherDAO").getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            thread.setContextClassLoader(classLoader);
+            List<MapperResource> resources = ClasspathMapperScanner.scan("com.child.jardao");
+            Assertions.assertEquals(1, resources.size());
+            Assertions.assertEquals("OrderMapper.xml", resources.get(0).getName());
+            Assertions.assertNull(resources.get(0).getFile());
+
+            Map<String, MetaMapperStatement> statementMap = ParseXmlUtils.parseMapperResources(resources);
+            Assertions.assertNotNull(statementMap.get("com.child.jardao.OrderDAO.selectById"));
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    /**
+     * 测试从jar包中加载构建时生成的索引。<br/>
+     * <p/>
+     * 先在目录中生成索引，再像打包插件一样将目录打成jar包，条目的修改时间取自文件，但只保留2秒的精度。
+     * 以内容计算的指纹在jar包中与构建时一致，索引应被直接使用，而不是被视为过期。<br/>
+     */
+    @Test
+    void testLoadIndexFromJar(@TempDir Path directory) throws IOException {
+        Path classes = directory.resolve("classes");
+        Path packageDirectory = classes.resolve("com/child/indexdao");
+        Files.createDirectories(packageDirectory);
+        File xml = packageDirectory.resolve("OrderMapper.xml").toFile();
+        Files.write(xml.toPath(), mapper("com.child.indexdao.OrderDAO").getBytes(StandardCharsets.UTF_8));
+        // 奇数秒加上毫秒，jar包中的修改时间必然与之不同
+        Assertions.assertTrue(xml.setLastModified(1_700_000_001_234L));
+        MapperIndexCompiler.main(new String[]{"com.child.indexdao", classes.toString()});
+        File index = packageDirectory.resolve(MapperIndex.INDEX_FILE_NAME).toFile();
+        Assertions.assertTrue(index.isFile());
+
+        File jar = directory.resolve("index.jar").toFile();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("com/child/indexdao/"));
+            out.closeEntry();
+            for (File file : new File[]{xml, index}) {
+                JarEntry entry = new JarEntry("com/child/indexdao/" + file.getName());
+                entry.setTime(file.lastModified());
+                out.putNextEntry(entry);
+                out.write(Files.readAllBytes(file.toPath()));
+                out.closeEntry();
+            }
+        }
+
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            thread.setContextClassLoader(classLoader);
+            List<MapperResource> resources = ClasspathMapperScanner.scan("com.child.indexdao");
+            Assertions.assertEquals(1, resources.size());
+            try (JarFile jarFile = new JarFile(jar)) {
+                Assertions.assertNotEquals(xml.lastModified(),
+                        jarFile.getJarEntry("com/child/indexdao/OrderMapper.xml").getTime());
+            }
+
+            Map<String, MetaMapperStatement> statementMap = MapperIndex.load("com.child.indexdao", resources);
+            Assertions.assertNotNull(statementMap);
+            Assertions.assertNotNull(statementMap.get("com.child.indexdao.OrderDAO.selectById"));
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    /**
+     * 测试递归扫描目录，子目录中的mapper.xml也应被找到。<br/>
+     */
+    @Test
+    void testScanDirectory(@TempDir Path directory) throws IOException {
+        File sub = directory.resolve("order").toFile();
+        Assertions.assertTrue(sub.mkdir());
+        Files.write(directory.resolve("UserMapper.xml"), mapper("a.UserDAO").getBytes(StandardCharsets.UTF_8));
+        Files.write(sub.toPath().resolve("OrderMapper.xml"), mapper("a.OrderDAO").getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("readme.txt"), new byte[0]);
+
+        List<MapperResource> resources = ClasspathMapperScanner.scanDirectory(directory.toFile());
+        Assertions.assertEquals(2, resources.size());
+        Assertions.assertTrue(resources.stream().anyMatch(resource -> "order/OrderMapper.xml".equals(resource.getName())));
+    }
+
+    private static String mapper(String namespace) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n" +
+                "<mapper namespace=\"" + namespace + "\">\n" +
+                "    <select id=\"selectById\" resultType=\"com.child.pojo.UserPO\">\n" +
+                "        select * from t_order where id = #{id}\n" +
+                "    </select>\n" +
+                "</mapper>";
+    }
+}
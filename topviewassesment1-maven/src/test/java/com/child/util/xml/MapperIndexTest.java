@@ -0,0 +1,122 @@
+package com.child.util.xml;
+
+import com.child.util.orm.bean.MetaMapperStatement;
+import com.child.util.orm.bean.SqlTemplate;
+import com.child.util.orm.dynamic.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+class MapperIndexTest {
+
+    /**
+     * 测试写入索引后再读取，SQL映射对象及其预编译模板均应与写入前一致。<br/>
+     */
+    @Test
+    void testWriteAndRead(@TempDir Path directory) throws IOException {
+        Map<String, MetaMapperStatement> statementMap = new HashMap<>();
+        statementMap.put("com.child.dao.UserDAO.selectByName", new MetaMapperStatement("com.child.dao.UserDAO.selectByName",
+                "select", "select * from t_user where name = #{name} and oldCar = #{oldCar}", "com.child.pojo.UserPO"));
+        statementMap.put("com.child.dao.UserDAO.deleteById", new MetaMapperStatement("com.child.dao.UserDAO.deleteById",
+                "delete", "delete from t_user where id = #{id}", null));
+
+        File index = directory.resolve(MapperIndex.INDEX_FILE_NAME).toFile();
+        MapperIndex.write(statementMap, 42L, index);
+        Map<String, MetaMapperStatement> loaded = MapperIndex.read(ByteBuffer.wrap(Files.readAllBytes(index.toPath())), 42L);
+
+        Assertions.assertEquals(2, loaded.size());
+        MetaMapperStatement select = loaded.get("com.child.dao.UserDAO.selectByName");
+        Assertions.assertEquals("select", select.getSqlType());
+        Assertions.assertEquals("com.child.pojo.UserPO", select.getResultType());
+        SqlTemplate sqlTemplate = select.getSqlTemplate();
+        Assertions.assertEquals("select * from t_user where name = ? and old_car = ?", sqlTemplate.getJdbcSql());
+        Assertions.assertEquals(Arrays.asList("name", "oldCar"), sqlTemplate.getParameterNames());
+        Assertions.assertNull(loaded.get("com.child.dao.UserDAO.deleteById").getResultType());
+    }
+
+    /**
+     * 测试插入语句的useGeneratedKeys与keyProperty写入索引后再读取，仍应保持开启。<br/>
+     */
+    @Test
+    void testGeneratedKeys(@TempDir Path directory) throws IOException {
+        MetaMapperStatement insert = new MetaMapperStatement("com.child.dao.UserDAO.insert", "insert",
+                "insert into t_user(name) values(#{name})", null);
+        insert.setUseGeneratedKeys(true);
+        insert.setKeyProperty("id");
+
+        File index = directory.resolve(MapperIndex.INDEX_FILE_NAME).toFile();
+        MapperIndex.write(Collections.singletonMap(insert.getSqlId(), insert), 7L, index);
+        MetaMapperStatement loaded = MapperIndex.read(ByteBuffer.wrap(Files.readAllBytes(index.toPath())), 7L)
+                .get(insert.getSqlId());
+
+        Assertions.assertTrue(loaded.isUseGeneratedKeys());
+        Assertions.assertEquals("id", loaded.getKeyProperty());
+    }
+
+    /**
+     * 测试动态SQL的节点树写入索引后再读取，求值结果应与写入前一致。<br/>
+     */
+    @Test
+    void testDynamicStatement(@TempDir Path directory) throws IOException {
+        SqlNode sqlNode = new MixedSqlNode(Arrays.asList(
+                new StaticTextSqlNode("select * from t_user"),
+                new WhereSqlNode(new MixedSqlNode(Arrays.asList(
+                        new IfSqlNode("oldCar != null", new StaticTextSqlNode("and oldCar = #{oldCar}")),
+                        new ForEachSqlNode(new StaticTextSqlNode("#{id}"), "ids", "id", null,
+                                "and id in (", ")", ","))))));
+        MetaMapperStatement statement = new MetaMapperStatement("com.child.dao.UserDAO.select", "select",
+                null, "com.child.pojo.UserPO");
+        statement.setSqlNode(sqlNode);
+
+        File index = directory.resolve(MapperIndex.INDEX_FILE_NAME).toFile();
+        MapperIndex.write(Collections.singletonMap(statement.getSqlId(), statement), 42L, index);
+        MetaMapperStatement loaded = MapperIndex.read(ByteBuffer.wrap(Files.readAllBytes(index.toPath())), 42L)
+                .get(statement.getSqlId());
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("ids", Arrays.asList(1L, 2L));
+        DynamicContext expected = new DynamicContext(parameters);
+        sqlNode.apply(expected);
+        DynamicContext actual = new DynamicContext(parameters);
+        loaded.getSqlNode().apply(actual);
+        Assertions.assertEquals(expected.getSql(), actual.getSql());
+        Assertions.assertEquals(expected.getValues(), actual.getValues());
+    }
+
+    /**
+     * 测试指纹不一致时视为索引过期，返回null。<br/>
+     */
+    @Test
+    void testStaleIndex(@TempDir Path directory) throws IOException {
+        File index = directory.resolve(MapperIndex.INDEX_FILE_NAME).toFile();
+        MapperIndex.write(new HashMap<>(), 42L, index);
+
+        Assertions.assertNull(MapperIndex.read(ByteBuffer.wrap(Files.readAllBytes(index.toPath())), 43L));
+    }
+
+    /**
+     * 测试mapper.xml的内容被修改后指纹随之改变，仅修改时间改变时指纹不变。<br/>
+     */
+    @Test
+    void testFingerprint(@TempDir Path directory) throws IOException {
+        File xml = directory.resolve("UserMapper.xml").toFile();
+        Files.write(xml.toPath(), "<mapper/>".getBytes());
+        long before = MapperIndex.fingerprint(Arrays.asList(MapperResource.of(xml.getName(), xml)));
+
+        Assertions.assertTrue(xml.setLastModified(xml.lastModified() - 1001));
+        Assertions.assertEquals(before, MapperIndex.fingerprint(Arrays.asList(MapperResource.of(xml.getName(), xml))));
+
+        Files.write(xml.toPath(), "<mapper namespace=\"com.child.dao.UserDAO\"/>".getBytes());
+        Assertions.assertNotEquals(before, MapperIndex.fingerprint(Arrays.asList(MapperResource.of(xml.getName(), xml))));
+    }
+}
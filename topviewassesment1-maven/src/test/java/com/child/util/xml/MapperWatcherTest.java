@@ -0,0 +1,117 @@
+package com.child.util.xml;
+
+import com.child.util.orm.bean.MetaMapperStatement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+class MapperWatcherTest {
+
+    /**
+     * 测试修改mapper.xml后仅更新该文件中的SQL映射，被删除的id将被移除。<br/>
+     */
+    @Test
+    void testReload(@TempDir Path directory) throws IOException {
+        Path user = directory.resolve("UserMapper.xml");
+        Path order = directory.resolve("OrderMapper.xml");
+        Files.write(user, mapper("com.child.dao.UserDAO", "selectById", "deleteById").getBytes(StandardCharsets.UTF_8));
+        Files.write(order, mapper("com.child.dao.OrderDAO", "selectById").getBytes(StandardCharsets.UTF_8));
+
+        List<MapperResource> resources = ClasspathMapperScanner.scanDirectory(directory.toFile());
+        Map<String, MetaMapperStatement> statementMap = ParseXmlUtils.parseMapperResources(resources);
+        MetaMapperStatement orderStatement = statementMap.get("com.child.dao.OrderDAO.selectById");
+
+        try (MapperWatcher watcher = new MapperWatcher(statementMap, resources)) {
+            Files.write(user, mapper("com.child.dao.UserDAO", "selectById", "selectByName").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertTrue(watcher.reload(user.toAbsolutePath()));
+
+            Assertions.assertNotNull(statementMap.get("com.child.dao.UserDAO.selectByName"));
+            Assertions.assertNull(statementMap.get("com.child.dao.UserDAO.deleteById"));
+            // 其他文件的SQL映射不受影响
+            Assertions.assertSame(orderStatement, statementMap.get("com.child.dao.OrderDAO.selectById"));
+        }
+    }
+
+    /**
+     * 测试修改后的文件无法解析时保留原有的SQL映射。<br/>
+     */
+    @Test
+    void testReloadInvalidXml(@TempDir Path directory) throws IOException {
+        Path user = directory.resolve("UserMapper.xml");
+        Files.write(user, mapper("com.child.dao.UserDAO", "selectById").getBytes(StandardCharsets.UTF_8));
+        List<MapperResource> resources = ClasspathMapperScanner.scanDirectory(directory.toFile());
+        Map<String, MetaMapperStatement> statementMap = ParseXmlUtils.parseMapperResources(resources);
+
+        try (MapperWatcher watcher = new MapperWatcher(statementMap, resources)) {
+            Files.write(user, "<mapper namespace=".getBytes(StandardCharsets.UTF_8));
+            Assertions.assertFalse(watcher.reload(user.toAbsolutePath()));
+            Assertions.assertNotNull(statementMap.get("com.child.dao.UserDAO.selectById"));
+        }
+    }
+
+    /**
+     * 测试只改变了修改时间而内容不变时不重新解析，原有的SQL映射对象保持不变。<br/>
+     */
+    @Test
+    void testReloadUnchanged(@TempDir Path directory) throws IOException {
+        Path user = directory.resolve("UserMapper.xml");
+        Files.write(user, mapper("com.child.dao.UserDAO", "selectById").getBytes(StandardCharsets.UTF_8));
+        List<MapperResource> resources = ClasspathMapperScanner.scanDirectory(directory.toFile());
+        Map<String, MetaMapperStatement> statementMap = ParseXmlUtils.parseMapperResources(resources);
+        MetaMapperStatement statement = statementMap.get("com.child.dao.UserDAO.selectById");
+
+        try (MapperWatcher watcher = new MapperWatcher(statementMap, resources)) {
+            Assertions.assertTrue(user.toFile().setLastModified(user.toFile().lastModified() + 2000));
+            Assertions.assertTrue(watcher.reload(user.toAbsolutePath()));
+            Assertions.assertSame(statement, statementMap.get("com.child.dao.UserDAO.selectById"));
+
+            Files.write(user, mapper("com.child.dao.UserDAO", "selectById", "selectByName").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertTrue(watcher.reload(user.toAbsolutePath()));
+            Assertions.assertNotSame(statement, statementMap.get("com.child.dao.UserDAO.selectById"));
+        }
+    }
+
+    /**
+     * 测试SQL映射由索引加载时，监听器仍能根据记录的资源名找出每个文件中的id，并移除被删除的id。<br/>
+     */
+    @Test
+    void testReloadFromIndex(@TempDir Path directory) throws IOException {
+        Path mappers = Files.createDirectory(directory.resolve("dao"));
+        Path user = mappers.resolve("UserMapper.xml");
+        Files.write(user, mapper("com.child.dao.UserDAO", "selectById", "deleteById").getBytes(StandardCharsets.UTF_8));
+        List<MapperResource> resources = ClasspathMapperScanner.scanDirectory(mappers.toFile());
+        long fingerprint = MapperIndex.fingerprint(resources);
+        File index = directory.resolve(MapperIndex.INDEX_FILE_NAME).toFile();
+        MapperIndex.write(ParseXmlUtils.parseMapperResources(resources), fingerprint, index);
+        Map<String, MetaMapperStatement> statementMap =
+                MapperIndex.read(ByteBuffer.wrap(Files.readAllBytes(index.toPath())), fingerprint);
+        Assertions.assertEquals("UserMapper.xml", statementMap.get("com.child.dao.UserDAO.deleteById").getResource());
+
+        try (MapperWatcher watcher = new MapperWatcher(statementMap, resources)) {
+            Files.write(user, mapper("com.child.dao.UserDAO", "selectById").getBytes(StandardCharsets.UTF_8));
+            Assertions.assertTrue(watcher.reload(user.toAbsolutePath()));
+            Assertions.assertNotNull(statementMap.get("com.child.dao.UserDAO.selectById"));
+            Assertions.assertNull(statementMap.get("com.child.dao.UserDAO.deleteById"));
+        }
+    }
+
+    private static String mapper(String namespace, String... ids) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n")
+                .append("<mapper namespace=\"").append(namespace).append("\">\n");
+        for (String id : ids) {
+            xml.append("    <select id=\"").append(id).append("\" resultType=\"com.child.pojo.UserPO\">\n")
+                    .append("        select * from t_user where id = #{id}\n")
+                    .append("    </select>\n");
+        }
+        return xml.append("</mapper>").toString();
+    }
+}
@@ -0,0 +1,68 @@
+package com.child.util.xml;
+
+import com.child.util.orm.bean.MetaMapperStatement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+class ParseXmlUtilsTest {
+
+    /**
+     * 测试并行解析多个mapper.xml文件，每个文件的SQL映射都应被解析且互不影响。<br/>
+     */
+    @Test
+    void testParseMapper(@TempDir Path directory) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            files.add(writeMapper(directory, "Mapper" + i + ".xml", "com.child.dao.Dao" + i, "selectById"));
+        }
+
+        Map<String, MetaMapperStatement> statementMap = ParseXmlUtils.parseMapper(files);
+        Assertions.assertEquals(50, statementMap.size());
+        MetaMapperStatement statement = statementMap.get("com.child.dao.Dao7.selectById");
+        Assertions.assertEquals("select", statement.getSqlType());
+        Assertions.assertEquals("select * from t_user where id = #{id}", statement.getPrototypeSql());
+    }
+
+    /**
+     * 测试不同文件中出现相同的全限定id时抛出异常。<br/>
+     */
+    @Test
+    void testDuplicateId(@TempDir Path directory) throws IOException {
+        List<File> files = new ArrayList<>();
+        files.add(writeMapper(directory, "Mapper1.xml", "com.child.dao.UserDAO", "selectById"));
+        files.add(writeMapper(directory, "Mapper2.xml", "com.child.dao.UserDAO", "selectById"));
+
+        Assertions.assertThrows(RuntimeException.class, () -> ParseXmlUtils.parseMapper(files));
+    }
+
+    /**
+     * 测试从包名中获取mapper.xml文件。<br/>
+     */
+    @Test
+    void testGetXmlFileFromPackage() {
+        List<File> files = ParseXmlUtils.getXmlFileFromPackage("com.child.dao");
+        Assertions.assertFalse(files.isEmpty());
+    }
+
+    private static File writeMapper(Path directory, String fileName, String namespace, String id) throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n" +
+                "<mapper namespace=\"" + namespace + "\">\n" +
+                "    <select id=\"" + id + "\" resultType=\"com.child.pojo.UserPO\">\n" +
+                "        select * from t_user where id = #{id}\n" +
+                "    </select>\n" +
+                "</mapper>";
+        Path path = directory.resolve(fileName);
+        Files.write(path, xml.getBytes(StandardCharsets.UTF_8));
+        return path.toFile();
+    }
+}